@@ -61,3 +61,22 @@ values (14002, 5, '20.03.2015 11:30:21', 7.00);
 insert into Gebot (GID, AID, GebotsZeitpunkt, GebotsPreis)
 values (15001, 6, '01.10.2019 10:09:12', 3.00);
 
+-- AktuellerPreis und AnzahlGebote aus den eingefuegten Geboten nachziehen
+update Angebot a
+set AktuellerPreis = (select max(g.GebotsPreis) from Gebot g where g.AID = a.AID),
+    AnzahlGebote   = (select count(*) from Gebot g where g.AID = a.AID);
+
+-- gebot_seq hinter die eingefuegten GIDs ziehen, wie AuktionsService.gebotSequenzNachziehen
+declare
+    naechste integer;
+    aktuell  integer;
+begin
+    select nvl(max(GID), 0) + 1 into naechste from Gebot;
+    select gebot_seq.nextval into aktuell from dual;
+    if aktuell < naechste then
+        execute immediate 'alter sequence gebot_seq increment by ' || (naechste - aktuell);
+        select gebot_seq.nextval into aktuell from dual;
+        execute immediate 'alter sequence gebot_seq increment by 1';
+    end if;
+end;
+/
@@ -0,0 +1,6 @@
+-- Indizes fuer die Zugriffspfade von AuktionsService und AuktionsAbschluss.
+-- Nach tables-create.sql ausfuehren.
+
+-- istGebotspreisOk: left join Gebot g on a.aid = g.aid mit max(GebotsPreis);
+-- der Index liefert das Maximum je AID ohne Zugriff auf die Tabelle
+create index gebot_aid_preis_ix on Gebot (AID, GebotsPreis);
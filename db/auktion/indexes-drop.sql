@@ -0,0 +1 @@
+drop index gebot_aid_preis_ix;
@@ -4,6 +4,9 @@ create table Angebot
     ArtikelBez           varchar2(30)  not null,
     AuktionEndeZeitpunkt date          not null,
     AuktionMinPreis      decimal(9, 2) not null,
+    -- hoechster Gebotspreis und Zahl der Gebote, gepflegt von AuktionsService.biete
+    AktuellerPreis       decimal(9, 2) null,
+    AnzahlGebote         integer       default 0 not null,
     constraint pk_angebot primary key (AID)
 );
 
@@ -17,6 +20,18 @@ create table Gebot
     constraint fk_angebot foreign key (AID) references Angebot
 );
 
+-- GIDs der Gebote aus AuktionsService.biete. Wer Gebote mit eigenen GIDs laedt
+-- (data-insert.sql, Datengenerator), zieht die Sequenz danach hinter max(GID),
+-- siehe AuktionsService.gebotSequenzNachziehen
+create sequence gebot_seq start with 1 nocycle;
 
-
-
+create table Auktionsergebnis
+(
+    AID                integer       not null,
+    GID                integer       null,
+    ZuschlagPreis      decimal(9, 2) null,
+    AbschlussZeitpunkt date          not null,
+    constraint pk_auktionsergebnis primary key (AID),
+    constraint fk_ergebnis_angebot foreign key (AID) references Angebot,
+    constraint fk_ergebnis_gebot foreign key (GID) references Gebot
+);
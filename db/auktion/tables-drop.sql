@@ -1,3 +1,4 @@
+drop table Auktionsergebnis;
+drop sequence gebot_seq;
 drop table Gebot;
 drop table Angebot;
-
@@ -1,2 +1,4 @@
 delete
-from Raum;
\ No newline at end of file
+from Buchung;
+delete
+from Raum;
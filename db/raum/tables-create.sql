@@ -4,3 +4,16 @@ create table Raum
     RaumNr      varchar2(10) not null,
     AnzahlSitze integer
 );
+
+create table Buchung
+(
+    BID         integer       not null primary key,
+    RID         integer       not null references Raum,
+    Beginn      date          not null,
+    Ende        date          not null,
+    Bezeichnung varchar2(100),
+    constraint buchung_zeitraum check (Ende > Beginn)
+);
+
+-- Belegung eines Raums in einem Zeitraum
+create index buchung_rid_beginn_ix on Buchung (RID, Beginn, Ende);
@@ -1 +1,2 @@
+drop table Buchung;
 drop table Raum;
@@ -1,4 +1,6 @@
 delete
+from Vertrag_Monatsrate;
+delete
 from Deckungspreis;
 delete
 from Deckungsbetrag;
@@ -155,4 +155,16 @@ values (3, 1, 100000000);
 insert into Deckung(Vertrag_FK, Deckungsart_FK, Deckungsbetrag)
 values (3, 2, 15000000);
 
+--------------------------------------------------------------------------------------------------
+-- Vertrag_Monatsrate aus den eingefuegten Deckungen nachziehen
+--------------------------------------------------------------------------------------------------
+insert into Vertrag_Monatsrate(Vertrag_FK, Monatsrate)
+select v.ID, nvl(sum(dp.Preis), 0)
+from Vertrag v
+         left join Deckung d on d.Vertrag_FK = v.ID
+         left join Deckungsbetrag db on db.Deckungsart_FK = d.Deckungsart_FK and db.Deckungsbetrag = d.Deckungsbetrag
+         left join Deckungspreis dp on dp.Deckungsbetrag_FK = db.ID
+    and v.Versicherungsbeginn >= dp.Gueltig_Von and v.Versicherungsbeginn <= dp.Gueltig_Bis
+group by v.ID;
+
 commit;
\ No newline at end of file
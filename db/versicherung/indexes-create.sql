@@ -0,0 +1,13 @@
+-- Indizes fuer die Zugriffspfade von VersicherungService.
+-- Nach tables-create.sql ausfuehren. Die Indizes decken die Abfragen ab,
+-- die Tabellen selbst muessen dafuer nicht gelesen werden.
+
+-- getDeckungsbetragDefinitionId: where Deckungsart_FK = ? and Deckungsbetrag = ?, liefert ID
+-- quote: join ueber Deckungsart_FK, sortiert nach Deckungsbetrag
+create index deckungsbetrag_art_betrag_ix on Deckungsbetrag (Deckungsart_FK, Deckungsbetrag, ID);
+
+-- isDeckungspreisVorhanden/quote: where Deckungsbetrag_FK = ? and ? between Gueltig_Von and Gueltig_Bis, liefert Preis
+create index deckungspreis_betrag_gueltig_ix on Deckungspreis (Deckungsbetrag_FK, Gueltig_Von, Gueltig_Bis, Preis);
+
+-- quote: alle Deckungsarten eines Produkts; Fremdschluessel ist sonst nicht indiziert
+create index deckungsart_produkt_ix on Deckungsart (Produkt_FK, ID, KurzBez);
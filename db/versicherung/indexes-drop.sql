@@ -0,0 +1,3 @@
+drop index deckungsart_produkt_ix;
+drop index deckungspreis_betrag_gueltig_ix;
+drop index deckungsbetrag_art_betrag_ix;
@@ -75,3 +75,15 @@ create table Deckungspreis
     constraint deckungspreis_pk primary key (ID),
     constraint deckungsbetrag_fk foreign key (Deckungsbetrag_FK) references Deckungsbetrag
 );
+
+-- Monatsrate je Vertrag wie in VersicherungJdbc.calcMonatsrate berechnet, gepflegt von
+-- createDeckung (ue03 und ue04) und BestandImport. Mit on delete cascade, damit Werkzeuge,
+-- die die Tabelle nicht kennen (DbUnit, FixtureLoader), Vertrag weiter leeren koennen;
+-- Abweichungen findet versicherung.MonatsratenSummary.pruefe.
+create table Vertrag_Monatsrate
+(
+    Vertrag_FK integer        not null,
+    Monatsrate decimal(13, 2) not null,
+    constraint vertrag_monatsrate_pk primary key (Vertrag_FK),
+    constraint vertrag_monatsrate_fk foreign key (Vertrag_FK) references Vertrag on delete cascade
+);
@@ -1,3 +1,4 @@
+drop table Vertrag_Monatsrate;
 drop table Deckungspreis;
 drop table Deckungsbetrag;
 drop table Ablehnungsregel;
@@ -4,9 +4,27 @@ package de.htwberlin.dbtech.aufgaben.ue02;
   @author Ingo Classen
  */
 
+import de.htwberlin.dbtech.utils.RowMapper;
+import de.htwberlin.dbtech.utils.Spalten;
+
+import java.sql.Date;
 import java.time.LocalDate;
 
 public class Kunde {
+    /**
+     * Fuer Abfragen mit den Spalten ID, Name und Geburtsdatum.
+     */
+    public static final RowMapper.Factory<Kunde> MAPPER = rs -> {
+        Spalten s = Spalten.von(rs);
+        int id = s.index("ID");
+        int name = s.index("Name");
+        int geburtsdatum = s.index("Geburtsdatum");
+        return r -> {
+            Date d = r.getDate(geburtsdatum);
+            return new Kunde(r.getInt(id), r.getString(name), d == null ? null : d.toLocalDate());
+        };
+    };
+
     private Integer id;
     private String name;
     private LocalDate geburtsdatum;
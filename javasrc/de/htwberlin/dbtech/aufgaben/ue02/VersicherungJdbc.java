@@ -1,6 +1,15 @@
 package de.htwberlin.dbtech.aufgaben.ue02;
 
 import de.htwberlin.dbtech.exceptions.*;
+import de.htwberlin.dbtech.utils.Money;
+import de.htwberlin.dbtech.utils.RowMapper;
+import de.htwberlin.dbtech.utils.TransactionTemplate;
+import de.htwberlin.dbtech.versicherung.MonatsratenCache;
+import de.htwberlin.dbtech.versicherung.MonatsratenSummary;
+import de.htwberlin.dbtech.versicherung.Monatsratenmodus;
+import de.htwberlin.dbtech.versicherung.Preisquelle;
+import de.htwberlin.dbtech.versicherung.ReferenzdatenCache;
+import de.htwberlin.dbtech.versicherung.Tarifdatei;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -20,12 +29,82 @@ import java.util.List;
 public class VersicherungJdbc implements IVersicherungJdbc {
     private static final Logger L = LoggerFactory.getLogger(VersicherungJdbc.class);
     private Connection connection; // Diese Verbindung wird von außen gesetzt und verwaltet
+    private Monatsratenmodus monatsratenmodus = Monatsratenmodus.BERECHNEN;
+    private MonatsratenCache monatsratenCache;
+    private Tarifdatei tarifdatei;
+    private ReferenzdatenCache referenzdaten;
+
+    private static final String SQL_KURZBEZ_PRODUKTE = "SELECT KurzBez FROM Produkt ORDER BY ID";
+    private static final String SQL_KUNDE = "SELECT ID, Name, Geburtsdatum FROM Kunde WHERE ID = ?";
+    private static final RowMapper.Factory<Kunde> KUNDE_MAPPER = RowMapper.jeAnweisung(Kunde.MAPPER);
+    private static final String SQL_KUNDE_EXISTIERT = "SELECT COUNT(*) FROM Kunde WHERE ID = ?";
+    private static final String SQL_PRODUKT_EXISTIERT = "SELECT COUNT(*) FROM Produkt WHERE ID = ?";
+    private static final String SQL_VERTRAG_EXISTIERT = "SELECT COUNT(*) FROM Vertrag WHERE ID = ?";
+    private static final String SQL_INSERT_VERTRAG =
+            "INSERT INTO Vertrag (ID, Produkt_FK, Kunde_FK, Versicherungsbeginn, Versicherungsende) VALUES (?, ?, ?, ?, ?)";
+    private static final String SQL_VERSICHERUNGSBEGINN = "SELECT Versicherungsbeginn FROM Vertrag WHERE ID = ?";
+    // SUM in Cent ueber alle passenden Zeilen; ohne Zeile null, kein BigDecimal beim Lesen
+    private static final String SQL_MONATSRATE = "SELECT SUM(ROUND(dp.Preis * 100)) AS GesamtpreisCent " +
+            "FROM Deckung d " +
+            "JOIN Deckungsbetrag db ON d.Deckungsart_FK = db.Deckungsart_FK AND d.Deckungsbetrag = db.Deckungsbetrag " +
+            "JOIN Deckungspreis dp ON db.ID = dp.Deckungsbetrag_FK " +
+            "WHERE d.Vertrag_FK = ? " +
+            "AND ? >= dp.Gueltig_Von " +
+            "AND ? <= dp.Gueltig_Bis";
+    // Beginn als Tag seit 1970-01-01 und die Deckungsbetraege des Vertrags, Preise aus einer Preisquelle
+    private static final String SQL_DECKUNGSBETRAEGE_VERTRAG =
+            "SELECT TRUNC(v.Versicherungsbeginn) - DATE '1970-01-01' AS BeginnTag, db.ID " +
+            "FROM Vertrag v " +
+            "LEFT JOIN Deckung d ON d.Vertrag_FK = v.ID " +
+            "LEFT JOIN Deckungsbetrag db ON db.Deckungsart_FK = d.Deckungsart_FK AND db.Deckungsbetrag = d.Deckungsbetrag " +
+            "WHERE v.ID = ?";
+
+    /**
+     * Alle SQL-Anweisungen des Dienstes, z.B. fuer {@link de.htwberlin.dbtech.utils.ExplainPlanCheck}.
+     */
+    public static List<String> statements() {
+        return List.of(SQL_KURZBEZ_PRODUKTE, SQL_KUNDE, SQL_KUNDE_EXISTIERT, SQL_PRODUKT_EXISTIERT,
+                SQL_VERTRAG_EXISTIERT, SQL_INSERT_VERTRAG, SQL_VERSICHERUNGSBEGINN, SQL_MONATSRATE,
+                SQL_DECKUNGSBETRAEGE_VERTRAG);
+    }
 
     @Override
     public void setConnection(Connection connection) {
         this.connection = connection;
     }
 
+    /**
+     * Mit {@link Monatsratenmodus#SUMMARY} liest calcMonatsrate zuerst aus
+     * Vertrag_Monatsrate.
+     */
+    public void setMonatsratenmodus(Monatsratenmodus monatsratenmodus) {
+        this.monatsratenmodus = monatsratenmodus;
+    }
+
+    /**
+     * Cache fuer calcMonatsrate; die schreibenden Dienste muessen denselben
+     * Cache bekommen, damit sie ihn invalidieren. Mit Cache liest
+     * calcMonatsrate nicht von Replikaten, sondern von der Primaerdatenbank.
+     */
+    public void setMonatsratenCache(MonatsratenCache monatsratenCache) {
+        this.monatsratenCache = monatsratenCache;
+    }
+
+    /**
+     * Preise fuer calcMonatsrate aus der Tarifdatei statt aus Deckungspreis.
+     */
+    public void setTarifdatei(Tarifdatei tarifdatei) {
+        this.tarifdatei = tarifdatei;
+    }
+
+    /**
+     * Produkte fuer createVertrag und, ohne Tarifdatei, Preise fuer
+     * calcMonatsrate aus den Referenzdaten statt aus der Datenbank.
+     */
+    public void setReferenzdaten(ReferenzdatenCache referenzdaten) {
+        this.referenzdaten = referenzdaten;
+    }
+
     private Connection useConnection() {
         if (connection == null) {
             L.error("Connection not set before use.");
@@ -44,15 +123,18 @@ public class VersicherungJdbc implements IVersicherungJdbc {
     public List<String> kurzBezProdukte() {
         L.info("kurzBezProdukte: start");
         List<String> kurzBezeichnungen = new ArrayList<>(); //return Wert
-        String sql = "SELECT KurzBez FROM Produkt ORDER BY ID"; // implementation!
         Connection conn = useConnection(); // Verbindung holen, aber nicht im try-with-resources
 
-        try (PreparedStatement pstmt = conn.prepareStatement(sql); // alle Values/Werte sammeln
-             ResultSet rs = pstmt.executeQuery()) {
+        try { // reine Lesemethode, kann ueber eine RoutingDataSource an ein Replikat gehen
+            TransactionTemplate.lesend(conn).run(c -> {
+                try (PreparedStatement pstmt = c.prepareStatement(SQL_KURZBEZ_PRODUKTE); // alle Values/Werte sammeln
+                     ResultSet rs = pstmt.executeQuery()) {
 
-            while (rs.next()) {
-                kurzBezeichnungen.add(rs.getString("KurzBez"));
-            }
+                    while (rs.next()) {
+                        kurzBezeichnungen.add(rs.getString(1));
+                    }
+                }
+            });
         } catch (SQLException e) {
             L.error("Error fetching Produkt KurzBezeichnungen", e);
             throw new DataException("Datenbankfehler beim Laden der Produktbezeichnungen.", e);
@@ -69,23 +151,23 @@ public class VersicherungJdbc implements IVersicherungJdbc {
     @Override
     public Kunde findKundeById(Integer id) {
         L.info("findKundeById: start, id={}", id);
-        String sql = "SELECT Name, Geburtsdatum FROM Kunde WHERE ID = ?"; // implementation!
         Kunde kunde = null;
         Connection conn = useConnection();
 
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, id);  //select ID as parameter
-            try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) { //check is the result exists
-                    String name = rs.getString("Name");
-                    LocalDate geburtsdatum = rs.getDate("Geburtsdatum").toLocalDate();
-                    //converting java.sql.date to LocalDate() (avoid confusion with time or timezone)
-                    kunde = new Kunde(id, name, geburtsdatum);
-                } else {
-                    L.warn("Kunde mit ID {} nicht gefunden.", id);
-                    throw new KundeExistiertNichtException(id);
+        try { // reine Lesemethode, kann ueber eine RoutingDataSource an ein Replikat gehen
+            kunde = TransactionTemplate.lesend(conn).execute(c -> {
+                try (PreparedStatement pstmt = c.prepareStatement(SQL_KUNDE)) {
+                    pstmt.setInt(1, id);  //select ID as parameter
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        Kunde k = RowMapper.erste(rs, KUNDE_MAPPER);
+                        if (k == null) {
+                            L.warn("Kunde mit ID {} nicht gefunden.", id);
+                            throw new KundeExistiertNichtException(id);
+                        }
+                        return k;
+                    }
                 }
-            }
+            });
         } catch (KundeExistiertNichtException e) {
             throw e;
         } catch (SQLException e) {
@@ -100,14 +182,12 @@ public class VersicherungJdbc implements IVersicherungJdbc {
      * Helper methods for createVertrag tests
      * entityExists prevents repeating code
      * & is reusable for 3 checks (Kunde, Produkt, Vertrag)
-     * @param tableName
-     * @param idColumnName
+     * @param sql SELECT COUNT(*) mit der ID als einzigem Parameter
      * @param id
      * @return
      * @throws SQLException
      */
-    private boolean entityExists(String tableName, String idColumnName, Integer id) throws SQLException {
-        String sql = "SELECT COUNT(*) FROM " + tableName + " WHERE " + idColumnName + " = ?";
+    private boolean entityExists(String sql, Integer id) throws SQLException {
         Connection conn = useConnection();
         try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, id);
@@ -118,15 +198,18 @@ public class VersicherungJdbc implements IVersicherungJdbc {
     }
 
     private boolean kundeExistiert(Integer kundenId) throws SQLException {
-        return entityExists("Kunde", "ID", kundenId);
+        return entityExists(SQL_KUNDE_EXISTIERT, kundenId);
     }
 
     private boolean produktExistiert(Integer produktId) throws SQLException {
-        return entityExists("Produkt", "ID", produktId);
+        if (referenzdaten != null) {
+            return referenzdaten.get().hatProdukt(produktId);
+        }
+        return entityExists(SQL_PRODUKT_EXISTIERT, produktId);
     }
 
     private boolean vertragExistiert(Integer vertragsId) throws SQLException {
-        return entityExists("Vertrag", "ID", vertragsId);
+        return entityExists(SQL_VERTRAG_EXISTIERT, vertragsId);
     }
 
 
@@ -148,42 +231,42 @@ public class VersicherungJdbc implements IVersicherungJdbc {
             }
 
             // Existenzprüfungen verwenden die bereits geholte `conn` implizit durch `useConnection()`
+            // Pruefungen und Insert in einer Transaktion, bei offener Transaktion des Aufrufers ohne eigenen Commit
+            TransactionTemplate.of(conn).run(c -> {
+                if (!produktExistiert(produktId)) {
+                    L.warn("Produkt mit ID {} existiert nicht.", produktId);
+                    throw new ProduktExistiertNichtException(produktId); //throws exception for non-existing contracts
+                }
 
-            if (!produktExistiert(produktId)) {
-                L.warn("Produkt mit ID {} existiert nicht.", produktId);
-                throw new ProduktExistiertNichtException(produktId); //throws exception for non-existing contracts
-            }
-
-            if (!kundeExistiert(kundenId)) {
-                L.warn("Kunde mit ID {} existiert nicht.", kundenId);
-                throw new KundeExistiertNichtException(kundenId); //throws exception for non-existing customers
-            }
+                if (!kundeExistiert(kundenId)) {
+                    L.warn("Kunde mit ID {} existiert nicht.", kundenId);
+                    throw new KundeExistiertNichtException(kundenId); //throws exception for non-existing customers
+                }
 
-            if (vertragExistiert(id)) {
-                L.warn("Vertrag mit ID {} existiert bereits.", id);
-                throw new VertragExistiertBereitsException(id); //throws exception for non-existing contract ID
-            }
+                if (vertragExistiert(id)) {
+                    L.warn("Vertrag mit ID {} existiert bereits.", id);
+                    throw new VertragExistiertBereitsException(id); //throws exception for non-existing contract ID
+                }
 
-            /**
-             * Calculate Versicherungsende = Versicherungsbeginn + 1Y - 1D
-             */
-            LocalDate versicherungsende = versicherungsbeginn.plusYears(1).minusDays(1);
-            String sql = "INSERT INTO Vertrag (ID, Produkt_FK, Kunde_FK, Versicherungsbeginn, Versicherungsende) VALUES (?, ?, ?, ?, ?)";
-
-            try (PreparedStatement pstmt = conn.prepareStatement(sql)) { // Hier die geholte `conn` verwenden
-                pstmt.setInt(1, id);
-                pstmt.setInt(2, produktId);
-                pstmt.setInt(3, kundenId);
-                pstmt.setDate(4, Date.valueOf(versicherungsbeginn)); //Use Date.valueOf() for converting LocalDate to java.sql.Date
-                pstmt.setDate(5, Date.valueOf(versicherungsende));
-
-                int affectedRows = pstmt.executeUpdate();
-                if (affectedRows == 0) {
-                    L.error("Vertrag konnte nicht erstellt werden, keine Zeile betroffen, ID: {}", id);
-                    throw new DataException("Vertrag konnte nicht erstellt werden für ID: " + id + " (executeUpdate lieferte 0).");
+                /**
+                 * Calculate Versicherungsende = Versicherungsbeginn + 1Y - 1D
+                 */
+                LocalDate versicherungsende = versicherungsbeginn.plusYears(1).minusDays(1);
+                try (PreparedStatement pstmt = conn.prepareStatement(SQL_INSERT_VERTRAG)) { // Hier die geholte `conn` verwenden
+                    pstmt.setInt(1, id);
+                    pstmt.setInt(2, produktId);
+                    pstmt.setInt(3, kundenId);
+                    pstmt.setDate(4, Date.valueOf(versicherungsbeginn)); //Use Date.valueOf() for converting LocalDate to java.sql.Date
+                    pstmt.setDate(5, Date.valueOf(versicherungsende));
+
+                    int affectedRows = pstmt.executeUpdate();
+                    if (affectedRows == 0) {
+                        L.error("Vertrag konnte nicht erstellt werden, keine Zeile betroffen, ID: {}", id);
+                        throw new DataException("Vertrag konnte nicht erstellt werden für ID: " + id + " (executeUpdate lieferte 0).");
+                    }
+                    L.info("Vertrag mit ID {} erfolgreich erstellt.", id);
                 }
-                L.info("Vertrag mit ID {} erfolgreich erstellt.", id);
-            }
+            });
 
         } catch (DatumInVergangenheitException | ProduktExistiertNichtException | KundeExistiertNichtException | VertragExistiertBereitsException e) {
             throw e;
@@ -202,16 +285,63 @@ public class VersicherungJdbc implements IVersicherungJdbc {
     @Override
     public BigDecimal calcMonatsrate(Integer vertragsId) {
         L.info("calcMonatsrate: start, vertragsId={}", vertragsId);
+        MonatsratenCache cache = monatsratenCache;
+        long stand = 0;
+        if (cache != null) {
+            long cent = cache.get(vertragsId);
+            if (cent != MonatsratenCache.KEIN_WERT) {
+                L.info("calcMonatsrate: aus dem Cache, vertragsId={}", vertragsId);
+                return Money.ofCent(cent).toBigDecimal();
+            }
+            // vor dem Lesen, sonst koennte ein veraltetes Ergebnis abgelegt werden
+            stand = cache.getStand();
+        }
+        BigDecimal monatsrate;
+        TransactionTemplate.TransactionCallback<BigDecimal> berechnung = c -> {
+            if (monatsratenmodus == Monatsratenmodus.SUMMARY) {
+                // ein Zugriff ueber den Primaerschluessel; ohne Zeile wie bisher rechnen
+                long cent = MonatsratenSummary.leseCent(c, vertragsId);
+                if (cent != MonatsratenSummary.KEINE_ZEILE) {
+                    return Money.ofCent(cent).toBigDecimal();
+                }
+            }
+            if (tarifdatei != null) {
+                return berechneMonatsrate(c, vertragsId, tarifdatei);
+            }
+            if (referenzdaten != null) {
+                return berechneMonatsrate(c, vertragsId, referenzdaten.get());
+            }
+            return berechneMonatsrate(c, vertragsId);
+        };
+        try {
+            if (cache != null) {
+                // was in den Cache kommt, liest die Primaerdatenbank; ein verzoegertes Replikat
+                // lieferte sonst eine veraltete Rate, die bis zur naechsten Invalidierung bliebe
+                monatsrate = berechnung.doInTransaction(useConnection());
+            } else {
+                // reine Lesemethode, kann ueber eine RoutingDataSource an ein Replikat gehen
+                monatsrate = TransactionTemplate.lesend(useConnection()).execute(berechnung);
+            }
+        } catch (SQLException e) {
+            L.error("DB Fehler bei der Berechnung der Monatsrate für Vertrag ID " + vertragsId, e);
+            throw new DataException("DB Fehler bei der Berechnung der Monatsrate für Vertrag ID " + vertragsId, e);
+        }
+        if (cache != null) {
+            cache.put(vertragsId, Money.of(monatsrate).getCent(), stand);
+        }
+        L.info("calcMonatsrate: ende, vertragsId={}, monatsrate={}", vertragsId, monatsrate);
+        return monatsrate; //Return als BigDecimal
+    }
+
+    private BigDecimal berechneMonatsrate(Connection conn, Integer vertragsId) {
         BigDecimal monatsrate = BigDecimal.ZERO;
         LocalDate versicherungsbeginn;
-        Connection conn = useConnection(); // Verbindung einmal holen
 
-        String vertragSql = "SELECT Versicherungsbeginn FROM Vertrag WHERE ID = ?";
-        try (PreparedStatement pstmtVertrag = conn.prepareStatement(vertragSql)) {
+        try (PreparedStatement pstmtVertrag = conn.prepareStatement(SQL_VERSICHERUNGSBEGINN)) {
             pstmtVertrag.setInt(1, vertragsId);
             try (ResultSet rsVertrag = pstmtVertrag.executeQuery()) {
                 if (rsVertrag.next()) {
-                    versicherungsbeginn = rsVertrag.getDate("Versicherungsbeginn").toLocalDate();
+                    versicherungsbeginn = rsVertrag.getDate(1).toLocalDate();
                 } else {
                     L.warn("Vertrag mit ID {} für Ratenberechnung nicht gefunden.", vertragsId);
                     throw new VertragExistiertNichtException(vertragsId); //if get Verischerungsbeginn not found
@@ -226,36 +356,49 @@ public class VersicherungJdbc implements IVersicherungJdbc {
 
         // JOIN the tables Deckung, Deckungsbetrag, Deckungspreis
 
-        // SQL Query:
-        String preisSql = "SELECT SUM(dp.Preis) AS Gesamtpreis " +
-                // SUM (dp.Preis) for all matching rows...→ If no rows found, sum = 0
-                "FROM Deckung d " +
-                "JOIN Deckungsbetrag db ON d.Deckungsart_FK = db.Deckungsart_FK AND d.Deckungsbetrag = db.Deckungsbetrag " +
-                "JOIN Deckungspreis dp ON db.ID = dp.Deckungsbetrag_FK " +
-                "WHERE d.Vertrag_FK = ? " +
-                "AND ? >= dp.Gueltig_Von " + //Filter Deckungspreis rows
-                "AND ? <= dp.Gueltig_Bis";
-                // prices should be valid between Gueltig_Von and Gueltig_Bis
-
-        try (PreparedStatement pstmtPreis = conn.prepareStatement(preisSql)) {
+        // prices should be valid between Gueltig_Von and Gueltig_Bis
+        try (PreparedStatement pstmtPreis = conn.prepareStatement(SQL_MONATSRATE)) {
             pstmtPreis.setInt(1, vertragsId);
             pstmtPreis.setDate(2, Date.valueOf(versicherungsbeginn));
             pstmtPreis.setDate(3, Date.valueOf(versicherungsbeginn));
 
             try (ResultSet rsPreis = pstmtPreis.executeQuery()) {
                 if (rsPreis.next()) {
-                    BigDecimal summe = rsPreis.getBigDecimal("Gesamtpreis");
-                    if (summe != null) {
-                        monatsrate = summe;
-                    }
+                    // SUM ueber keine Zeile ist null, getLong liefert dann 0
+                    monatsrate = Money.ofCent(Money.leseCent(rsPreis, 1)).toBigDecimal();
                 }
             }
         } catch (SQLException e) {
             L.error("DB Fehler bei der Berechnung der Monatsrate für Vertrag ID " + vertragsId, e);
             throw new DataException("DB Fehler bei der Berechnung der Monatsrate für Vertrag ID " + vertragsId, e);
         }
+        return monatsrate;
+    }
 
-        L.info("calcMonatsrate: ende, vertragsId={}, monatsrate={}", vertragsId, monatsrate);
-        return monatsrate; //Return als BigDecimal
+    // Deckungsbetraege des Vertrags aus der Datenbank, Preise aus Tarifdatei oder Referenzdaten
+    private BigDecimal berechneMonatsrate(Connection conn, Integer vertragsId, Preisquelle tarife) {
+        try (PreparedStatement pstmt = conn.prepareStatement(SQL_DECKUNGSBETRAEGE_VERTRAG)) {
+            pstmt.setInt(1, vertragsId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    L.warn("Vertrag mit ID {} für Ratenberechnung nicht gefunden.", vertragsId);
+                    throw new VertragExistiertNichtException(vertragsId);
+                }
+                long summeCent = 0;
+                do {
+                    int deckungsbetragId = rs.getInt(2);
+                    if (!rs.wasNull()) {
+                        long cent = tarife.summeCent(deckungsbetragId, rs.getInt(1));
+                        if (cent != Preisquelle.KEIN_PREIS) {
+                            summeCent += cent;
+                        }
+                    }
+                } while (rs.next());
+                return Money.ofCent(summeCent).toBigDecimal();
+            }
+        } catch (SQLException e) {
+            L.error("DB Fehler bei der Berechnung der Monatsrate für Vertrag ID " + vertragsId, e);
+            throw new DataException("DB Fehler bei der Berechnung der Monatsrate für Vertrag ID " + vertragsId, e);
+        }
     }
 }
\ No newline at end of file
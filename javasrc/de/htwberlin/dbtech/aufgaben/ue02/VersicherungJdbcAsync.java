@@ -0,0 +1,48 @@
+package de.htwberlin.dbtech.aufgaben.ue02;
+
+import de.htwberlin.dbtech.utils.AsyncServiceExecutor;
+import de.htwberlin.dbtech.utils.ConnectionPool;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchrone Fassade fuer {@link IVersicherungJdbc}. Jeder Aufruf laeuft mit
+ * einer Connection aus dem Pool; fachliche Exceptions werden ueber das Future
+ * gemeldet. Siehe {@link AsyncServiceExecutor}.
+ */
+public class VersicherungJdbcAsync implements AutoCloseable {
+    private final AsyncServiceExecutor<IVersicherungJdbc> executor;
+
+    public VersicherungJdbcAsync(ConnectionPool pool, int maxInFlight) {
+        this(new AsyncServiceExecutor<>(pool, VersicherungJdbc::new, IVersicherungJdbc::setConnection, maxInFlight));
+    }
+
+    public VersicherungJdbcAsync(AsyncServiceExecutor<IVersicherungJdbc> executor) {
+        this.executor = executor;
+    }
+
+    public CompletableFuture<List<String>> kurzBezProdukte() {
+        return executor.submit(IVersicherungJdbc::kurzBezProdukte);
+    }
+
+    public CompletableFuture<Kunde> findKundeById(Integer id) {
+        return executor.submit(s -> s.findKundeById(id));
+    }
+
+    public CompletableFuture<Void> createVertrag(Integer id, Integer produktId, Integer kundenId, LocalDate versicherungsbeginn) {
+        return executor.run(s -> s.createVertrag(id, produktId, kundenId, versicherungsbeginn));
+    }
+
+    public CompletableFuture<BigDecimal> calcMonatsrate(Integer vertragsId) {
+        return executor.submit(s -> s.calcMonatsrate(vertragsId));
+    }
+
+    @Override
+    public void close() {
+        executor.close();
+    }
+
+}
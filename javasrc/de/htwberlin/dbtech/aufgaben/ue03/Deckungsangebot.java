@@ -0,0 +1,85 @@
+package de.htwberlin.dbtech.aufgaben.ue03;
+
+import java.math.BigDecimal;
+
+/**
+ * Ein angebotener Deckungsbetrag einer Deckungsart, bewertet fuer einen
+ * bestimmten Vertrag. Ergebnis von {@link IVersicherungService#quote(Integer)}.
+ */
+public class Deckungsangebot {
+    private Integer deckungsartId;
+    private String deckungsartKurzBez;
+    private BigDecimal deckungsbetrag;
+    private BigDecimal preis;
+    private boolean abgelehnt;
+
+    public Deckungsangebot() {
+    }
+
+    public Deckungsangebot(Integer deckungsartId, String deckungsartKurzBez, BigDecimal deckungsbetrag,
+                           BigDecimal preis, boolean abgelehnt) {
+        this.deckungsartId = deckungsartId;
+        this.deckungsartKurzBez = deckungsartKurzBez;
+        this.deckungsbetrag = deckungsbetrag;
+        this.preis = preis;
+        this.abgelehnt = abgelehnt;
+    }
+
+    /**
+     * Eine Deckung mit diesem Betrag kann angelegt werden, wenn zum
+     * Versicherungsbeginn ein Preis vorliegt und keine Ablehnungsregel zutrifft.
+     */
+    public boolean isZulaessig() {
+        return preis != null && !abgelehnt;
+    }
+
+    @Override
+    public String toString() {
+        return "Deckungsangebot [deckungsartId=" + deckungsartId + ", deckungsartKurzBez=" + deckungsartKurzBez
+                + ", deckungsbetrag=" + deckungsbetrag + ", preis=" + preis + ", abgelehnt=" + abgelehnt + "]";
+    }
+
+    public Integer getDeckungsartId() {
+        return deckungsartId;
+    }
+
+    public void setDeckungsartId(Integer deckungsartId) {
+        this.deckungsartId = deckungsartId;
+    }
+
+    public String getDeckungsartKurzBez() {
+        return deckungsartKurzBez;
+    }
+
+    public void setDeckungsartKurzBez(String deckungsartKurzBez) {
+        this.deckungsartKurzBez = deckungsartKurzBez;
+    }
+
+    public BigDecimal getDeckungsbetrag() {
+        return deckungsbetrag;
+    }
+
+    public void setDeckungsbetrag(BigDecimal deckungsbetrag) {
+        this.deckungsbetrag = deckungsbetrag;
+    }
+
+    /**
+     * Preis zum Versicherungsbeginn oder null, wenn kein Deckungspreis vorliegt.
+     */
+    public BigDecimal getPreis() {
+        return preis;
+    }
+
+    public void setPreis(BigDecimal preis) {
+        this.preis = preis;
+    }
+
+    public boolean isAbgelehnt() {
+        return abgelehnt;
+    }
+
+    public void setAbgelehnt(boolean abgelehnt) {
+        this.abgelehnt = abgelehnt;
+    }
+
+}
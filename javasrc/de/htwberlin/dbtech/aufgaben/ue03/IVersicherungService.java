@@ -8,6 +8,7 @@ import de.htwberlin.dbtech.exceptions.*;
 
 import java.math.BigDecimal;
 import java.sql.Connection;
+import java.util.List;
 
 public interface IVersicherungService {
 
@@ -42,4 +43,17 @@ public interface IVersicherungService {
      */
     void createDeckung(Integer vertragsId, Integer deckungsartId, BigDecimal deckungsbetrag);
 
+    /**
+     * Liefert fuer alle Deckungsarten des Vertragsprodukts jeden angebotenen
+     * Deckungsbetrag mit seinem Preis zum Versicherungsbeginn und der Angabe,
+     * ob eine Ablehnungsregel zutrifft. Es wird nichts in die Datenbank
+     * geschrieben.
+     *
+     * @param vertragsId Primaerschluessel des Vertrags.
+     * @return Angebote sortiert nach Deckungsart und Deckungsbetrag.
+     * @throws VertragExistiertNichtException wenn vertragsId kein gueltiger
+     *                                        Primaerschluessel fuer Vertraege ist.
+     */
+    List<Deckungsangebot> quote(Integer vertragsId);
+
 }
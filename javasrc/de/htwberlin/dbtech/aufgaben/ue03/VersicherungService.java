@@ -1,6 +1,17 @@
 package de.htwberlin.dbtech.aufgaben.ue03;
 
 import de.htwberlin.dbtech.exceptions.*;
+import de.htwberlin.dbtech.utils.Money;
+import de.htwberlin.dbtech.utils.RowMapper;
+import de.htwberlin.dbtech.utils.Spalten;
+import de.htwberlin.dbtech.utils.TransactionTemplate;
+import de.htwberlin.dbtech.versicherung.Ablehnungsregel;
+import de.htwberlin.dbtech.versicherung.MonatsratenCache;
+import de.htwberlin.dbtech.versicherung.MonatsratenSummary;
+import de.htwberlin.dbtech.versicherung.Monatsratenmodus;
+import de.htwberlin.dbtech.versicherung.Referenzdaten;
+import de.htwberlin.dbtech.versicherung.ReferenzdatenCache;
+import de.htwberlin.dbtech.versicherung.Tarifdatei;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -9,13 +20,29 @@ import java.sql.*;
 import java.time.LocalDate;
 import java.time.Period;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map;
 
 public class VersicherungService implements IVersicherungService {
     private static final Logger L = LoggerFactory.getLogger(VersicherungService.class);
     private Connection connection;
+    private Monatsratenmodus monatsratenmodus = Monatsratenmodus.BERECHNEN;
+    private MonatsratenCache monatsratenCache;
+    private Tarifdatei tarifdatei;
+    private ReferenzdatenCache referenzdaten;
+
+    private static final String SQL_VERTRAG = "SELECT Produkt_FK, Kunde_FK, Versicherungsbeginn FROM Vertrag WHERE ID = ?";
+    private static final String SQL_DECKUNGSART_PRODUKT = "SELECT Produkt_FK FROM Deckungsart WHERE ID = ?";
+    private static final String SQL_DECKUNGSBETRAG_ID = "SELECT ID FROM Deckungsbetrag WHERE Deckungsart_FK = ? AND Deckungsbetrag = ?";
+    private static final String SQL_ANZAHL_DECKUNGSBETRAEGE = "SELECT COUNT(*) FROM Deckungsbetrag WHERE Deckungsart_FK = ?";
+    private static final String SQL_DECKUNGSPREIS_VORHANDEN =
+            "SELECT COUNT(*) FROM Deckungspreis WHERE Deckungsbetrag_FK = ? AND ? >= Gueltig_Von AND ? <= Gueltig_Bis";
+    private static final String SQL_GEBURTSDATUM = "SELECT Geburtsdatum FROM Kunde WHERE ID = ?";
+    private static final String SQL_REGELN = "SELECT R_Betrag, R_Alter FROM Ablehnungsregel WHERE Deckungsart_FK = ?";
+    private static final RowMapper.Factory<Ablehnungsregel> REGEL_MAPPER = RowMapper.jeAnweisung(Ablehnungsregel.MAPPER);
+    private static final String SQL_INSERT_DECKUNG =
+            "INSERT INTO Deckung (Vertrag_FK, Deckungsart_FK, Deckungsbetrag) VALUES (?, ?, ?)";
 
     // Struktur für Rückgabe von Vertragsdaten
     private static class Vertragsdaten {
@@ -28,17 +55,24 @@ public class VersicherungService implements IVersicherungService {
             this.kundeFk = kundeFk;
             this.versicherungsbeginn = versicherungsbeginn;
         }
-    }
 
-    // Struktur für Regelkomponenten
-    private static class RegelKomponente {
-        final String operator;
-        final String wert; // Wert aus der Regel, noch als String
+        // nur fuer SQL_VERTRAG
+        static final RowMapper.Factory<Vertragsdaten> MAPPER = RowMapper.jeAnweisung(rs -> {
+            Spalten s = Spalten.von(rs);
+            int produktFk = s.index("Produkt_FK");
+            int kundeFk = s.index("Kunde_FK");
+            int beginn = s.index("Versicherungsbeginn");
+            return r -> new Vertragsdaten(r.getInt(produktFk), r.getInt(kundeFk), r.getDate(beginn).toLocalDate());
+        });
+    }
 
-        RegelKomponente(String operator, String wert) {
-            this.operator = operator;
-            this.wert = wert;
-        }
+    /**
+     * Alle SQL-Anweisungen des Dienstes, z.B. fuer {@link de.htwberlin.dbtech.utils.ExplainPlanCheck}.
+     */
+    public static List<String> statements() {
+        return List.of(SQL_VERTRAG, SQL_DECKUNGSART_PRODUKT, SQL_DECKUNGSBETRAG_ID, SQL_ANZAHL_DECKUNGSBETRAEGE,
+                SQL_DECKUNGSPREIS_VORHANDEN, SQL_GEBURTSDATUM, SQL_REGELN, SQL_INSERT_DECKUNG,
+                SQL_QUOTE_VERTRAG, SQL_QUOTE_BETRAEGE, SQL_QUOTE_REGELN);
     }
 
     @Override
@@ -46,6 +80,38 @@ public class VersicherungService implements IVersicherungService {
         this.connection = connection;
     }
 
+    /**
+     * Mit {@link Monatsratenmodus#SUMMARY} zieht createDeckung die
+     * Monatsrate des Vertrags in Vertrag_Monatsrate nach.
+     */
+    public void setMonatsratenmodus(Monatsratenmodus monatsratenmodus) {
+        this.monatsratenmodus = monatsratenmodus;
+    }
+
+    /**
+     * Cache von {@link de.htwberlin.dbtech.aufgaben.ue02.VersicherungJdbc#calcMonatsrate},
+     * den createDeckung fuer den Vertrag invalidiert.
+     */
+    public void setMonatsratenCache(MonatsratenCache monatsratenCache) {
+        this.monatsratenCache = monatsratenCache;
+    }
+
+    /**
+     * Prueft Deckungspreise gegen die Tarifdatei statt gegen die Tabelle
+     * Deckungspreis.
+     */
+    public void setTarifdatei(Tarifdatei tarifdatei) {
+        this.tarifdatei = tarifdatei;
+    }
+
+    /**
+     * Prueft Deckungsart, Deckungsbetrag, Deckungspreis und
+     * Ablehnungsregeln gegen die Referenzdaten statt gegen die Datenbank.
+     */
+    public void setReferenzdaten(ReferenzdatenCache referenzdaten) {
+        this.referenzdaten = referenzdaten;
+    }
+
     private Connection useConnection() {
         if (connection == null) {
             L.error("Connection not set before use.");
@@ -57,32 +123,33 @@ public class VersicherungService implements IVersicherungService {
     // --- Hilfsmethoden für Datenbankzugriffe ---
 
     private Vertragsdaten getVertragsdaten(Integer vertragsId) throws SQLException, VertragExistiertNichtException {
-        String sql = "SELECT Produkt_FK, Kunde_FK, Versicherungsbeginn FROM Vertrag WHERE ID = ?";
         Connection conn = useConnection();
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (PreparedStatement pstmt = conn.prepareStatement(SQL_VERTRAG)) {
             pstmt.setInt(1, vertragsId);
             try (ResultSet rs = pstmt.executeQuery()) {
-                if (rs.next()) {
-                    return new Vertragsdaten(
-                            rs.getInt("Produkt_FK"),
-                            rs.getInt("Kunde_FK"),
-                            rs.getDate("Versicherungsbeginn").toLocalDate()
-                    );
-                } else {
+                Vertragsdaten v = RowMapper.erste(rs, Vertragsdaten.MAPPER);
+                if (v == null) {
                     throw new VertragExistiertNichtException(vertragsId);
                 }
+                return v;
             }
         }
     }
 
     private int getProduktFkForDeckungsart(Integer deckungsartId) throws SQLException, DeckungsartExistiertNichtException {
-        String sql = "SELECT Produkt_FK FROM Deckungsart WHERE ID = ?";
+        if (referenzdaten != null) {
+            int produktFk = referenzdaten.get().produktVonDeckungsart(deckungsartId);
+            if (produktFk == Referenzdaten.KEINE) {
+                throw new DeckungsartExistiertNichtException(deckungsartId);
+            }
+            return produktFk;
+        }
         Connection conn = useConnection();
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (PreparedStatement pstmt = conn.prepareStatement(SQL_DECKUNGSART_PRODUKT)) {
             pstmt.setInt(1, deckungsartId);
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
-                    return rs.getInt("Produkt_FK");
+                    return rs.getInt(1);
                 } else {
                     throw new DeckungsartExistiertNichtException(deckungsartId);
                 }
@@ -93,38 +160,54 @@ public class VersicherungService implements IVersicherungService {
     private Integer getDeckungsbetragDefinitionId(Integer deckungsartId, BigDecimal deckungsbetragValue) throws SQLException, UngueltigerDeckungsbetragException {
         // Prüft, ob dieser spezifische Deckungsbetragswert für die Deckungsart definiert ist
         // und gibt dessen ID aus der Tabelle Deckungsbetrag zurück.
-        String sqlCheckBetragValue = "SELECT ID FROM Deckungsbetrag WHERE Deckungsart_FK = ? AND Deckungsbetrag = ?";
+        if (referenzdaten != null) {
+            int id = Referenzdaten.KEINE;
+            try {
+                id = referenzdaten.get().deckungsbetragId(deckungsartId, Money.of(deckungsbetragValue).getCent());
+            } catch (ArithmeticException e) {
+                // mehr als zwei Nachkommastellen, kann kein Deckungsbetrag sein
+            }
+            if (id == Referenzdaten.KEINE) {
+                throw new UngueltigerDeckungsbetragException(deckungsartId, deckungsbetragValue);
+            }
+            return id;
+        }
         Connection conn = useConnection();
-        try (PreparedStatement pstmt = conn.prepareStatement(sqlCheckBetragValue)) {
+        try (PreparedStatement pstmt = conn.prepareStatement(SQL_DECKUNGSBETRAG_ID)) {
             pstmt.setInt(1, deckungsartId);
             pstmt.setBigDecimal(2, deckungsbetragValue);
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
-                    return rs.getInt("ID");
+                    return rs.getInt(1);
                 }
             }
         }
 
         // Wenn der spezifische Wert nicht gefunden wurde, prüfen wir, ob überhaupt Beträge für die Deckungsart existieren
-        String sqlCheckAnyBetrag = "SELECT COUNT(*) FROM Deckungsbetrag WHERE Deckungsart_FK = ?";
-        try (PreparedStatement pstmt = conn.prepareStatement(sqlCheckAnyBetrag)) {
+        try (PreparedStatement pstmt = conn.prepareStatement(SQL_ANZAHL_DECKUNGSBETRAEGE)) {
             pstmt.setInt(1, deckungsartId);
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next() && rs.getInt(1) == 0) {
                     // Kein einziger Deckungsbetrag für diese Deckungsart definiert
-                    throw new UngueltigerDeckungsbetragException(deckungsbetragValue); // Test createDeckung04
+                    throw new UngueltigerDeckungsbetragException(deckungsartId, deckungsbetragValue); // Test createDeckung04
                 }
             }
         }
         // Wenn wir hier sind, gibt es zwar Beträge für die Deckungsart, aber nicht den angefragten Wert
-        throw new UngueltigerDeckungsbetragException(deckungsbetragValue);
+        throw new UngueltigerDeckungsbetragException(deckungsartId, deckungsbetragValue);
     }
 
 
     private boolean isDeckungspreisVorhanden(Integer deckungsbetragDefinitionId, LocalDate relevantDate) throws SQLException {
-        String sql = "SELECT COUNT(*) FROM Deckungspreis WHERE Deckungsbetrag_FK = ? AND ? >= Gueltig_Von AND ? <= Gueltig_Bis";
+        if (tarifdatei != null) {
+            return tarifdatei.hatPreis(deckungsbetragDefinitionId, (int) relevantDate.toEpochDay());
+        }
+        if (referenzdaten != null) {
+            return referenzdaten.get().preisCent(deckungsbetragDefinitionId, (int) relevantDate.toEpochDay())
+                    != Referenzdaten.KEIN_PREIS;
+        }
         Connection conn = useConnection();
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (PreparedStatement pstmt = conn.prepareStatement(SQL_DECKUNGSPREIS_VORHANDEN)) {
             pstmt.setInt(1, deckungsbetragDefinitionId);
             pstmt.setDate(2, Date.valueOf(relevantDate));
             pstmt.setDate(3, Date.valueOf(relevantDate));
@@ -135,13 +218,12 @@ public class VersicherungService implements IVersicherungService {
     }
 
     private LocalDate getKundeGeburtsdatum(Integer kundeFk) throws SQLException, KundeExistiertNichtException {
-        String sql = "SELECT Geburtsdatum FROM Kunde WHERE ID = ?";
         Connection conn = useConnection();
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (PreparedStatement pstmt = conn.prepareStatement(SQL_GEBURTSDATUM)) {
             pstmt.setInt(1, kundeFk);
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
-                    return rs.getDate("Geburtsdatum").toLocalDate();
+                    return rs.getDate(1).toLocalDate();
                 } else {
                     // Dieser Fall sollte eigentlich durch vorherige Prüfungen in createDeckung abgedeckt sein,
                     // aber zur Sicherheit hier eine Exception werfen.
@@ -152,30 +234,18 @@ public class VersicherungService implements IVersicherungService {
     }
 
     private List<Ablehnungsregel> getAblehnungsregeln(Integer deckungsartId) throws SQLException {
-        List<Ablehnungsregel> regeln = new ArrayList<>();
-        String sql = "SELECT R_Betrag, R_Alter FROM Ablehnungsregel WHERE Deckungsart_FK = ?";
+        if (referenzdaten != null) {
+            return referenzdaten.get().regeln(deckungsartId);
+        }
         Connection conn = useConnection();
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (PreparedStatement pstmt = conn.prepareStatement(SQL_REGELN)) {
             pstmt.setInt(1, deckungsartId);
             try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    regeln.add(new Ablehnungsregel(rs.getString("R_Betrag"), rs.getString("R_Alter")));
-                }
+                return RowMapper.alle(rs, REGEL_MAPPER);
             }
         }
-        return regeln;
-    }
-    // Interne Repräsentation einer Regel für die Verarbeitung
-    private static class Ablehnungsregel {
-        final String rBetragString;
-        final String rAlterString;
-        Ablehnungsregel(String rBetrag, String rAlter) {
-            this.rBetragString = rBetrag;
-            this.rAlterString = rAlter;
-        }
     }
 
-
     // --- Hilfsmethoden für Regelauswertung (gemäß ablehnungsregeln.pdf) ---
 
     private int calculateAge(LocalDate birthDate, LocalDate referenceDate) {
@@ -186,70 +256,18 @@ public class VersicherungService implements IVersicherungService {
         }
     }
 
-    private RegelKomponente parseRegelString(String regelTeilString) {
-        if (regelTeilString == null || regelTeilString.trim().isEmpty() || regelTeilString.trim().equals("-")) {
-            // Behandelt null, leere Strings, nur Whitespace, oder einen einzelnen Bindestrich als "keine Regel"
-            return new RegelKomponente("-", null);
-        }
-
-        // Spezifische Behandlung für Testdaten-Artefakt "- -"
-        if (regelTeilString.trim().equals("- -")) {
-            L.warn("Regel-Teil-String '{}' wird als 'keine Regel' interpretiert due to specific handling for '- -'.", regelTeilString);
-            return new RegelKomponente("-", null);
+    // Liefert die erste Regel, deren Betrags- und Altersbedingung zutrifft, sonst null
+    private Ablehnungsregel findeZutreffendeRegel(List<Ablehnungsregel> regeln, BigDecimal deckungsbetragValue, int alter) {
+        if (regeln.isEmpty()) {
+            return null;
         }
-
-        // Pattern um Operator (>=, <=, !=, >, <, =) und Wert zu trennen
-        // Geht von Operatoren am Anfang aus, gefolgt von der Zahl.
-        // Erweitert um optionale Leerzeichen zwischen Operator und Zahl.
-        Pattern pattern = Pattern.compile("^([><!]=?|=)\\s*(.*)");
-        Matcher matcher = pattern.matcher(regelTeilString.trim());
-
-        if (matcher.find()) {
-            String operator = matcher.group(1);
-            String wert = matcher.group(2).trim();
-            if (wert.isEmpty()) { // Fall abfangen: Operator vorhanden, aber kein Wert (z.B. "> ")
-                L.warn("Regel-Teil-String '{}' hat einen Operator aber keinen Wert, wird als 'keine Regel' interpretiert.", regelTeilString);
-                return new RegelKomponente("-", null); // Oder spezifische Fehlerbehandlung
+        long betragCent = Money.of(deckungsbetragValue).getCent();
+        for (Ablehnungsregel regel : regeln) {
+            if (regel.trifftZu(betragCent, alter)) {
+                return regel;
             }
-            return new RegelKomponente(operator, wert);
-        }
-
-        L.error("Konnte Regel-Teil-String '{}' nicht mit Regex parsen. Wird als ungültiges Format behandelt.", regelTeilString);
-        // Wenn es kein "-" ist und nicht geparst werden kann, ist es ein Datenproblem in Ablehnungsregel.
-        throw new DataException("Ungültiges Format für Regelbestandteil: " + regelTeilString);
-    }
-
-
-    private boolean pruefeRegelbestandteil(BigDecimal aktuellerWert, String operator, String regelWertString) {
-        if (operator.equals("-")) {
-            return true;
-        }
-        if (aktuellerWert == null || regelWertString == null) {
-            L.warn("Ungültige Eingabe für pruefeRegelbestandteil: aktuellerWert oder regelWertString ist null bei Operator {}", operator);
-            return false; // Oder eine Exception werfen, da dies auf einen Fehler hindeutet
-        }
-
-        BigDecimal regelWertBigDecimal;
-        try {
-            regelWertBigDecimal = new BigDecimal(regelWertString);
-        } catch (NumberFormatException e) {
-            L.error("Fehler beim Konvertieren des Regelwerts '{}' zu BigDecimal.", regelWertString, e);
-            throw new DataException("Ungültiger numerischer Wert im Regelbestandteil: " + regelWertString, e);
-        }
-
-        int vergleich = aktuellerWert.compareTo(regelWertBigDecimal);
-
-        switch (operator) {
-            case "=":  return vergleich == 0;
-            case "!=": return vergleich != 0;
-            case "<":  return vergleich <  0;
-            case "<=": return vergleich <= 0;
-            case ">":  return vergleich >  0;
-            case ">=": return vergleich >= 0;
-            default:
-                L.error("Unbekannter Operator in Regel: {}", operator);
-                throw new IllegalArgumentException("Unbekannter Operator: " + operator);
         }
+        return null;
     }
 
     // --- Hauptmethode createDeckung ---
@@ -260,59 +278,64 @@ public class VersicherungService implements IVersicherungService {
         Connection conn = useConnection(); // Verbindung für die gesamte Operation holen
 
         try {
-            // 1. Vertrag prüfen und Daten holen
-            Vertragsdaten vertrag = getVertragsdaten(vertragsId); // Wirft VertragExistiertNichtException
-
-            // 2. Deckungsart prüfen und deren Produkt_FK holen
-            int daProduktFk = getProduktFkForDeckungsart(deckungsartId); // Wirft DeckungsartExistiertNichtException
+            // Pruefungen und Insert in einer Transaktion, bei offener Transaktion des Aufrufers ohne eigenen Commit
+            TransactionTemplate.of(conn).run(c -> {
+                // 1. Vertrag prüfen und Daten holen
+                Vertragsdaten vertrag = getVertragsdaten(vertragsId); // Wirft VertragExistiertNichtException
 
-            // 3. Prüfen, ob Deckungsart zum Produkt des Vertrags passt
-            if (daProduktFk != vertrag.produktFk) {
-                throw new DeckungsartPasstNichtZuProduktException(daProduktFk, vertrag.produktFk);
-            }
-
-            // 4. Prüfen, ob der Deckungsbetragswert für die Deckungsart gültig ist (definiert in Tabelle Deckungsbetrag)
-            // Diese Methode wirft UngueltigerDeckungsbetragException, wenn nicht gültig, und gibt die ID des Deckungsbetrag-Eintrags zurück.
-            Integer gewaehlterDeckungsbetragDefinitionId = getDeckungsbetragDefinitionId(deckungsartId, deckungsbetragValue);
+                // 2. Deckungsart prüfen und deren Produkt_FK holen
+                int daProduktFk = getProduktFkForDeckungsart(deckungsartId); // Wirft DeckungsartExistiertNichtException
 
-            // 5. Prüfen, ob ein gültiger Deckungspreis für diesen Deckungsbetrag (definiert durch ID) zum Versicherungsbeginn existiert
-            if (!isDeckungspreisVorhanden(gewaehlterDeckungsbetragDefinitionId, vertrag.versicherungsbeginn)) {
-                throw new DeckungspreisNichtVorhandenException(deckungsbetragValue); // Die Ex. nimmt BigDecimal
-            }
+                // 3. Prüfen, ob Deckungsart zum Produkt des Vertrags passt
+                if (daProduktFk != vertrag.produktFk) {
+                    throw new DeckungsartPasstNichtZuProduktException(daProduktFk, vertrag.produktFk);
+                }
 
-            // 6. Ablehnungsregeln prüfen
-            LocalDate geburtsdatum = getKundeGeburtsdatum(vertrag.kundeFk); // KundeExistiertNichtException sollte hier nicht auftreten, da Vertrag.kundeFk gültig sein muss
-            int alter = calculateAge(geburtsdatum, vertrag.versicherungsbeginn);
-            List<Ablehnungsregel> regeln = getAblehnungsregeln(deckungsartId);
+                // 4. Prüfen, ob der Deckungsbetragswert für die Deckungsart gültig ist (definiert in Tabelle Deckungsbetrag)
+                // Diese Methode wirft UngueltigerDeckungsbetragException, wenn nicht gültig, und gibt die ID des Deckungsbetrag-Eintrags zurück.
+                Integer gewaehlterDeckungsbetragDefinitionId = getDeckungsbetragDefinitionId(deckungsartId, deckungsbetragValue);
 
-            for (Ablehnungsregel regel : regeln) {
-                RegelKomponente betragRegelTeil = parseRegelString(regel.rBetragString);
-                RegelKomponente alterRegelTeil = parseRegelString(regel.rAlterString);
+                // 5. Prüfen, ob ein gültiger Deckungspreis für diesen Deckungsbetrag (definiert durch ID) zum Versicherungsbeginn existiert
+                if (!isDeckungspreisVorhanden(gewaehlterDeckungsbetragDefinitionId, vertrag.versicherungsbeginn)) {
+                    throw new DeckungspreisNichtVorhandenException(deckungsbetragValue); // Die Ex. nimmt BigDecimal
+                }
 
-                boolean betragBedingungErfuellt = pruefeRegelbestandteil(deckungsbetragValue, betragRegelTeil.operator, betragRegelTeil.wert);
-                boolean alterBedingungErfuellt = pruefeRegelbestandteil(new BigDecimal(alter), alterRegelTeil.operator, alterRegelTeil.wert);
+                // 6. Ablehnungsregeln prüfen
+                LocalDate geburtsdatum = getKundeGeburtsdatum(vertrag.kundeFk); // KundeExistiertNichtException sollte hier nicht auftreten, da Vertrag.kundeFk gültig sein muss
+                int alter = calculateAge(geburtsdatum, vertrag.versicherungsbeginn);
+                List<Ablehnungsregel> regeln = getAblehnungsregeln(deckungsartId);
 
-                if (betragBedingungErfuellt && alterBedingungErfuellt) {
+                Ablehnungsregel regel = findeZutreffendeRegel(regeln, deckungsbetragValue, alter);
+                if (regel != null) {
                     L.warn("Ablehnungsregel getroffen für vertragsId={}, deckungsartId={}, betrag={}, alter={}. Regel: Betrag='{}', Alter='{}'",
-                            vertragsId, deckungsartId, deckungsbetragValue, alter, regel.rBetragString, regel.rAlterString);
+                            vertragsId, deckungsartId, deckungsbetragValue, alter, regel.getRBetrag(), regel.getRAlter());
                     throw new DeckungsartNichtRegelkonformException(deckungsartId);
                 }
-            }
 
-            // 7. Wenn alle Prüfungen erfolgreich: Deckung in Datenbank einfügen
-            String insertSql = "INSERT INTO Deckung (Vertrag_FK, Deckungsart_FK, Deckungsbetrag) VALUES (?, ?, ?)";
-            try (PreparedStatement pstmtInsert = conn.prepareStatement(insertSql)) {
-                pstmtInsert.setInt(1, vertragsId);
-                pstmtInsert.setInt(2, deckungsartId);
-                pstmtInsert.setBigDecimal(3, deckungsbetragValue);
-
-                int affectedRows = pstmtInsert.executeUpdate();
-                if (affectedRows == 0) {
-                    L.error("Einfügen der Deckung fehlgeschlagen, keine Zeile betroffen für vertragsId={}, deckungsartId={}", vertragsId, deckungsartId);
-                    throw new DataException("Deckung konnte nicht eingefügt werden.");
+                // 7. Wenn alle Prüfungen erfolgreich: Deckung in Datenbank einfügen
+                try (PreparedStatement pstmtInsert = conn.prepareStatement(SQL_INSERT_DECKUNG)) {
+                    pstmtInsert.setInt(1, vertragsId);
+                    pstmtInsert.setInt(2, deckungsartId);
+                    pstmtInsert.setBigDecimal(3, deckungsbetragValue);
+
+                    int affectedRows = pstmtInsert.executeUpdate();
+                    if (affectedRows == 0) {
+                        L.error("Einfügen der Deckung fehlgeschlagen, keine Zeile betroffen für vertragsId={}, deckungsartId={}", vertragsId, deckungsartId);
+                        throw new DataException("Deckung konnte nicht eingefügt werden.");
+                    }
+                    L.info("Deckung erfolgreich eingefügt für vertragsId={}, deckungsartId={}", vertragsId, deckungsartId);
                 }
-                L.info("Deckung erfolgreich eingefügt für vertragsId={}, deckungsartId={}", vertragsId, deckungsartId);
-            }
+
+                // 8. Summentabelle in derselben Transaktion nachziehen
+                if (monatsratenmodus == Monatsratenmodus.SUMMARY) {
+                    MonatsratenSummary.nachfuehren(conn, vertragsId);
+                }
+
+                // 9. Cache erst nach dem Commit invalidieren, auch wenn der Aufrufer die Transaktion haelt
+                if (monatsratenCache != null) {
+                    TransactionTemplate.nachCommit(conn, () -> monatsratenCache.vertragGeaendert(vertragsId));
+                }
+            });
 
         } catch (VertragExistiertNichtException | DeckungsartExistiertNichtException | UngueltigerDeckungsbetragException |
                  DeckungsartPasstNichtZuProduktException | DeckungspreisNichtVorhandenException | DeckungsartNichtRegelkonformException |
@@ -328,4 +351,111 @@ public class VersicherungService implements IVersicherungService {
         }
         L.info("createDeckung ende: vertragsId={}, deckungsartId={}", vertragsId, deckungsartId);
     }
-}
\ No newline at end of file
+
+    // --- quote: alle angebotenen Deckungsbetraege eines Vertrags bewerten ---
+
+    private static final String SQL_QUOTE_VERTRAG =
+            "SELECT v.Versicherungsbeginn, v.Produkt_FK, k.Geburtsdatum " +
+            "FROM Vertrag v JOIN Kunde k ON k.ID = v.Kunde_FK " +
+            "WHERE v.ID = ?";
+
+    // Alle Deckungsbetraege des Produkts mit dem zum Stichtag gueltigen Preis (null, wenn keiner vorliegt)
+    private static final String SQL_QUOTE_BETRAEGE =
+            "SELECT da.ID AS Deckungsart_ID, da.KurzBez, db.Deckungsbetrag, dp.Preis " +
+            "FROM Deckungsart da " +
+            "JOIN Deckungsbetrag db ON db.Deckungsart_FK = da.ID " +
+            "LEFT JOIN Deckungspreis dp ON dp.Deckungsbetrag_FK = db.ID " +
+            "AND ? >= dp.Gueltig_Von AND ? <= dp.Gueltig_Bis " +
+            "WHERE da.Produkt_FK = ? " +
+            "ORDER BY da.ID, db.Deckungsbetrag";
+
+    private static final String SQL_QUOTE_REGELN =
+            "SELECT r.Deckungsart_FK, r.R_Betrag, r.R_Alter " +
+            "FROM Ablehnungsregel r JOIN Deckungsart da ON da.ID = r.Deckungsart_FK " +
+            "WHERE da.Produkt_FK = ? " +
+            "ORDER BY r.Deckungsart_FK, r.LfdNr";
+
+    @Override
+    public List<Deckungsangebot> quote(Integer vertragsId) {
+        L.info("quote start: vertragsId={}", vertragsId);
+        Connection conn = useConnection();
+        List<Deckungsangebot> angebote = new ArrayList<>();
+
+        try { // reine Lesemethode, kann ueber eine RoutingDataSource an ein Replikat gehen
+            TransactionTemplate.lesend(conn).run(c -> {
+                // 1. Vertrag mit Geburtsdatum des Kunden in einem Zugriff holen
+                LocalDate versicherungsbeginn;
+                int produktFk;
+                LocalDate geburtsdatum;
+                try (PreparedStatement pstmt = c.prepareStatement(SQL_QUOTE_VERTRAG)) {
+                    pstmt.setInt(1, vertragsId);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        if (!rs.next()) {
+                            throw new VertragExistiertNichtException(vertragsId);
+                        }
+                        // Spalten wie in SQL_QUOTE_VERTRAG
+                        versicherungsbeginn = rs.getDate(1).toLocalDate();
+                        produktFk = rs.getInt(2);
+                        Date gd = rs.getDate(3);
+                        geburtsdatum = gd == null ? null : gd.toLocalDate();
+                    }
+                }
+                int alter = calculateAge(geburtsdatum, versicherungsbeginn);
+
+                // 2. Alle Regeln des Produkts auf einmal laden und nach Deckungsart gruppieren
+                Map<Integer, List<Ablehnungsregel>> regelnJeDeckungsart = new HashMap<>();
+                try (PreparedStatement pstmt = c.prepareStatement(SQL_QUOTE_REGELN)) {
+                    pstmt.setInt(1, produktFk);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        // Spalten wie in SQL_QUOTE_REGELN
+                        while (rs.next()) {
+                            regelnJeDeckungsart.computeIfAbsent(rs.getInt(1), k -> new ArrayList<>())
+                                    .add(new Ablehnungsregel(rs.getString(2), rs.getString(3)));
+                        }
+                    }
+                }
+
+                // 3. Alle Betraege mit Preisen laden und die Regeln im Speicher auswerten
+                Date stichtag = Date.valueOf(versicherungsbeginn);
+                try (PreparedStatement pstmt = c.prepareStatement(SQL_QUOTE_BETRAEGE)) {
+                    pstmt.setDate(1, stichtag);
+                    pstmt.setDate(2, stichtag);
+                    pstmt.setInt(3, produktFk);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        // Spalten wie in SQL_QUOTE_BETRAEGE
+                        int artSpalte = 1;
+                        int kurzBezSpalte = 2;
+                        int betragSpalte = 3;
+                        int preisSpalte = 4;
+                        Deckungsangebot letztes = null;
+                        while (rs.next()) {
+                            int deckungsartId = rs.getInt(artSpalte);
+                            BigDecimal betrag = rs.getBigDecimal(betragSpalte);
+                            BigDecimal preis = rs.getBigDecimal(preisSpalte);
+                            if (letztes != null && letztes.getDeckungsartId() == deckungsartId
+                                    && letztes.getDeckungsbetrag().compareTo(betrag) == 0) {
+                                // ueberlappende Preiszeitraeume: erster Treffer gilt
+                                continue;
+                            }
+                            List<Ablehnungsregel> regeln = regelnJeDeckungsart.getOrDefault(deckungsartId, List.of());
+                            boolean abgelehnt = findeZutreffendeRegel(regeln, betrag, alter) != null;
+                            letztes = new Deckungsangebot(deckungsartId, rs.getString(kurzBezSpalte), betrag, preis, abgelehnt);
+                            angebote.add(letztes);
+                        }
+                    }
+                }
+            });
+        } catch (VertragExistiertNichtException e) {
+            L.warn("Fehler beim Erstellen des Angebots (fachliche Exception): {}", e.getMessage());
+            throw e;
+        } catch (SQLException e) {
+            L.error("SQL-Fehler beim Erstellen des Angebots für vertragsId=" + vertragsId, e);
+            throw new DataException("Datenbankfehler beim Erstellen des Angebots: " + e.getMessage(), e);
+        } catch (IllegalArgumentException e) {
+            L.error("Fehler in Regeldefinition: " + e.getMessage(), e);
+            throw new DataException("Fehler in Regeldefinition: " + e.getMessage(), e);
+        }
+        L.info("quote ende: vertragsId={}, anzahl={}", vertragsId, angebote.size());
+        return angebote;
+    }
+}
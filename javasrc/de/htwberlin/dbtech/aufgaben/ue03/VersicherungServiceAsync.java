@@ -0,0 +1,39 @@
+package de.htwberlin.dbtech.aufgaben.ue03;
+
+import de.htwberlin.dbtech.utils.AsyncServiceExecutor;
+import de.htwberlin.dbtech.utils.ConnectionPool;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchrone Fassade fuer {@link IVersicherungService}. Jeder Aufruf laeuft
+ * mit einer Connection aus dem Pool; fachliche Exceptions werden ueber das
+ * Future gemeldet. Siehe {@link AsyncServiceExecutor}.
+ */
+public class VersicherungServiceAsync implements AutoCloseable {
+    private final AsyncServiceExecutor<IVersicherungService> executor;
+
+    public VersicherungServiceAsync(ConnectionPool pool, int maxInFlight) {
+        this(new AsyncServiceExecutor<>(pool, VersicherungService::new, IVersicherungService::setConnection, maxInFlight));
+    }
+
+    public VersicherungServiceAsync(AsyncServiceExecutor<IVersicherungService> executor) {
+        this.executor = executor;
+    }
+
+    public CompletableFuture<Void> createDeckung(Integer vertragsId, Integer deckungsartId, BigDecimal deckungsbetrag) {
+        return executor.run(s -> s.createDeckung(vertragsId, deckungsartId, deckungsbetrag));
+    }
+
+    public CompletableFuture<List<Deckungsangebot>> quote(Integer vertragsId) {
+        return executor.submit(s -> s.quote(vertragsId));
+    }
+
+    @Override
+    public void close() {
+        executor.close();
+    }
+
+}
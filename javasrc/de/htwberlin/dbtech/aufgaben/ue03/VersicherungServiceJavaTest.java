@@ -21,6 +21,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.math.BigDecimal;
+import java.util.List;
 
 @FixMethodOrder(MethodSorters.NAME_ASCENDING)
 public class VersicherungServiceJavaTest {
@@ -199,4 +200,46 @@ public class VersicherungServiceJavaTest {
 
     }
 
+    /**
+     * Vertrag existiert nicht.
+     */
+    @org.junit.Test(expected = VertragExistiertNichtException.class)
+    public void quote01() {
+        vService.quote(99);
+    }
+
+    /**
+     * Vertrag 5 (HRV, Beginn 2019). Brandschaden 50000 hat einen Preis von 12,
+     * fuer Brandschaden 150000 und Glasbruch 1500 gibt es 2019 keinen Preis.
+     * Fahrraddiebstahl hat keine Deckungsbetraege und taucht nicht auf.
+     */
+    @org.junit.Test
+    public void quote02() {
+        List<Deckungsangebot> angebote = vService.quote(5);
+        Assert.assertEquals("Falsche Anzahl Angebote", 3, angebote.size());
+
+        Assert.assertEquals(Integer.valueOf(4), angebote.get(0).getDeckungsartId());
+        Assert.assertEquals(0, BigDecimal.valueOf(50000).compareTo(angebote.get(0).getDeckungsbetrag()));
+        Assert.assertEquals(0, BigDecimal.valueOf(12).compareTo(angebote.get(0).getPreis()));
+        Assert.assertTrue(angebote.get(0).isZulaessig());
+
+        Assert.assertNull(angebote.get(1).getPreis());
+        Assert.assertFalse(angebote.get(1).isZulaessig());
+        Assert.assertEquals(Integer.valueOf(5), angebote.get(2).getDeckungsartId());
+        Assert.assertFalse(angebote.get(2).isZulaessig());
+    }
+
+    /**
+     * Vertrag 9 (LBV) hat einen Kunden, der aelter als 60 Jahre ist. Tod mit
+     * 100 Tsd und 200 Tsd ist erlaubt, 300 Tsd wird durch eine Regel abgelehnt.
+     */
+    @org.junit.Test
+    public void quote03() {
+        List<Deckungsangebot> angebote = vService.quote(9);
+        Assert.assertEquals("Falsche Anzahl Angebote", 3, angebote.size());
+        Assert.assertTrue(angebote.get(0).isZulaessig());
+        Assert.assertTrue(angebote.get(1).isZulaessig());
+        Assert.assertTrue(angebote.get(2).isAbgelehnt());
+    }
+
 }
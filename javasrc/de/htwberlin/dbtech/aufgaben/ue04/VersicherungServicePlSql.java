@@ -5,6 +5,8 @@ package de.htwberlin.dbtech.aufgaben.ue04;
  */
 
 import de.htwberlin.dbtech.exceptions.*;
+import de.htwberlin.dbtech.versicherung.MonatsratenCache;
+import de.htwberlin.dbtech.utils.TransactionTemplate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -19,12 +21,21 @@ import java.sql.SQLException;
 public class VersicherungServicePlSql implements IVersicherungService {
     private static final Logger L = LoggerFactory.getLogger(VersicherungServicePlSql.class);
     private Connection connection;
+    private MonatsratenCache monatsratenCache;
 
     @Override
     public void setConnection(Connection connection) {
         this.connection = connection;
     }
 
+    /**
+     * Cache von {@link de.htwberlin.dbtech.aufgaben.ue02.VersicherungJdbc#calcMonatsrate},
+     * den createDeckung fuer den Vertrag invalidiert.
+     */
+    public void setMonatsratenCache(MonatsratenCache monatsratenCache) {
+        this.monatsratenCache = monatsratenCache;
+    }
+
     private Connection useConnection() {
         if (connection == null) {
             throw new DataException("Connection not set");
@@ -42,6 +53,9 @@ public class VersicherungServicePlSql implements IVersicherungService {
             cStmt.setInt(2, deckungsartId);
             cStmt.setBigDecimal(3, deckungsbetrag);
             cStmt.executeUpdate();
+            if (monatsratenCache != null) {
+                TransactionTemplate.nachCommit(useConnection(), () -> monatsratenCache.vertragGeaendert(vertragsId));
+            }
             L.info("ende");
         } catch (SQLException e) {
             L.info("Error code: " + e.getErrorCode());
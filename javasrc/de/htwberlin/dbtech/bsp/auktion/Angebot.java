@@ -1,21 +1,47 @@
 package de.htwberlin.dbtech.bsp.auktion;
 
 import de.htwberlin.dbtech.exceptions.ServiceException;
+import de.htwberlin.dbtech.utils.RowMapper;
+import de.htwberlin.dbtech.utils.Spalten;
 
 import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.Timestamp;
 
 public class Angebot {
+    /**
+     * Fuer Abfragen mit allen Spalten der Tabelle Angebot.
+     */
+    public static final RowMapper.Factory<Angebot> MAPPER = rs -> {
+        Spalten s = Spalten.von(rs);
+        int aid = s.index("AID");
+        int artikelBez = s.index("ArtikelBez");
+        int ende = s.index("AuktionEndeZeitpunkt");
+        int minPreis = s.index("AuktionMinPreis");
+        int aktuellerPreis = s.index("AktuellerPreis");
+        int anzahlGebote = s.index("AnzahlGebote");
+        return r -> {
+            Angebot a = new Angebot();
+            a.setAid(r.getInt(aid));
+            a.setArtikelBez(r.getString(artikelBez));
+            a.setAuktionEndeZeitpunkt(r.getTimestamp(ende));
+            a.setAuktionMinPreis(r.getBigDecimal(minPreis));
+            a.setAktuellerPreis(r.getBigDecimal(aktuellerPreis));
+            a.setAnzahlGebote(r.getInt(anzahlGebote));
+            return a;
+        };
+    };
+
     private Integer aid;
     private String artikelBez;
     private Timestamp auktionEndeZeitpunkt;
     private BigDecimal auktionMinPreis;
 
-    // aktuellerPreis wird aus den Geboten berechnet
-    // ist nicht Splate in der Tabelle Angebot
-    // wird auch nicht in insert und aupdate behandelt
+    // aktuellerPreis und anzahlGebote sind Spalten in der Tabelle Angebot,
+    // werden aber nur von AuktionsService.biete mit jedem Gebot gepflegt
+    // und deshalb nicht in insert und update behandelt
     private BigDecimal aktuellerPreis;
+    private int anzahlGebote;
 
     private Connection connection = null;
 
@@ -67,6 +93,18 @@ public class Angebot {
         return aktuellerPreis;
     }
 
+    public void setAktuellerPreis(BigDecimal aktuellerPreis) {
+        this.aktuellerPreis = aktuellerPreis;
+    }
+
+    public int getAnzahlGebote() {
+        return anzahlGebote;
+    }
+
+    public void setAnzahlGebote(int anzahlGebote) {
+        this.anzahlGebote = anzahlGebote;
+    }
+
     public void insert() {
         // SQL-Code zum Speichern dieses Angebots in der Datenbank
     }
@@ -1,10 +1,25 @@
 package de.htwberlin.dbtech.bsp.auktion;
 
+import de.htwberlin.dbtech.exceptions.DataException;
 import de.htwberlin.dbtech.exceptions.ServiceException;
+import de.htwberlin.dbtech.utils.RowMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
 
 public class AngebotFinder {
+    private static final Logger L = LoggerFactory.getLogger(AngebotFinder.class);
+
+    private static final String SQL_FIND_BY_ID = String.join(" ",
+            "select AID, ArtikelBez, AuktionEndeZeitpunkt, AuktionMinPreis, AktuellerPreis, AnzahlGebote",
+            "from Angebot where AID = ?");
+    private static final RowMapper.Factory<Angebot> MAPPER = RowMapper.jeAnweisung(Angebot.MAPPER);
+
     private Connection connection = null;
 
     public void setConnection(Connection connection) {
@@ -18,11 +33,31 @@ public class AngebotFinder {
         return connection;
     }
 
+    /**
+     * Alle SQL-Anweisungen, z.B. fuer {@link de.htwberlin.dbtech.utils.ExplainPlanCheck}.
+     */
+    public static List<String> statements() {
+        return List.of(SQL_FIND_BY_ID);
+    }
+
+    /**
+     * Das Angebot mit der ID oder null, wenn es keins gibt.
+     */
     public Angebot findById(Integer aid) {
-        Angebot a = new Angebot();
-        a.setConnection(useConnection());
-        // Sql-Code zum Befuellen des Abgebotsobjekts
-        return a;
+        L.info(SQL_FIND_BY_ID);
+        try (PreparedStatement ps = useConnection().prepareStatement(SQL_FIND_BY_ID)) {
+            ps.setInt(1, aid);
+            try (ResultSet rs = ps.executeQuery()) {
+                Angebot a = RowMapper.erste(rs, MAPPER);
+                if (a != null) {
+                    a.setConnection(useConnection());
+                }
+                return a;
+            }
+        } catch (SQLException e) {
+            L.error("", e);
+            throw new DataException(e);
+        }
     }
 
 }
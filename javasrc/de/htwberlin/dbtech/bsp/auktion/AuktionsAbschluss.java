@@ -0,0 +1,138 @@
+package de.htwberlin.dbtech.bsp.auktion;
+
+import de.htwberlin.dbtech.exceptions.DataException;
+import de.htwberlin.dbtech.exceptions.ServiceException;
+import de.htwberlin.dbtech.utils.TransactionTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schliesst abgelaufene Auktionen ab und traegt das Ergebnis in die Tabelle
+ * Auktionsergebnis ein.
+ * <p>
+ * Alle abgelaufenen, noch nicht abgeschlossenen Angebote werden in einem
+ * einzigen Statement verarbeitet. Das Hoechstgebot je AID wird per
+ * Fensterfunktion bestimmt (hoechster GebotsPreis, bei Gleichstand das
+ * frueheste Gebot). Auktionen ohne Gebot werden ohne GID eingetragen.
+ * <p>
+ * Der Abschluss kann periodisch laufen ({@link #start(long)}); er benutzt
+ * dann seine Connection aus einem eigenen Thread, sie darf also nicht
+ * gleichzeitig von anderen Diensten verwendet werden.
+ */
+public class AuktionsAbschluss {
+    private static final Logger L = LoggerFactory.getLogger(AuktionsAbschluss.class);
+
+    private static final String SQL_ABSCHLUSS = String.join(" ",
+            "insert into Auktionsergebnis (AID, GID, ZuschlagPreis, AbschlussZeitpunkt)",
+            "select AID, GID, GebotsPreis, current_timestamp",
+            "from (select a.AID, g.GID, g.GebotsPreis,",
+            "        row_number() over (partition by a.AID",
+            "          order by g.GebotsPreis desc nulls last, g.GebotsZeitpunkt asc, g.GID asc) as Rang",
+            "      from Angebot a left join Gebot g on g.AID = a.AID",
+            "      where a.AuktionEndeZeitpunkt < current_timestamp",
+            "        and not exists (select 1 from Auktionsergebnis e where e.AID = a.AID))",
+            "where Rang = 1");
+
+    /**
+     * Alle SQL-Anweisungen des Dienstes, z.B. fuer {@link de.htwberlin.dbtech.utils.ExplainPlanCheck}.
+     */
+    public static List<String> statements() {
+        return List.of(SQL_ABSCHLUSS);
+    }
+
+    private Connection connection = null;
+    private ScheduledExecutorService scheduler = null;
+    private ScheduledFuture<?> laufend = null;
+    private volatile long anzahlAbgeschlossen = 0;
+    private volatile double auktionenProSekunde = 0;
+
+    public void setConnection(Connection connection) {
+        this.connection = connection;
+    }
+
+    private Connection useConnection() {
+        if (connection == null) {
+            throw new ServiceException("Service hat keine Connection");
+        }
+        return connection;
+    }
+
+    /**
+     * Schliesst alle abgelaufenen Auktionen in einer Transaktion ab.
+     *
+     * @return Anzahl der in diesem Durchlauf abgeschlossenen Auktionen.
+     */
+    public synchronized int schliesseAbgelaufeneAuktionen() {
+        L.info(SQL_ABSCHLUSS);
+        long start = System.nanoTime();
+        int anzahl;
+        try {
+            anzahl = TransactionTemplate.of(useConnection()).execute(c -> {
+                try (PreparedStatement ps = c.prepareStatement(SQL_ABSCHLUSS)) {
+                    return ps.executeUpdate();
+                }
+            });
+        } catch (SQLException e) {
+            L.error("", e);
+            throw new DataException(e);
+        }
+        long dauer = Math.max(System.nanoTime() - start, 1);
+        anzahlAbgeschlossen += anzahl;
+        auktionenProSekunde = anzahl * 1e9 / dauer;
+        L.info("abgeschlossen: " + anzahl + " Auktionen in " + dauer / 1_000_000 + " ms ("
+                + Math.round(auktionenProSekunde) + " Auktionen/s)");
+        return anzahl;
+    }
+
+    /**
+     * Startet den periodischen Abschluss im Hintergrund.
+     */
+    public synchronized void start(long periodeMillis) {
+        if (laufend != null) {
+            throw new ServiceException("Abschluss laeuft bereits");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "auktions-abschluss");
+            t.setDaemon(true);
+            return t;
+        });
+        laufend = scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                schliesseAbgelaufeneAuktionen();
+            } catch (RuntimeException e) {
+                // naechster Durchlauf versucht es erneut
+                L.error("Auktionsabschluss fehlgeschlagen", e);
+            }
+        }, 0, periodeMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (laufend != null) {
+            laufend.cancel(false);
+            scheduler.shutdown();
+            laufend = null;
+            scheduler = null;
+        }
+    }
+
+    public long getAnzahlAbgeschlossen() {
+        return anzahlAbgeschlossen;
+    }
+
+    /**
+     * Durchsatz des letzten Durchlaufs.
+     */
+    public double getAuktionenProSekunde() {
+        return auktionenProSekunde;
+    }
+
+}
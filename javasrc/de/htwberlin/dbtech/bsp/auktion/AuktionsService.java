@@ -2,21 +2,115 @@ package de.htwberlin.dbtech.bsp.auktion;
 
 import de.htwberlin.dbtech.exceptions.DataException;
 import de.htwberlin.dbtech.exceptions.ServiceException;
+import de.htwberlin.dbtech.utils.TransactionTemplate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.math.BigDecimal;
 import java.sql.*;
+import java.util.List;
 
 public class AuktionsService implements IAuktionsService {
     private static final Logger L = LoggerFactory.getLogger(AuktionsService.class);
+
+    private static final String SQL_EXISTIERT_AID = "select AID from Angebot where AID=?";
+    private static final String SQL_AKTUELLER_PREIS = "select count(GebotsPreis) as anzahlGebote, " +
+            "  coalesce(max(GebotsPreis), max(AuktionMinPreis)) as aktuellerPreis " +
+            "from Angebot a left join Gebot g on a.aid=g.aid " +
+            "where a.aid = ?";
+    private static final String SQL_AUKTION_ENDE =
+            "select AuktionEndeZeitpunkt,  current_timestamp as AktuellerZeitpunkt from Angebot where AID=?";
+    // GID aus der Sequenz: die Sperren der Strategien gelten nur je AID, max(GID) + 1 wuerde sich ueberschneiden
+    private static final String SQL_INSERT_GEBOT = "insert into Gebot (GID, AID, GebotsZeitpunkt, GebotsPreis) "
+            + "values (gebot_seq.nextval, ?, current_timestamp, ?)";
+    // compare-and-set: nur bei laufender Auktion und hoeherem Preis, ohne Gebote reicht der Mindestpreis
+    private static final String SQL_PREIS_BEDINGT_SETZEN = String.join(" ",
+            "update Angebot set AktuellerPreis = ?, AnzahlGebote = AnzahlGebote + 1",
+            "where AID = ? and AuktionEndeZeitpunkt >= current_timestamp",
+            "and ((AnzahlGebote = 0 and AuktionMinPreis <= ?) or (AnzahlGebote > 0 and AktuellerPreis < ?))");
+    // bedingtes UPDATE und Insert in einem Roundtrip
+    private static final String SQL_GEBOT_BEDINGT_EINFUEGEN = String.join("\n",
+            "begin",
+            "  update Angebot set AktuellerPreis = ?, AnzahlGebote = AnzahlGebote + 1",
+            "  where AID = ? and AuktionEndeZeitpunkt >= current_timestamp",
+            "  and ((AnzahlGebote = 0 and AuktionMinPreis <= ?) or (AnzahlGebote > 0 and AktuellerPreis < ?));",
+            "  if sql%rowcount = 1 then",
+            "    insert into Gebot (GID, AID, GebotsZeitpunkt, GebotsPreis)",
+            "    values (gebot_seq.nextval, ?, current_timestamp, ?);",
+            "  end if;",
+            "  ? := sql%rowcount;",
+            "end;");
+    private static final String SQL_PREIS_SETZEN =
+            "update Angebot set AktuellerPreis = ?, AnzahlGebote = AnzahlGebote + 1 where AID = ?";
+    // zieht gebot_seq nur vor, nie zurueck; dieselbe Logik steht am Ende von db/auktion/data-insert.sql
+    private static final String SQL_SEQUENZ_NACHZIEHEN = String.join("\n",
+            "declare",
+            "  naechste integer;",
+            "  aktuell integer;",
+            "begin",
+            "  select nvl(max(GID), 0) + 1 into naechste from Gebot;",
+            "  select gebot_seq.nextval into aktuell from dual;",
+            "  if aktuell < naechste then",
+            "    execute immediate 'alter sequence gebot_seq increment by ' || (naechste - aktuell);",
+            "    select gebot_seq.nextval into aktuell from dual;",
+            "    execute immediate 'alter sequence gebot_seq increment by 1';",
+            "  end if;",
+            "end;");
+
     private Connection connection = null;
+    private AuktionsUhr auktionsUhr = null;
+    private PreisFeed preisFeed = null;
+    private Gebotsstrategie gebotsstrategie = Gebotsstrategie.PREISSPALTE;
+
+    /**
+     * Alle SQL-Anweisungen des Dienstes, z.B. fuer {@link de.htwberlin.dbtech.utils.ExplainPlanCheck}.
+     */
+    public static List<String> statements() {
+        // SQL_GEBOT_BEDINGT_EINFUEGEN und SQL_SEQUENZ_NACHZIEHEN fehlen: PL/SQL-Bloecke haben keinen Ausfuehrungsplan
+        return List.of(SQL_EXISTIERT_AID, SQL_AKTUELLER_PREIS, SQL_AUKTION_ENDE, SQL_INSERT_GEBOT,
+                SQL_PREIS_BEDINGT_SETZEN, SQL_PREIS_SETZEN);
+    }
+
+    /**
+     * Setzt gebot_seq hinter die hoechste GID in Gebot. Nach jedem Laden von
+     * Geboten mit eigenen GIDs aufrufen, sonst vergibt die Sequenz eine
+     * schon belegte GID. Enthaelt DDL und committet deshalb implizit.
+     */
+    public static void gebotSequenzNachziehen(Connection connection) {
+        L.info(SQL_SEQUENZ_NACHZIEHEN);
+        try (CallableStatement cs = connection.prepareCall(SQL_SEQUENZ_NACHZIEHEN)) {
+            cs.execute();
+        } catch (SQLException e) {
+            L.error("", e);
+            throw new DataException(e);
+        }
+    }
 
     @Override
     public void setConnection(Connection connection) {
         this.connection = connection;
     }
 
+    /**
+     * Mit gesetzter Uhr werden Existenz und Laufzeit bekannter Auktionen ohne
+     * Datenbankzugriff geprueft.
+     */
+    public void setAuktionsUhr(AuktionsUhr auktionsUhr) {
+        this.auktionsUhr = auktionsUhr;
+    }
+
+    /**
+     * Mit gesetztem Feed wird jeder angenommene Gebotspreis nach dem Commit
+     * an die Abonnenten gemeldet.
+     */
+    public void setPreisFeed(PreisFeed preisFeed) {
+        this.preisFeed = preisFeed;
+    }
+
+    public void setGebotsstrategie(Gebotsstrategie gebotsstrategie) {
+        this.gebotsstrategie = gebotsstrategie;
+    }
+
     private Connection useConnection() {
         if (connection == null) {
             throw new ServiceException("Service hat keine Connection");
@@ -27,24 +121,127 @@ public class AuktionsService implements IAuktionsService {
     @Override
     public void biete(Integer aid, BigDecimal gebotspreis) {
         L.info("aid: " + aid + "  gebotspreis: " + gebotspreis);
-        if (!existiertAidInDb(aid)) {
-            throw new ServiceException("AID existiert nicht: " + aid);
+        // Pruefungen und Insert in einer Transaktion, bei offener Transaktion des Aufrufers ohne eigenen Commit
+        try {
+            TransactionTemplate.of(useConnection()).run(c -> {
+                switch (gebotsstrategie) {
+                    case EIN_STATEMENT:
+                        bieteInEinemStatement(aid, gebotspreis);
+                        break;
+                    case PREISSPALTE:
+                        bieteUeberPreisspalte(aid, gebotspreis);
+                        break;
+                    default:
+                        bieteMitPruefungen(aid, gebotspreis);
+                }
+                if (preisFeed != null) {
+                    // erst nach dem Commit, bei offener Transaktion des Aufrufers also nach dessen Commit
+                    TransactionTemplate.nachCommit(c, () -> preisFeed.veroeffentliche(aid, gebotspreis));
+                }
+            });
+        } catch (SQLException e) {
+            L.error("", e);
+            throw new DataException(e);
         }
-        if (!istAuktionNochOffen(aid)) {
-            throw new ServiceException("Auktion bereits beendet");
+    }
+
+    private void bieteMitPruefungen(Integer aid, BigDecimal gebotspreis) {
+        if (auktionsUhr != null && auktionsUhr.kennt(aid)) {
+            if (!auktionsUhr.istOffen(aid)) {
+                throw new ServiceException("Auktion bereits beendet");
+            }
+        } else {
+            if (!existiertAidInDb(aid)) {
+                throw new ServiceException("AID existiert nicht: " + aid);
+            }
+            if (!istAuktionNochOffen(aid)) {
+                throw new ServiceException("Auktion bereits beendet");
+            }
         }
         if (!istGebotspreisOk(aid, gebotspreis)) {
             throw new ServiceException("Gebotspreis zu niedrig");
         }
 
         speichereGebot(aid, gebotspreis);
+        setzePreis(aid, gebotspreis);
+    }
+
+    private void bieteUeberPreisspalte(Integer aid, BigDecimal gebotspreis) {
+        if (auktionsUhr != null && auktionsUhr.kennt(aid) && !auktionsUhr.istOffen(aid)) {
+            throw new ServiceException("Auktion bereits beendet");
+        }
+        // die Zeile des Angebots bleibt bis zum Commit gesperrt, konkurrierende Gebote warten
+        if (!setzePreisBedingt(aid, gebotspreis)) {
+            throw ablehnungsgrund(aid);
+        }
+        speichereGebot(aid, gebotspreis);
+    }
+
+    private void bieteInEinemStatement(Integer aid, BigDecimal gebotspreis) {
+        if (auktionsUhr != null && auktionsUhr.kennt(aid) && !auktionsUhr.istOffen(aid)) {
+            throw new ServiceException("Auktion bereits beendet");
+        }
+        L.info(SQL_GEBOT_BEDINGT_EINFUEGEN);
+        int eingefuegt;
+        try (CallableStatement cs = useConnection().prepareCall(SQL_GEBOT_BEDINGT_EINFUEGEN)) {
+            cs.setBigDecimal(1, gebotspreis);
+            cs.setInt(2, aid);
+            cs.setBigDecimal(3, gebotspreis);
+            cs.setBigDecimal(4, gebotspreis);
+            cs.setInt(5, aid);
+            cs.setBigDecimal(6, gebotspreis);
+            cs.registerOutParameter(7, Types.INTEGER);
+            cs.execute();
+            eingefuegt = cs.getInt(7);
+        } catch (SQLException e) {
+            L.error("", e);
+            throw new DataException(e);
+        }
+        if (eingefuegt == 0) {
+            throw ablehnungsgrund(aid);
+        }
+    }
+
+    // nur nach einem abgelehnten Gebot: warum hat die Bedingung nicht gegriffen?
+    private ServiceException ablehnungsgrund(Integer aid) {
+        if (!existiertAidInDb(aid)) {
+            return new ServiceException("AID existiert nicht: " + aid);
+        }
+        if (!istAuktionNochOffen(aid)) {
+            return new ServiceException("Auktion bereits beendet");
+        }
+        return new ServiceException("Gebotspreis zu niedrig");
+    }
+
+    private boolean setzePreisBedingt(Integer aid, BigDecimal gebotspreis) {
+        L.info(SQL_PREIS_BEDINGT_SETZEN);
+        try (PreparedStatement ps = useConnection().prepareStatement(SQL_PREIS_BEDINGT_SETZEN)) {
+            ps.setBigDecimal(1, gebotspreis);
+            ps.setInt(2, aid);
+            ps.setBigDecimal(3, gebotspreis);
+            ps.setBigDecimal(4, gebotspreis);
+            return ps.executeUpdate() == 1;
+        } catch (SQLException e) {
+            L.error("", e);
+            throw new DataException(e);
+        }
+    }
+
+    private void setzePreis(Integer aid, BigDecimal gebotspreis) {
+        try (PreparedStatement ps = useConnection().prepareStatement(SQL_PREIS_SETZEN)) {
+            ps.setBigDecimal(1, gebotspreis);
+            ps.setInt(2, aid);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            L.error("", e);
+            throw new DataException(e);
+        }
     }
 
     private boolean existiertAidInDb(Integer aid) {
         L.info("aid: " + aid);
-        String sql = "select AID from Angebot where AID=?";
-        L.info(sql);
-        try (PreparedStatement ps = useConnection().prepareStatement(sql)) {
+        L.info(SQL_EXISTIERT_AID);
+        try (PreparedStatement ps = useConnection().prepareStatement(SQL_EXISTIERT_AID)) {
             ps.setInt(1, aid);
             try (ResultSet rs = ps.executeQuery()) {
                 return rs.next();
@@ -57,17 +254,14 @@ public class AuktionsService implements IAuktionsService {
 
     private boolean istGebotspreisOk(Integer aid, BigDecimal gebotspreis) {
         L.info("aid: " + aid + "  gebotspreis: " + gebotspreis);
-        String sql = "select count(GebotsPreis) as anzahlGebote, " +
-                "  coalesce(max(GebotsPreis), max(AuktionMinPreis)) as aktuellerPreis " +
-                "from Angebot a left join Gebot g on a.aid=g.aid " +
-                "where a.aid = ?";
-        L.info(sql);
-        try (PreparedStatement ps = useConnection().prepareStatement(sql)) {
+        L.info(SQL_AKTUELLER_PREIS);
+        try (PreparedStatement ps = useConnection().prepareStatement(SQL_AKTUELLER_PREIS)) {
             ps.setInt(1, aid);
             try (ResultSet rs = ps.executeQuery()) {
                 rs.next();
-                int anzahlGebote = rs.getInt("anzahlGebote");
-                BigDecimal aktuellerPreis = rs.getBigDecimal("aktuellerPreis");
+                // Spalten wie in SQL_AKTUELLER_PREIS
+                int anzahlGebote = rs.getInt(1);
+                BigDecimal aktuellerPreis = rs.getBigDecimal(2);
                 L.info("anzahlGebote: " + anzahlGebote);
                 L.info("aktuellerPreis: " + aktuellerPreis);
                 if (anzahlGebote == 0) {
@@ -86,13 +280,13 @@ public class AuktionsService implements IAuktionsService {
     }
 
     private boolean istAuktionNochOffen(Integer aid) {
-        String sql = "select AuktionEndeZeitpunkt,  current_timestamp as AktuellerZeitpunkt from Angebot where AID=?";
-        try (PreparedStatement ps = useConnection().prepareStatement(sql)) {
+        try (PreparedStatement ps = useConnection().prepareStatement(SQL_AUKTION_ENDE)) {
             ps.setInt(1, aid);
             try (ResultSet rs = ps.executeQuery()) {
                 rs.next();
-                Timestamp auktionEndeZeitpunkt = rs.getTimestamp("AuktionEndeZeitpunkt");
-                Timestamp aktuellerZeitpunkt = rs.getTimestamp("AktuellerZeitpunkt");
+                // Spalten wie in SQL_AUKTION_ENDE
+                Timestamp auktionEndeZeitpunkt = rs.getTimestamp(1);
+                Timestamp aktuellerZeitpunkt = rs.getTimestamp(2);
                 return aktuellerZeitpunkt.before(auktionEndeZeitpunkt) || aktuellerZeitpunkt.equals(auktionEndeZeitpunkt);
             }
         } catch (SQLException e) {
@@ -102,34 +296,13 @@ public class AuktionsService implements IAuktionsService {
     }
 
     private void speichereGebot(Integer aid, BigDecimal gebotspreis) {
-        String sql = "insert into Gebot values " + "(?,?, current_timestamp,?)";
-        Integer neueGid = neueGid();
-        try (PreparedStatement ps = useConnection().prepareStatement(sql)) {
-            ps.setInt(1, neueGid);
-            ps.setInt(2, aid);
-            ps.setBigDecimal(3, gebotspreis);
+        try (PreparedStatement ps = useConnection().prepareStatement(SQL_INSERT_GEBOT)) {
+            ps.setInt(1, aid);
+            ps.setBigDecimal(2, gebotspreis);
             ps.executeUpdate();
         } catch (SQLException e) {
             L.error("", e);
             throw new DataException(e);
         }
     }
-
-    private Integer neueGid() {
-        String sql = "select max(gid) as maxgid from gebot";
-        int neueGid = 1;
-        try (Statement stmt = useConnection().createStatement()) {
-            try (ResultSet rs = stmt.executeQuery(sql)) {
-                rs.next();
-                int maxGid = rs.getInt("maxgid");
-                if (!rs.wasNull()) {
-                    neueGid = maxGid + 1;
-                }
-            }
-            return neueGid;
-        } catch (SQLException e) {
-            L.error("", e);
-            throw new DataException(e);
-        }
-    }
 }
@@ -0,0 +1,33 @@
+package de.htwberlin.dbtech.bsp.auktion;
+
+import de.htwberlin.dbtech.utils.AsyncServiceExecutor;
+import de.htwberlin.dbtech.utils.ConnectionPool;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchrone Fassade fuer {@link IAuktionsService}. Siehe
+ * {@link AsyncServiceExecutor}.
+ */
+public class AuktionsServiceAsync implements AutoCloseable {
+    private final AsyncServiceExecutor<IAuktionsService> executor;
+
+    public AuktionsServiceAsync(ConnectionPool pool, int maxInFlight) {
+        this(new AsyncServiceExecutor<>(pool, AuktionsService::new, IAuktionsService::setConnection, maxInFlight));
+    }
+
+    public AuktionsServiceAsync(AsyncServiceExecutor<IAuktionsService> executor) {
+        this.executor = executor;
+    }
+
+    public CompletableFuture<Void> biete(Integer aid, BigDecimal angebotspreis) {
+        return executor.run(s -> s.biete(aid, angebotspreis));
+    }
+
+    @Override
+    public void close() {
+        executor.close();
+    }
+
+}
@@ -0,0 +1,260 @@
+package de.htwberlin.dbtech.bsp.auktion;
+
+import de.htwberlin.dbtech.exceptions.DataException;
+import de.htwberlin.dbtech.exceptions.ServiceException;
+import de.htwberlin.dbtech.utils.Spalten;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntConsumer;
+
+/**
+ * Kennt die Endzeitpunkte aller offenen Auktionen und beantwortet "ist die
+ * Auktion noch offen" ohne Datenbankzugriff.
+ * <p>
+ * Beim {@link #synchronisiere()} werden die offenen Angebote zusammen mit
+ * der aktuellen Datenbankzeit gelesen. Danach wird nur noch mit der
+ * monotonen JVM-Uhr ({@link System#nanoTime()}) gerechnet, so dass
+ * Zeitumstellungen auf dem Anwendungsrechner keine Rolle spielen. Eine
+ * Auktion ist offen, solange der Endzeitpunkt nicht ueberschritten ist.
+ * <p>
+ * Ein Hintergrund-Thread arbeitet eine nach Endzeitpunkt geordnete
+ * Prioritaetswarteschlange ab und ruft die registrierten Listener auf, sobald
+ * eine Auktion endet, z.B. um {@link AuktionsAbschluss} anzustossen.
+ */
+public class AuktionsUhr implements AutoCloseable {
+    private static final Logger L = LoggerFactory.getLogger(AuktionsUhr.class);
+
+    private static final String SQL_OFFENE_ANGEBOTE = String.join(" ",
+            "select AID, AuktionEndeZeitpunkt, current_timestamp as AktuellerZeitpunkt",
+            "from Angebot",
+            "where AuktionEndeZeitpunkt >= current_timestamp");
+    private static final String SQL_DB_ZEIT = "select current_timestamp as AktuellerZeitpunkt from dual";
+
+    private static class Eintrag implements Comparable<Eintrag> {
+        final int aid;
+        final long endeNanos;
+
+        Eintrag(int aid, long endeNanos) {
+            this.aid = aid;
+            this.endeNanos = endeNanos;
+        }
+
+        @Override
+        public int compareTo(Eintrag o) {
+            // nanoTime-Werte nur ueber die Differenz vergleichen
+            return Long.signum(endeNanos - o.endeNanos);
+        }
+    }
+
+    private Connection connection = null;
+    private final Map<Integer, Long> endeNanos = new ConcurrentHashMap<>();
+    private final PriorityQueue<Eintrag> warteschlange = new PriorityQueue<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition geaendert = lock.newCondition();
+    private final List<IntConsumer> listener = new CopyOnWriteArrayList<>();
+
+    // Bezugspunkt: Datenbankzeit in ms und nanoTime zum selben Zeitpunkt
+    private volatile long dbMillisBezug;
+    private volatile long nanosBezug;
+    private volatile boolean synchronisiert = false;
+
+    private Thread thread = null;
+    private volatile boolean laeuft = false;
+
+    public void setConnection(Connection connection) {
+        this.connection = connection;
+    }
+
+    private Connection useConnection() {
+        if (connection == null) {
+            throw new ServiceException("Service hat keine Connection");
+        }
+        return connection;
+    }
+
+    /**
+     * Liest alle offenen Angebote und die Datenbankzeit und ersetzt den
+     * bisherigen Stand.
+     */
+    public void synchronisiere() {
+        L.info(SQL_OFFENE_ANGEBOTE);
+        Map<Integer, Timestamp> enden = new HashMap<>();
+        Timestamp dbJetzt = null;
+        try (PreparedStatement ps = useConnection().prepareStatement(SQL_OFFENE_ANGEBOTE);
+             ResultSet rs = ps.executeQuery()) {
+            Spalten s = Spalten.von(rs);
+            int aidSpalte = s.index("AID");
+            int endeSpalte = s.index("AuktionEndeZeitpunkt");
+            int jetztSpalte = s.index("AktuellerZeitpunkt");
+            while (rs.next()) {
+                enden.put(rs.getInt(aidSpalte), rs.getTimestamp(endeSpalte));
+                dbJetzt = rs.getTimestamp(jetztSpalte);
+            }
+            if (dbJetzt == null) {
+                try (PreparedStatement ps2 = useConnection().prepareStatement(SQL_DB_ZEIT);
+                     ResultSet rs2 = ps2.executeQuery()) {
+                    rs2.next();
+                    dbJetzt = rs2.getTimestamp(1);
+                }
+            }
+        } catch (SQLException e) {
+            L.error("", e);
+            throw new DataException(e);
+        }
+        synchronisiere(dbJetzt, enden);
+    }
+
+    /**
+     * Setzt den Stand aus bereits gelesenen Daten.
+     *
+     * @param dbJetzt aktuelle Datenbankzeit.
+     * @param enden   Endzeitpunkte der offenen Auktionen je AID.
+     */
+    public void synchronisiere(Timestamp dbJetzt, Map<Integer, Timestamp> enden) {
+        lock.lock();
+        try {
+            nanosBezug = System.nanoTime();
+            dbMillisBezug = dbJetzt.getTime();
+            synchronisiert = true;
+            endeNanos.clear();
+            warteschlange.clear();
+            for (Map.Entry<Integer, Timestamp> e : enden.entrySet()) {
+                registriereUnterSperre(e.getKey(), e.getValue());
+            }
+            geaendert.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        L.info("synchronisiert: " + enden.size() + " offene Auktionen");
+    }
+
+    /**
+     * Nimmt eine Auktion auf, die nach der Synchronisation angelegt wurde,
+     * oder aendert deren Endzeitpunkt.
+     */
+    public void registriere(int aid, Timestamp auktionEndeZeitpunkt) {
+        lock.lock();
+        try {
+            if (!synchronisiert) {
+                throw new ServiceException("AuktionsUhr nicht synchronisiert");
+            }
+            registriereUnterSperre(aid, auktionEndeZeitpunkt);
+            geaendert.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void registriereUnterSperre(int aid, Timestamp ende) {
+        long nanos = nanosBezug + TimeUnit.MILLISECONDS.toNanos(ende.getTime() - dbMillisBezug);
+        endeNanos.put(aid, nanos);
+        warteschlange.add(new Eintrag(aid, nanos));
+    }
+
+    /**
+     * true, wenn die Auktion der Uhr bekannt ist. Unbekannte Auktionen (bei
+     * der Synchronisation schon beendet oder nicht vorhanden) muessen in der
+     * Datenbank geprueft werden.
+     */
+    public boolean kennt(int aid) {
+        return endeNanos.containsKey(aid);
+    }
+
+    /**
+     * true, wenn die Auktion bekannt ist und ihr Endzeitpunkt noch nicht
+     * ueberschritten ist.
+     */
+    public boolean istOffen(int aid) {
+        Long ende = endeNanos.get(aid);
+        return ende != null && System.nanoTime() - ende <= 0;
+    }
+
+    /**
+     * Aktuelle Datenbankzeit, fortgeschrieben mit der monotonen Uhr.
+     */
+    public Timestamp jetzt() {
+        return new Timestamp(dbMillisBezug + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - nanosBezug));
+    }
+
+    /**
+     * Registriert einen Listener, der mit der AID aufgerufen wird, sobald eine
+     * Auktion endet. Listener laufen im Thread der Uhr und sollten kurz sein.
+     */
+    public void addListener(IntConsumer l) {
+        listener.add(l);
+    }
+
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        laeuft = true;
+        thread = new Thread(this::abarbeiten, "auktions-uhr");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void abarbeiten() {
+        while (laeuft) {
+            Eintrag faellig;
+            lock.lock();
+            try {
+                Eintrag naechster = warteschlange.peek();
+                if (naechster == null) {
+                    geaendert.await();
+                    continue;
+                }
+                // Auktion ist offen, solange jetzt <= ende; faellig also erst danach
+                long warten = naechster.endeNanos - System.nanoTime() + 1;
+                if (warten > 0) {
+                    geaendert.awaitNanos(warten);
+                    continue;
+                }
+                warteschlange.poll();
+                Long aktuell = endeNanos.get(naechster.aid);
+                if (aktuell == null || aktuell != naechster.endeNanos) {
+                    // veralteter Eintrag nach registriere() mit neuem Endzeitpunkt
+                    continue;
+                }
+                faellig = naechster;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+            for (IntConsumer l : listener) {
+                try {
+                    l.accept(faellig.aid);
+                } catch (RuntimeException e) {
+                    L.error("Listener fuer Auktionsende fehlgeschlagen, aid: " + faellig.aid, e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        laeuft = false;
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+
+}
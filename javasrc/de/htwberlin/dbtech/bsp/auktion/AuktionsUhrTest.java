@@ -0,0 +1,53 @@
+package de.htwberlin.dbtech.bsp.auktion;
+
+import org.junit.Assert;
+
+import java.sql.Timestamp;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class AuktionsUhrTest {
+
+    @org.junit.Test
+    public void offenBisZumEndzeitpunkt() throws InterruptedException {
+        Timestamp dbJetzt = Timestamp.valueOf("2030-01-01 12:00:00");
+        try (AuktionsUhr uhr = new AuktionsUhr()) {
+            CountDownLatch beendet = new CountDownLatch(1);
+            uhr.addListener(aid -> {
+                if (aid == 1) {
+                    beendet.countDown();
+                }
+            });
+            uhr.synchronisiere(dbJetzt, Map.of(
+                    1, new Timestamp(dbJetzt.getTime() + 200),
+                    2, new Timestamp(dbJetzt.getTime() + 60_000)));
+            uhr.start();
+
+            Assert.assertTrue(uhr.kennt(1));
+            Assert.assertTrue(uhr.istOffen(1));
+            Assert.assertFalse(uhr.kennt(3));
+            Assert.assertFalse(uhr.istOffen(3));
+
+            Assert.assertTrue("Listener nicht aufgerufen", beendet.await(5, TimeUnit.SECONDS));
+            Assert.assertFalse(uhr.istOffen(1));
+            Assert.assertTrue(uhr.istOffen(2));
+        }
+    }
+
+    @org.junit.Test
+    public void neuerEndzeitpunktErsetztAlten() throws InterruptedException {
+        Timestamp dbJetzt = Timestamp.valueOf("2030-01-01 12:00:00");
+        try (AuktionsUhr uhr = new AuktionsUhr()) {
+            CountDownLatch beendet = new CountDownLatch(1);
+            uhr.addListener(aid -> beendet.countDown());
+            uhr.synchronisiere(dbJetzt, Map.of(1, new Timestamp(dbJetzt.getTime() + 100)));
+            uhr.registriere(1, new Timestamp(dbJetzt.getTime() + 60_000));
+            uhr.start();
+
+            Assert.assertFalse(beendet.await(300, TimeUnit.MILLISECONDS));
+            Assert.assertTrue(uhr.istOffen(1));
+        }
+    }
+
+}
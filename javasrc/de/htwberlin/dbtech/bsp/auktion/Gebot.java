@@ -1,12 +1,33 @@
 package de.htwberlin.dbtech.bsp.auktion;
 
 import de.htwberlin.dbtech.exceptions.ServiceException;
+import de.htwberlin.dbtech.utils.RowMapper;
+import de.htwberlin.dbtech.utils.Spalten;
 
 import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.Timestamp;
 
 public class Gebot {
+    /**
+     * Fuer Abfragen mit allen Spalten der Tabelle Gebot.
+     */
+    public static final RowMapper.Factory<Gebot> MAPPER = rs -> {
+        Spalten s = Spalten.von(rs);
+        int gid = s.index("GID");
+        int aid = s.index("AID");
+        int zeitpunkt = s.index("GebotsZeitpunkt");
+        int preis = s.index("GebotsPreis");
+        return r -> {
+            Gebot g = new Gebot();
+            g.setGid(r.getInt(gid));
+            g.setAid(r.getInt(aid));
+            g.setGebotsZeitpunkt(r.getTimestamp(zeitpunkt));
+            g.setGebotsPreis(r.getBigDecimal(preis));
+            return g;
+        };
+    };
+
     private Integer gid;
     private Integer aid;
     private Timestamp gebotsZeitpunkt;
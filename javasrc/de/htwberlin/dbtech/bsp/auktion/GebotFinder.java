@@ -1,10 +1,23 @@
 package de.htwberlin.dbtech.bsp.auktion;
 
+import de.htwberlin.dbtech.exceptions.DataException;
 import de.htwberlin.dbtech.exceptions.ServiceException;
+import de.htwberlin.dbtech.utils.RowMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
 
 public class GebotFinder {
+    private static final Logger L = LoggerFactory.getLogger(GebotFinder.class);
+
+    private static final String SQL_FIND_BY_ID = "select GID, AID, GebotsZeitpunkt, GebotsPreis from Gebot where GID = ?";
+    private static final RowMapper.Factory<Gebot> MAPPER = RowMapper.jeAnweisung(Gebot.MAPPER);
+
     private Connection connection = null;
 
     public void setConnection(Connection connection) {
@@ -18,11 +31,31 @@ public class GebotFinder {
         return connection;
     }
 
+    /**
+     * Alle SQL-Anweisungen, z.B. fuer {@link de.htwberlin.dbtech.utils.ExplainPlanCheck}.
+     */
+    public static List<String> statements() {
+        return List.of(SQL_FIND_BY_ID);
+    }
+
+    /**
+     * Das Gebot mit der ID oder null, wenn es keins gibt.
+     */
     public Gebot findById(Integer gid) {
-        Gebot g = new Gebot();
-        g.setConnection(useConnection());
-        // Sql-Code zum Befuellen des Gebotsobjekts
-        return g;
+        L.info(SQL_FIND_BY_ID);
+        try (PreparedStatement ps = useConnection().prepareStatement(SQL_FIND_BY_ID)) {
+            ps.setInt(1, gid);
+            try (ResultSet rs = ps.executeQuery()) {
+                Gebot g = RowMapper.erste(rs, MAPPER);
+                if (g != null) {
+                    g.setConnection(useConnection());
+                }
+                return g;
+            }
+        } catch (SQLException e) {
+            L.error("", e);
+            throw new DataException(e);
+        }
     }
 
 }
@@ -0,0 +1,29 @@
+package de.htwberlin.dbtech.bsp.auktion;
+
+/**
+ * Wie {@link AuktionsService#biete(Integer, java.math.BigDecimal)} ein Gebot
+ * prueft und speichert. Die GID kommt bei allen Strategien aus der Sequenz
+ * gebot_seq, damit gleichzeitige Gebote auf verschiedene Auktionen nicht
+ * dieselbe GID bekommen.
+ */
+public enum Gebotsstrategie {
+    /**
+     * Existenz, Laufzeit und Hoechstgebot einzeln lesen, dann einfuegen. Der
+     * Preis wird aus allen Geboten der AID berechnet.
+     */
+    LESEN_PRUEFEN_SCHREIBEN,
+
+    /**
+     * Ein bedingtes UPDATE auf Angebot.AktuellerPreis prueft und setzt den
+     * Preis in einem Schritt (compare-and-set), danach wird das Gebot
+     * eingefuegt. Der Grund einer Ablehnung wird nur bei 0 Zeilen ermittelt.
+     */
+    PREISSPALTE,
+
+    /**
+     * Wie {@link #PREISSPALTE}, aber bedingtes UPDATE und INSERT des Gebots
+     * laufen in einem PL/SQL-Block, also mit einem einzigen Roundtrip zur
+     * Datenbank.
+     */
+    EIN_STATEMENT
+}
@@ -0,0 +1,197 @@
+package de.htwberlin.dbtech.bsp.auktion;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Verteilt Preisaenderungen von Angeboten an registrierte Listener, sobald
+ * {@link AuktionsService#biete(Integer, BigDecimal)} ein Gebot annimmt.
+ * <p>
+ * Jeder Abonnent hat eine eigene, begrenzte Warteschlange. Pro AID wird nur
+ * der neueste Preis vorgehalten: kommen mehrere Preise fuer dieselbe AID,
+ * bevor der Listener sie abholt, erhaelt er nur den letzten. Ist die
+ * Warteschlange voll, werden Aenderungen weiterer AIDs fuer diesen
+ * Abonnenten verworfen und gezaehlt. {@link #veroeffentliche(int, BigDecimal)}
+ * blockiert nie, langsame Listener bremsen also keine Gebote.
+ * <p>
+ * Angenommene Gebote einer AID steigen streng. Ein Preis, der nicht hoeher
+ * ist als der zuletzt veroeffentlichte derselben AID, ist deshalb veraltet
+ * (zwei gleichzeitige Gebote haben sich ueberholt) und wird nur gezaehlt;
+ * Preise einer AID werden in aufsteigender Reihenfolge angeboten.
+ */
+public class PreisFeed implements AutoCloseable {
+    private static final Logger L = LoggerFactory.getLogger(PreisFeed.class);
+    private static final int MAX_ZUSTELLUNGEN_PRO_DURCHLAUF = 64;
+
+    @FunctionalInterface
+    public interface PreisListener {
+        void preisGeaendert(int aid, BigDecimal preis);
+    }
+
+    private final ExecutorService zustellung;
+    private final List<Abonnement> abonnements = new CopyOnWriteArrayList<>();
+    // hoechster veroeffentlichter Preis je AID
+    private final Map<Integer, BigDecimal> hoechster = new ConcurrentHashMap<>();
+    private final AtomicLong veraltet = new AtomicLong();
+
+    public PreisFeed() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public PreisFeed(int zustellThreads) {
+        AtomicInteger nr = new AtomicInteger();
+        this.zustellung = Executors.newFixedThreadPool(zustellThreads, r -> {
+            Thread t = new Thread(r, "preis-feed-" + nr.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Registriert einen Listener.
+     *
+     * @param maxAusstehend hoechstens so viele AIDs duerfen fuer diesen
+     *                      Listener auf Zustellung warten.
+     */
+    public Abonnement abonniere(PreisListener listener, int maxAusstehend) {
+        Abonnement a = new Abonnement(listener, maxAusstehend);
+        abonnements.add(a);
+        return a;
+    }
+
+    /**
+     * Meldet einen neuen Preis an alle Abonnenten, sofern er hoeher ist als
+     * der zuletzt gemeldete der AID.
+     */
+    public void veroeffentliche(int aid, BigDecimal preis) {
+        // anbieten() blockiert nie; unter der Sperre der AID ueberholt kein niedrigerer Preis einen hoeheren
+        hoechster.compute(aid, (k, alt) -> {
+            if (alt != null && alt.compareTo(preis) >= 0) {
+                veraltet.incrementAndGet();
+                return alt;
+            }
+            for (Abonnement a : abonnements) {
+                a.anbieten(aid, preis);
+            }
+            return preis;
+        });
+    }
+
+    /**
+     * Preise, die nicht veroeffentlicht wurden, weil schon ein hoeherer fuer
+     * die AID gemeldet war.
+     */
+    public long getVeraltet() {
+        return veraltet.get();
+    }
+
+    public int getAnzahlAbonnements() {
+        return abonnements.size();
+    }
+
+    @Override
+    public void close() {
+        abonnements.clear();
+        zustellung.shutdownNow();
+    }
+
+    public class Abonnement implements AutoCloseable {
+        private final PreisListener listener;
+        private final int maxAusstehend;
+        private final Map<Integer, BigDecimal> neuester = new ConcurrentHashMap<>();
+        private final Queue<Integer> reihenfolge = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger ausstehend = new AtomicInteger();
+        private final AtomicBoolean geplant = new AtomicBoolean();
+        private final AtomicLong zugestellt = new AtomicLong();
+        private final AtomicLong verworfen = new AtomicLong();
+        private volatile boolean aktiv = true;
+
+        private Abonnement(PreisListener listener, int maxAusstehend) {
+            this.listener = listener;
+            this.maxAusstehend = maxAusstehend;
+        }
+
+        private void anbieten(int aid, BigDecimal preis) {
+            // erst die AID pruefen: zustellen() zaehlt ausstehend vor dem Entnehmen herunter
+            if (!neuester.containsKey(aid) && ausstehend.get() >= maxAusstehend) {
+                verworfen.incrementAndGet();
+                return;
+            }
+            // ist die AID schon vorgemerkt, wird nur der Preis ersetzt
+            if (neuester.put(aid, preis) == null) {
+                ausstehend.incrementAndGet();
+                reihenfolge.add(aid);
+            }
+            planen();
+        }
+
+        private void planen() {
+            if (aktiv && geplant.compareAndSet(false, true)) {
+                try {
+                    zustellung.execute(this::zustellen);
+                } catch (RejectedExecutionException e) {
+                    geplant.set(false);
+                }
+            }
+        }
+
+        private void zustellen() {
+            try {
+                for (int i = 0; i < MAX_ZUSTELLUNGEN_PRO_DURCHLAUF && aktiv; i++) {
+                    Integer aid = reihenfolge.poll();
+                    if (aid == null) {
+                        break;
+                    }
+                    // erst freigeben, dann entnehmen: sonst wuerde ein gleichzeitiger Preis als Ueberlauf verworfen
+                    ausstehend.decrementAndGet();
+                    BigDecimal preis = neuester.remove(aid);
+                    try {
+                        listener.preisGeaendert(aid, preis);
+                        zugestellt.incrementAndGet();
+                    } catch (RuntimeException e) {
+                        L.error("PreisListener fehlgeschlagen, aid: " + aid, e);
+                    }
+                }
+            } finally {
+                geplant.set(false);
+            }
+            // andere Abonnenten kommen zwischen zwei Durchlaeufen zum Zug
+            if (!reihenfolge.isEmpty()) {
+                planen();
+            }
+        }
+
+        public long getZugestellt() {
+            return zugestellt.get();
+        }
+
+        public long getVerworfen() {
+            return verworfen.get();
+        }
+
+        public int getAusstehend() {
+            return ausstehend.get();
+        }
+
+        @Override
+        public void close() {
+            aktiv = false;
+            abonnements.remove(this);
+        }
+    }
+
+}
@@ -0,0 +1,122 @@
+package de.htwberlin.dbtech.bsp.auktion;
+
+import org.junit.Assert;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stresstest im Prozess: tausende Abonnenten, einige davon sehr langsam.
+ */
+public class PreisFeedTest {
+    private static final Logger L = LoggerFactory.getLogger(PreisFeedTest.class);
+
+    private static final int ABONNENTEN = 5000;
+    private static final int LANGSAME = 20;
+    private static final int AIDS = 50;
+    private static final int GEBOTE_PRO_AID = 40;
+
+    @org.junit.Test
+    public void neuesterPreisKommtBeiAllenAn() throws InterruptedException {
+        try (PreisFeed feed = new PreisFeed(8)) {
+            List<Map<Integer, BigDecimal>> gesehen = new ArrayList<>();
+            List<PreisFeed.Abonnement> abos = new ArrayList<>();
+            for (int i = 0; i < ABONNENTEN; i++) {
+                Map<Integer, BigDecimal> preise = new ConcurrentHashMap<>();
+                gesehen.add(preise);
+                boolean langsam = i < LANGSAME;
+                abos.add(feed.abonniere((aid, preis) -> {
+                    if (langsam) {
+                        schlafe(1);
+                    }
+                    preise.put(aid, preis);
+                }, AIDS));
+            }
+
+            long start = System.nanoTime();
+            for (int g = 1; g <= GEBOTE_PRO_AID; g++) {
+                for (int aid = 1; aid <= AIDS; aid++) {
+                    feed.veroeffentliche(aid, BigDecimal.valueOf(g));
+                }
+            }
+            long dauerMillis = (System.nanoTime() - start) / 1_000_000;
+            L.info("veroeffentlicht: " + AIDS * GEBOTE_PRO_AID + " Preise an " + ABONNENTEN
+                    + " Abonnenten in " + dauerMillis + " ms");
+
+            BigDecimal letzter = BigDecimal.valueOf(GEBOTE_PRO_AID);
+            long frist = System.currentTimeMillis() + 30_000;
+            for (int i = 0; i < ABONNENTEN; i++) {
+                while (!vollstaendig(gesehen.get(i), letzter) && System.currentTimeMillis() < frist) {
+                    schlafe(10);
+                }
+                Assert.assertTrue("Abonnent " + i + " hat nicht alle neuesten Preise",
+                        vollstaendig(gesehen.get(i), letzter));
+                Assert.assertEquals(0, abos.get(i).getVerworfen());
+            }
+        }
+    }
+
+    @org.junit.Test
+    public void volleWarteschlangeVerwirftWeitereAids() {
+        try (PreisFeed feed = new PreisFeed(1)) {
+            Object sperre = new Object();
+            PreisFeed.Abonnement abo;
+            synchronized (sperre) {
+                // Listener haengt, bis alle Preise veroeffentlicht sind
+                abo = feed.abonniere((aid, preis) -> {
+                    synchronized (sperre) {
+                        sperre.notifyAll();
+                    }
+                }, 2);
+                for (int aid = 1; aid <= 10; aid++) {
+                    feed.veroeffentliche(aid, BigDecimal.ONE);
+                }
+            }
+            Assert.assertTrue(abo.getVerworfen() >= 7);
+        }
+    }
+
+    @org.junit.Test
+    public void ueberholterPreisWirdNichtGemeldet() {
+        try (PreisFeed feed = new PreisFeed(1)) {
+            List<BigDecimal> gemeldet = Collections.synchronizedList(new ArrayList<>());
+            feed.abonniere((aid, preis) -> gemeldet.add(preis), 10);
+            feed.veroeffentliche(1, new BigDecimal("12"));
+            // Gebot zu 11 wurde vorher angenommen, seine Meldung kommt aber spaeter an
+            feed.veroeffentliche(1, new BigDecimal("11"));
+            feed.veroeffentliche(1, new BigDecimal("12"));
+            feed.veroeffentliche(2, new BigDecimal("5"));
+            long frist = System.currentTimeMillis() + 5_000;
+            while (gemeldet.size() < 2 && System.currentTimeMillis() < frist) {
+                schlafe(10);
+            }
+            schlafe(50);
+            Assert.assertEquals(2, feed.getVeraltet());
+            Assert.assertEquals(List.of(new BigDecimal("12"), new BigDecimal("5")), gemeldet);
+        }
+    }
+
+    private static boolean vollstaendig(Map<Integer, BigDecimal> preise, BigDecimal letzter) {
+        for (int aid = 1; aid <= AIDS; aid++) {
+            if (!letzter.equals(preise.get(aid))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void schlafe(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
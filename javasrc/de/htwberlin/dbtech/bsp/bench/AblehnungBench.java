@@ -0,0 +1,67 @@
+package de.htwberlin.dbtech.bsp.bench;
+
+import de.htwberlin.dbtech.exceptions.ServiceException;
+import de.htwberlin.dbtech.exceptions.Stacktraces;
+import de.htwberlin.dbtech.exceptions.VertragExistiertNichtException;
+
+/**
+ * Misst die Kosten von Ablehnungen, die als fachliche Exception geworfen
+ * werden, mit und ohne Stacktrace. Die Datenbank wird nicht benutzt; die
+ * Ablehnung findet in einer Aufruftiefe statt, wie sie bei Diensten hinter
+ * JDBC-Treiber und Framework typisch ist.
+ * <p>
+ * Aufruf: {@code AblehnungBench [anzahl] [aufruftiefe] [ablehnungsquoteProzent]}
+ */
+public class AblehnungBench {
+
+    private static long blackhole;
+
+    public static void main(String[] args) {
+        int anzahl = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int tiefe = args.length > 1 ? Integer.parseInt(args[1]) : 60;
+        int quote = args.length > 2 ? Integer.parseInt(args[2]) : 95;
+
+        for (int runde = 0; runde < 3; runde++) {
+            boolean letzteRunde = runde == 2;
+            messe("mit Stacktrace   ", true, anzahl, tiefe, quote, letzteRunde);
+            messe("ohne Stacktrace  ", false, anzahl, tiefe, quote, letzteRunde);
+        }
+        Stacktraces.setAktiv(true);
+        if (blackhole == 42) {
+            System.out.println();
+        }
+    }
+
+    private static void messe(String name, boolean stacktrace, int anzahl, int tiefe, int quote, boolean ausgeben) {
+        Stacktraces.setAktiv(stacktrace);
+        int abgelehnt = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < anzahl; i++) {
+            try {
+                blackhole += biete(i, tiefe, i % 100 < quote);
+            } catch (ServiceException | VertragExistiertNichtException e) {
+                abgelehnt++;
+            }
+        }
+        long dauer = System.nanoTime() - start;
+        if (ausgeben) {
+            System.out.printf("%s %,12d Aufrufe  %,10d abgelehnt  %8.1f ns/Aufruf  %,12.0f Aufrufe/s%n",
+                    name, anzahl, abgelehnt, (double) dauer / anzahl, anzahl * 1e9 / dauer);
+        }
+    }
+
+    // simuliert den Aufrufstapel bis zur Pruefung im Dienst
+    private static long biete(int aid, int tiefe, boolean ablehnen) {
+        if (tiefe > 0) {
+            return biete(aid, tiefe - 1, ablehnen) + 1;
+        }
+        if (ablehnen) {
+            if ((aid & 1) == 0) {
+                throw new ServiceException("Gebotspreis zu niedrig");
+            }
+            throw new VertragExistiertNichtException(aid);
+        }
+        return aid;
+    }
+
+}
@@ -0,0 +1,114 @@
+package de.htwberlin.dbtech.bsp.bench;
+
+import de.htwberlin.dbtech.bsp.raum.IRaumService;
+import de.htwberlin.dbtech.bsp.raum.Raum;
+import de.htwberlin.dbtech.bsp.raum.RaumServiceAsync;
+import de.htwberlin.dbtech.utils.AsyncServiceExecutor;
+import de.htwberlin.dbtech.utils.ConnectionPool;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lasttest der asynchronen Fassade: Durchsatz mit einem Thread pro Aufruf
+ * (virtuelle Threads ab Java 21) gegenueber einem festen Pool von
+ * Plattform-Threads. Der Dienst simuliert einen Datenbankzugriff mit fester
+ * Latenz; die Connections sind Attrappen, damit nur die Thread-Modelle
+ * verglichen werden.
+ * <p>
+ * Aufruf: {@code AsyncLastBench [anfragen] [latenzMillis] [connections] [plattformThreads]}
+ */
+public class AsyncLastBench {
+
+    // Dienst-Attrappe: blockiert wie ein JDBC-Aufruf
+    private static class LangsamerRaumService implements IRaumService {
+        private final long latenzMillis;
+
+        LangsamerRaumService(long latenzMillis) {
+            this.latenzMillis = latenzMillis;
+        }
+
+        @Override
+        public void setConnection(Connection connection) {
+        }
+
+        @Override
+        public Integer findAnzahlPlaetzeInRaum(int rid) {
+            try {
+                Thread.sleep(latenzMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return rid;
+        }
+
+        @Override
+        public int[] findAnzahlPlaetze(int[] rids) {
+            findAnzahlPlaetzeInRaum(0);
+            return rids.clone();
+        }
+
+        @Override
+        public List<Raum> findRaeumeMitMindestensPlaetzen(int minPlaetze, int offset, int limit) {
+            findAnzahlPlaetzeInRaum(0);
+            return List.of();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int anfragen = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        long latenz = args.length > 1 ? Long.parseLong(args[1]) : 10;
+        int connections = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        int plattformThreads = args.length > 3 ? Integer.parseInt(args[3]) : 200;
+
+        ExecutorService proAufgabe = AsyncServiceExecutor.newThreadPerTaskExecutor();
+        System.out.println("Thread pro Aufruf: " + proAufgabe.getClass().getName());
+        messe("Thread pro Aufruf      ", proAufgabe, anfragen, latenz, connections);
+        messe("fester Pool (" + plattformThreads + ")      ", Executors.newFixedThreadPool(plattformThreads),
+                anfragen, latenz, connections);
+    }
+
+    private static void messe(String name, ExecutorService executor, int anfragen, long latenz, int connections)
+            throws Exception {
+        try (ConnectionPool pool = new ConnectionPool(AsyncLastBench::attrappe, connections);
+             RaumServiceAsync service = new RaumServiceAsync(new AsyncServiceExecutor<>(pool,
+                     () -> new LangsamerRaumService(latenz), IRaumService::setConnection,
+                     anfragen, 60_000, 60_000, executor))) {
+            AtomicInteger fehler = new AtomicInteger();
+            CompletableFuture<?>[] futures = new CompletableFuture<?>[anfragen];
+            long start = System.nanoTime();
+            for (int i = 0; i < anfragen; i++) {
+                futures[i] = service.findAnzahlPlaetzeInRaum(i).exceptionally(t -> {
+                    fehler.incrementAndGet();
+                    return null;
+                });
+            }
+            CompletableFuture.allOf(futures).join();
+            long dauer = System.nanoTime() - start;
+            System.out.printf("%s %,8d Anfragen  %,6d Fehler  %8.0f ms  %,10.0f Anfragen/s%n",
+                    name, anfragen, fehler.get(), dauer / 1e6, anfragen * 1e9 / dauer);
+        }
+    }
+
+    private static Connection attrappe() {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "isClosed":
+                            return false;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+}
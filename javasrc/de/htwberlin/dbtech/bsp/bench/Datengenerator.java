@@ -0,0 +1,611 @@
+package de.htwberlin.dbtech.bsp.bench;
+
+import de.htwberlin.dbtech.bsp.auktion.AuktionsService;
+import de.htwberlin.dbtech.exceptions.DataException;
+import de.htwberlin.dbtech.utils.DbCred;
+import de.htwberlin.dbtech.utils.GroupCommit;
+import de.htwberlin.dbtech.utils.JdbcUtils;
+import de.htwberlin.dbtech.utils.Money;
+import de.htwberlin.dbtech.versicherung.Ablehnungsregel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Erzeugt reproduzierbare Testdaten beliebiger Groesse fuer die Schemata in
+ * {@code db/versicherung} und {@code db/auktion}: gleicher Seed und gleiche
+ * Parameter ergeben Zeile fuer Zeile dieselben Daten.
+ * <p>
+ * Versicherung: Produkte mit Deckungsarten, je Deckungsart eine Staffel von
+ * Deckungsbetraegen mit jaehrlichen Preisscheiben und einigen
+ * Ablehnungsregeln; Kunden mit normalverteiltem Alter (auch Minderjaehrige),
+ * je Kunde eine geometrisch verteilte Zahl von Vertraegen, je Vertrag
+ * Deckungen mit eher kleinen Betraegen. Deckungen, die eine Ablehnungsregel
+ * treffen wuerden, werden nicht erzeugt; die Daten sind also auch fuer
+ * {@code createDeckung} konsistent.
+ * <p>
+ * Auktion: Angebote mit Ende um einen Stichtag herum und je Angebot
+ * geometrisch verteilt viele Gebote mit steigenden Preisen;
+ * AktuellerPreis und AnzahlGebote passen zu den Geboten.
+ * <p>
+ * Ausgabe entweder als CSV-Verzeichnis im Format von {@code test-data}
+ * ({@link CsvZiel}, ladbar mit CsvDataSet, FixtureLoader oder
+ * BestandImport) oder direkt per JDBC-Batch in leere Tabellen
+ * ({@link JdbcZiel}).
+ * <p>
+ * Aufruf: {@code Datengenerator <verzeichnis>|db [kunden] [angebote] [seed]}
+ */
+public class Datengenerator {
+    private static final Logger L = LoggerFactory.getLogger(Datengenerator.class);
+
+    private static final String[] NAMEN = {"Gaul", "Krumm", "Axthelm", "Zawisla", "Schulz", "Meyer", "Yilmaz",
+            "Nowak", "Becker", "Hoffmann", "Kowalski", "Wagner", "Nguyen", "Richter", "Klein", "Wolf", "Neumann",
+            "Schwarz", "Zimmermann", "Braun", "Krueger", "Hofmann", "Hartmann", "Lange", "Schmitt", "Werner"};
+    private static final String[] ARTIKEL = {"Harry Potter Band", "Game of Thrones, Staffel", "Das Boot",
+            "Inception", "Homeland, Staffel", "Enders Game", "Fahrrad", "Kaffeemaschine", "Schallplatte",
+            "Briefmarkensammlung", "Lego Technic", "Gitarre", "Spielkonsole", "Wanderschuhe"};
+    // Staffel der Deckungsbetraege in Euro, jede Deckungsart nutzt einen Ausschnitt
+    private static final long[] STAFFEL_EURO = {50_000, 100_000, 200_000, 300_000, 500_000, 1_000_000,
+            15_000_000, 50_000_000, 100_000_000};
+    private static final LocalDate OFFENES_ENDE = LocalDate.of(2099, 12, 31);
+    private static final DateTimeFormatter ZEITPUNKT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final long seed;
+    private int anzahlProdukte = 3;
+    private int maxDeckungsartenJeProdukt = 4;
+    private int anzahlKunden = 1000;
+    private double vertraegeJeKunde = 1.5;
+    private int startJahr = 2015;
+    private int endJahr = 2025;
+    private int anzahlAngebote = 1000;
+    private double geboteJeAngebot = 8;
+    private LocalDateTime stichtag = LocalDateTime.of(2020, 1, 1, 0, 0);
+
+    // Stammdaten, von erzeugeVersicherung fuer die Deckungen gebraucht
+    private final List<int[]> deckungsartenJeProdukt = new ArrayList<>();
+    private final List<long[]> betraegeJeDeckungsart = new ArrayList<>();
+    private final List<List<Ablehnungsregel>> regelnJeDeckungsart = new ArrayList<>();
+
+    public Datengenerator(long seed) {
+        this.seed = seed;
+    }
+
+    public void setAnzahlProdukte(int anzahlProdukte) {
+        this.anzahlProdukte = anzahlProdukte;
+    }
+
+    public void setMaxDeckungsartenJeProdukt(int maxDeckungsartenJeProdukt) {
+        this.maxDeckungsartenJeProdukt = maxDeckungsartenJeProdukt;
+    }
+
+    public void setAnzahlKunden(int anzahlKunden) {
+        this.anzahlKunden = anzahlKunden;
+    }
+
+    /**
+     * Mittlere Zahl der Vertraege je Kunde (geometrisch verteilt).
+     */
+    public void setVertraegeJeKunde(double vertraegeJeKunde) {
+        this.vertraegeJeKunde = vertraegeJeKunde;
+    }
+
+    /**
+     * Zeitraum der Versicherungsbeginne; Preise gelten ab startJahr.
+     */
+    public void setJahre(int startJahr, int endJahr) {
+        this.startJahr = startJahr;
+        this.endJahr = endJahr;
+    }
+
+    public void setAnzahlAngebote(int anzahlAngebote) {
+        this.anzahlAngebote = anzahlAngebote;
+    }
+
+    public void setGeboteJeAngebot(double geboteJeAngebot) {
+        this.geboteJeAngebot = geboteJeAngebot;
+    }
+
+    /**
+     * Bezugszeitpunkt fuer Alter der Kunden und Auktionsenden, damit die
+     * Daten nicht vom Tag der Erzeugung abhaengen.
+     */
+    public void setStichtag(LocalDateTime stichtag) {
+        this.stichtag = stichtag;
+    }
+
+    // eigener Zufallsstrom je Abschnitt und Index, unabhaengig von der Reihenfolge der Aufrufe
+    private SplittableRandom zufall(int abschnitt, long index) {
+        return new SplittableRandom(seed * 0x9E3779B97F4A7C15L + abschnitt * 0xBF58476D1CE4E5B9L + index);
+    }
+
+    private static int geometrisch(SplittableRandom r, double mittel) {
+        double p = 1 / (mittel + 1);
+        return (int) (Math.log(1 - r.nextDouble()) / Math.log(1 - p));
+    }
+
+    // --- Versicherung ---
+
+    /**
+     * Schreibt Produkt, Kunde, Deckungsart, Ablehnungsregel, Vertrag,
+     * Deckungsbetrag, Deckungspreis und Deckung in dieser Reihenfolge (wie
+     * table-ordering.txt der Testdaten).
+     */
+    public void erzeugeVersicherung(Ziel ziel) {
+        long start = System.nanoTime();
+        deckungsartenJeProdukt.clear();
+        betraegeJeDeckungsart.clear();
+        regelnJeDeckungsart.clear();
+        betraegeJeDeckungsart.add(null); // IDs ab 1
+        regelnJeDeckungsart.add(null);
+
+        SplittableRandom r = zufall(1, 0);
+        try (Tabelle t = ziel.tabelle("produkt", "ID", "KurzBez", "Bez")) {
+            for (int p = 1; p <= anzahlProdukte; p++) {
+                t.zeile(p, "P" + p, "Produkt " + p);
+            }
+        }
+        int[] geburtTage = new int[anzahlKunden + 1];
+        try (Tabelle t = ziel.tabelle("kunde", "ID", "Name", "Geburtsdatum")) {
+            for (int k = 1; k <= anzahlKunden; k++) {
+                SplittableRandom rk = zufall(2, k);
+                double alter = Math.max(0.1, Math.min(95, 45 + 17 * rk.nextGaussian()));
+                LocalDate geburt = stichtag.toLocalDate().minusDays((long) (alter * 365.25));
+                geburtTage[k] = (int) geburt.toEpochDay();
+                t.zeile(k, NAMEN[rk.nextInt(NAMEN.length)], geburt);
+            }
+        }
+        int deckungsartId = 0;
+        try (Tabelle t = ziel.tabelle("deckungsart", "ID", "Produkt_FK", "KurzBez", "Bez")) {
+            for (int p = 1; p <= anzahlProdukte; p++) {
+                int[] arten = new int[1 + r.nextInt(maxDeckungsartenJeProdukt)];
+                for (int i = 0; i < arten.length; i++) {
+                    arten[i] = ++deckungsartId;
+                    t.zeile(deckungsartId, p, "DA" + deckungsartId, "Deckungsart " + deckungsartId + " zu Produkt " + p);
+                    // Staffel: 2 bis 5 aufeinanderfolgende Stufen
+                    int laenge = 2 + r.nextInt(4);
+                    int von = r.nextInt(STAFFEL_EURO.length - laenge + 1);
+                    long[] cent = new long[laenge];
+                    for (int s = 0; s < laenge; s++) {
+                        cent[s] = STAFFEL_EURO[von + s] * 100;
+                    }
+                    betraegeJeDeckungsart.add(cent);
+                }
+                deckungsartenJeProdukt.add(arten);
+            }
+        }
+        try (Tabelle t = ziel.tabelle("ablehnungsregel", "Deckungsart_FK", "LfdNr", "R_Betrag", "R_Alter")) {
+            for (int da = 1; da <= deckungsartId; da++) {
+                List<Ablehnungsregel> regeln = new ArrayList<>();
+                double w = r.nextDouble();
+                if (w < 0.5) {
+                    regeln.add(new Ablehnungsregel("-", "< 18"));
+                } else if (w < 0.6) {
+                    regeln.add(new Ablehnungsregel("-", "> 90"));
+                }
+                long[] staffel = betraegeJeDeckungsart.get(da);
+                if (r.nextDouble() < 0.3) {
+                    regeln.add(new Ablehnungsregel(">= " + staffel[staffel.length - 1] / 100, "> 60"));
+                }
+                for (int i = 0; i < regeln.size(); i++) {
+                    t.zeile(da, i + 1, regeln.get(i).getRBetrag(), regeln.get(i).getRAlter());
+                }
+                regelnJeDeckungsart.add(regeln);
+            }
+        }
+        long vertraege = 0;
+        try (Tabelle t = ziel.tabelle("vertrag", "ID", "Produkt_FK", "Kunde_FK", "Versicherungsbeginn",
+                "Versicherungsende")) {
+            for (int k = 1; k <= anzahlKunden; k++) {
+                SplittableRandom rv = zufall(3, k);
+                int n = geometrisch(rv, vertraegeJeKunde);
+                for (int i = 0; i < n; i++) {
+                    Vertrag v = vertrag(rv, k, geburtTage[k], ++vertraege);
+                    t.zeile((int) v.id, v.produkt, k, v.beginn, v.ende);
+                }
+            }
+        }
+        int betragId = 0;
+        try (Tabelle t = ziel.tabelle("deckungsbetrag", "ID", "Deckungsart_FK", "Deckungsbetrag")) {
+            for (int da = 1; da <= deckungsartId; da++) {
+                for (long cent : betraegeJeDeckungsart.get(da)) {
+                    t.zeile(++betragId, da, Money.ofCent(cent));
+                }
+            }
+        }
+        int preisId = 0;
+        try (Tabelle t = ziel.tabelle("deckungspreis", "ID", "Deckungsbetrag_FK", "Gueltig_Von", "Gueltig_Bis",
+                "Preis")) {
+            int id = 0;
+            for (int da = 1; da <= deckungsartId; da++) {
+                long[] staffel = betraegeJeDeckungsart.get(da);
+                for (int s = 0; s < staffel.length; s++) {
+                    SplittableRandom rp = zufall(5, ++id);
+                    // Monatspreis waechst mit der Stufe und jaehrlich um 1 bis 5 Prozent
+                    long preis = 300 + 250L * s + rp.nextInt(200);
+                    for (int j = startJahr; j <= endJahr; j++) {
+                        LocalDate bis = j == endJahr ? OFFENES_ENDE : LocalDate.of(j, 12, 31);
+                        t.zeile(++preisId, id, LocalDate.of(j, 1, 1), bis, Money.ofCent(preis));
+                        preis += preis * (1 + rp.nextInt(5)) / 100;
+                    }
+                }
+            }
+        }
+        long deckungen = 0;
+        try (Tabelle t = ziel.tabelle("deckung", "Vertrag_FK", "Deckungsart_FK", "Deckungsbetrag")) {
+            long vertragId = 0;
+            for (int k = 1; k <= anzahlKunden; k++) {
+                // dieselben Vertraege wie oben, der Strom laeuft danach fuer die Deckungen weiter
+                SplittableRandom rv = zufall(3, k);
+                int n = geometrisch(rv, vertraegeJeKunde);
+                List<Vertrag> liste = new ArrayList<>(n);
+                for (int i = 0; i < n; i++) {
+                    liste.add(vertrag(rv, k, geburtTage[k], ++vertragId));
+                }
+                for (Vertrag v : liste) {
+                    int alter = Period.between(LocalDate.ofEpochDay(geburtTage[k]), v.beginn).getYears();
+                    int[] arten = deckungsartenJeProdukt.get(v.produkt - 1);
+                    for (int i = 0; i < arten.length; i++) {
+                        if (i > 0 && rv.nextDouble() >= 0.6) {
+                            continue;
+                        }
+                        long[] staffel = betraegeJeDeckungsart.get(arten[i]);
+                        // eher kleine Betraege; bei Ablehnung die naechstkleineren versuchen
+                        for (int s = Math.min(staffel.length - 1, geometrisch(rv, 1)); s >= 0; s--) {
+                            if (!trifftRegel(arten[i], staffel[s], alter)) {
+                                t.zeile((int) v.id, arten[i], Money.ofCent(staffel[s]));
+                                deckungen++;
+                                break;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        L.info("Versicherung erzeugt: {} Kunden, {} Vertraege, {} Deckungen, {} Deckungspreise in {} ms",
+                anzahlKunden, vertraege, deckungen, preisId, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static final class Vertrag {
+        final long id;
+        final int produkt;
+        final LocalDate beginn;
+        final LocalDate ende;
+
+        Vertrag(long id, int produkt, LocalDate beginn, LocalDate ende) {
+            this.id = id;
+            this.produkt = produkt;
+            this.beginn = beginn;
+            this.ende = ende;
+        }
+    }
+
+    private Vertrag vertrag(SplittableRandom r, int kunde, int geburtTag, long id) {
+        int produkt = 1 + r.nextInt(anzahlProdukte);
+        long von = LocalDate.of(startJahr, 1, 1).toEpochDay();
+        long tage = LocalDate.of(endJahr, 12, 31).toEpochDay() - von + 1;
+        LocalDate beginn = LocalDate.ofEpochDay(Math.max(von + r.nextLong(tage), geburtTag));
+        // meist ein Jahr, sonst 2 bis 10 Jahre
+        int jahre = r.nextDouble() < 0.85 ? 1 : 2 + r.nextInt(9);
+        return new Vertrag(id, produkt, beginn, beginn.plusYears(jahre).minusDays(1));
+    }
+
+    private boolean trifftRegel(int deckungsart, long betragCent, int alter) {
+        for (Ablehnungsregel regel : regelnJeDeckungsart.get(deckungsart)) {
+            if (regel.trifftZu(betragCent, alter)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // --- Auktion ---
+
+    /**
+     * Schreibt Angebot und Gebot. Auktionen vor dem Stichtag sind beendet,
+     * aber noch nicht abgeschlossen (keine Auktionsergebnisse). Die GIDs
+     * zaehlen ab 1; in einer Datenbank muss danach
+     * {@link AuktionsService#gebotSequenzNachziehen} laufen.
+     */
+    public void erzeugeAuktion(Ziel ziel) {
+        long start = System.nanoTime();
+        // erst alle Angebote, dann alle Gebote: ein JDBC-Ziel schreibt jede Tabelle fuer sich
+        try (Tabelle t = ziel.tabelle("angebot", "AID", "ArtikelBez", "AuktionEndeZeitpunkt", "AuktionMinPreis",
+                "AktuellerPreis", "AnzahlGebote")) {
+            for (int aid = 1; aid <= anzahlAngebote; aid++) {
+                Auktion a = auktion(aid);
+                int n = a.gebotsPreise.size();
+                t.zeile(aid, a.artikel, a.ende, Money.ofCent(a.minPreisCent),
+                        n == 0 ? null : a.gebotsPreise.get(n - 1), n);
+            }
+        }
+        long gebote = 0;
+        try (Tabelle t = ziel.tabelle("gebot", "GID", "AID", "GebotsZeitpunkt", "GebotsPreis")) {
+            for (int aid = 1; aid <= anzahlAngebote; aid++) {
+                Auktion a = auktion(aid);
+                for (int i = 0; i < a.gebotsPreise.size(); i++) {
+                    t.zeile(++gebote, aid, a.gebotsZeitpunkte.get(i), a.gebotsPreise.get(i));
+                }
+            }
+        }
+        L.info("Auktion erzeugt: {} Angebote, {} Gebote in {} ms",
+                anzahlAngebote, gebote, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static final class Auktion {
+        String artikel;
+        LocalDateTime ende;
+        long minPreisCent;
+        final List<LocalDateTime> gebotsZeitpunkte = new ArrayList<>();
+        final List<Money> gebotsPreise = new ArrayList<>();
+    }
+
+    private Auktion auktion(int aid) {
+        SplittableRandom r = zufall(4, aid);
+        Auktion a = new Auktion();
+        a.artikel = ARTIKEL[r.nextInt(ARTIKEL.length)] + " " + (1 + r.nextInt(9));
+        // Ende bis zu ein Jahr vor oder nach dem Stichtag, Laufzeit 1 bis 10 Tage
+        a.ende = stichtag.plusMinutes(r.nextLong(-365L * 24 * 60, 365L * 24 * 60));
+        LocalDateTime zeitpunkt = a.ende.minusDays(1 + r.nextInt(10));
+        a.minPreisCent = 100L * (1 + geometrisch(r, 10));
+        int n = geometrisch(r, geboteJeAngebot);
+        long abstand = Math.max(1, Duration.between(zeitpunkt, a.ende).getSeconds() / (n + 1));
+        long preis = a.minPreisCent;
+        for (int i = 0; i < n; i++) {
+            // Gebote in zeitlicher Reihenfolge vor dem Ende, jedes hoeher als das vorige
+            zeitpunkt = zeitpunkt.plusSeconds(1 + r.nextLong(abstand));
+            if (i > 0) {
+                preis += Math.max(50, preis * (1 + r.nextInt(15)) / 100);
+            }
+            a.gebotsZeitpunkte.add(zeitpunkt);
+            a.gebotsPreise.add(Money.ofCent(preis));
+        }
+        return a;
+    }
+
+    // --- Ziele ---
+
+    /**
+     * Nimmt die erzeugten Zeilen tabellenweise entgegen. Werte sind Integer,
+     * Long, String, {@link Money}, LocalDate, LocalDateTime oder null.
+     */
+    public interface Ziel extends AutoCloseable {
+        Tabelle tabelle(String name, String... spalten);
+
+        @Override
+        void close();
+    }
+
+    public interface Tabelle extends AutoCloseable {
+        void zeile(Object... werte);
+
+        @Override
+        void close();
+    }
+
+    /**
+     * Schreibt je Tabelle eine CSV-Datei im Format von test-data und beim
+     * Schliessen table-ordering.txt in der Reihenfolge der Tabellen.
+     */
+    public static class CsvZiel implements Ziel {
+        private final Path verzeichnis;
+        private final List<String> reihenfolge = new ArrayList<>();
+
+        public CsvZiel(Path verzeichnis) {
+            this.verzeichnis = verzeichnis;
+            try {
+                Files.createDirectories(verzeichnis);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public Tabelle tabelle(String name, String... spalten) {
+            reihenfolge.add(name);
+            try {
+                BufferedWriter w = Files.newBufferedWriter(verzeichnis.resolve(name + ".csv"), StandardCharsets.UTF_8);
+                w.write(String.join(", ", spalten));
+                w.write('\n');
+                return new Tabelle() {
+                    @Override
+                    public void zeile(Object... werte) {
+                        try {
+                            for (int i = 0; i < werte.length; i++) {
+                                if (i > 0) {
+                                    w.write(", ");
+                                }
+                                w.write(csvWert(werte[i]));
+                            }
+                            w.write('\n');
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+
+                    @Override
+                    public void close() {
+                        try {
+                            w.close();
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                };
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private static String csvWert(Object wert) {
+            if (wert == null) {
+                return "null";
+            }
+            if (wert instanceof LocalDateTime) {
+                return ZEITPUNKT.format((LocalDateTime) wert);
+            }
+            String s = wert.toString();
+            if (wert instanceof String && (s.isEmpty() || s.equals("null") || s.indexOf(',') >= 0
+                    || s.indexOf('"') >= 0 || s.startsWith(" ") || s.endsWith(" "))) {
+                return '"' + s.replace("\"", "\"\"") + '"';
+            }
+            return s;
+        }
+
+        @Override
+        public void close() {
+            try {
+                Files.write(verzeichnis.resolve("table-ordering.txt"), reihenfolge, StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Fuegt die Zeilen per JDBC-Batch ein und committet ueber
+     * {@link GroupCommit}. Die Tabellen muessen leer sein; Fremdschluessel
+     * bleiben aktiv, die Reihenfolge der Tabellen stellt sie sicher.
+     */
+    public static class JdbcZiel implements Ziel {
+        private static final int BATCH_GROESSE = 1000;
+
+        private final Connection connection;
+        private final GroupCommit gc;
+
+        public JdbcZiel(Connection connection) {
+            this.connection = connection;
+            this.gc = new GroupCommit(connection, 20, 5000);
+        }
+
+        @Override
+        public Tabelle tabelle(String name, String... spalten) {
+            String sql = "insert into " + name + " (" + String.join(", ", spalten) + ") values ("
+                    + String.join(", ", Collections.nCopies(spalten.length, "?")) + ")";
+            L.info(sql);
+            try {
+                PreparedStatement ps = connection.prepareStatement(sql);
+                return new Tabelle() {
+                    int imBatch = 0;
+
+                    @Override
+                    public void zeile(Object... werte) {
+                        try {
+                            for (int i = 0; i < werte.length; i++) {
+                                setze(ps, i + 1, werte[i]);
+                            }
+                            ps.addBatch();
+                            if (++imBatch == BATCH_GROESSE) {
+                                ausfuehren();
+                            }
+                        } catch (SQLException e) {
+                            L.error("", e);
+                            throw new DataException(e);
+                        }
+                    }
+
+                    private void ausfuehren() throws SQLException {
+                        if (imBatch > 0) {
+                            ps.executeBatch();
+                            imBatch = 0;
+                            gc.operationAbgeschlossen();
+                        }
+                    }
+
+                    @Override
+                    public void close() {
+                        try {
+                            ausfuehren();
+                            ps.close();
+                        } catch (SQLException e) {
+                            L.error("", e);
+                            throw new DataException(e);
+                        }
+                    }
+                };
+            } catch (SQLException e) {
+                L.error("", e);
+                throw new DataException(e);
+            }
+        }
+
+        private static void setze(PreparedStatement ps, int index, Object wert) throws SQLException {
+            if (wert == null) {
+                ps.setNull(index, Types.VARCHAR);
+            } else if (wert instanceof Integer) {
+                ps.setInt(index, (Integer) wert);
+            } else if (wert instanceof Long) {
+                ps.setLong(index, (Long) wert);
+            } else if (wert instanceof Money) {
+                Money.setze(ps, index, (Money) wert);
+            } else if (wert instanceof LocalDate) {
+                ps.setDate(index, Date.valueOf((LocalDate) wert));
+            } else if (wert instanceof LocalDateTime) {
+                ps.setTimestamp(index, Timestamp.valueOf((LocalDateTime) wert));
+            } else if (wert instanceof BigDecimal) {
+                ps.setBigDecimal(index, (BigDecimal) wert);
+            } else {
+                ps.setString(index, wert.toString());
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                gc.close();
+            } catch (SQLException e) {
+                L.error("", e);
+                throw new DataException(e);
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        String ziel = args.length > 0 ? args[0] : "build/testdaten";
+        Datengenerator g = new Datengenerator(args.length > 3 ? Long.parseLong(args[3]) : 42);
+        g.setAnzahlKunden(args.length > 1 ? Integer.parseInt(args[1]) : 100_000);
+        g.setAnzahlAngebote(args.length > 2 ? Integer.parseInt(args[2]) : 100_000);
+        if (ziel.equals("db")) {
+            try (Connection connection = JdbcUtils.getConnectionViaDriverManager(DbCred.url, DbCred.user, DbCred.password)) {
+                try (JdbcZiel z = new JdbcZiel(connection)) {
+                    g.erzeugeVersicherung(z);
+                    g.erzeugeAuktion(z);
+                }
+                AuktionsService.gebotSequenzNachziehen(connection);
+            } catch (SQLException e) {
+                L.error("", e);
+                throw new DataException(e);
+            }
+        } else {
+            try (CsvZiel z = new CsvZiel(Paths.get(ziel, "versicherung"))) {
+                g.erzeugeVersicherung(z);
+            }
+            try (CsvZiel z = new CsvZiel(Paths.get(ziel, "auktion"))) {
+                g.erzeugeAuktion(z);
+            }
+        }
+    }
+
+}
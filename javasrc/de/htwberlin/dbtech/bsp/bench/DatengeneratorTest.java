@@ -0,0 +1,91 @@
+package de.htwberlin.dbtech.bsp.bench;
+
+import de.htwberlin.dbtech.utils.CsvDatei;
+import de.htwberlin.dbtech.utils.IntIntMap;
+import org.junit.Assert;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class DatengeneratorTest {
+
+    private static Path erzeuge(long seed) throws IOException {
+        Path dir = Files.createTempDirectory("datengenerator");
+        Datengenerator g = new Datengenerator(seed);
+        g.setAnzahlKunden(2000);
+        g.setAnzahlAngebote(500);
+        try (Datengenerator.CsvZiel z = new Datengenerator.CsvZiel(dir.resolve("versicherung"))) {
+            g.erzeugeVersicherung(z);
+        }
+        try (Datengenerator.CsvZiel z = new Datengenerator.CsvZiel(dir.resolve("auktion"))) {
+            g.erzeugeAuktion(z);
+        }
+        return dir;
+    }
+
+    private static void loesche(Path dir) throws IOException {
+        try (Stream<Path> s = Files.walk(dir)) {
+            for (Path p : (Iterable<Path>) s.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(p);
+            }
+        }
+    }
+
+    @org.junit.Test
+    public void gleicherSeedGleicheDaten() throws IOException {
+        Path a = erzeuge(7);
+        Path b = erzeuge(7);
+        Path c = erzeuge(8);
+        try {
+            List<String> tabellen = CsvDatei.tabellenReihenfolge(a.resolve("versicherung"));
+            Assert.assertEquals(List.of("produkt", "kunde", "deckungsart", "ablehnungsregel", "vertrag",
+                    "deckungsbetrag", "deckungspreis", "deckung"), tabellen);
+            for (String t : tabellen) {
+                Path datei = Path.of("versicherung", t + ".csv");
+                Assert.assertEquals(t, -1L, Files.mismatch(a.resolve(datei), b.resolve(datei)));
+            }
+            Path gebote = Path.of("auktion", "gebot.csv");
+            Assert.assertEquals(-1L, Files.mismatch(a.resolve(gebote), b.resolve(gebote)));
+            Assert.assertNotEquals(-1L, Files.mismatch(a.resolve(gebote), c.resolve(gebote)));
+        } finally {
+            loesche(a);
+            loesche(b);
+            loesche(c);
+        }
+    }
+
+    @org.junit.Test
+    public void fremdschluesselPassen() throws IOException {
+        Path dir = erzeuge(1);
+        try {
+            IntIntMap vertraege = new IntIntMap(1024);
+            try (CsvDatei d = CsvDatei.oeffne(dir.resolve("versicherung/vertrag.csv"))) {
+                d.lese(z -> {
+                    Assert.assertTrue(z.getEpochDay(3) <= z.getEpochDay(4));
+                    vertraege.put(z.getInt(0), z.getInt(1));
+                });
+            }
+            IntIntMap artProdukt = new IntIntMap(16);
+            try (CsvDatei d = CsvDatei.oeffne(dir.resolve("versicherung/deckungsart.csv"))) {
+                d.lese(z -> artProdukt.put(z.getInt(0), z.getInt(1)));
+            }
+            long[] deckungen = new long[1];
+            try (CsvDatei d = CsvDatei.oeffne(dir.resolve("versicherung/deckung.csv"))) {
+                d.lese(z -> {
+                    Assert.assertTrue(vertraege.containsKey(z.getInt(0)));
+                    Assert.assertEquals(vertraege.get(z.getInt(0), -1), artProdukt.get(z.getInt(1), -2));
+                    deckungen[0]++;
+                });
+            }
+            Assert.assertTrue(vertraege.size() > 1000);
+            Assert.assertTrue(deckungen[0] > vertraege.size());
+        } finally {
+            loesche(dir);
+        }
+    }
+
+}
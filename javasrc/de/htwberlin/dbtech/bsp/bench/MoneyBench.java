@@ -0,0 +1,72 @@
+package de.htwberlin.dbtech.bsp.bench;
+
+import de.htwberlin.dbtech.utils.Money;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+
+/**
+ * Allokationen und Laufzeit der Regelpruefung: Vergleich ueber BigDecimal,
+ * wie ihn VersicherungService frueher je Regel gemacht hat, gegenueber dem
+ * Vergleich in Cent mit {@link Money}.
+ * <p>
+ * Aufruf: {@code MoneyBench [durchlaeufe]}
+ */
+public class MoneyBench {
+    private static final String[] REGELWERTE = {"100000", "200000", "50000.50", "18", "65", "90"};
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) {
+        int durchlaeufe = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        BigDecimal betrag = new BigDecimal("150000.00");
+        int alter = 42;
+        long[] regelCent = new long[REGELWERTE.length];
+        for (int i = 0; i < REGELWERTE.length; i++) {
+            regelCent[i] = Money.parseCent(REGELWERTE[i]);
+        }
+
+        for (int runde = 0; runde < 3; runde++) {
+            messe("BigDecimal", durchlaeufe, () -> {
+                int treffer = 0;
+                for (int i = 0; i < REGELWERTE.length; i++) {
+                    BigDecimal wert = i < 3 ? betrag : new BigDecimal(alter);
+                    if (wert.compareTo(new BigDecimal(REGELWERTE[i])) >= 0) {
+                        treffer++;
+                    }
+                }
+                return treffer;
+            });
+            messe("Money     ", durchlaeufe, () -> {
+                long betragCent = Money.of(betrag).getCent();
+                long alterCent = alter * 100L;
+                int treffer = 0;
+                for (int i = 0; i < regelCent.length; i++) {
+                    if ((i < 3 ? betragCent : alterCent) >= regelCent[i]) {
+                        treffer++;
+                    }
+                }
+                return treffer;
+            });
+        }
+    }
+
+    private interface Pruefung {
+        int pruefe();
+    }
+
+    private static void messe(String name, int durchlaeufe, Pruefung p) {
+        long id = Thread.currentThread().getId();
+        long bytesVorher = THREADS.getThreadAllocatedBytes(id);
+        long start = System.nanoTime();
+        long summe = 0;
+        for (int i = 0; i < durchlaeufe; i++) {
+            summe += p.pruefe();
+        }
+        long dauer = System.nanoTime() - start;
+        long bytes = THREADS.getThreadAllocatedBytes(id) - bytesVorher;
+        System.out.printf("%s %8.1f ns/Pruefung  %8.1f Bytes/Pruefung  (%d)%n",
+                name, (double) dauer / durchlaeufe, (double) bytes / durchlaeufe, summe);
+    }
+
+}
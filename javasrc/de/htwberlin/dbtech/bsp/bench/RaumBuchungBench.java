@@ -0,0 +1,83 @@
+package de.htwberlin.dbtech.bsp.bench;
+
+import de.htwberlin.dbtech.bsp.raum.RaumBuchungService;
+import de.htwberlin.dbtech.exceptions.RaumException;
+
+import java.sql.Timestamp;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Buchungen eines Jahres fuer tausende Raeume, parallel aus mehreren
+ * Threads: Termine beginnen zur Viertelstunde zwischen 8 und 18 Uhr und
+ * dauern ein bis drei Stunden, ueberlappende Anfragen werden abgelehnt.
+ * Gemessen wird nur die Konfliktpruefung im Speicher, ohne
+ * {@link RaumBuchungService#speichere()}.
+ * <p>
+ * Aufruf: {@code RaumBuchungBench [raeume] [anfragenProRaumUndTag] [threads]}
+ */
+public class RaumBuchungBench {
+    private static final long VIERTELSTUNDE = TimeUnit.MINUTES.toMillis(15);
+    private static final long TAG = TimeUnit.DAYS.toMillis(1);
+
+    public static void main(String[] args) throws Exception {
+        int raeume = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int proTag = args.length > 1 ? Integer.parseInt(args[1]) : 6;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        long jahresbeginn = Timestamp.valueOf("2025-01-01 00:00:00").getTime();
+        long anfragen = (long) raeume * 365 * proTag;
+
+        RaumBuchungService service = new RaumBuchungService();
+        AtomicLong angenommen = new AtomicLong();
+        AtomicLong abgelehnt = new AtomicLong();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        Future<?>[] futures = new Future<?>[threads];
+        for (int t = 0; t < threads; t++) {
+            SplittableRandom r = new SplittableRandom(t);
+            futures[t] = pool.submit(() -> {
+                for (long i = 0; i < anfragen / threads; i++) {
+                    int rid = 1 + r.nextInt(raeume);
+                    long beginn = jahresbeginn + r.nextInt(365) * TAG + (32 + r.nextInt(40)) * VIERTELSTUNDE;
+                    long ende = beginn + (4 + r.nextInt(9)) * VIERTELSTUNDE;
+                    try {
+                        service.buche(rid, new Timestamp(beginn), new Timestamp(ende), null);
+                        angenommen.incrementAndGet();
+                    } catch (RaumException e) {
+                        abgelehnt.incrementAndGet();
+                    }
+                }
+            });
+        }
+        for (Future<?> f : futures) {
+            f.get();
+        }
+        long dauer = System.nanoTime() - start;
+        System.out.printf("Buchen:   %,d Raeume, %,d Anfragen, %,d angenommen, %,d Konflikte, %d Threads%n",
+                raeume, angenommen.get() + abgelehnt.get(), angenommen.get(), abgelehnt.get(), threads);
+        System.out.printf("          %8.0f ms  %,12.0f Anfragen/s%n", dauer / 1e6,
+                (angenommen.get() + abgelehnt.get()) * 1e9 / dauer);
+
+        // Verfuegbarkeit abfragen, wie es die Planung tut
+        SplittableRandom r = new SplittableRandom(99);
+        int abfragen = 2_000_000;
+        int frei = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < abfragen; i++) {
+            int rid = 1 + r.nextInt(raeume);
+            long beginn = jahresbeginn + r.nextInt(365) * TAG + (32 + r.nextInt(40)) * VIERTELSTUNDE;
+            if (service.istFrei(rid, new Timestamp(beginn), new Timestamp(beginn + 4 * VIERTELSTUNDE))) {
+                frei++;
+            }
+        }
+        dauer = System.nanoTime() - start;
+        System.out.printf("istFrei:  %,d Abfragen, %,d frei  %8.0f ms  %,12.0f Abfragen/s%n",
+                abfragen, frei, dauer / 1e6, abfragen * 1e9 / dauer);
+        pool.shutdown();
+    }
+
+}
@@ -0,0 +1,63 @@
+package de.htwberlin.dbtech.bsp.raum;
+
+import de.htwberlin.dbtech.utils.RowMapper;
+import de.htwberlin.dbtech.utils.Spalten;
+
+import java.sql.Timestamp;
+
+public class Buchung {
+    /**
+     * Fuer Abfragen mit den Spalten BID, RID, Beginn, Ende und Bezeichnung.
+     */
+    public static final RowMapper.Factory<Buchung> MAPPER = rs -> {
+        Spalten s = Spalten.von(rs);
+        int bid = s.index("BID");
+        int rid = s.index("RID");
+        int beginn = s.index("Beginn");
+        int ende = s.index("Ende");
+        int bezeichnung = s.index("Bezeichnung");
+        return r -> new Buchung(r.getInt(bid), r.getInt(rid), r.getTimestamp(beginn), r.getTimestamp(ende),
+                r.getString(bezeichnung));
+    };
+
+    private final int bid;
+    private final int rid;
+    private final Timestamp beginn;
+    private final Timestamp ende;
+    private final String bezeichnung;
+
+    @Override
+    public String toString() {
+        return "Buchung [bid=" + bid + ", rid=" + rid + ", beginn=" + beginn + ", ende=" + ende
+                + ", bezeichnung=" + bezeichnung + "]";
+    }
+
+    public Buchung(int bid, int rid, Timestamp beginn, Timestamp ende, String bezeichnung) {
+        this.bid = bid;
+        this.rid = rid;
+        this.beginn = beginn;
+        this.ende = ende;
+        this.bezeichnung = bezeichnung;
+    }
+
+    public int getBid() {
+        return bid;
+    }
+
+    public int getRid() {
+        return rid;
+    }
+
+    public Timestamp getBeginn() {
+        return beginn;
+    }
+
+    public Timestamp getEnde() {
+        return ende;
+    }
+
+    public String getBezeichnung() {
+        return bezeichnung;
+    }
+
+}
@@ -1,9 +1,26 @@
 package de.htwberlin.dbtech.bsp.raum;
 
 import java.sql.Connection;
+import java.util.List;
 
 public interface IRaumService {
     void setConnection(Connection connection);
 
     Integer findAnzahlPlaetzeInRaum(int rid);
+
+    /**
+     * Sitzplaetze mehrerer Raeume, in der Reihenfolge der RIDs.
+     *
+     * @throws de.htwberlin.dbtech.exceptions.RaumException wenn eine RID nicht existiert.
+     */
+    int[] findAnzahlPlaetze(int[] rids);
+
+    /**
+     * Raeume mit mindestens {@code minPlaetze} Sitzen, aufsteigend nach
+     * Sitzplaetzen, bei Gleichstand nach RID.
+     *
+     * @param offset so viele Treffer werden uebersprungen.
+     * @param limit  hoechstens so viele Treffer werden geliefert.
+     */
+    List<Raum> findRaeumeMitMindestensPlaetzen(int minPlaetze, int offset, int limit);
 }
\ No newline at end of file
@@ -0,0 +1,208 @@
+package de.htwberlin.dbtech.bsp.raum;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Intervallbaum ueber halboffene Zeitintervalle [beginn, ende) mit einer
+ * int-Kennung je Intervall (z.B. BID).
+ * <p>
+ * AVL-Baum, geordnet nach Beginn und Kennung; jeder Knoten kennt das
+ * groesste Ende in seinem Teilbaum. Damit findet
+ * {@link #findeUeberlappung(long, long)} ein ueberlappendes Intervall in
+ * O(log n), ohne den Baum zu durchlaufen. Nicht threadsicher.
+ */
+public class IntervallBaum {
+    public static final int KEINE = -1;
+
+    private static final class Knoten {
+        final long beginn;
+        final long ende;
+        final int id;
+        long maxEnde;
+        int hoehe = 1;
+        Knoten links;
+        Knoten rechts;
+
+        Knoten(long beginn, long ende, int id) {
+            this.beginn = beginn;
+            this.ende = ende;
+            this.id = id;
+            this.maxEnde = ende;
+        }
+    }
+
+    private Knoten wurzel;
+    private int anzahl;
+
+    public int size() {
+        return anzahl;
+    }
+
+    /**
+     * Kennung eines Intervalls, das [beginn, ende) ueberlappt, sonst
+     * {@link #KEINE}.
+     */
+    public int findeUeberlappung(long beginn, long ende) {
+        Knoten n = wurzel;
+        while (n != null) {
+            if (n.beginn < ende && beginn < n.ende) {
+                return n.id;
+            }
+            // reicht links nichts ueber beginn hinaus, kann nur rechts etwas liegen;
+            // sonst liegt links entweder ein Treffer oder rechts beginnt alles zu spaet
+            if (n.links != null && n.links.maxEnde > beginn) {
+                n = n.links;
+            } else {
+                n = n.rechts;
+            }
+        }
+        return KEINE;
+    }
+
+    /**
+     * Ruft {@code aktion} fuer die Kennung jedes Intervalls auf, das
+     * [beginn, ende) ueberlappt, aufsteigend nach Beginn.
+     */
+    public void alleUeberlappungen(long beginn, long ende, IntConsumer aktion) {
+        alleUeberlappungen(wurzel, beginn, ende, aktion);
+    }
+
+    private static void alleUeberlappungen(Knoten n, long beginn, long ende, IntConsumer aktion) {
+        if (n == null || n.maxEnde <= beginn) {
+            return;
+        }
+        alleUeberlappungen(n.links, beginn, ende, aktion);
+        if (n.beginn < ende) {
+            if (beginn < n.ende) {
+                aktion.accept(n.id);
+            }
+            // rechts beginnt alles spaeter als n, lohnt sich also nur, wenn n vor ende beginnt
+            alleUeberlappungen(n.rechts, beginn, ende, aktion);
+        }
+    }
+
+    public void einfuegen(long beginn, long ende, int id) {
+        if (ende <= beginn) {
+            throw new IllegalArgumentException("leeres Intervall: " + beginn + " - " + ende);
+        }
+        wurzel = einfuegen(wurzel, new Knoten(beginn, ende, id));
+        anzahl++;
+    }
+
+    private static Knoten einfuegen(Knoten n, Knoten neu) {
+        if (n == null) {
+            return neu;
+        }
+        if (vergleiche(neu.beginn, neu.id, n) < 0) {
+            n.links = einfuegen(n.links, neu);
+        } else {
+            n.rechts = einfuegen(n.rechts, neu);
+        }
+        return ausgleichen(n);
+    }
+
+    /**
+     * Entfernt das Intervall mit diesem Beginn und dieser Kennung.
+     *
+     * @return false, wenn es nicht im Baum war.
+     */
+    public boolean entfernen(long beginn, int id) {
+        int vorher = anzahl;
+        wurzel = entfernen(wurzel, beginn, id);
+        return anzahl < vorher;
+    }
+
+    private Knoten entfernen(Knoten n, long beginn, int id) {
+        if (n == null) {
+            return null;
+        }
+        int v = vergleiche(beginn, id, n);
+        if (v < 0) {
+            n.links = entfernen(n.links, beginn, id);
+        } else if (v > 0) {
+            n.rechts = entfernen(n.rechts, beginn, id);
+        } else {
+            anzahl--;
+            if (n.links == null) {
+                return n.rechts;
+            }
+            if (n.rechts == null) {
+                return n.links;
+            }
+            Knoten nachfolger = n.rechts;
+            while (nachfolger.links != null) {
+                nachfolger = nachfolger.links;
+            }
+            nachfolger.rechts = ohneKleinsten(n.rechts);
+            nachfolger.links = n.links;
+            return ausgleichen(nachfolger);
+        }
+        return ausgleichen(n);
+    }
+
+    private static Knoten ohneKleinsten(Knoten n) {
+        if (n.links == null) {
+            return n.rechts;
+        }
+        n.links = ohneKleinsten(n.links);
+        return ausgleichen(n);
+    }
+
+    private static int vergleiche(long beginn, int id, Knoten n) {
+        int v = Long.compare(beginn, n.beginn);
+        return v != 0 ? v : Integer.compare(id, n.id);
+    }
+
+    private static int hoehe(Knoten n) {
+        return n == null ? 0 : n.hoehe;
+    }
+
+    private static void aktualisieren(Knoten n) {
+        n.hoehe = 1 + Math.max(hoehe(n.links), hoehe(n.rechts));
+        long max = n.ende;
+        if (n.links != null && n.links.maxEnde > max) {
+            max = n.links.maxEnde;
+        }
+        if (n.rechts != null && n.rechts.maxEnde > max) {
+            max = n.rechts.maxEnde;
+        }
+        n.maxEnde = max;
+    }
+
+    private static Knoten ausgleichen(Knoten n) {
+        aktualisieren(n);
+        int balance = hoehe(n.links) - hoehe(n.rechts);
+        if (balance > 1) {
+            if (hoehe(n.links.links) < hoehe(n.links.rechts)) {
+                n.links = linksRotieren(n.links);
+            }
+            return rechtsRotieren(n);
+        }
+        if (balance < -1) {
+            if (hoehe(n.rechts.rechts) < hoehe(n.rechts.links)) {
+                n.rechts = rechtsRotieren(n.rechts);
+            }
+            return linksRotieren(n);
+        }
+        return n;
+    }
+
+    private static Knoten rechtsRotieren(Knoten n) {
+        Knoten l = n.links;
+        n.links = l.rechts;
+        l.rechts = n;
+        aktualisieren(n);
+        aktualisieren(l);
+        return l;
+    }
+
+    private static Knoten linksRotieren(Knoten n) {
+        Knoten r = n.rechts;
+        n.rechts = r.links;
+        r.links = n;
+        aktualisieren(n);
+        aktualisieren(r);
+        return r;
+    }
+
+}
@@ -0,0 +1,61 @@
+package de.htwberlin.dbtech.bsp.raum;
+
+import org.junit.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class IntervallBaumTest {
+
+    @org.junit.Test
+    public void halboffeneIntervalle() {
+        IntervallBaum b = new IntervallBaum();
+        b.einfuegen(10, 20, 1);
+        Assert.assertEquals(IntervallBaum.KEINE, b.findeUeberlappung(20, 30));
+        Assert.assertEquals(IntervallBaum.KEINE, b.findeUeberlappung(0, 10));
+        Assert.assertEquals(1, b.findeUeberlappung(19, 21));
+        Assert.assertEquals(1, b.findeUeberlappung(0, 100));
+    }
+
+    @org.junit.Test
+    public void wieBruteForce() {
+        Random r = new Random(7);
+        IntervallBaum b = new IntervallBaum();
+        List<long[]> intervalle = new ArrayList<>();
+        for (int id = 0; id < 5000; id++) {
+            long beginn = r.nextInt(100_000);
+            long ende = beginn + 1 + r.nextInt(200);
+            b.einfuegen(beginn, ende, id);
+            intervalle.add(new long[]{beginn, ende, id});
+        }
+        // jedes dritte wieder entfernen
+        for (int id = 0; id < 5000; id += 3) {
+            Assert.assertTrue(b.entfernen(intervalle.get(id)[0], id));
+            intervalle.set(id, null);
+        }
+        Assert.assertFalse(b.entfernen(0, 0));
+        Assert.assertEquals(5000 - 1667, b.size());
+
+        for (int n = 0; n < 2000; n++) {
+            long beginn = r.nextInt(100_000);
+            long ende = beginn + 1 + r.nextInt(500);
+            List<Integer> erwartet = new ArrayList<>();
+            for (long[] iv : intervalle) {
+                if (iv != null && iv[0] < ende && beginn < iv[1]) {
+                    erwartet.add((int) iv[2]);
+                }
+            }
+            List<Integer> gefunden = new ArrayList<>();
+            b.alleUeberlappungen(beginn, ende, gefunden::add);
+            Assert.assertEquals(erwartet.size(), gefunden.size());
+            Assert.assertTrue(gefunden.containsAll(erwartet));
+            int einer = b.findeUeberlappung(beginn, ende);
+            Assert.assertEquals(erwartet.isEmpty(), einer == IntervallBaum.KEINE);
+            if (einer != IntervallBaum.KEINE) {
+                Assert.assertTrue(erwartet.contains(einer));
+            }
+        }
+    }
+
+}
@@ -1,6 +1,20 @@
 package de.htwberlin.dbtech.bsp.raum;
 
+import de.htwberlin.dbtech.utils.RowMapper;
+import de.htwberlin.dbtech.utils.Spalten;
+
 public class Raum {
+    /**
+     * Fuer Abfragen mit den Spalten RID, RaumNr und AnzahlSitze.
+     */
+    public static final RowMapper.Factory<Raum> MAPPER = rs -> {
+        Spalten s = Spalten.von(rs);
+        int rid = s.index("RID");
+        int raumNr = s.index("RaumNr");
+        int anzahlSitze = s.index("AnzahlSitze");
+        return r -> new Raum(r.getInt(rid), r.getString(raumNr), r.getInt(anzahlSitze));
+    };
+
     private int rid;
     private String raumNr;
     private int anzahlSitze;
@@ -0,0 +1,270 @@
+package de.htwberlin.dbtech.bsp.raum;
+
+import de.htwberlin.dbtech.exceptions.DataException;
+import de.htwberlin.dbtech.exceptions.RaumException;
+import de.htwberlin.dbtech.exceptions.ServiceException;
+import de.htwberlin.dbtech.utils.RowMapper;
+import de.htwberlin.dbtech.utils.TransactionTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Raumbuchung mit Konfliktpruefung im Speicher.
+ * <p>
+ * Je Raum haelt der Dienst einen {@link IntervallBaum} der Buchungen und
+ * eine eigene Sperre: Buchungen verschiedener Raeume laufen parallel,
+ * Buchungen desselben Raums nacheinander, und ueberlappende Buchungen werden
+ * abgelehnt, bevor die Datenbank beteiligt ist. Neue Buchungen und
+ * Stornierungen werden gesammelt und mit {@link #speichere()} als JDBC-Batch
+ * in einer Transaktion geschrieben.
+ * <p>
+ * Die Buchungs-Methoden sind threadsicher. Die Connection wird nur von
+ * {@link #lade()} und {@link #speichere()} benutzt; der Dienst muss die
+ * Buchungen in der Datenbank allein schreiben, sonst sieht er deren
+ * Konflikte nicht.
+ */
+public class RaumBuchungService {
+    private static final Logger L = LoggerFactory.getLogger(RaumBuchungService.class);
+
+    private static final String SQL_ALLE_BUCHUNGEN = "select BID, RID, Beginn, Ende, Bezeichnung from Buchung";
+    private static final String SQL_MAX_BID = "select max(BID) as maxbid from Buchung";
+    private static final String SQL_INSERT_BUCHUNG =
+            "insert into Buchung (BID, RID, Beginn, Ende, Bezeichnung) values (?, ?, ?, ?, ?)";
+    private static final String SQL_DELETE_BUCHUNG = "delete from Buchung where BID = ?";
+    private static final int BATCH_GROESSE = 1000;
+
+    private static class Raumplan {
+        final ReentrantLock lock = new ReentrantLock();
+        final IntervallBaum baum = new IntervallBaum();
+    }
+
+    private Connection connection = null;
+    private final Map<Integer, Raumplan> plaene = new ConcurrentHashMap<>();
+    private final Map<Integer, Buchung> buchungen = new ConcurrentHashMap<>();
+    private final AtomicInteger letzteBid = new AtomicInteger();
+    private final Queue<Buchung> neu = new ConcurrentLinkedQueue<>();
+    private final Queue<Integer> storniert = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Alle SQL-Anweisungen des Dienstes, z.B. fuer {@link de.htwberlin.dbtech.utils.ExplainPlanCheck}.
+     */
+    public static List<String> statements() {
+        return List.of(SQL_ALLE_BUCHUNGEN, SQL_MAX_BID, SQL_INSERT_BUCHUNG, SQL_DELETE_BUCHUNG);
+    }
+
+    public void setConnection(Connection connection) {
+        this.connection = connection;
+    }
+
+    private Connection useConnection() {
+        if (connection == null) {
+            throw new ServiceException("Service hat keine Connection");
+        }
+        return connection;
+    }
+
+    /**
+     * Liest alle Buchungen aus der Datenbank und ersetzt den Stand im
+     * Speicher. Noch nicht gespeicherte Aenderungen gehen dabei verloren.
+     */
+    public synchronized void lade() {
+        L.info(SQL_ALLE_BUCHUNGEN);
+        plaene.clear();
+        buchungen.clear();
+        neu.clear();
+        storniert.clear();
+        try {
+            TransactionTemplate.lesend(useConnection()).run(c -> {
+                try (PreparedStatement ps = c.prepareStatement(SQL_ALLE_BUCHUNGEN)) {
+                    ps.setFetchSize(1000);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        RowMapper<Buchung> mapper = Buchung.MAPPER.fuer(rs);
+                        while (rs.next()) {
+                            Buchung b = mapper.mapRow(rs);
+                            plan(b.getRid()).baum.einfuegen(b.getBeginn().getTime(), b.getEnde().getTime(), b.getBid());
+                            buchungen.put(b.getBid(), b);
+                        }
+                    }
+                }
+                try (PreparedStatement ps = c.prepareStatement(SQL_MAX_BID);
+                     ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    letzteBid.set(rs.getInt(1));
+                }
+            });
+        } catch (SQLException e) {
+            L.error("", e);
+            throw new DataException(e);
+        }
+        L.info("Buchungen geladen: " + buchungen.size() + " in " + plaene.size() + " Raeumen");
+    }
+
+    private Raumplan plan(int rid) {
+        return plaene.computeIfAbsent(rid, k -> new Raumplan());
+    }
+
+    /**
+     * Bucht einen Raum fuer [beginn, ende).
+     *
+     * @throws RaumException wenn der Raum in diesem Zeitraum schon gebucht ist.
+     */
+    public Buchung buche(int rid, Timestamp beginn, Timestamp ende, String bezeichnung) {
+        if (!ende.after(beginn)) {
+            throw new RaumException("Ende muss nach Beginn liegen: " + beginn + " - " + ende);
+        }
+        Raumplan plan = plan(rid);
+        Buchung b;
+        plan.lock.lock();
+        try {
+            int konflikt = plan.baum.findeUeberlappung(beginn.getTime(), ende.getTime());
+            if (konflikt != IntervallBaum.KEINE) {
+                throw new RaumException("Raum " + rid + " ist bereits gebucht: " + buchungen.get(konflikt));
+            }
+            b = new Buchung(letzteBid.incrementAndGet(), rid, beginn, ende, bezeichnung);
+            plan.baum.einfuegen(beginn.getTime(), ende.getTime(), b.getBid());
+            buchungen.put(b.getBid(), b);
+            // unter der Sperre: eine Stornierung wird erst danach vorgemerkt
+            neu.add(b);
+        } finally {
+            plan.lock.unlock();
+        }
+        return b;
+    }
+
+    public void storniere(int bid) {
+        Buchung b = buchungen.get(bid);
+        if (b == null) {
+            throw new RaumException("Buchung existiert nicht: " + bid);
+        }
+        Raumplan plan = plan(b.getRid());
+        plan.lock.lock();
+        try {
+            if (!plan.baum.entfernen(b.getBeginn().getTime(), bid)) {
+                // gleichzeitig schon storniert
+                throw new RaumException("Buchung existiert nicht: " + bid);
+            }
+            buchungen.remove(bid);
+            storniert.add(bid);
+        } finally {
+            plan.lock.unlock();
+        }
+    }
+
+    /**
+     * Buchungen eines Raums, die [beginn, ende) ueberlappen, aufsteigend nach
+     * Beginn.
+     */
+    public List<Buchung> findBuchungen(int rid, Timestamp beginn, Timestamp ende) {
+        List<Buchung> ergebnis = new ArrayList<>();
+        Raumplan plan = plaene.get(rid);
+        if (plan == null) {
+            return ergebnis;
+        }
+        plan.lock.lock();
+        try {
+            plan.baum.alleUeberlappungen(beginn.getTime(), ende.getTime(), bid -> ergebnis.add(buchungen.get(bid)));
+        } finally {
+            plan.lock.unlock();
+        }
+        return ergebnis;
+    }
+
+    public boolean istFrei(int rid, Timestamp beginn, Timestamp ende) {
+        Raumplan plan = plaene.get(rid);
+        if (plan == null) {
+            return true;
+        }
+        plan.lock.lock();
+        try {
+            return plan.baum.findeUeberlappung(beginn.getTime(), ende.getTime()) == IntervallBaum.KEINE;
+        } finally {
+            plan.lock.unlock();
+        }
+    }
+
+    public int getAnzahlUngespeichert() {
+        return neu.size() + storniert.size();
+    }
+
+    /**
+     * Schreibt alle seit dem letzten Aufruf angenommenen Buchungen und
+     * Stornierungen in einer Transaktion. Schlaegt das fehl, bleiben sie fuer
+     * den naechsten Aufruf vorgemerkt.
+     *
+     * @return Anzahl der geschriebenen Aenderungen.
+     */
+    public synchronized int speichere() {
+        // Stornierungen zuerst abholen: jede Buchung dazu steht dann schon in neu und wird mit eingefuegt,
+        // bevor ihr DELETE laeuft
+        List<Integer> loeschen = new ArrayList<>();
+        for (Integer bid; (bid = storniert.poll()) != null; ) {
+            loeschen.add(bid);
+        }
+        List<Buchung> einfuegen = new ArrayList<>();
+        for (Buchung b; (b = neu.poll()) != null; ) {
+            einfuegen.add(b);
+        }
+        if (einfuegen.isEmpty() && loeschen.isEmpty()) {
+            return 0;
+        }
+        L.info(SQL_INSERT_BUCHUNG + " (" + einfuegen.size() + "), " + SQL_DELETE_BUCHUNG + " (" + loeschen.size() + ")");
+        try {
+            TransactionTemplate.of(useConnection()).run(c -> {
+                // erst einfuegen: eine Buchung kann vor dem Speichern schon storniert worden sein
+                try (PreparedStatement ps = c.prepareStatement(SQL_INSERT_BUCHUNG)) {
+                    int imBatch = 0;
+                    for (Buchung b : einfuegen) {
+                        ps.setInt(1, b.getBid());
+                        ps.setInt(2, b.getRid());
+                        ps.setTimestamp(3, b.getBeginn());
+                        ps.setTimestamp(4, b.getEnde());
+                        ps.setString(5, b.getBezeichnung());
+                        ps.addBatch();
+                        if (++imBatch == BATCH_GROESSE) {
+                            ps.executeBatch();
+                            imBatch = 0;
+                        }
+                    }
+                    if (imBatch > 0) {
+                        ps.executeBatch();
+                    }
+                }
+                try (PreparedStatement ps = c.prepareStatement(SQL_DELETE_BUCHUNG)) {
+                    int imBatch = 0;
+                    for (int bid : loeschen) {
+                        ps.setInt(1, bid);
+                        ps.addBatch();
+                        if (++imBatch == BATCH_GROESSE) {
+                            ps.executeBatch();
+                            imBatch = 0;
+                        }
+                    }
+                    if (imBatch > 0) {
+                        ps.executeBatch();
+                    }
+                }
+            });
+        } catch (SQLException e) {
+            L.error("", e);
+            neu.addAll(einfuegen);
+            storniert.addAll(loeschen);
+            throw new DataException(e);
+        }
+        return einfuegen.size() + loeschen.size();
+    }
+
+}
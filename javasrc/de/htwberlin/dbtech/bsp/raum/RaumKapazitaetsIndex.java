@@ -0,0 +1,116 @@
+package de.htwberlin.dbtech.bsp.raum;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Nach Sitzplaetzen sortierter Index ueber Raeume fuer Bereichsanfragen
+ * ("alle Raeume mit mindestens N Plaetzen").
+ * <p>
+ * Die Raeume liegen in parallelen Arrays, aufsteigend nach Sitzplaetzen und
+ * bei Gleichstand nach der Reihenfolge beim Aufbau. Der Einstieg wird per
+ * binaerer Suche gefunden, danach wird nur noch sequentiell gelesen. Der
+ * Index ist nach dem Aufbau unveraenderlich und kann von beliebig vielen
+ * Threads gelesen werden; {@link #ergaenzt} liefert einen neuen Index.
+ */
+public class RaumKapazitaetsIndex {
+    private final int[] sitze;
+    private final int[] rids;
+    private final String[] raumNrn;
+
+    /**
+     * @param rids    RIDs, bei gleicher Platzzahl bestimmt diese Reihenfolge das Ergebnis.
+     * @param raumNrn Raumnummern zu den RIDs.
+     * @param sitze   Sitzplaetze zu den RIDs.
+     * @param anzahl  Anzahl der gueltigen Eintraege in den Arrays.
+     */
+    public RaumKapazitaetsIndex(int[] rids, String[] raumNrn, int[] sitze, int anzahl) {
+        // Sitzplaetze in die oberen, Position in die unteren 32 Bit: eine Sortierung ohne Boxing
+        long[] schluessel = new long[anzahl];
+        for (int i = 0; i < anzahl; i++) {
+            schluessel[i] = ((long) sitze[i] << 32) | i;
+        }
+        Arrays.sort(schluessel);
+        this.sitze = new int[anzahl];
+        this.rids = new int[anzahl];
+        this.raumNrn = new String[anzahl];
+        for (int i = 0; i < anzahl; i++) {
+            int pos = (int) schluessel[i];
+            this.sitze[i] = sitze[pos];
+            this.rids[i] = rids[pos];
+            this.raumNrn[i] = raumNrn[pos];
+        }
+    }
+
+    /**
+     * Neuer Index mit den Eintraegen dieses Index und den uebergebenen
+     * Raeumen. Bei gleicher Platzzahl werden alle Eintraege nach RID
+     * geordnet, nicht nach der Reihenfolge beim Aufbau.
+     *
+     * @param anzahl Anzahl der gueltigen Eintraege in den Arrays.
+     */
+    public RaumKapazitaetsIndex ergaenzt(int[] rids, String[] raumNrn, int[] sitze, int anzahl) {
+        int n = this.rids.length + anzahl;
+        // RID in die oberen, Position in die unteren 32 Bit, wie im Konstruktor
+        long[] schluessel = new long[n];
+        for (int i = 0; i < n; i++) {
+            int rid = i < this.rids.length ? this.rids[i] : rids[i - this.rids.length];
+            schluessel[i] = ((long) rid << 32) | i;
+        }
+        Arrays.sort(schluessel);
+        int[] alleRids = new int[n];
+        String[] alleRaumNrn = new String[n];
+        int[] alleSitze = new int[n];
+        for (int i = 0; i < n; i++) {
+            int pos = (int) schluessel[i];
+            boolean alt = pos < this.rids.length;
+            alleRids[i] = alt ? this.rids[pos] : rids[pos - this.rids.length];
+            alleRaumNrn[i] = alt ? this.raumNrn[pos] : raumNrn[pos - this.rids.length];
+            alleSitze[i] = alt ? this.sitze[pos] : sitze[pos - this.rids.length];
+        }
+        return new RaumKapazitaetsIndex(alleRids, alleRaumNrn, alleSitze, n);
+    }
+
+    public int size() {
+        return sitze.length;
+    }
+
+    // erste Position mit sitze >= minPlaetze
+    private int untereGrenze(int minPlaetze) {
+        int lo = 0;
+        int hi = sitze.length;
+        while (lo < hi) {
+            int mitte = (lo + hi) >>> 1;
+            if (sitze[mitte] < minPlaetze) {
+                lo = mitte + 1;
+            } else {
+                hi = mitte;
+            }
+        }
+        return lo;
+    }
+
+    public int anzahlMitMindestens(int minPlaetze) {
+        return sitze.length - untereGrenze(minPlaetze);
+    }
+
+    /**
+     * Raeume mit mindestens {@code minPlaetze} Sitzen, aufsteigend nach
+     * Sitzplaetzen.
+     *
+     * @param offset so viele Treffer werden uebersprungen.
+     * @param limit  hoechstens so viele Treffer werden geliefert.
+     */
+    public List<Raum> mitMindestens(int minPlaetze, int offset, int limit) {
+        // in long rechnen, grosse Offsets wuerden sonst ueberlaufen
+        int von = (int) Math.min(sitze.length, (long) untereGrenze(minPlaetze) + Math.max(offset, 0));
+        int bis = (int) Math.min(sitze.length, (long) von + Math.max(limit, 0));
+        List<Raum> ergebnis = new ArrayList<>(bis - von);
+        for (int i = von; i < bis; i++) {
+            ergebnis.add(new Raum(rids[i], raumNrn[i], sitze[i]));
+        }
+        return ergebnis;
+    }
+
+}
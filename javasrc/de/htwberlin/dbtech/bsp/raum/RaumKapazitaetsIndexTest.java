@@ -0,0 +1,78 @@
+package de.htwberlin.dbtech.bsp.raum;
+
+import org.junit.Assert;
+
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+public class RaumKapazitaetsIndexTest {
+
+    private static RaumKapazitaetsIndex index(int... sitze) {
+        int[] rids = new int[sitze.length];
+        String[] nrn = new String[sitze.length];
+        for (int i = 0; i < sitze.length; i++) {
+            rids[i] = i + 1;
+            nrn[i] = "R" + (i + 1);
+        }
+        return new RaumKapazitaetsIndex(rids, nrn, sitze, sitze.length);
+    }
+
+    @org.junit.Test
+    public void sortiertNachPlaetzenUndRid() {
+        RaumKapazitaetsIndex idx = index(60, 30, 40, 30, 120);
+        List<Raum> r = idx.mitMindestens(30, 0, 10);
+        Assert.assertEquals(5, r.size());
+        Assert.assertEquals(2, r.get(0).getRid());
+        Assert.assertEquals(4, r.get(1).getRid());
+        Assert.assertEquals(3, r.get(2).getRid());
+        Assert.assertEquals(1, r.get(3).getRid());
+        Assert.assertEquals(5, r.get(4).getRid());
+        Assert.assertEquals("R5", r.get(4).getRaumNr());
+    }
+
+    @org.junit.Test
+    public void seitenweise() {
+        RaumKapazitaetsIndex idx = index(60, 30, 40, 30, 120);
+        Assert.assertEquals(3, idx.anzahlMitMindestens(35));
+        List<Raum> seite = idx.mitMindestens(35, 1, 1);
+        Assert.assertEquals(1, seite.size());
+        Assert.assertEquals(60, seite.get(0).getAnzahlSitze());
+        Assert.assertTrue(idx.mitMindestens(35, 3, 10).isEmpty());
+        Assert.assertTrue(idx.mitMindestens(121, 0, 10).isEmpty());
+        Assert.assertEquals(2, idx.mitMindestens(35, 1, Integer.MAX_VALUE).size());
+        Assert.assertTrue(idx.mitMindestens(30, Integer.MAX_VALUE, 10).isEmpty());
+        Assert.assertTrue(idx.mitMindestens(30, Integer.MAX_VALUE, Integer.MAX_VALUE).isEmpty());
+    }
+
+    @org.junit.Test
+    public void ergaenztOrdnetNachPlaetzenUndRid() {
+        RaumKapazitaetsIndex idx = index(60, 30, 40).ergaenzt(new int[]{7, 0}, new String[]{"R7", "R0"},
+                new int[]{40, 40}, 2);
+        Assert.assertEquals(5, idx.size());
+        List<Raum> r = idx.mitMindestens(35, 0, 10);
+        Assert.assertEquals(List.of(0, 3, 7, 1), r.stream().map(Raum::getRid).collect(Collectors.toList()));
+        Assert.assertEquals("R7", r.get(2).getRaumNr());
+    }
+
+    @org.junit.Test
+    public void tausendeAnfragen() {
+        Random r = new Random(1);
+        int[] sitze = new int[10_000];
+        for (int i = 0; i < sitze.length; i++) {
+            sitze[i] = r.nextInt(500);
+        }
+        RaumKapazitaetsIndex idx = index(sitze);
+        for (int n = 0; n < 10_000; n++) {
+            int min = r.nextInt(520);
+            int erwartet = 0;
+            for (int s : sitze) {
+                if (s >= min) {
+                    erwartet++;
+                }
+            }
+            Assert.assertEquals(erwartet, idx.anzahlMitMindestens(min));
+        }
+    }
+
+}
@@ -2,6 +2,10 @@ package de.htwberlin.dbtech.bsp.raum;
 
 import de.htwberlin.dbtech.exceptions.DataException;
 import de.htwberlin.dbtech.exceptions.RaumException;
+import de.htwberlin.dbtech.utils.IntIntMap;
+import de.htwberlin.dbtech.utils.RowMapper;
+import de.htwberlin.dbtech.utils.Spalten;
+import de.htwberlin.dbtech.utils.TransactionTemplate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -9,10 +13,54 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
+/**
+ * Zugriff auf Raeume.
+ * <p>
+ * Nach {@link #ladeKapazitaeten()} werden Sitzplaetze aus einem Cache
+ * beantwortet. RIDs, die nicht im Cache sind, werden einmal in der
+ * Datenbank gesucht; nicht gefundene RIDs werden ebenfalls vermerkt
+ * (negatives Caching), so dass wiederholte Anfragen nach unbekannten Raeumen
+ * die Datenbank nicht mehr erreichen. {@link #setCacheMaxAlterMillis(long)}
+ * laesst den Cache nach Ablauf beim naechsten Zugriff neu laden. Mit dem
+ * Cache wird auch ein {@link RaumKapazitaetsIndex} fuer
+ * {@link #findRaeumeMitMindestensPlaetzen(int, int, int)} geladen; nachgeladene
+ * Raeume werden in ihn aufgenommen.
+ * <p>
+ * Wie alle Dienste ist RaumService an eine Connection gebunden und nicht
+ * threadsicher.
+ */
 public class RaumService implements IRaumService {
     private static final Logger L = LoggerFactory.getLogger(RaumService.class);
+
+    private static final String SQL_ANZAHL_SITZE = "select AnzahlSitze from Raum where RID=?";
+    private static final String SQL_ALLE_RAEUME = "select RID, RaumNr, AnzahlSitze from Raum order by RID";
+    private static final String SQL_RAEUME_MIT_MINDESTENS = String.join(" ",
+            "select RID, RaumNr, AnzahlSitze from Raum where AnzahlSitze >= ?",
+            "order by AnzahlSitze, RID offset ? rows fetch next ? rows only");
+    private static final RowMapper.Factory<Raum> RAEUME_MIT_MINDESTENS_MAPPER = RowMapper.jeAnweisung(Raum.MAPPER);
+    private static final String SQL_KAPAZITAETEN_IN = "select RID, AnzahlSitze, RaumNr from Raum where RID in (";
+    // Oracle erlaubt hoechstens 1000 Ausdruecke in einer IN-Liste
+    private static final int MAX_IN_LISTE = 1000;
+    // Markierung fuer RIDs, die es in der Datenbank nicht gibt
+    private static final int UNBEKANNT = Integer.MIN_VALUE;
+
     private Connection connection;
+    private IntIntMap kapazitaeten = null;
+    private RaumKapazitaetsIndex kapazitaetsIndex = null;
+    private long geladenMillis;
+    private long cacheMaxAlterMillis = Long.MAX_VALUE;
+
+    /**
+     * Alle SQL-Anweisungen des Dienstes, z.B. fuer {@link de.htwberlin.dbtech.utils.ExplainPlanCheck}.
+     */
+    public static List<String> statements() {
+        return List.of(SQL_ANZAHL_SITZE, SQL_ALLE_RAEUME, SQL_KAPAZITAETEN_IN + "?)", SQL_RAEUME_MIT_MINDESTENS);
+    }
 
     @Override
     public void setConnection(Connection connection) {
@@ -28,23 +76,211 @@ public class RaumService implements IRaumService {
         }
     }
 
+    /**
+     * Nach Ablauf dieser Zeit wird der Cache beim naechsten Zugriff neu
+     * geladen. Ohne Aufruf bleibt er bis {@link #ladeKapazitaeten()} gueltig.
+     */
+    public void setCacheMaxAlterMillis(long cacheMaxAlterMillis) {
+        this.cacheMaxAlterMillis = cacheMaxAlterMillis;
+    }
+
+    /**
+     * Laedt die Sitzplaetze aller Raeume in den Cache und baut den
+     * {@link RaumKapazitaetsIndex} auf bzw. ersetzt beide. Vermerkte
+     * unbekannte RIDs werden dabei vergessen.
+     */
+    public void ladeKapazitaeten() {
+        L.info(SQL_ALLE_RAEUME);
+        try {
+            TransactionTemplate.lesend(useConnection()).run(c -> {
+                IntIntMap m = new IntIntMap(256);
+                int[] rids = new int[256];
+                String[] raumNrn = new String[256];
+                int[] sitze = new int[256];
+                int anzahl = 0;
+                try (PreparedStatement ps = c.prepareStatement(SQL_ALLE_RAEUME)) {
+                    ps.setFetchSize(1000);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        Spalten s = Spalten.von(rs);
+                        int ridSpalte = s.index("RID");
+                        int raumNrSpalte = s.index("RaumNr");
+                        int sitzeSpalte = s.index("AnzahlSitze");
+                        while (rs.next()) {
+                            int rid = rs.getInt(ridSpalte);
+                            int anzahlSitze = rs.getInt(sitzeSpalte);
+                            m.put(rid, anzahlSitze);
+                            if (rs.wasNull()) {
+                                // ohne Angabe kein Treffer bei Bereichsanfragen, wie in SQL
+                                continue;
+                            }
+                            if (anzahl == rids.length) {
+                                rids = Arrays.copyOf(rids, anzahl * 2);
+                                raumNrn = Arrays.copyOf(raumNrn, anzahl * 2);
+                                sitze = Arrays.copyOf(sitze, anzahl * 2);
+                            }
+                            rids[anzahl] = rid;
+                            raumNrn[anzahl] = rs.getString(raumNrSpalte);
+                            sitze[anzahl] = anzahlSitze;
+                            anzahl++;
+                        }
+                    }
+                }
+                kapazitaeten = m;
+                kapazitaetsIndex = new RaumKapazitaetsIndex(rids, raumNrn, sitze, anzahl);
+            });
+        } catch (SQLException e) {
+            L.error("", e);
+            throw new DataException(e);
+        }
+        geladenMillis = System.currentTimeMillis();
+        L.info("Kapazitaeten geladen: " + kapazitaeten.size() + " Raeume");
+    }
+
+    // null, wenn nicht vorgeladen
+    private IntIntMap aktuelleKapazitaeten() {
+        if (kapazitaeten != null && System.currentTimeMillis() - geladenMillis > cacheMaxAlterMillis) {
+            ladeKapazitaeten();
+        }
+        return kapazitaeten;
+    }
+
     @Override
     public Integer findAnzahlPlaetzeInRaum(int rid) {
-        String sql = "select AnzahlSitze from Raum where RID=?";
-        L.info(sql);
-        try (PreparedStatement ps = useConnection().prepareStatement(sql)) {
-            ps.setInt(1, rid);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getInt("AnzahlSitze");
-                } else {
-                    throw new RaumException("rid doesn't exist in db: " + rid);
+        IntIntMap cache = aktuelleKapazitaeten();
+        if (cache != null) {
+            if (!cache.containsKey(rid)) {
+                ladeNach(cache, new int[]{rid}, 1);
+            }
+            int anzahl = cache.get(rid, UNBEKANNT);
+            if (anzahl == UNBEKANNT) {
+                throw new RaumException("rid doesn't exist in db: " + rid);
+            }
+            return anzahl;
+        }
+        L.info(SQL_ANZAHL_SITZE);
+        try { // reine Lesemethode, kann ueber eine RoutingDataSource an ein Replikat gehen
+            return TransactionTemplate.lesend(useConnection()).execute(c -> {
+                try (PreparedStatement ps = c.prepareStatement(SQL_ANZAHL_SITZE)) {
+                    ps.setInt(1, rid);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (rs.next()) {
+                            return rs.getInt(1);
+                        } else {
+                            throw new RaumException("rid doesn't exist in db: " + rid);
+                        }
+                    }
                 }
+            });
+        } catch (SQLException e) {
+            L.error("", e);
+            throw new DataException(e);
+        }
+    }
+
+    @Override
+    public int[] findAnzahlPlaetze(int[] rids) {
+        IntIntMap cache = aktuelleKapazitaeten();
+        if (cache == null) {
+            // ohne Vorladen nur fuer diesen Aufruf sammeln
+            cache = new IntIntMap(rids.length);
+        }
+        int[] fehlend = new int[rids.length];
+        int anzahlFehlend = 0;
+        for (int rid : rids) {
+            if (!cache.containsKey(rid)) {
+                fehlend[anzahlFehlend++] = rid;
+            }
+        }
+        if (anzahlFehlend > 0) {
+            ladeNach(cache, fehlend, anzahlFehlend);
+        }
+
+        int[] ergebnis = new int[rids.length];
+        List<Integer> unbekannt = null;
+        for (int i = 0; i < rids.length; i++) {
+            ergebnis[i] = cache.get(rids[i], UNBEKANNT);
+            if (ergebnis[i] == UNBEKANNT) {
+                if (unbekannt == null) {
+                    unbekannt = new ArrayList<>();
+                }
+                unbekannt.add(rids[i]);
             }
+        }
+        if (unbekannt != null) {
+            throw new RaumException("rids don't exist in db: " + unbekannt);
+        }
+        return ergebnis;
+    }
+
+    @Override
+    public List<Raum> findRaeumeMitMindestensPlaetzen(int minPlaetze, int offset, int limit) {
+        if (aktuelleKapazitaeten() != null) {
+            return kapazitaetsIndex.mitMindestens(minPlaetze, offset, limit);
+        }
+        L.info(SQL_RAEUME_MIT_MINDESTENS);
+        try { // reine Lesemethode, kann ueber eine RoutingDataSource an ein Replikat gehen
+            return TransactionTemplate.lesend(useConnection()).execute(c -> {
+                try (PreparedStatement ps = c.prepareStatement(SQL_RAEUME_MIT_MINDESTENS)) {
+                    ps.setInt(1, minPlaetze);
+                    ps.setInt(2, Math.max(offset, 0));
+                    ps.setInt(3, Math.max(limit, 0));
+                    try (ResultSet rs = ps.executeQuery()) {
+                        return RowMapper.alle(rs, RAEUME_MIT_MINDESTENS_MAPPER);
+                    }
+                }
+            });
         } catch (SQLException e) {
             L.error("", e);
             throw new DataException(e);
         }
     }
 
+    // Sucht RIDs in der Datenbank und traegt Treffer und unbekannte RIDs in den Cache ein,
+    // Treffer mit Sitzplaetzen beim vorgeladenen Cache auch in den Kapazitaetsindex
+    private void ladeNach(IntIntMap cache, int[] rids, int anzahl) {
+        boolean indexErgaenzen = cache == kapazitaeten;
+        int[] neueRids = new int[anzahl];
+        String[] neueRaumNrn = new String[anzahl];
+        int[] neueSitze = new int[anzahl];
+        int[] anzahlNeu = {0};
+        try {
+            TransactionTemplate.lesend(useConnection()).run(c -> {
+                for (int von = 0; von < anzahl; von += MAX_IN_LISTE) {
+                    int bis = Math.min(anzahl, von + MAX_IN_LISTE);
+                    String sql = SQL_KAPAZITAETEN_IN + String.join(",", Collections.nCopies(bis - von, "?")) + ")";
+                    L.info(sql);
+                    try (PreparedStatement ps = c.prepareStatement(sql)) {
+                        for (int i = von; i < bis; i++) {
+                            ps.setInt(i - von + 1, rids[i]);
+                        }
+                        try (ResultSet rs = ps.executeQuery()) {
+                            // Spalten wie in SQL_KAPAZITAETEN_IN
+                            while (rs.next()) {
+                                int rid = rs.getInt(1);
+                                int anzahlSitze = rs.getInt(2);
+                                cache.put(rid, anzahlSitze);
+                                if (indexErgaenzen && !rs.wasNull()) {
+                                    neueRids[anzahlNeu[0]] = rid;
+                                    neueRaumNrn[anzahlNeu[0]] = rs.getString(3);
+                                    neueSitze[anzahlNeu[0]++] = anzahlSitze;
+                                }
+                            }
+                        }
+                    }
+                    for (int i = von; i < bis; i++) {
+                        if (!cache.containsKey(rids[i])) {
+                            cache.put(rids[i], UNBEKANNT);
+                        }
+                    }
+                }
+            });
+        } catch (SQLException e) {
+            L.error("", e);
+            throw new DataException(e);
+        }
+        if (anzahlNeu[0] > 0) {
+            kapazitaetsIndex = kapazitaetsIndex.ergaenzt(neueRids, neueRaumNrn, neueSitze, anzahlNeu[0]);
+        }
+    }
+
 }
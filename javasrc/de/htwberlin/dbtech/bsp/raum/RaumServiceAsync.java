@@ -0,0 +1,41 @@
+package de.htwberlin.dbtech.bsp.raum;
+
+import de.htwberlin.dbtech.utils.AsyncServiceExecutor;
+import de.htwberlin.dbtech.utils.ConnectionPool;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Asynchrone Fassade fuer {@link IRaumService}. Siehe
+ * {@link AsyncServiceExecutor}.
+ */
+public class RaumServiceAsync implements AutoCloseable {
+    private final AsyncServiceExecutor<IRaumService> executor;
+
+    public RaumServiceAsync(ConnectionPool pool, int maxInFlight) {
+        this(new AsyncServiceExecutor<>(pool, RaumService::new, IRaumService::setConnection, maxInFlight));
+    }
+
+    public RaumServiceAsync(AsyncServiceExecutor<IRaumService> executor) {
+        this.executor = executor;
+    }
+
+    public CompletableFuture<Integer> findAnzahlPlaetzeInRaum(int rid) {
+        return executor.submit(s -> s.findAnzahlPlaetzeInRaum(rid));
+    }
+
+    public CompletableFuture<int[]> findAnzahlPlaetze(int[] rids) {
+        return executor.submit(s -> s.findAnzahlPlaetze(rids));
+    }
+
+    public CompletableFuture<List<Raum>> findRaeumeMitMindestensPlaetzen(int minPlaetze, int offset, int limit) {
+        return executor.submit(s -> s.findRaeumeMitMindestensPlaetzen(minPlaetze, offset, limit));
+    }
+
+    @Override
+    public void close() {
+        executor.close();
+    }
+
+}
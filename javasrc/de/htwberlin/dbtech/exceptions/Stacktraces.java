@@ -0,0 +1,28 @@
+package de.htwberlin.dbtech.exceptions;
+
+/**
+ * Steuert, ob fachliche Exceptions ({@link VersicherungException},
+ * {@link ServiceException}) einen Stacktrace erzeugen.
+ * <p>
+ * Diese Exceptions werden bei gewoehnlichen Ablehnungen geworfen (z.B. bei
+ * jedem zu niedrigen Gebot). Das Fuellen des Stacktraces ist dann der
+ * groesste Kostenanteil. Ohne Stacktrace bleiben Typ und Nachricht erhalten.
+ * <p>
+ * Voreinstellung: Stacktraces an. Abschalten per
+ * {@code -Ddbtech.exceptions.ohneStacktrace=true} oder {@link #setAktiv(boolean)}.
+ */
+public final class Stacktraces {
+    private static volatile boolean aktiv = !Boolean.getBoolean("dbtech.exceptions.ohneStacktrace");
+
+    private Stacktraces() {
+    }
+
+    public static boolean isAktiv() {
+        return aktiv;
+    }
+
+    public static void setAktiv(boolean aktiv) {
+        Stacktraces.aktiv = aktiv;
+    }
+
+}
@@ -20,4 +20,12 @@ public class VersicherungException extends RuntimeException {
         super(msg, t);
     }
 
+    /**
+     * Fachliche Ablehnungen brauchen keinen Stacktrace, siehe {@link Stacktraces}.
+     */
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return Stacktraces.isAktiv() ? super.fillInStackTrace() : this;
+    }
+
 }
@@ -0,0 +1,101 @@
+package de.htwberlin.dbtech.start;
+
+import de.htwberlin.dbtech.aufgaben.ue02.VersicherungJdbc;
+import de.htwberlin.dbtech.aufgaben.ue03.VersicherungService;
+import de.htwberlin.dbtech.bsp.auktion.AngebotFinder;
+import de.htwberlin.dbtech.bsp.auktion.AuktionsAbschluss;
+import de.htwberlin.dbtech.bsp.auktion.AuktionsService;
+import de.htwberlin.dbtech.bsp.auktion.GebotFinder;
+import de.htwberlin.dbtech.bsp.raum.RaumBuchungService;
+import de.htwberlin.dbtech.bsp.raum.RaumService;
+import de.htwberlin.dbtech.utils.ConnectionPool;
+import de.htwberlin.dbtech.utils.DbCred;
+import de.htwberlin.dbtech.utils.ExplainPlanCheck;
+import de.htwberlin.dbtech.utils.Warmlauf;
+import de.htwberlin.dbtech.versicherung.BestandImport;
+import de.htwberlin.dbtech.versicherung.MonatsratenSummary;
+import de.htwberlin.dbtech.versicherung.Referenzdaten;
+import de.htwberlin.dbtech.versicherung.Tarifdatei;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Start der Anwendung: kennt die SQL-Anweisungen aller Dienste und
+ * richtet damit den {@link Warmlauf} ein, der sie auf jeder Connection
+ * vorbereitet und ihre Ausfuehrungsplaene mit {@link ExplainPlanCheck}
+ * prueft.
+ * <p>
+ * Die Listen stehen hier und nicht in utils, weil nur der Start alle
+ * Dienste kennen darf; utils bleibt ohne Abhaengigkeit zu ihnen.
+ */
+public final class Anwendungsstart {
+
+    private Anwendungsstart() {
+    }
+
+    /**
+     * Alle SQL-Anweisungen der Dienste dieses Projekts, ohne
+     * {@link #massenStatements()}.
+     */
+    public static List<String> dienstStatements() {
+        List<String> sqls = new ArrayList<>();
+        sqls.addAll(VersicherungJdbc.statements());
+        sqls.addAll(VersicherungService.statements());
+        sqls.addAll(AuktionsService.statements());
+        sqls.addAll(AuktionsAbschluss.statements());
+        sqls.addAll(AngebotFinder.statements());
+        sqls.addAll(GebotFinder.statements());
+        sqls.addAll(RaumService.statements());
+        sqls.addAll(RaumBuchungService.statements());
+        sqls.addAll(MonatsratenSummary.statements());
+        return sqls;
+    }
+
+    /**
+     * SQL-Anweisungen, die bewusst ganze Tabellen lesen: Laden der
+     * Referenzdaten, Massenimport, Neuaufbau und Pruefung von
+     * Vertrag_Monatsrate, Export der Tarifdatei. Ihre Tabellenscans sind
+     * gewollt, sie werden deshalb vorbereitet, aber nicht auf Plaene
+     * geprueft.
+     */
+    public static List<String> massenStatements() {
+        List<String> sqls = new ArrayList<>();
+        sqls.addAll(Referenzdaten.statements());
+        sqls.addAll(BestandImport.statements());
+        sqls.addAll(MonatsratenSummary.massenStatements());
+        sqls.addAll(Tarifdatei.statements());
+        return sqls;
+    }
+
+    /**
+     * Warmlauf fuer den Pool: bereitet alle Anweisungen vor und prueft die
+     * Plaene der {@link #dienstStatements()}.
+     *
+     * @param streng Tabellenscans verhindern den Start, sonst nur Warnungen.
+     */
+    public static Warmlauf warmlauf(ConnectionPool pool, boolean streng) {
+        Warmlauf w = new Warmlauf(pool);
+        List<String> alle = new ArrayList<>(dienstStatements());
+        alle.addAll(massenStatements());
+        w.setStatements(alle);
+        w.setPlanPruefung(dienstStatements(), streng);
+        return w;
+    }
+
+    /**
+     * Waermt einen Pool mit args[0] (Standard 4) Connections zur Datenbank
+     * aus DbCred auf; mit "streng" als args[1] scheitert der Start an
+     * Tabellenscans.
+     */
+    public static void main(String[] args) {
+        int anzahl = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        boolean streng = args.length > 1 && args[1].equals("streng");
+        try (ConnectionPool pool = new ConnectionPool(DbCred.url, DbCred.user, DbCred.password, anzahl)) {
+            Warmlauf w = warmlauf(pool, streng);
+            w.setTreiber(DbCred.driverClass);
+            System.out.println(w.laufe());
+        }
+    }
+
+}
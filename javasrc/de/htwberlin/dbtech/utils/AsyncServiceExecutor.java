@@ -0,0 +1,163 @@
+package de.htwberlin.dbtech.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Fuehrt Aufrufe eines synchronen, an eine Connection gebundenen Dienstes
+ * asynchron aus. Grundlage der {@code *Async}-Fassaden der Dienste.
+ * <p>
+ * Jeder Aufruf laeuft in einem eigenen (wenn verfuegbar virtuellen) Thread,
+ * holt sich eine Connection aus dem {@link ConnectionPool} und benutzt die
+ * Dienstinstanz, die fest an diese Connection gebunden ist. Die Zahl
+ * gleichzeitig laufender Aufrufe ist begrenzt: ist die Grenze erreicht, wartet
+ * {@link #submit(Function)} hoechstens {@code annahmeTimeoutMillis} und liefert
+ * dann ein mit {@link RejectedExecutionException} fehlgeschlagenes Future.
+ *
+ * @param <S> Typ des Dienstes, z.B. IVersicherungJdbc.
+ */
+public class AsyncServiceExecutor<S> implements AutoCloseable {
+    private static final Logger L = LoggerFactory.getLogger(AsyncServiceExecutor.class);
+
+    private final ConnectionPool pool;
+    private final Supplier<S> serviceFactory;
+    private final BiConsumer<S, Connection> connectionSetter;
+    private final Semaphore inFlight;
+    private final int maxInFlight;
+    private final long annahmeTimeoutMillis;
+    private final long connectionTimeoutMillis;
+    private final ExecutorService executor;
+    private final Map<Connection, S> dienste = new ConcurrentHashMap<>();
+
+    public AsyncServiceExecutor(ConnectionPool pool, Supplier<S> serviceFactory, BiConsumer<S, Connection> connectionSetter,
+                                int maxInFlight) {
+        this(pool, serviceFactory, connectionSetter, maxInFlight, 1000, 30_000, newThreadPerTaskExecutor());
+    }
+
+    public AsyncServiceExecutor(ConnectionPool pool, Supplier<S> serviceFactory, BiConsumer<S, Connection> connectionSetter,
+                                int maxInFlight, long annahmeTimeoutMillis, long connectionTimeoutMillis,
+                                ExecutorService executor) {
+        this.pool = pool;
+        this.serviceFactory = serviceFactory;
+        this.connectionSetter = connectionSetter;
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.annahmeTimeoutMillis = annahmeTimeoutMillis;
+        this.connectionTimeoutMillis = connectionTimeoutMillis;
+        this.executor = executor;
+    }
+
+    /**
+     * Liefert einen Executor mit einem virtuellen Thread pro Aufgabe, sofern
+     * die Laufzeitumgebung das anbietet (Java 21+), sonst einen Pool mit
+     * Daemon-Threads nach Bedarf.
+     */
+    public static ExecutorService newThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            L.info("virtual threads not available, using platform threads");
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(r, "async-service");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public int getInFlight() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+
+    public <T> CompletableFuture<T> submit(Function<S, T> aufruf) {
+        try {
+            if (!inFlight.tryAcquire(annahmeTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                return CompletableFuture.failedFuture(
+                        new RejectedExecutionException("more than " + maxInFlight + " requests in flight"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<T> ergebnis = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    ergebnis.complete(ausfuehren(aufruf));
+                } catch (Throwable t) {
+                    ergebnis.completeExceptionally(t);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.release();
+            ergebnis.completeExceptionally(e);
+        }
+        return ergebnis;
+    }
+
+    public CompletableFuture<Void> run(Consumer<S> aufruf) {
+        return submit(s -> {
+            aufruf.accept(s);
+            return null;
+        });
+    }
+
+    private <T> T ausfuehren(Function<S, T> aufruf) throws SQLException {
+        Connection c = pool.acquire(connectionTimeoutMillis);
+        boolean defekt = false;
+        try {
+            S dienst = dienste.computeIfAbsent(c, k -> {
+                S s = serviceFactory.get();
+                connectionSetter.accept(s, k);
+                return s;
+            });
+            return aufruf.apply(dienst);
+        } catch (RuntimeException e) {
+            defekt = c.isClosed();
+            throw e;
+        } finally {
+            if (defekt) {
+                dienste.remove(c);
+                pool.discard(c);
+            } else {
+                pool.release(c);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        dienste.clear();
+    }
+
+}
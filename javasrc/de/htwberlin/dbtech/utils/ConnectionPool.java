@@ -0,0 +1,130 @@
+package de.htwberlin.dbtech.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Einfacher, begrenzter Connection-Pool. Es werden hoechstens
+ * {@code maxConnections} Connections geoeffnet; weitere Anfragen warten, bis
+ * eine Connection zurueckgegeben wird.
+ */
+public class ConnectionPool implements AutoCloseable {
+    private static final Logger L = LoggerFactory.getLogger(ConnectionPool.class);
+
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    private final ConnectionFactory factory;
+    private final int maxConnections;
+    private final Semaphore verfuegbar;
+    private final ConcurrentLinkedDeque<Connection> frei = new ConcurrentLinkedDeque<>();
+    private final List<Connection> alle = new CopyOnWriteArrayList<>();
+    private volatile boolean closed = false;
+
+    public ConnectionPool(ConnectionFactory factory, int maxConnections) {
+        if (maxConnections < 1) {
+            throw new IllegalArgumentException("maxConnections < 1: " + maxConnections);
+        }
+        this.factory = factory;
+        this.maxConnections = maxConnections;
+        this.verfuegbar = new Semaphore(maxConnections, true);
+    }
+
+    public ConnectionPool(DataSource ds, int maxConnections) {
+        this(ds::getConnection, maxConnections);
+    }
+
+    public ConnectionPool(String url, String user, String passwd, int maxConnections) {
+        this(() -> JdbcUtils.getConnectionViaDriverManager(url, user, passwd), maxConnections);
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * Anzahl der bisher geoeffneten Connections.
+     */
+    public int getAnzahlConnections() {
+        return alle.size();
+    }
+
+    /**
+     * Holt eine Connection aus dem Pool und wartet hoechstens
+     * {@code timeoutMillis}, falls alle Connections vergeben sind.
+     *
+     * @throws SQLException wenn innerhalb der Wartezeit keine Connection frei wird.
+     */
+    public Connection acquire(long timeoutMillis) throws SQLException {
+        if (closed) {
+            throw new SQLException("pool closed");
+        }
+        try {
+            if (!verfuegbar.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("no connection available within " + timeoutMillis + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("interrupted while waiting for connection", e);
+        }
+        try {
+            Connection c = frei.pollFirst();
+            if (c == null) {
+                c = factory.create();
+                alle.add(c);
+                L.debug("pool connection created: {}/{}", alle.size(), maxConnections);
+            }
+            return c;
+        } catch (SQLException | RuntimeException e) {
+            verfuegbar.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Gibt eine mit {@link #acquire(long)} geholte Connection zurueck.
+     */
+    public void release(Connection connection) {
+        if (closed) {
+            JdbcUtils.closeConnectionQuietly(connection);
+        } else {
+            frei.addFirst(connection);
+        }
+        verfuegbar.release();
+    }
+
+    /**
+     * Entfernt eine defekte Connection aus dem Pool, statt sie
+     * wiederzuverwenden.
+     */
+    public void discard(Connection connection) {
+        alle.remove(connection);
+        JdbcUtils.closeConnectionQuietly(connection);
+        verfuegbar.release();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        List<Connection> offen = new ArrayList<>(alle);
+        alle.clear();
+        frei.clear();
+        for (Connection c : offen) {
+            JdbcUtils.closeConnectionQuietly(c);
+        }
+        L.info("pool closed: {} connections", offen.size());
+    }
+
+}
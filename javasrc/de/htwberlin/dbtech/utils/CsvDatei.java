@@ -0,0 +1,424 @@
+package de.htwberlin.dbtech.utils;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Liest CSV-Dateien im Format der Testdaten ({@code test-data/*}: erste
+ * Zeile Spaltennamen, Komma als Trenner, Werte mit Leerzeichen aufgefuellt,
+ * Texte optional in doppelten Anfuehrungszeichen, {@code null} fuer
+ * NULL) direkt aus einer in den Speicher abgebildeten Datei.
+ * <p>
+ * Der Rumpf laesst sich an Zeilengrenzen in {@link Bereich}e teilen, die
+ * unabhaengig voneinander, z.B. parallel, gelesen werden koennen. Felder
+ * werden erst beim Zugriff und ohne Umweg ueber String in Zahlen und
+ * Datumswerte umgewandelt. Zeilenumbrueche innerhalb von Anfuehrungszeichen
+ * werden nicht unterstuetzt.
+ */
+public class CsvDatei implements AutoCloseable {
+    // groesster Bereich, den ein einzelnes MappedByteBuffer fassen soll
+    private static final long MAX_BEREICH = 1L << 30;
+
+    private final Path pfad;
+    private final FileChannel kanal;
+    private final long groesse;
+    private final long rumpfBeginn;
+    private final List<String> spalten;
+
+    private CsvDatei(Path pfad, FileChannel kanal) throws IOException {
+        this.pfad = pfad;
+        this.kanal = kanal;
+        this.groesse = kanal.size();
+        this.rumpfBeginn = zeilenanfangAb(0);
+        List<String> namen = new ArrayList<>();
+        if (rumpfBeginn > 0) {
+            MappedByteBuffer puffer = kanal.map(FileChannel.MapMode.READ_ONLY, 0, rumpfBeginn);
+            int ende = (int) rumpfBeginn;
+            while (ende > 0 && (puffer.get(ende - 1) == '\n' || puffer.get(ende - 1) == '\r')) {
+                ende--;
+            }
+            Zeile kopf = new Zeile();
+            kopf.zerlegen(puffer, 0, ende);
+            for (int i = 0; i < kopf.anzahl; i++) {
+                namen.add(kopf.getString(i));
+            }
+        }
+        this.spalten = Collections.unmodifiableList(namen);
+    }
+
+    public static CsvDatei oeffne(Path pfad) throws IOException {
+        return new CsvDatei(pfad, FileChannel.open(pfad, StandardOpenOption.READ));
+    }
+
+    public Path getPfad() {
+        return pfad;
+    }
+
+    public long getGroesse() {
+        return groesse;
+    }
+
+    public List<String> getSpalten() {
+        return spalten;
+    }
+
+    /**
+     * Position der Spalte, Gross-/Kleinschreibung egal, sonst -1.
+     */
+    public int spalte(String name) {
+        for (int i = 0; i < spalten.size(); i++) {
+            if (spalten.get(i).equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Beginn der Zeile nach der Position, an der von ab aus das naechste '\n' steht
+    private long zeilenanfangAb(long ab) throws IOException {
+        long pos = ab;
+        while (pos < groesse) {
+            int laenge = (int) Math.min(64 * 1024, groesse - pos);
+            MappedByteBuffer fenster = kanal.map(FileChannel.MapMode.READ_ONLY, pos, laenge);
+            for (int i = 0; i < laenge; i++) {
+                if (fenster.get(i) == '\n') {
+                    return pos + i + 1;
+                }
+            }
+            pos += laenge;
+        }
+        return groesse;
+    }
+
+    /**
+     * Teilt den Rumpf (ohne Kopfzeile) in hoechstens {@code anzahl}
+     * Bereiche aehnlicher Groesse, jeweils an Zeilengrenzen. Sehr grosse
+     * Dateien werden feiner geteilt, damit jeder Bereich in einen
+     * MappedByteBuffer passt.
+     */
+    public List<Bereich> bereiche(int anzahl) throws IOException {
+        long rumpf = groesse - rumpfBeginn;
+        long zielGroesse = Math.min(MAX_BEREICH, Math.max(1, (rumpf + anzahl - 1) / Math.max(anzahl, 1)));
+        List<Bereich> bereiche = new ArrayList<>();
+        long von = rumpfBeginn;
+        while (von < groesse) {
+            long bis = von + zielGroesse >= groesse ? groesse : zeilenanfangAb(von + zielGroesse - 1);
+            bereiche.add(new Bereich(von, bis));
+            von = bis;
+        }
+        return bereiche;
+    }
+
+    /**
+     * Ruft {@code aktion} fuer jede nicht leere Zeile des Bereichs auf. Das
+     * {@link Zeile}-Objekt wird wiederverwendet und gilt nur waehrend des
+     * Aufrufs.
+     */
+    public void lese(Bereich bereich, Consumer<Zeile> aktion) throws IOException {
+        MappedByteBuffer puffer = kanal.map(FileChannel.MapMode.READ_ONLY, bereich.von, bereich.bis - bereich.von);
+        int ende = (int) (bereich.bis - bereich.von);
+        Zeile zeile = new Zeile();
+        int beginn = 0;
+        while (beginn < ende) {
+            int i = beginn;
+            while (i < ende && puffer.get(i) != '\n') {
+                i++;
+            }
+            int zeilenEnde = i > beginn && puffer.get(i - 1) == '\r' ? i - 1 : i;
+            if (zeilenEnde > beginn) {
+                zeile.zerlegen(puffer, beginn, zeilenEnde);
+                zeile.position = bereich.von + beginn;
+                if (zeile.anzahl > 1 || zeile.ende[0] > zeile.beginn[0]) {
+                    aktion.accept(zeile);
+                }
+            }
+            beginn = i + 1;
+        }
+    }
+
+    /**
+     * Alle Zeilen nacheinander.
+     */
+    public void lese(Consumer<Zeile> aktion) throws IOException {
+        for (Bereich b : bereiche(1)) {
+            lese(b, aktion);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        kanal.close();
+    }
+
+    /**
+     * Byte-Bereich [von, bis) der Datei, beginnt und endet an Zeilengrenzen.
+     */
+    public static final class Bereich {
+        private final long von;
+        private final long bis;
+
+        Bereich(long von, long bis) {
+            this.von = von;
+            this.bis = bis;
+        }
+
+        public long getVon() {
+            return von;
+        }
+
+        public long getBis() {
+            return bis;
+        }
+    }
+
+    /**
+     * Sicht auf die Felder einer Zeile im abgebildeten Puffer.
+     */
+    public static final class Zeile {
+        private MappedByteBuffer puffer;
+        private int[] beginn = new int[16];
+        private int[] ende = new int[16];
+        private boolean[] inAnfuehrung = new boolean[16];
+        private int anzahl;
+        private long position;
+        private final Text text = new Text();
+
+        void zerlegen(MappedByteBuffer puffer, int von, int bis) {
+            this.puffer = puffer;
+            anzahl = 0;
+            int i = von;
+            while (true) {
+                if (anzahl == beginn.length) {
+                    beginn = Arrays.copyOf(beginn, anzahl * 2);
+                    ende = Arrays.copyOf(ende, anzahl * 2);
+                    inAnfuehrung = Arrays.copyOf(inAnfuehrung, anzahl * 2);
+                }
+                while (i < bis && puffer.get(i) == ' ') {
+                    i++;
+                }
+                int b;
+                int e;
+                boolean quote = i < bis && puffer.get(i) == '"';
+                if (quote) {
+                    b = ++i;
+                    while (i < bis && !(puffer.get(i) == '"' && (i + 1 >= bis || puffer.get(i + 1) != '"'))) {
+                        i += puffer.get(i) == '"' ? 2 : 1;
+                    }
+                    e = i;
+                    while (i < bis && puffer.get(i) != ',') {
+                        i++;
+                    }
+                } else {
+                    b = i;
+                    while (i < bis && puffer.get(i) != ',') {
+                        i++;
+                    }
+                    e = i;
+                    while (e > b && (puffer.get(e - 1) == ' ' || puffer.get(e - 1) == '\t')) {
+                        e--;
+                    }
+                }
+                beginn[anzahl] = b;
+                ende[anzahl] = e;
+                inAnfuehrung[anzahl] = quote;
+                anzahl++;
+                if (i >= bis) {
+                    return;
+                }
+                i++; // Komma
+            }
+        }
+
+        public int getAnzahlFelder() {
+            return anzahl;
+        }
+
+        /**
+         * Byte-Position der Zeile in der Datei, fuer Fehlermeldungen.
+         */
+        public long getPosition() {
+            return position;
+        }
+
+        private void pruefe(int feld) {
+            if (feld >= anzahl) {
+                throw new NumberFormatException("Feld " + feld + " fehlt, Zeile hat " + anzahl + " Felder");
+            }
+        }
+
+        public boolean isNull(int feld) {
+            pruefe(feld);
+            if (inAnfuehrung[feld]) {
+                return false;
+            }
+            int laenge = ende[feld] - beginn[feld];
+            if (laenge == 0) {
+                return true;
+            }
+            if (laenge != 4) {
+                return false;
+            }
+            int b = beginn[feld];
+            return (puffer.get(b) | 0x20) == 'n' && (puffer.get(b + 1) | 0x20) == 'u'
+                    && (puffer.get(b + 2) | 0x20) == 'l' && (puffer.get(b + 3) | 0x20) == 'l';
+        }
+
+        public String getString(int feld) {
+            if (isNull(feld)) {
+                return null;
+            }
+            byte[] bytes = new byte[ende[feld] - beginn[feld]];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = puffer.get(beginn[feld] + i);
+            }
+            String s = new String(bytes, StandardCharsets.UTF_8);
+            return inAnfuehrung[feld] ? s.replace("\"\"", "\"") : s;
+        }
+
+        /**
+         * Das Feld als CharSequence ohne Kopie; nur fuer ASCII-Inhalte und nur
+         * bis zum naechsten Aufruf gueltig.
+         */
+        public CharSequence getText(int feld) {
+            pruefe(feld);
+            text.von = beginn[feld];
+            text.bis = ende[feld];
+            return text;
+        }
+
+        public int getInt(int feld) {
+            long v = getLong(feld);
+            if (v < Integer.MIN_VALUE || v > Integer.MAX_VALUE) {
+                throw new NumberFormatException("zu gross fuer int: " + getText(feld));
+            }
+            return (int) v;
+        }
+
+        public long getLong(int feld) {
+            pruefe(feld);
+            int i = beginn[feld];
+            int e = ende[feld];
+            boolean negativ = i < e && puffer.get(i) == '-';
+            if (negativ || (i < e && puffer.get(i) == '+')) {
+                i++;
+            }
+            if (i >= e) {
+                throw new NumberFormatException("keine Zahl: '" + getText(feld) + "'");
+            }
+            long v = 0;
+            for (; i < e; i++) {
+                int c = puffer.get(i) - '0';
+                if (c < 0 || c > 9) {
+                    throw new NumberFormatException("keine Zahl: '" + getText(feld) + "'");
+                }
+                v = Math.addExact(Math.multiplyExact(v, 10), c);
+            }
+            return negativ ? -v : v;
+        }
+
+        /**
+         * Betrag mit hoechstens zwei Nachkommastellen in Cent, siehe {@link Money#parseCent(CharSequence)}.
+         */
+        public long getCent(int feld) {
+            return Money.parseCent(getText(feld));
+        }
+
+        /**
+         * Datum im Format yyyy-MM-dd als Tage seit 1970-01-01.
+         */
+        public int getEpochDay(int feld) {
+            pruefe(feld);
+            int b = beginn[feld];
+            if (ende[feld] - b != 10 || puffer.get(b + 4) != '-' || puffer.get(b + 7) != '-') {
+                throw new NumberFormatException("kein Datum (yyyy-MM-dd): '" + getText(feld) + "'");
+            }
+            try {
+                return (int) LocalDate.of(ziffern(b, 4), ziffern(b + 5, 2), ziffern(b + 8, 2)).toEpochDay();
+            } catch (DateTimeException e) {
+                throw new NumberFormatException("kein Datum: '" + getText(feld) + "'");
+            }
+        }
+
+        private int ziffern(int von, int anzahlZiffern) {
+            int v = 0;
+            for (int i = von; i < von + anzahlZiffern; i++) {
+                int c = puffer.get(i) - '0';
+                if (c < 0 || c > 9) {
+                    throw new NumberFormatException("kein Datum, Byte " + (i - von) + " ist keine Ziffer");
+                }
+                v = v * 10 + c;
+            }
+            return v;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < anzahl; i++) {
+                if (i > 0) {
+                    sb.append(", ");
+                }
+                sb.append(getString(i));
+            }
+            return sb.toString();
+        }
+
+        private final class Text implements CharSequence {
+            int von;
+            int bis;
+
+            @Override
+            public int length() {
+                return bis - von;
+            }
+
+            @Override
+            public char charAt(int index) {
+                return (char) (puffer.get(von + index) & 0xff);
+            }
+
+            @Override
+            public CharSequence subSequence(int start, int end) {
+                return toString().substring(start, end);
+            }
+
+            @Override
+            public String toString() {
+                StringBuilder sb = new StringBuilder(length());
+                for (int i = von; i < bis; i++) {
+                    sb.append((char) (puffer.get(i) & 0xff));
+                }
+                return sb.toString();
+            }
+        }
+    }
+
+    /**
+     * Liest table-ordering.txt eines Testdaten-Verzeichnisses: ein
+     * Tabellenname je Zeile, in Einfuege-Reihenfolge, klein geschrieben.
+     */
+    public static List<String> tabellenReihenfolge(Path verzeichnis) throws IOException {
+        List<String> tabellen = new ArrayList<>();
+        for (String zeile : Files.readAllLines(verzeichnis.resolve("table-ordering.txt"))) {
+            String t = zeile.trim();
+            if (!t.isEmpty()) {
+                tabellen.add(t.toLowerCase(Locale.ROOT));
+            }
+        }
+        return tabellen;
+    }
+
+}
@@ -0,0 +1,68 @@
+package de.htwberlin.dbtech.utils;
+
+import org.junit.Assert;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+public class CsvDateiTest {
+
+    @org.junit.Test
+    public void liestTestdaten() throws Exception {
+        List<String> namen = new ArrayList<>();
+        List<Integer> tage = new ArrayList<>();
+        try (CsvDatei d = CsvDatei.oeffne(Paths.get("test-data/ue03-04/kunde.csv"))) {
+            Assert.assertEquals(List.of("ID", "Name", "Geburtsdatum"), d.getSpalten());
+            Assert.assertEquals(2, d.spalte("geburtsdatum"));
+            d.lese(z -> {
+                namen.add(z.getString(1));
+                tage.add(z.getEpochDay(2));
+            });
+        }
+        Assert.assertEquals("Gaul", namen.get(0));
+        Assert.assertEquals(LocalDate.of(1980, 3, 24).toEpochDay(), (long) tage.get(0));
+    }
+
+    @org.junit.Test
+    public void bereicheDeckenAlleZeilenGenauEinmal() throws Exception {
+        Path p = Files.createTempFile("csvdatei", ".csv");
+        try {
+            StringBuilder sb = new StringBuilder("ID, Text, Betrag\r\n");
+            for (int i = 1; i <= 10_000; i++) {
+                sb.append(String.format("%5d, \"a,\"\"%d\"\" \", %d.%02d\r\n", i, i, i, i % 100));
+            }
+            sb.append("10001, null, -1.5");
+            Files.writeString(p, sb);
+            try (CsvDatei d = CsvDatei.oeffne(p)) {
+                long summe = 0;
+                int zeilen = 0;
+                for (CsvDatei.Bereich b : d.bereiche(7)) {
+                    long[] s = new long[2];
+                    d.lese(b, z -> {
+                        int id = z.getInt(0);
+                        s[0] += id;
+                        s[1]++;
+                        if (id <= 10_000) {
+                            Assert.assertEquals("a,\"" + id + "\" ", z.getString(1));
+                            Assert.assertEquals(id * 100L + id % 100, z.getCent(2));
+                        } else {
+                            Assert.assertTrue(z.isNull(1));
+                            Assert.assertEquals(-150, z.getCent(2));
+                        }
+                    });
+                    summe += s[0];
+                    zeilen += s[1];
+                }
+                Assert.assertEquals(10_001, zeilen);
+                Assert.assertEquals(10_001L * 10_002 / 2, summe);
+            }
+        } finally {
+            Files.delete(p);
+        }
+    }
+
+}
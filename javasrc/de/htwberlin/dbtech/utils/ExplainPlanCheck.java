@@ -0,0 +1,146 @@
+package de.htwberlin.dbtech.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Laesst Oracle fuer jede SQL-Anweisung eines Dienstes den Ausfuehrungsplan
+ * bestimmen (EXPLAIN PLAN) und warnt bei vollstaendigen Tabellenscans.
+ * <p>
+ * Gedacht fuer den Start der Anwendung ({@link Warmlauf#setPlanPruefung}):
+ * fehlt ein Index aus {@code db/&lt;schema&gt;/indexes-create.sql}, steht
+ * das sofort im Log und nicht erst, wenn die Tabellen gross sind. Die Anweisungen werden dabei
+ * nicht ausgefuehrt; Platzhalter {@code ?} werden durch benannte Binds
+ * ersetzt, die EXPLAIN PLAN ohne Werte akzeptiert.
+ */
+public class ExplainPlanCheck {
+    private static final Logger L = LoggerFactory.getLogger(ExplainPlanCheck.class);
+
+    private static final String STATEMENT_ID = "dbtech_check";
+    private static final String SQL_PLAN = String.join(" ",
+            "select Operation, Options, Object_Name from plan_table",
+            "where Statement_Id = ? order by Id");
+    private static final String SQL_PLAN_LOESCHEN = "delete from plan_table where Statement_Id = ?";
+
+    /**
+     * Ein vollstaendiger Tabellenscan im Plan einer Anweisung.
+     */
+    public static class Befund {
+        private final String sql;
+        private final String tabelle;
+
+        Befund(String sql, String tabelle) {
+            this.sql = sql;
+            this.tabelle = tabelle;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public String getTabelle() {
+            return tabelle;
+        }
+
+        @Override
+        public String toString() {
+            return "TABLE ACCESS FULL " + tabelle + ": " + sql;
+        }
+    }
+
+    private final Connection connection;
+
+    public ExplainPlanCheck(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * Prueft die Plaene der Anweisungen und schreibt fuer jeden
+     * vollstaendigen Tabellenscan eine Warnung ins Log. Anweisungen, deren
+     * Tabellen im Schema fehlen, werden nur protokolliert.
+     *
+     * @return alle gefundenen Tabellenscans.
+     */
+    public List<Befund> pruefe(Collection<String> sqls) {
+        List<Befund> befunde = new ArrayList<>();
+        for (String sql : sqls) {
+            try {
+                befunde.addAll(pruefe(sql));
+            } catch (SQLException e) {
+                L.warn("kein Plan fuer: " + sql + " (" + e.getMessage() + ")");
+            }
+        }
+        for (Befund b : befunde) {
+            L.warn(b.toString());
+        }
+        L.info("Plaene geprueft: " + sqls.size() + " Anweisungen, " + befunde.size() + " Tabellenscans");
+        return befunde;
+    }
+
+    private List<Befund> pruefe(String sql) throws SQLException {
+        List<Befund> befunde = new ArrayList<>();
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("explain plan set statement_id = '" + STATEMENT_ID + "' for " + mitBenanntenBinds(sql));
+        }
+        try {
+            try (PreparedStatement ps = connection.prepareStatement(SQL_PLAN)) {
+                ps.setString(1, STATEMENT_ID);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        if (istTabellenscan(rs.getString(1), rs.getString(2))) {
+                            befunde.add(new Befund(sql, rs.getString(3)));
+                        }
+                    }
+                }
+            }
+        } finally {
+            try (PreparedStatement ps = connection.prepareStatement(SQL_PLAN_LOESCHEN)) {
+                ps.setString(1, STATEMENT_ID);
+                ps.executeUpdate();
+            }
+        }
+        return befunde;
+    }
+
+    static boolean istTabellenscan(String operation, String options) {
+        // auf Exadata heisst der Scan "STORAGE FULL"
+        return "TABLE ACCESS".equals(operation) && options != null && options.endsWith("FULL");
+    }
+
+    /**
+     * Ersetzt JDBC-Platzhalter ausserhalb von Literalen und Bezeichnern in
+     * Anfuehrungszeichen durch :b1, :b2, ...
+     */
+    static String mitBenanntenBinds(String sql) {
+        StringBuilder sb = new StringBuilder(sql.length() + 16);
+        int nr = 0;
+        char inQuote = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (inQuote != 0) {
+                if (c == inQuote) {
+                    inQuote = 0;
+                }
+                sb.append(c);
+            } else if (c == '\'' || c == '"') {
+                inQuote = c;
+                sb.append(c);
+            } else if (c == '?') {
+                sb.append(":b").append(++nr);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+}
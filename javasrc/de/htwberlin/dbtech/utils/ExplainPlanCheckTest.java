@@ -0,0 +1,27 @@
+package de.htwberlin.dbtech.utils;
+
+import org.junit.Assert;
+
+public class ExplainPlanCheckTest {
+
+    @org.junit.Test
+    public void platzhalterWerdenNummeriert() {
+        Assert.assertEquals("select * from Gebot where AID = :b1 and GebotsPreis > :b2",
+                ExplainPlanCheck.mitBenanntenBinds("select * from Gebot where AID = ? and GebotsPreis > ?"));
+    }
+
+    @org.junit.Test
+    public void platzhalterInLiteralenBleiben() {
+        Assert.assertEquals("select '?' as \"a?\" from dual where x = :b1",
+                ExplainPlanCheck.mitBenanntenBinds("select '?' as \"a?\" from dual where x = ?"));
+    }
+
+    @org.junit.Test
+    public void nurVollstaendigeTabellenscans() {
+        Assert.assertTrue(ExplainPlanCheck.istTabellenscan("TABLE ACCESS", "FULL"));
+        Assert.assertTrue(ExplainPlanCheck.istTabellenscan("TABLE ACCESS", "STORAGE FULL"));
+        Assert.assertFalse(ExplainPlanCheck.istTabellenscan("TABLE ACCESS", "BY INDEX ROWID"));
+        Assert.assertFalse(ExplainPlanCheck.istTabellenscan("INDEX", "FULL SCAN"));
+    }
+
+}
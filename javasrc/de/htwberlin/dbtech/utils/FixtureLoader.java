@@ -0,0 +1,332 @@
+package de.htwberlin.dbtech.utils;
+
+import de.htwberlin.dbtech.exceptions.DataException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Laedt Testdaten-Verzeichnisse ({@code test-data/*} mit {@code <tabelle>.csv}
+ * und {@code table-ordering.txt}) wie DbUnits
+ * {@code DatabaseOperation.CLEAN_INSERT} mit {@code CsvDataSet}, aber fuer
+ * grosse Datenmengen: die Tabellen werden in umgekehrter Reihenfolge geleert,
+ * die Zeilen als JDBC-Batch eingefuegt, und die Spaltentypen werden nur
+ * einmal je Tabelle ermittelt.
+ * <p>
+ * Mit {@link #setConstraintsDeaktivieren(boolean)} werden vorher alle
+ * aktiven Fremdschluessel, die eine der Tabellen betreffen, abgeschaltet; die
+ * Tabellen werden dann per TRUNCATE geleert, und die Fremdschluessel werden
+ * am Ende wieder eingeschaltet und dabei geprueft. TRUNCATE loest kein
+ * {@code on delete cascade} aus; Tabellen, die nicht in table-ordering.txt
+ * stehen, aber ueber Fremdschluessel von den geladenen abhaengen (z.B.
+ * Vertrag_Monatsrate), werden deshalb mit geleert. DDL committet in Oracle
+ * sofort, der Lauf ist dann also nicht mehr als Ganzes zurueckrollbar.
+ * Ohne diese Option wird mit DELETE geleert und alles in einer Transaktion
+ * ausgefuehrt; abhaengige Tabellen leert dann ihr {@code on delete cascade},
+ * ohne ihn scheitert das DELETE.
+ *
+ * <pre>
+ * // statt DatabaseOperation.CLEAN_INSERT.execute(dbTesterCon, new CsvDataSet(new File("test-data/ue03-04")))
+ * new FixtureLoader(dbTesterCon.getConnection()).lade(Paths.get("test-data/ue03-04"));
+ * </pre>
+ */
+public class FixtureLoader {
+    private static final Logger L = LoggerFactory.getLogger(FixtureLoader.class);
+
+    private static final String SQL_FREMDSCHLUESSEL = String.join(" ",
+            "select c.table_name, c.constraint_name, p.table_name as parent_table",
+            "from user_constraints c join user_constraints p on p.constraint_name = c.r_constraint_name",
+            "where c.constraint_type = 'R' and c.status = 'ENABLED'");
+
+    private final Connection connection;
+    private int batchGroesse = 5000;
+    private boolean constraintsDeaktivieren = false;
+
+    public FixtureLoader(Connection connection) {
+        this.connection = connection;
+    }
+
+    public void setBatchGroesse(int batchGroesse) {
+        this.batchGroesse = batchGroesse;
+    }
+
+    public void setConstraintsDeaktivieren(boolean constraintsDeaktivieren) {
+        this.constraintsDeaktivieren = constraintsDeaktivieren;
+    }
+
+    /**
+     * Leert alle Tabellen aus table-ordering.txt und fuellt sie aus den
+     * CSV-Dateien des Verzeichnisses.
+     *
+     * @return Anzahl der eingefuegten Zeilen je Tabelle, in Ladereihenfolge.
+     */
+    public Map<String, Long> lade(Path verzeichnis) {
+        long start = System.nanoTime();
+        List<String> tabellen;
+        try {
+            tabellen = CsvDatei.tabellenReihenfolge(verzeichnis);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Map<String, Long> zeilen = new LinkedHashMap<>();
+        try {
+            List<String[]> fremdschluessel = constraintsDeaktivieren ? leseFremdschluessel() : List.of();
+            List<String> abhaengige = abhaengigeTabellen(fremdschluessel, tabellen);
+            if (!abhaengige.isEmpty()) {
+                L.warn("nicht in table-ordering.txt, werden mit geleert: {}", abhaengige);
+            }
+            List<String> geleert = new ArrayList<>(tabellen);
+            geleert.addAll(abhaengige);
+            List<String[]> abgeschaltet = fremdschluesselAbschalten(fremdschluessel, geleert);
+            try {
+                TransactionTemplate.of(connection).run(c -> {
+                    for (String tabelle : abhaengige) {
+                        leere(c, tabelle, true);
+                    }
+                    for (int i = tabellen.size() - 1; i >= 0; i--) {
+                        leere(c, tabellen.get(i), constraintsDeaktivieren);
+                    }
+                    for (String tabelle : tabellen) {
+                        zeilen.put(tabelle, fuelle(c, tabelle, verzeichnis.resolve(tabelle + ".csv")));
+                    }
+                });
+            } finally {
+                fremdschluesselEinschalten(abgeschaltet);
+            }
+        } catch (SQLException e) {
+            L.error("", e);
+            throw new DataException(e);
+        }
+        L.info("Fixture {} geladen: {} in {} ms", verzeichnis, zeilen, (System.nanoTime() - start) / 1_000_000);
+        return zeilen;
+    }
+
+    private void leere(Connection c, String tabelle, boolean truncate) throws SQLException {
+        String sql = (truncate ? "truncate table " : "delete from ") + tabelle;
+        L.info(sql);
+        try (Statement s = c.createStatement()) {
+            s.executeUpdate(sql);
+        }
+    }
+
+    private long fuelle(Connection c, String tabelle, Path datei) throws SQLException {
+        try (CsvDatei csv = CsvDatei.oeffne(datei)) {
+            List<String> spalten = csv.getSpalten();
+            int[] typen = spaltenTypen(c, tabelle, spalten);
+            String sql = "insert into " + tabelle + " (" + String.join(", ", spalten) + ") values ("
+                    + String.join(", ", Collections.nCopies(spalten.size(), "?")) + ")";
+            L.info(sql);
+            long[] anzahl = new long[1];
+            try (PreparedStatement ps = c.prepareStatement(sql)) {
+                int[] imBatch = new int[1];
+                csv.lese(z -> {
+                    try {
+                        for (int i = 0; i < typen.length; i++) {
+                            setze(ps, i + 1, typen[i], z, i);
+                        }
+                        ps.addBatch();
+                        anzahl[0]++;
+                        if (++imBatch[0] == batchGroesse) {
+                            ps.executeBatch();
+                            imBatch[0] = 0;
+                        }
+                    } catch (SQLException e) {
+                        throw new DataException(e);
+                    } catch (NumberFormatException e) {
+                        throw new DataException(datei + ", Byte " + z.getPosition() + ": " + e.getMessage(), e);
+                    }
+                });
+                if (imBatch[0] > 0) {
+                    ps.executeBatch();
+                }
+            }
+            return anzahl[0];
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Typen der CSV-Spalten, ein Zugriff auf die Metadaten je Tabelle
+    private static int[] spaltenTypen(Connection c, String tabelle, List<String> spalten) throws SQLException {
+        Map<String, Integer> typJeName = new HashMap<>();
+        try (Statement s = c.createStatement();
+             ResultSet rs = s.executeQuery("select * from " + tabelle + " where 1 = 0")) {
+            ResultSetMetaData md = rs.getMetaData();
+            for (int i = 1; i <= md.getColumnCount(); i++) {
+                typJeName.put(md.getColumnName(i).toUpperCase(Locale.ROOT), md.getColumnType(i));
+            }
+        }
+        int[] typen = new int[spalten.size()];
+        for (int i = 0; i < typen.length; i++) {
+            Integer typ = typJeName.get(spalten.get(i).toUpperCase(Locale.ROOT));
+            if (typ == null) {
+                throw new DataException("Spalte " + spalten.get(i) + " gibt es in " + tabelle + " nicht");
+            }
+            typen[i] = typ;
+        }
+        return typen;
+    }
+
+    private static void setze(PreparedStatement ps, int index, int typ, CsvDatei.Zeile z, int feld) throws SQLException {
+        if (z.isNull(feld)) {
+            ps.setNull(index, typ);
+            return;
+        }
+        switch (typ) {
+            case Types.INTEGER:
+            case Types.SMALLINT:
+            case Types.BIGINT:
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                CharSequence text = z.getText(feld);
+                if (enthaelt(text, '.') || enthaelt(text, 'E') || enthaelt(text, 'e')) {
+                    ps.setBigDecimal(index, new BigDecimal(text.toString()));
+                } else {
+                    ps.setLong(index, z.getLong(feld));
+                }
+                break;
+            case Types.DATE:
+            case Types.TIMESTAMP:
+                // Oracle meldet DATE je nach Treiber-Einstellung als TIMESTAMP
+                if (z.getText(feld).length() == 10) {
+                    ps.setTimestamp(index, Timestamp.valueOf(LocalDate.ofEpochDay(z.getEpochDay(feld)).atStartOfDay()));
+                } else {
+                    ps.setTimestamp(index, Timestamp.valueOf(z.getString(feld)));
+                }
+                break;
+            default:
+                ps.setString(index, z.getString(feld));
+        }
+    }
+
+    private static boolean enthaelt(CharSequence s, char c) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) == c) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // aktive Fremdschluessel als {Tabelle, Constraint, referenzierte Tabelle}
+    private List<String[]> leseFremdschluessel() throws SQLException {
+        List<String[]> fremdschluessel = new ArrayList<>();
+        L.info(SQL_FREMDSCHLUESSEL);
+        try (Statement s = connection.createStatement();
+             ResultSet rs = s.executeQuery(SQL_FREMDSCHLUESSEL)) {
+            while (rs.next()) {
+                fremdschluessel.add(new String[]{rs.getString(1), rs.getString(2), rs.getString(3)});
+            }
+        }
+        return fremdschluessel;
+    }
+
+    // Tabellen ausserhalb der Liste, die direkt oder ueber andere auf eine der Tabellen zeigen
+    static List<String> abhaengigeTabellen(List<String[]> fremdschluessel, List<String> tabellen) {
+        List<String> bekannt = new ArrayList<>();
+        for (String t : tabellen) {
+            bekannt.add(t.toUpperCase(Locale.ROOT));
+        }
+        List<String> abhaengige = new ArrayList<>();
+        boolean neu = true;
+        while (neu) {
+            neu = false;
+            for (String[] fk : fremdschluessel) {
+                if (bekannt.contains(fk[2]) && !bekannt.contains(fk[0])) {
+                    bekannt.add(fk[0]);
+                    abhaengige.add(fk[0]);
+                    neu = true;
+                }
+            }
+        }
+        return abhaengige;
+    }
+
+    // schaltet alle Fremdschluessel ab, die von einer der Tabellen ausgehen oder auf sie zeigen
+    private List<String[]> fremdschluesselAbschalten(List<String[]> fremdschluessel, List<String> tabellen)
+            throws SQLException {
+        List<String[]> abgeschaltet = new ArrayList<>();
+        List<String> gross = new ArrayList<>();
+        for (String t : tabellen) {
+            gross.add(t.toUpperCase(Locale.ROOT));
+        }
+        for (String[] fk : fremdschluessel) {
+            if (gross.contains(fk[0]) || gross.contains(fk[2])) {
+                abgeschaltet.add(fk);
+            }
+        }
+        if (abgeschaltet.isEmpty()) {
+            return abgeschaltet;
+        }
+        try (Statement s = connection.createStatement()) {
+            for (String[] fk : abgeschaltet) {
+                String sql = "alter table " + fk[0] + " disable constraint " + fk[1];
+                L.info(sql);
+                s.execute(sql);
+            }
+        } catch (SQLException e) {
+            fremdschluesselEinschalten(abgeschaltet);
+            throw e;
+        }
+        return abgeschaltet;
+    }
+
+    private void fremdschluesselEinschalten(List<String[]> abgeschaltet) throws SQLException {
+        SQLException fehler = null;
+        try (Statement s = connection.createStatement()) {
+            for (String[] fk : abgeschaltet) {
+                String sql = "alter table " + fk[0] + " enable constraint " + fk[1];
+                L.info(sql);
+                try {
+                    s.execute(sql);
+                } catch (SQLException e) {
+                    // weitermachen, damit moeglichst viele wieder aktiv sind
+                    L.error(sql, e);
+                    if (fehler == null) {
+                        fehler = e;
+                    }
+                }
+            }
+        }
+        if (fehler != null) {
+            throw fehler;
+        }
+    }
+
+    /**
+     * Laedt das Verzeichnis aus args[0] in die Datenbank aus DbCred.
+     */
+    public static void main(String[] args) {
+        Path verzeichnis = Paths.get(args.length > 0 ? args[0] : "test-data/ue03-04");
+        try (Connection connection = JdbcUtils.getConnectionViaDriverManager(DbCred.url, DbCred.user, DbCred.password)) {
+            FixtureLoader loader = new FixtureLoader(connection);
+            loader.setConstraintsDeaktivieren(true);
+            System.out.println(loader.lade(verzeichnis));
+        } catch (SQLException e) {
+            L.error("", e);
+            throw new DataException(e);
+        }
+    }
+
+}
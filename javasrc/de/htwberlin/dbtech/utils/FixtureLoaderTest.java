@@ -0,0 +1,179 @@
+package de.htwberlin.dbtech.utils;
+
+import org.junit.Assert;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prueft Typermittlung und Parameter mit einer Attrappen-Connection, die
+ * Spaltentypen wie Oracle meldet und protokolliert, welche Werte in welche
+ * Tabelle eingefuegt wurden.
+ */
+public class FixtureLoaderTest {
+    private final Map<String, String[]> spaltenNamen = new HashMap<>();
+    private final Map<String, int[]> spaltenTypen = new HashMap<>();
+    private final Map<String, List<List<Object>>> eingefuegt = new HashMap<>();
+    private final List<String> geleert = new ArrayList<>();
+
+    private void tabelle(String name, String spalten, int... typen) {
+        spaltenNamen.put(name.toUpperCase(), spalten.split(","));
+        spaltenTypen.put(name.toUpperCase(), typen);
+    }
+
+    private static Object proxy(Class<?> typ, java.lang.reflect.InvocationHandler h) {
+        return Proxy.newProxyInstance(typ.getClassLoader(), new Class<?>[]{typ}, h);
+    }
+
+    private Connection attrappe() {
+        return (Connection) proxy(Connection.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getAutoCommit":
+                    return true;
+                case "isReadOnly":
+                    return false;
+                case "createStatement":
+                    return proxy(Statement.class, (p, m, a) -> {
+                        if (m.getName().equals("executeUpdate")) {
+                            geleert.add((String) a[0]);
+                            return 0;
+                        }
+                        if (m.getName().equals("executeQuery")) {
+                            // "select * from <tabelle> where 1 = 0"
+                            String tabelle = ((String) a[0]).split(" ")[3].toUpperCase();
+                            return metadaten(tabelle);
+                        }
+                        return null;
+                    });
+                case "prepareStatement":
+                    String tabelle = ((String) args[0]).split(" ")[2].toUpperCase();
+                    List<List<Object>> zeilen = eingefuegt.computeIfAbsent(tabelle, k -> new ArrayList<>());
+                    Object[] zeile = new Object[spaltenNamen.get(tabelle).length];
+                    return proxy(PreparedStatement.class, (p, m, a) -> {
+                        switch (m.getName()) {
+                            case "setNull":
+                                zeile[(Integer) a[0] - 1] = "NULL";
+                                return null;
+                            case "setLong":
+                            case "setBigDecimal":
+                            case "setTimestamp":
+                            case "setString":
+                                zeile[(Integer) a[0] - 1] = a[1];
+                                return null;
+                            case "addBatch":
+                                zeilen.add(new ArrayList<>(Arrays.asList(zeile)));
+                                Arrays.fill(zeile, null);
+                                return null;
+                            case "executeBatch":
+                                return new int[0];
+                            default:
+                                return null;
+                        }
+                    });
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private ResultSet metadaten(String tabelle) {
+        String[] namen = spaltenNamen.get(tabelle);
+        int[] typen = spaltenTypen.get(tabelle);
+        ResultSetMetaData md = (ResultSetMetaData) proxy(ResultSetMetaData.class, (p, m, a) -> {
+            switch (m.getName()) {
+                case "getColumnCount":
+                    return namen.length;
+                case "getColumnName":
+                    return namen[(Integer) a[0] - 1].trim().toUpperCase();
+                case "getColumnType":
+                    return typen[(Integer) a[0] - 1];
+                default:
+                    return null;
+            }
+        });
+        return (ResultSet) proxy(ResultSet.class, (p, m, a) -> m.getName().equals("getMetaData") ? md : null);
+    }
+
+    @org.junit.Test
+    public void laedtTestdatenUe0304() {
+        int i = Types.INTEGER;
+        int v = Types.VARCHAR;
+        int n = Types.NUMERIC;
+        // Oracle meldet DATE je nach Treiber-Einstellung als DATE oder TIMESTAMP
+        tabelle("produkt", "ID,KurzBez,Bez", n, v, v);
+        tabelle("kunde", "ID,Name,Geburtsdatum", n, v, Types.TIMESTAMP);
+        tabelle("deckungsart", "ID,Produkt_FK,KurzBez,Bez", n, n, v, v);
+        tabelle("ablehnungsregel", "Deckungsart_FK,LfdNr,R_Betrag,R_Alter", n, n, v, v);
+        tabelle("vertrag", "ID,Produkt_FK,Kunde_FK,Versicherungsbeginn,Versicherungsende", i, i, i, Types.DATE, Types.DATE);
+        tabelle("deckungsbetrag", "ID,Deckungsart_FK,Deckungsbetrag", n, n, Types.DECIMAL);
+        tabelle("deckungspreis", "ID,Deckungsbetrag_FK,Gueltig_Von,Gueltig_Bis,Preis", n, n, Types.DATE, Types.DATE, Types.DECIMAL);
+        tabelle("deckung", "Vertrag_FK,Deckungsart_FK,Deckungsbetrag", n, n, Types.DECIMAL);
+
+        Map<String, Long> zeilen = new FixtureLoader(attrappe()).lade(Paths.get("test-data/ue03-04"));
+
+        Assert.assertEquals(List.of("produkt", "kunde", "deckungsart", "ablehnungsregel", "vertrag", "deckungsbetrag",
+                "deckungspreis", "deckung"), new ArrayList<>(zeilen.keySet()));
+        Assert.assertEquals("delete from deckung", geleert.get(0));
+        Assert.assertEquals("delete from produkt", geleert.get(geleert.size() - 1));
+        zeilen.forEach((t, anzahl) -> Assert.assertEquals(t, (long) anzahl, eingefuegt.get(t.toUpperCase()).size()));
+
+        Assert.assertEquals(List.of(1L, "Gaul", Timestamp.valueOf("1980-03-24 00:00:00")), eingefuegt.get("KUNDE").get(0));
+        Assert.assertEquals(List.of(1L, 1L, 1L, Timestamp.valueOf("2017-04-01 00:00:00"),
+                Timestamp.valueOf("2018-03-31 00:00:00")), eingefuegt.get("VERTRAG").get(0));
+        Assert.assertEquals(List.of(1L, 1L, Timestamp.valueOf("2017-01-01 00:00:00"),
+                Timestamp.valueOf("2017-12-31 00:00:00"), 10L), eingefuegt.get("DECKUNGSPREIS").get(0));
+        // "- -" ist Text, keine leere Zelle
+        Assert.assertEquals(List.of(1L, 1L, "- -", "< 18"), eingefuegt.get("ABLEHNUNGSREGEL").get(0));
+    }
+
+    @org.junit.Test
+    public void nullLeerDezimalDatumUndAnfuehrung() throws Exception {
+        Path verzeichnis = Files.createTempDirectory("fixture");
+        Files.writeString(verzeichnis.resolve("table-ordering.txt"), "t\n");
+        Files.writeString(verzeichnis.resolve("t.csv"), String.join("\n",
+                "ID, Text,        Betrag, Zeit",
+                " 1, null,        12.50,  2020-01-02 03:04:05",
+                " 2, \"a,\"\"b\"\"\", 1E3,    2020-01-02",
+                " 3, \"\",          ,       NULL"));
+        tabelle("t", "ID,Text,Betrag,Zeit", Types.NUMERIC, Types.VARCHAR, Types.NUMERIC, Types.TIMESTAMP);
+
+        Map<String, Long> zeilen = new FixtureLoader(attrappe()).lade(verzeichnis);
+
+        Assert.assertEquals(Map.of("t", 3L), zeilen);
+        List<List<Object>> t = eingefuegt.get("T");
+        Assert.assertEquals(List.of(1L, "NULL", new BigDecimal("12.50"), Timestamp.valueOf("2020-01-02 03:04:05")),
+                t.get(0));
+        Assert.assertEquals(List.of(2L, "a,\"b\"", new BigDecimal("1E3"), Timestamp.valueOf("2020-01-02 00:00:00")),
+                t.get(1));
+        // "" ist ein leerer Text, ein leeres Feld ohne Anfuehrungszeichen ist NULL
+        Assert.assertEquals(List.of(3L, "", "NULL", "NULL"), t.get(2));
+    }
+
+    @org.junit.Test
+    public void abhaengigeTabellenAusserhalbDerListe() {
+        List<String[]> fks = List.of(
+                new String[]{"VERTRAG", "KUNDE_FK", "KUNDE"},
+                new String[]{"VERTRAG_MONATSRATE", "VERTRAG_MONATSRATE_FK", "VERTRAG"},
+                new String[]{"MAHNUNG", "MAHNUNG_FK", "VERTRAG_MONATSRATE"},
+                new String[]{"GEBOT", "FK_ANGEBOT", "ANGEBOT"});
+        Assert.assertEquals(List.of("VERTRAG_MONATSRATE", "MAHNUNG"),
+                FixtureLoader.abhaengigeTabellen(fks, List.of("kunde", "vertrag")));
+        Assert.assertEquals(List.of(), FixtureLoader.abhaengigeTabellen(fks, List.of("angebot", "gebot")));
+    }
+
+}
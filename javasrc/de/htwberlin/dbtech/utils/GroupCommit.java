@@ -0,0 +1,126 @@
+package de.htwberlin.dbtech.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Buendelt viele Schreiboperationen zu wenigen Commits, z.B. beim
+ * Massenladen. Solange ein GroupCommit offen ist, steht die Connection nicht
+ * im Auto-Commit-Modus; Dienste, die ueber {@link TransactionTemplate}
+ * arbeiten, nehmen an der offenen Transaktion teil und committen nicht selbst.
+ * Ihre mit {@link TransactionTemplate#nachCommit} angemeldeten Aktionen
+ * laufen nach dem naechsten Commit des GroupCommit.
+ * <p>
+ * Committet wird, sobald nach einer Operation mindestens {@code maxOperationen}
+ * Operationen offen sind oder seit dem letzten Commit mindestens
+ * {@code maxMillis} Millisekunden vergangen sind. Die Zeit wird nur bei
+ * {@link #operationAbgeschlossen()} geprueft, da eine Connection nicht von
+ * einem Hintergrund-Thread aus committet werden darf.
+ *
+ * <pre>
+ * try (GroupCommit gc = new GroupCommit(connection, 1000, 500)) {
+ *     for (...) {
+ *         service.createVertrag(...);
+ *         gc.operationAbgeschlossen();
+ *     }
+ * }
+ * </pre>
+ */
+public class GroupCommit implements AutoCloseable {
+    private static final Logger L = LoggerFactory.getLogger(GroupCommit.class);
+
+    private final Connection connection;
+    private final int maxOperationen;
+    private final long maxNanos;
+    private final boolean vorherAutoCommit;
+
+    private int offeneOperationen = 0;
+    private long letzterCommit;
+    private long anzahlOperationen = 0;
+    private long anzahlCommits = 0;
+
+    public GroupCommit(Connection connection, int maxOperationen, long maxMillis) {
+        if (maxOperationen < 1) {
+            throw new IllegalArgumentException("maxOperationen < 1: " + maxOperationen);
+        }
+        this.connection = connection;
+        this.maxOperationen = maxOperationen;
+        this.maxNanos = maxMillis * 1_000_000L;
+        try {
+            this.vorherAutoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+        this.letzterCommit = System.nanoTime();
+    }
+
+    /**
+     * Meldet eine abgeschlossene Operation und committet, falls eine der
+     * Schwellen erreicht ist.
+     *
+     * @return true, wenn committet wurde.
+     */
+    public boolean operationAbgeschlossen() throws SQLException {
+        offeneOperationen++;
+        anzahlOperationen++;
+        if (offeneOperationen >= maxOperationen || System.nanoTime() - letzterCommit >= maxNanos) {
+            commit();
+            return true;
+        }
+        return false;
+    }
+
+    public void commit() throws SQLException {
+        if (offeneOperationen > 0) {
+            connection.commit();
+            TransactionTemplate.committet(connection);
+            anzahlCommits++;
+            L.debug("group commit: {} operations", offeneOperationen);
+            offeneOperationen = 0;
+        }
+        letzterCommit = System.nanoTime();
+    }
+
+    /**
+     * Verwirft alle seit dem letzten Commit ausgefuehrten Operationen.
+     */
+    public void rollback() throws SQLException {
+        connection.rollback();
+        TransactionTemplate.zurueckgerollt(connection);
+        L.debug("group rollback: {} operations discarded", offeneOperationen);
+        anzahlOperationen -= offeneOperationen;
+        offeneOperationen = 0;
+        letzterCommit = System.nanoTime();
+    }
+
+    public long getAnzahlOperationen() {
+        return anzahlOperationen;
+    }
+
+    public long getAnzahlCommits() {
+        return anzahlCommits;
+    }
+
+    /**
+     * Committet die restlichen Operationen und stellt den Auto-Commit-Modus
+     * wieder her.
+     */
+    @Override
+    public void close() throws SQLException {
+        try {
+            commit();
+        } finally {
+            connection.setAutoCommit(vorherAutoCommit);
+        }
+        if (vorherAutoCommit) {
+            // das Einschalten von Auto-Commit committet auch Arbeit ohne operationAbgeschlossen()
+            TransactionTemplate.committet(connection);
+        }
+        L.info("group commit closed: {} operations, {} commits", anzahlOperationen, anzahlCommits);
+    }
+
+}
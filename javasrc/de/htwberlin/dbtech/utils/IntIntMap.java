@@ -0,0 +1,191 @@
+package de.htwberlin.dbtech.utils;
+
+import java.util.Arrays;
+
+/**
+ * Abbildung int auf int mit offener Adressierung und linearer Sondierung.
+ * Kommt ohne Boxing und ohne Eintragsobjekte aus; ein Zugriff liest in der
+ * Regel nur eine Cache-Zeile.
+ * <p>
+ * Nicht threadsicher. Zum Teilen zwischen Threads einmal befuellen und
+ * danach nur noch lesen.
+ */
+public class IntIntMap {
+    private static final int FREI = 0;
+    private static final float LADEFAKTOR = 0.5f;
+
+    private int[] schluessel;
+    private int[] werte;
+    private int maske;
+    private int anzahl;
+    private int grenze;
+    // Schluessel 0 markiert freie Plaetze und wird deshalb gesondert gehalten
+    private boolean hatNull;
+    private int nullWert;
+
+    public IntIntMap() {
+        this(16);
+    }
+
+    public IntIntMap(int erwarteteAnzahl) {
+        int kapazitaet = Integer.highestOneBit(Math.max(4, (int) (erwarteteAnzahl / LADEFAKTOR)) - 1) << 1;
+        anlegen(kapazitaet);
+    }
+
+    private void anlegen(int kapazitaet) {
+        schluessel = new int[kapazitaet];
+        werte = new int[kapazitaet];
+        maske = kapazitaet - 1;
+        grenze = (int) (kapazitaet * LADEFAKTOR);
+    }
+
+    private static int streuen(int k) {
+        int h = k * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    public int get(int k, int standard) {
+        if (k == FREI) {
+            return hatNull ? nullWert : standard;
+        }
+        int i = streuen(k) & maske;
+        while (true) {
+            int s = schluessel[i];
+            if (s == k) {
+                return werte[i];
+            }
+            if (s == FREI) {
+                return standard;
+            }
+            i = (i + 1) & maske;
+        }
+    }
+
+    public boolean containsKey(int k) {
+        if (k == FREI) {
+            return hatNull;
+        }
+        int i = streuen(k) & maske;
+        while (true) {
+            int s = schluessel[i];
+            if (s == k) {
+                return true;
+            }
+            if (s == FREI) {
+                return false;
+            }
+            i = (i + 1) & maske;
+        }
+    }
+
+    public void put(int k, int v) {
+        if (k == FREI) {
+            if (!hatNull) {
+                anzahl++;
+            }
+            hatNull = true;
+            nullWert = v;
+            return;
+        }
+        int i = streuen(k) & maske;
+        while (true) {
+            int s = schluessel[i];
+            if (s == k) {
+                werte[i] = v;
+                return;
+            }
+            if (s == FREI) {
+                schluessel[i] = k;
+                werte[i] = v;
+                if (++anzahl > grenze) {
+                    vergroessern();
+                }
+                return;
+            }
+            i = (i + 1) & maske;
+        }
+    }
+
+    /**
+     * Entfernt den Schluessel. Die folgenden Eintraege seiner
+     * Sondierungskette ruecken nach, es bleiben keine Grabsteine zurueck.
+     *
+     * @return ob der Schluessel enthalten war.
+     */
+    public boolean remove(int k) {
+        if (k == FREI) {
+            if (!hatNull) {
+                return false;
+            }
+            hatNull = false;
+            anzahl--;
+            return true;
+        }
+        int i = streuen(k) & maske;
+        while (schluessel[i] != k) {
+            if (schluessel[i] == FREI) {
+                return false;
+            }
+            i = (i + 1) & maske;
+        }
+        int luecke = i;
+        int j = i;
+        while (true) {
+            j = (j + 1) & maske;
+            int s = schluessel[j];
+            if (s == FREI) {
+                break;
+            }
+            // s darf in die Luecke, wenn sie zwischen seinem Heimplatz und j liegt
+            int heim = streuen(s) & maske;
+            if (((j - heim) & maske) >= ((j - luecke) & maske)) {
+                schluessel[luecke] = s;
+                werte[luecke] = werte[j];
+                luecke = j;
+            }
+        }
+        schluessel[luecke] = FREI;
+        anzahl--;
+        return true;
+    }
+
+    private void vergroessern() {
+        int[] alteSchluessel = schluessel;
+        int[] alteWerte = werte;
+        anlegen(alteSchluessel.length * 2);
+        anzahl = hatNull ? 1 : 0;
+        for (int i = 0; i < alteSchluessel.length; i++) {
+            if (alteSchluessel[i] != FREI) {
+                put(alteSchluessel[i], alteWerte[i]);
+            }
+        }
+    }
+
+    /**
+     * Alle Schluessel in keiner bestimmten Reihenfolge.
+     */
+    public int[] alleSchluessel() {
+        int[] ergebnis = new int[anzahl];
+        int n = 0;
+        if (hatNull) {
+            ergebnis[n++] = FREI;
+        }
+        for (int s : schluessel) {
+            if (s != FREI) {
+                ergebnis[n++] = s;
+            }
+        }
+        return ergebnis;
+    }
+
+    public int size() {
+        return anzahl;
+    }
+
+    public void clear() {
+        Arrays.fill(schluessel, FREI);
+        hatNull = false;
+        anzahl = 0;
+    }
+
+}
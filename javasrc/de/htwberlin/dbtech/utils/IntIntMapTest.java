@@ -0,0 +1,65 @@
+package de.htwberlin.dbtech.utils;
+
+import org.junit.Assert;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class IntIntMapTest {
+
+    @org.junit.Test
+    public void verhaeltSichWieHashMap() {
+        IntIntMap m = new IntIntMap(4);
+        Map<Integer, Integer> erwartet = new HashMap<>();
+        Random r = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            int k = r.nextInt(20_000) - 10_000;
+            int v = r.nextInt();
+            m.put(k, v);
+            erwartet.put(k, v);
+        }
+        Assert.assertEquals(erwartet.size(), m.size());
+        for (int k = -10_000; k < 10_000; k++) {
+            Assert.assertEquals(erwartet.containsKey(k), m.containsKey(k));
+            Assert.assertEquals((int) erwartet.getOrDefault(k, -1), m.get(k, -1));
+        }
+    }
+
+    @org.junit.Test
+    public void entfernen() {
+        IntIntMap m = new IntIntMap(4);
+        Map<Integer, Integer> erwartet = new HashMap<>();
+        Random r = new Random(7);
+        for (int i = 0; i < 200_000; i++) {
+            int k = r.nextInt(2_000) - 1_000;
+            if (r.nextBoolean()) {
+                m.put(k, i);
+                erwartet.put(k, i);
+            } else {
+                Assert.assertEquals(erwartet.remove(k) != null, m.remove(k));
+            }
+        }
+        Assert.assertEquals(erwartet.size(), m.size());
+        for (int k = -1_000; k < 1_000; k++) {
+            Assert.assertEquals((int) erwartet.getOrDefault(k, -1), m.get(k, -1));
+        }
+        int[] schluessel = m.alleSchluessel();
+        Arrays.sort(schluessel);
+        Assert.assertArrayEquals(erwartet.keySet().stream().mapToInt(Integer::intValue).sorted().toArray(), schluessel);
+    }
+
+    @org.junit.Test
+    public void schluesselNull() {
+        IntIntMap m = new IntIntMap();
+        Assert.assertFalse(m.containsKey(0));
+        m.put(0, 7);
+        Assert.assertEquals(7, m.get(0, -1));
+        Assert.assertEquals(1, m.size());
+        m.clear();
+        Assert.assertEquals(-1, m.get(0, -1));
+        Assert.assertEquals(0, m.size());
+    }
+
+}
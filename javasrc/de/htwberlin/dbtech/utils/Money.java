@@ -0,0 +1,180 @@
+package de.htwberlin.dbtech.utils;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Geldbetrag mit zwei Nachkommastellen als long in Cent.
+ * <p>
+ * Alle Betragsspalten der Schemata sind {@code decimal(13,2)} und passen
+ * damit sicher in einen long. Rechnen und Vergleichen kommt ohne
+ * Objekterzeugung aus; Ueberlaeufe fuehren zu einer
+ * {@link ArithmeticException}, Werte mit mehr als zwei Nachkommastellen
+ * werden nicht gerundet, sondern abgelehnt.
+ */
+public final class Money implements Comparable<Money> {
+    public static final Money NULL = new Money(0);
+
+    private final long cent;
+
+    private Money(long cent) {
+        this.cent = cent;
+    }
+
+    public static Money ofCent(long cent) {
+        return cent == 0 ? NULL : new Money(cent);
+    }
+
+    public static Money of(long euro) {
+        return ofCent(Math.multiplyExact(euro, 100));
+    }
+
+    /**
+     * @throws ArithmeticException bei mehr als zwei Nachkommastellen oder
+     *                             mehr als long-Cent.
+     */
+    public static Money of(BigDecimal betrag) {
+        return ofCent(betrag.movePointRight(2).longValueExact());
+    }
+
+    /**
+     * Liest einen Betrag wie "1234.5", "-7" oder "0.99" ohne Umweg ueber
+     * BigDecimal.
+     *
+     * @throws NumberFormatException bei anderem Format oder mehr als zwei
+     *                               Nachkommastellen.
+     */
+    public static Money parse(CharSequence s) {
+        return ofCent(parseCent(s));
+    }
+
+    /**
+     * Wie {@link #parse(CharSequence)}, liefert aber direkt die Cent.
+     */
+    public static long parseCent(CharSequence s) {
+        int i = 0;
+        int n = s.length();
+        while (i < n && s.charAt(i) == ' ') {
+            i++;
+        }
+        while (n > i && s.charAt(n - 1) == ' ') {
+            n--;
+        }
+        boolean negativ = false;
+        if (i < n && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+            negativ = s.charAt(i) == '-';
+            i++;
+        }
+        long cent = 0;
+        int ziffern = 0;
+        int nachkomma = -1;
+        for (; i < n; i++) {
+            char c = s.charAt(i);
+            if (c == '.' && nachkomma < 0) {
+                nachkomma = 0;
+                continue;
+            }
+            if (c < '0' || c > '9' || nachkomma == 2) {
+                throw new NumberFormatException("kein Geldbetrag: " + s);
+            }
+            cent = Math.addExact(Math.multiplyExact(cent, 10), c - '0');
+            ziffern++;
+            if (nachkomma >= 0) {
+                nachkomma++;
+            }
+        }
+        if (ziffern == 0) {
+            throw new NumberFormatException("kein Geldbetrag: " + s);
+        }
+        for (int k = Math.max(nachkomma, 0); k < 2; k++) {
+            cent = Math.multiplyExact(cent, 10);
+        }
+        return negativ ? -cent : cent;
+    }
+
+    public long getCent() {
+        return cent;
+    }
+
+    public Money plus(Money m) {
+        return ofCent(Math.addExact(cent, m.cent));
+    }
+
+    public Money minus(Money m) {
+        return ofCent(Math.subtractExact(cent, m.cent));
+    }
+
+    public Money times(long faktor) {
+        return ofCent(Math.multiplyExact(cent, faktor));
+    }
+
+    public boolean isZero() {
+        return cent == 0;
+    }
+
+    /**
+     * Als BigDecimal ohne Nachkomma-Nullen, so wie Oracle NUMBER-Werte
+     * liefert: 19.00 wird 19, 19.50 wird 19.5.
+     */
+    public BigDecimal toBigDecimal() {
+        if (cent % 100 == 0) {
+            return BigDecimal.valueOf(cent / 100);
+        }
+        if (cent % 10 == 0) {
+            return BigDecimal.valueOf(cent / 10, 1);
+        }
+        return BigDecimal.valueOf(cent, 2);
+    }
+
+    /**
+     * Liest eine decimal(13,2)-Spalte; null wird zu {@code null}.
+     */
+    public static Money lese(ResultSet rs, String spalte) throws SQLException {
+        BigDecimal b = rs.getBigDecimal(spalte);
+        return b == null ? null : of(b);
+    }
+
+    /**
+     * Liest eine Spalte, die die Abfrage schon in Cent liefert, z.B.
+     * {@code round(Preis * 100)}. Erzeugt kein BigDecimal; null wird zu 0.
+     */
+    public static long leseCent(ResultSet rs, String spalte) throws SQLException {
+        return rs.getLong(spalte);
+    }
+
+    /**
+     * Wie {@link #leseCent(ResultSet, String)}, mit Spaltenindex.
+     */
+    public static long leseCent(ResultSet rs, int spalte) throws SQLException {
+        return rs.getLong(spalte);
+    }
+
+    public static void setze(PreparedStatement ps, int index, Money m) throws SQLException {
+        ps.setBigDecimal(index, BigDecimal.valueOf(m.cent, 2));
+    }
+
+    @Override
+    public int compareTo(Money o) {
+        return Long.compare(cent, o.cent);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Money && ((Money) o).cent == cent;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(cent);
+    }
+
+    @Override
+    public String toString() {
+        long betrag = Math.abs(cent);
+        String rest = betrag % 100 < 10 ? "0" + betrag % 100 : String.valueOf(betrag % 100);
+        return (cent < 0 ? "-" : "") + betrag / 100 + "." + rest;
+    }
+
+}
@@ -0,0 +1,54 @@
+package de.htwberlin.dbtech.utils;
+
+import org.junit.Assert;
+
+import java.math.BigDecimal;
+
+public class MoneyTest {
+
+    @org.junit.Test
+    public void parse() {
+        Assert.assertEquals(123450, Money.parseCent("1234.5"));
+        Assert.assertEquals(-700, Money.parseCent(" -7 "));
+        Assert.assertEquals(99, Money.parseCent("0.99"));
+        Assert.assertEquals(100, Money.parseCent("1."));
+        Assert.assertEquals(50, Money.parseCent(".5"));
+    }
+
+    @org.junit.Test(expected = NumberFormatException.class)
+    public void parseDreiNachkommastellen() {
+        Money.parseCent("1.001");
+    }
+
+    @org.junit.Test(expected = NumberFormatException.class)
+    public void parseLeer() {
+        Money.parseCent("-");
+    }
+
+    @org.junit.Test
+    public void bigDecimalWieOracle() {
+        Assert.assertEquals(BigDecimal.valueOf(19), Money.ofCent(1900).toBigDecimal());
+        Assert.assertEquals(BigDecimal.valueOf(20), Money.ofCent(2000).toBigDecimal());
+        Assert.assertEquals(BigDecimal.ZERO, Money.ofCent(0).toBigDecimal());
+        Assert.assertEquals(new BigDecimal("19.5"), Money.ofCent(1950).toBigDecimal());
+        Assert.assertEquals(new BigDecimal("-0.05"), Money.ofCent(-5).toBigDecimal());
+        Assert.assertEquals(Money.ofCent(1950), Money.of(new BigDecimal("19.50")));
+    }
+
+    @org.junit.Test(expected = ArithmeticException.class)
+    public void ueberlauf() {
+        Money.ofCent(Long.MAX_VALUE).plus(Money.ofCent(1));
+    }
+
+    @org.junit.Test(expected = ArithmeticException.class)
+    public void zuVieleNachkommastellen() {
+        Money.of(new BigDecimal("0.001"));
+    }
+
+    @org.junit.Test
+    public void text() {
+        Assert.assertEquals("12.05", Money.ofCent(1205).toString());
+        Assert.assertEquals("-0.50", Money.ofCent(-50).toString());
+    }
+
+}
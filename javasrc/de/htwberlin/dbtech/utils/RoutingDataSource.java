@@ -0,0 +1,326 @@
+package de.htwberlin.dbtech.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * DataSource, die Lesezugriffe an Replikate und Schreibzugriffe an die
+ * Primaerdatenbank weiterleitet.
+ * <p>
+ * Die gelieferten Connections entscheiden pro Statement: ist die Connection
+ * als read-only gekennzeichnet (z.B. durch
+ * {@link TransactionTemplate#readOnly(boolean)}), geht das Statement an ein
+ * Replikat, sonst an die Primaerdatenbank. Hat die laufende Transaktion
+ * bereits die Primaerdatenbank benutzt, bleiben auch Lesezugriffe bis zum
+ * Commit oder Rollback dort (read-your-writes). Gespeicherte Prozeduren
+ * laufen immer auf der Primaerdatenbank.
+ * <p>
+ * Replikate werden reihum gewaehlt. Die Replikat-Connection wird zu Beginn
+ * jeder lesenden Transaktion (im Auto-Commit-Modus vor jedem Statement)
+ * geprueft: mit {@link Connection#isValid(int)} und, falls gesetzt, mit der
+ * {@link Verzoegerung} gegen {@code maxVerzoegerungMillis}. Ein Replikat, das
+ * die Pruefung nicht besteht, wird fuer {@code sperrzeitMillis}
+ * uebersprungen und das naechste versucht; sind alle gesperrt, wird auf der
+ * Primaerdatenbank gelesen.
+ */
+public class RoutingDataSource implements DataSource {
+    private static final Logger L = LoggerFactory.getLogger(RoutingDataSource.class);
+    private static final int VALIDIERUNG_TIMEOUT_SEKUNDEN = 2;
+
+    private final DataSource primary;
+    private final List<Replikat> replikate = new ArrayList<>();
+    private final AtomicInteger naechstes = new AtomicInteger();
+    private final long sperrzeitMillis;
+    private Verzoegerung verzoegerung = null;
+    private long maxVerzoegerungMillis = Long.MAX_VALUE;
+
+    /**
+     * Ermittelt, wie weit ein Replikat hinter der Primaerdatenbank liegt, z.B.
+     * bei Oracle Active Data Guard ueber die "apply lag" aus
+     * {@code v$dataguard_stats}.
+     */
+    @FunctionalInterface
+    public interface Verzoegerung {
+        long millis(Connection replikat) throws SQLException;
+    }
+
+    private static class Replikat {
+        final DataSource dataSource;
+        volatile long gesperrtBis = 0;
+
+        Replikat(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+    }
+
+    public RoutingDataSource(DataSource primary, List<DataSource> replikate) {
+        this(primary, replikate, 5000);
+    }
+
+    public RoutingDataSource(DataSource primary, List<DataSource> replikate, long sperrzeitMillis) {
+        this.primary = primary;
+        for (DataSource ds : replikate) {
+            this.replikate.add(new Replikat(ds));
+        }
+        this.sperrzeitMillis = sperrzeitMillis;
+    }
+
+    /**
+     * Replikate, die weiter als {@code maxVerzoegerungMillis} hinter der
+     * Primaerdatenbank liegen, werden wie ungueltige uebersprungen.
+     */
+    public void setMaxVerzoegerung(Verzoegerung verzoegerung, long maxVerzoegerungMillis) {
+        this.verzoegerung = verzoegerung;
+        this.maxVerzoegerungMillis = maxVerzoegerungMillis;
+    }
+
+    @Override
+    public Connection getConnection() {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new RoutingConnection());
+    }
+
+    /**
+     * true, wenn die Connection von einer RoutingDataSource stammt.
+     */
+    public static boolean istRoutingConnection(Connection connection) {
+        return Proxy.isProxyClass(connection.getClass())
+                && Proxy.getInvocationHandler(connection) instanceof RoutingConnection;
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("credentials are configured per target DataSource");
+    }
+
+    /**
+     * Waehlt reihum ein nicht gesperrtes Replikat, dessen Connection die
+     * Pruefung besteht; null, wenn kein Replikat verfuegbar ist.
+     */
+    private Replikat waehleReplikat(Connection[] connection) {
+        int anzahl = replikate.size();
+        for (int versuch = 0; versuch < anzahl; versuch++) {
+            Replikat r = replikate.get(Math.floorMod(naechstes.getAndIncrement(), anzahl));
+            if (System.currentTimeMillis() < r.gesperrtBis) {
+                continue;
+            }
+            Connection c = null;
+            try {
+                c = r.dataSource.getConnection();
+            } catch (SQLException | RuntimeException e) {
+                L.warn("replica not reachable, skipping replica for " + sperrzeitMillis + " ms", e);
+                r.gesperrtBis = System.currentTimeMillis() + sperrzeitMillis;
+                continue;
+            }
+            if (brauchbar(r, c)) {
+                connection[0] = c;
+                return r;
+            }
+            JdbcUtils.closeConnectionQuietly(c);
+        }
+        return null;
+    }
+
+    // prueft Gueltigkeit und Verzoegerung; sperrt das Replikat, wenn es nicht brauchbar ist
+    private boolean brauchbar(Replikat r, Connection c) {
+        try {
+            if (!c.isValid(VALIDIERUNG_TIMEOUT_SEKUNDEN)) {
+                L.warn("replica connection invalid, skipping replica for {} ms", sperrzeitMillis);
+            } else if (verzoegerung == null) {
+                return true;
+            } else {
+                long millis = verzoegerung.millis(c);
+                if (millis <= maxVerzoegerungMillis) {
+                    return true;
+                }
+                L.warn("replica lags {} ms behind, skipping replica for {} ms", millis, sperrzeitMillis);
+            }
+        } catch (SQLException | RuntimeException e) {
+            L.warn("replica check failed, skipping replica for " + sperrzeitMillis + " ms", e);
+        }
+        r.gesperrtBis = System.currentTimeMillis() + sperrzeitMillis;
+        return false;
+    }
+
+    /**
+     * Zustand einer ausgelieferten Connection. Auto-Commit, Isolationsstufe und
+     * Read-Only werden lokal gehalten, damit reine Lesezugriffe keine
+     * Connection zur Primaerdatenbank oeffnen.
+     */
+    private class RoutingConnection implements InvocationHandler {
+        private Connection primaryConnection = null;
+        private Connection replikatConnection = null;
+        private Replikat replikat = null;
+        // Replikat-Connection fuer die laufende Transaktion schon geprueft
+        private boolean replikatGeprueft = false;
+        private boolean autoCommit = true;
+        private Integer isolation = null;
+        private boolean readOnly = false;
+        private boolean primaryInTransaktion = false;
+        private boolean closed = false;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "createStatement":
+                case "prepareStatement":
+                    Object statement = aufrufen(readOnly && !primaryInTransaktion ? lesend() : schreibend(), method,
+                            args);
+                    if (autoCommit) {
+                        // jedes Statement ist eine eigene Transaktion
+                        replikatGeprueft = false;
+                    }
+                    return statement;
+                case "prepareCall":
+                    return aufrufen(schreibend(), method, args);
+                case "setReadOnly":
+                    readOnly = (Boolean) args[0];
+                    return null;
+                case "isReadOnly":
+                    return readOnly;
+                case "setAutoCommit":
+                    autoCommit = (Boolean) args[0];
+                    if (primaryConnection != null) {
+                        primaryConnection.setAutoCommit(autoCommit);
+                    }
+                    if (autoCommit) {
+                        primaryInTransaktion = false;
+                        replikatGeprueft = false;
+                    }
+                    return null;
+                case "getAutoCommit":
+                    return autoCommit;
+                case "setTransactionIsolation":
+                    isolation = (Integer) args[0];
+                    if (primaryConnection != null) {
+                        primaryConnection.setTransactionIsolation(isolation);
+                    }
+                    return null;
+                case "getTransactionIsolation":
+                    return isolation != null ? isolation : primary().getTransactionIsolation();
+                case "commit":
+                case "rollback":
+                    if (primaryConnection != null && !autoCommit) {
+                        aufrufen(primaryConnection, method, args);
+                    }
+                    primaryInTransaktion = false;
+                    replikatGeprueft = false;
+                    return null;
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        JdbcUtils.closeConnectionQuietly(replikatConnection);
+                        JdbcUtils.closeConnectionQuietly(primaryConnection);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "toString":
+                    return "RoutingConnection[primary=" + primaryConnection + ", replica=" + replikatConnection + "]";
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    return aufrufen(primary(), method, args);
+            }
+        }
+
+        private Connection lesend() throws SQLException {
+            if (replikatConnection != null && !replikatGeprueft && !brauchbar(replikat, replikatConnection)) {
+                JdbcUtils.closeConnectionQuietly(replikatConnection);
+                replikatConnection = null;
+            }
+            if (replikatConnection == null) {
+                Connection[] c = new Connection[1];
+                replikat = waehleReplikat(c);
+                replikatConnection = c[0];
+                if (replikatConnection == null) {
+                    L.debug("no replica available, reading from primary");
+                    return primary();
+                }
+            }
+            replikatGeprueft = true;
+            return replikatConnection;
+        }
+
+        private Connection schreibend() throws SQLException {
+            Connection c = primary();
+            if (!autoCommit) {
+                primaryInTransaktion = true;
+            }
+            return c;
+        }
+
+        private Connection primary() throws SQLException {
+            if (primaryConnection == null) {
+                primaryConnection = primary.getConnection();
+                primaryConnection.setAutoCommit(autoCommit);
+                if (isolation != null) {
+                    primaryConnection.setTransactionIsolation(isolation);
+                }
+            }
+            return primaryConnection;
+        }
+
+        private Object aufrufen(Connection ziel, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(ziel, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return primary.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        primary.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        primary.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return primary.getLoginTimeout();
+    }
+
+    @Override
+    public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        return primary.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || primary.isWrapperFor(iface);
+    }
+
+}
@@ -0,0 +1,155 @@
+package de.htwberlin.dbtech.utils;
+
+import org.junit.Assert;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Prueft die Weiterleitung mit drei Attrappen-Datenbanken, die nur
+ * protokollieren, welche Statements bei ihnen vorbereitet wurden.
+ */
+public class RoutingDataSourceTest {
+    private final List<String> protokoll = new ArrayList<>();
+    private DataSource primary;
+    private DataSource replikat1;
+    private DataSource replikat2;
+    private boolean replikat2Gueltig;
+
+    @org.junit.Before
+    public void setUp() {
+        protokoll.clear();
+        replikat2Gueltig = true;
+        primary = attrappe("primary", () -> true);
+        replikat1 = attrappe("replikat1", () -> true);
+        replikat2 = attrappe("replikat2", () -> replikat2Gueltig);
+    }
+
+    private interface Gueltigkeit {
+        boolean gueltig();
+    }
+
+    private DataSource attrappe(String name, Gueltigkeit gueltigkeit) {
+        Connection connection = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "prepareStatement":
+                            protokoll.add(name + ": " + args[0]);
+                            return Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                                    new Class<?>[]{PreparedStatement.class}, (p, m, a) -> null);
+                        case "isValid":
+                            return gueltigkeit.gueltig();
+                        case "getAutoCommit":
+                        case "isClosed":
+                            return false;
+                        case "getTransactionIsolation":
+                            return Connection.TRANSACTION_READ_COMMITTED;
+                        default:
+                            return null;
+                    }
+                });
+        return (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(),
+                new Class<?>[]{DataSource.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("getConnection")) {
+                        return connection;
+                    }
+                    return null;
+                });
+    }
+
+    private void lese(RoutingDataSource ds, String sql) throws SQLException {
+        try (Connection c = ds.getConnection()) {
+            TransactionTemplate.lesend(c).run(x -> x.prepareStatement(sql));
+        }
+    }
+
+    @org.junit.Test
+    public void leseZugriffeGehenReihumAnReplikate() throws SQLException {
+        RoutingDataSource ds = new RoutingDataSource(primary, List.of(replikat1, replikat2));
+        lese(ds, "q1");
+        lese(ds, "q2");
+        lese(ds, "q3");
+        Assert.assertEquals(List.of("replikat1: q1", "replikat2: q2", "replikat1: q3"), protokoll);
+    }
+
+    @org.junit.Test
+    public void schreibzugriffeGehenAnPrimary() throws SQLException {
+        RoutingDataSource ds = new RoutingDataSource(primary, List.of(replikat1, replikat2));
+        try (Connection c = ds.getConnection()) {
+            TransactionTemplate.of(c).run(x -> x.prepareStatement("insert"));
+        }
+        Assert.assertEquals(List.of("primary: insert"), protokoll);
+    }
+
+    @org.junit.Test
+    public void nachSchreibenLiestDieTransaktionVonPrimary() throws SQLException {
+        RoutingDataSource ds = new RoutingDataSource(primary, List.of(replikat1));
+        try (Connection c = ds.getConnection()) {
+            c.setAutoCommit(false);
+            c.prepareStatement("insert");
+            c.setReadOnly(true);
+            c.prepareStatement("select in tx");
+            c.commit();
+            c.prepareStatement("select after commit");
+        }
+        Assert.assertEquals(List.of("primary: insert", "primary: select in tx", "replikat1: select after commit"),
+                protokoll);
+    }
+
+    @org.junit.Test
+    public void ungueltigesReplikatWirdUebersprungen() throws SQLException {
+        replikat2Gueltig = false;
+        RoutingDataSource ds = new RoutingDataSource(primary, List.of(replikat2, replikat1));
+        lese(ds, "q1");
+        lese(ds, "q2");
+        Assert.assertEquals(List.of("replikat1: q1", "replikat1: q2"), protokoll);
+    }
+
+    @org.junit.Test
+    public void lesendOhneRoutingOhneTransaktion() throws SQLException {
+        Connection c = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    protokoll.add(method.getName());
+                    return null;
+                });
+        Assert.assertFalse(RoutingDataSource.istRoutingConnection(c));
+        TransactionTemplate.lesend(c).run(x -> x.prepareStatement("q1"));
+        Assert.assertEquals(List.of("prepareStatement"), protokoll);
+    }
+
+    @org.junit.Test
+    public void ohneGueltigesReplikatLiestPrimary() throws SQLException {
+        replikat2Gueltig = false;
+        RoutingDataSource ds = new RoutingDataSource(primary, List.of(replikat2));
+        lese(ds, "q1");
+        Assert.assertEquals(List.of("primary: q1"), protokoll);
+    }
+
+    @org.junit.Test
+    public void replikatWirdJeTransaktionGeprueft() throws SQLException {
+        RoutingDataSource ds = new RoutingDataSource(primary, List.of(replikat2));
+        try (Connection c = ds.getConnection()) {
+            TransactionTemplate.lesend(c).run(x -> x.prepareStatement("q1"));
+            replikat2Gueltig = false;
+            TransactionTemplate.lesend(c).run(x -> x.prepareStatement("q2"));
+        }
+        Assert.assertEquals(List.of("replikat2: q1", "primary: q2"), protokoll);
+    }
+
+    @org.junit.Test
+    public void verzoegertesReplikatWirdUebersprungen() throws SQLException {
+        long[] verzoegerung = {5000};
+        RoutingDataSource ds = new RoutingDataSource(primary, List.of(replikat1), 0);
+        ds.setMaxVerzoegerung(c -> verzoegerung[0], 1000);
+        lese(ds, "q1");
+        verzoegerung[0] = 200;
+        lese(ds, "q2");
+        Assert.assertEquals(List.of("primary: q1", "replikat1: q2"), protokoll);
+    }
+
+}
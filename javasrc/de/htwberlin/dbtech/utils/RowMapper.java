@@ -0,0 +1,90 @@
+package de.htwberlin.dbtech.utils;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bildet die aktuelle Zeile eines ResultSets auf ein Objekt ab und liest
+ * dabei nur ueber Spaltenindizes.
+ * <p>
+ * Die Zuordnung von Spaltennamen zu Indizes macht eine {@link Factory}
+ * einmal je ausgefuehrter Abfrage ueber {@link Spalten}; der zurueckgegebene
+ * RowMapper haelt die Indizes und wird fuer jede Zeile aufgerufen. So kostet
+ * nicht jede Zeile und Spalte eine Namenssuche im Treiber, und die Mapper
+ * bleiben trotzdem unabhaengig von der Spaltenreihenfolge der Abfrage.
+ *
+ * <pre>
+ * public static final RowMapper.Factory&lt;Raum&gt; MAPPER = rs -&gt; {
+ *     Spalten s = Spalten.von(rs);
+ *     int rid = s.index("RID"), raumNr = s.index("RaumNr"), sitze = s.index("AnzahlSitze");
+ *     return r -&gt; new Raum(r.getInt(rid), r.getString(raumNr), r.getInt(sitze));
+ * };
+ *
+ * List&lt;Raum&gt; raeume = RowMapper.alle(ps.executeQuery(), Raum.MAPPER);
+ * </pre>
+ * Fuer Anweisungen, die oft mit wenigen Zeilen laufen, loest
+ * {@link #jeAnweisung(Factory)} die Spalten nur beim ersten Mal auf.
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+
+    T mapRow(ResultSet rs) throws SQLException;
+
+    /**
+     * Loest die Spalten eines ResultSets auf und liefert den passenden
+     * RowMapper.
+     */
+    @FunctionalInterface
+    interface Factory<T> {
+        RowMapper<T> fuer(ResultSet rs) throws SQLException;
+    }
+
+    /**
+     * Factory, die die Spalten nur bei der ersten Ausfuehrung aufloest und
+     * den RowMapper danach wiederverwendet. Nur fuer eine einzige
+     * SQL-Anweisung mit fester Spaltenliste verwenden, am besten als
+     * Konstante neben dem SQL-Text; der Mapper darf sich dafuer nur die
+     * Indizes merken, nicht das ResultSet.
+     */
+    static <T> Factory<T> jeAnweisung(Factory<T> factory) {
+        return new Factory<T>() {
+            // mehrere Threads koennen gleichzeitig aufloesen, das Ergebnis ist dasselbe
+            private volatile RowMapper<T> mapper = null;
+
+            @Override
+            public RowMapper<T> fuer(ResultSet rs) throws SQLException {
+                RowMapper<T> m = mapper;
+                if (m == null) {
+                    m = factory.fuer(rs);
+                    mapper = m;
+                }
+                return m;
+            }
+        };
+    }
+
+    /**
+     * Alle restlichen Zeilen.
+     */
+    static <T> List<T> alle(ResultSet rs, Factory<T> factory) throws SQLException {
+        List<T> ergebnis = new ArrayList<>();
+        RowMapper<T> mapper = null;
+        while (rs.next()) {
+            if (mapper == null) {
+                mapper = factory.fuer(rs);
+            }
+            ergebnis.add(mapper.mapRow(rs));
+        }
+        return ergebnis;
+    }
+
+    /**
+     * Die naechste Zeile oder null, wenn es keine gibt.
+     */
+    static <T> T erste(ResultSet rs, Factory<T> factory) throws SQLException {
+        return rs.next() ? factory.fuer(rs).mapRow(rs) : null;
+    }
+
+}
@@ -0,0 +1,44 @@
+package de.htwberlin.dbtech.utils;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Locale;
+
+/**
+ * Spaltenindizes eines ResultSets nach Namen, einmal aus den Metadaten
+ * gelesen. Namen werden wie in SQL ohne Beachtung der Gross- und
+ * Kleinschreibung verglichen; massgeblich ist das Label, also ein
+ * eventueller Alias.
+ */
+public final class Spalten {
+    private final String[] namen;
+
+    private Spalten(String[] namen) {
+        this.namen = namen;
+    }
+
+    public static Spalten von(ResultSet rs) throws SQLException {
+        ResultSetMetaData md = rs.getMetaData();
+        String[] namen = new String[md.getColumnCount()];
+        for (int i = 0; i < namen.length; i++) {
+            namen[i] = md.getColumnLabel(i + 1).toUpperCase(Locale.ROOT);
+        }
+        return new Spalten(namen);
+    }
+
+    /**
+     * Index (ab 1) der Spalte fuer die getXxx(int)-Methoden.
+     *
+     * @throws SQLException wenn die Abfrage die Spalte nicht liefert.
+     */
+    public int index(String name) throws SQLException {
+        for (int i = 0; i < namen.length; i++) {
+            if (namen[i].equalsIgnoreCase(name)) {
+                return i + 1;
+            }
+        }
+        throw new SQLException("Spalte " + name + " nicht im Ergebnis: " + String.join(", ", namen));
+    }
+
+}
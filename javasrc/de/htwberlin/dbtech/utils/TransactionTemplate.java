@@ -0,0 +1,207 @@
+package de.htwberlin.dbtech.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fuehrt Datenbankarbeit innerhalb expliziter Transaktionsgrenzen aus.
+ * <p>
+ * Steht die Connection im Auto-Commit-Modus, wird eine Transaktion begonnen,
+ * nach erfolgreicher Ausfuehrung mit einem einzigen Commit abgeschlossen und
+ * bei jeder Exception zurueckgerollt. Danach werden Auto-Commit,
+ * Isolationsstufe und Read-Only-Hinweis wieder hergestellt.
+ * <p>
+ * Hat der Aufrufer bereits eine Transaktion geoeffnet (Auto-Commit aus, z.B.
+ * durch {@link GroupCommit}), nimmt die Arbeit daran teil: es wird weder
+ * committet noch zurueckgerollt, das bleibt dem Aufrufer ueberlassen.
+ * Was erst nach dem Commit geschehen darf, z.B. einen Cache invalidieren,
+ * meldet die Arbeit deshalb mit {@link #nachCommit} an.
+ *
+ * <pre>
+ * TransactionTemplate.of(connection)
+ *         .isolation(Connection.TRANSACTION_SERIALIZABLE)
+ *         .run(c -&gt; { ... });
+ * </pre>
+ */
+public class TransactionTemplate {
+    private static final Logger L = LoggerFactory.getLogger(TransactionTemplate.class);
+
+    @FunctionalInterface
+    public interface TransactionCallback<T> {
+        T doInTransaction(Connection connection) throws SQLException;
+    }
+
+    @FunctionalInterface
+    public interface TransactionAction {
+        void doInTransaction(Connection connection) throws SQLException;
+    }
+
+    // angemeldete Aktionen je Connection mit offener Transaktion
+    private static final Map<Connection, List<Runnable>> NACH_COMMIT =
+            Collections.synchronizedMap(new IdentityHashMap<>());
+
+    private final Connection connection;
+    private Integer isolationLevel = null;
+    private boolean readOnly = false;
+    private boolean direkt = false;
+
+    public TransactionTemplate(Connection connection) {
+        this.connection = connection;
+    }
+
+    public static TransactionTemplate of(Connection connection) {
+        return new TransactionTemplate(connection);
+    }
+
+    /**
+     * Fuer reine Lesemethoden ohne Anspruch auf Lesekonsistenz ueber mehrere
+     * Anweisungen. An einer Connection aus {@link RoutingDataSource} wie
+     * {@code readOnly(true)}, damit die Anweisungen an ein Replikat gehen; an
+     * jeder anderen Connection laeuft die Arbeit direkt, ohne die fuenf
+     * zusaetzlichen Aufrufe einer eigenen Read-Only-Transaktion.
+     */
+    public static TransactionTemplate lesend(Connection connection) {
+        TransactionTemplate t = of(connection).readOnly(true);
+        t.direkt = !RoutingDataSource.istRoutingConnection(connection);
+        return t;
+    }
+
+    /**
+     * Fuehrt die Aktion aus, sobald die bisherige Arbeit auf der Connection
+     * committet ist: im Auto-Commit-Modus sofort, sonst nach dem Commit der
+     * offenen Transaktion durch ein TransactionTemplate oder einen
+     * {@link GroupCommit}. Bei einem Rollback entfaellt sie. Wer eine
+     * Transaktion selbst committet oder zurueckrollt, ruft danach
+     * {@link #committet} bzw. {@link #zurueckgerollt} auf.
+     */
+    public static void nachCommit(Connection connection, Runnable aktion) throws SQLException {
+        if (connection.getAutoCommit()) {
+            aktion.run();
+            return;
+        }
+        NACH_COMMIT.computeIfAbsent(connection, c -> new ArrayList<>()).add(aktion);
+    }
+
+    /**
+     * Fuehrt die mit {@link #nachCommit} angemeldeten Aktionen aus.
+     */
+    public static void committet(Connection connection) {
+        List<Runnable> aktionen = NACH_COMMIT.remove(connection);
+        if (aktionen == null) {
+            return;
+        }
+        for (Runnable aktion : aktionen) {
+            try {
+                aktion.run();
+            } catch (RuntimeException e) {
+                // der Commit ist geschehen, der Aufrufer darf keinen Fehler sehen
+                L.error("Aktion nach dem Commit fehlgeschlagen", e);
+            }
+        }
+    }
+
+    /**
+     * Verwirft die mit {@link #nachCommit} angemeldeten Aktionen.
+     */
+    public static void zurueckgerollt(Connection connection) {
+        NACH_COMMIT.remove(connection);
+    }
+
+    /**
+     * Isolationsstufe fuer eigene Transaktionen, z.B.
+     * {@link Connection#TRANSACTION_SERIALIZABLE}. Ohne Angabe bleibt die
+     * Stufe der Connection unveraendert.
+     */
+    public TransactionTemplate isolation(int isolationLevel) {
+        this.isolationLevel = isolationLevel;
+        return this;
+    }
+
+    /**
+     * Kennzeichnet die Arbeit als rein lesend. Der Hinweis wird an die
+     * Connection weitergegeben und kann vom Treiber oder einer
+     * weiterleitenden DataSource ausgewertet werden.
+     */
+    public TransactionTemplate readOnly(boolean readOnly) {
+        this.readOnly = readOnly;
+        return this;
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    public void run(TransactionAction action) throws SQLException {
+        execute(c -> {
+            action.doInTransaction(c);
+            return null;
+        });
+    }
+
+    public <T> T execute(TransactionCallback<T> callback) throws SQLException {
+        if (direkt) {
+            return callback.doInTransaction(connection);
+        }
+        if (!connection.getAutoCommit()) {
+            L.debug("joining existing transaction");
+            return callback.doInTransaction(connection);
+        }
+
+        // Isolationsstufe nur abfragen, wenn sie geaendert werden soll
+        Integer vorherigeIsolation = isolationLevel != null ? connection.getTransactionIsolation() : null;
+        boolean vorherReadOnly = connection.isReadOnly();
+        connection.setAutoCommit(false);
+        try {
+            if (isolationLevel != null && !isolationLevel.equals(vorherigeIsolation)) {
+                connection.setTransactionIsolation(isolationLevel);
+            }
+            if (readOnly != vorherReadOnly) {
+                connection.setReadOnly(readOnly);
+            }
+            L.debug("transaction begin");
+            T result;
+            try {
+                result = callback.doInTransaction(connection);
+            } catch (Throwable t) {
+                rollbackQuietly();
+                throw t;
+            }
+            connection.commit();
+            L.debug("transaction commit");
+            committet(connection);
+            return result;
+        } finally {
+            restore(vorherigeIsolation, vorherReadOnly);
+        }
+    }
+
+    private void rollbackQuietly() {
+        try {
+            connection.rollback();
+            L.debug("transaction rollback");
+            zurueckgerollt(connection);
+        } catch (SQLException e) {
+            // urspruengliche Exception hat Vorrang, nur protokollieren
+            L.error("rollback failed", e);
+        }
+    }
+
+    private void restore(Integer isolation, boolean readOnlyHinweis) throws SQLException {
+        if (connection.isReadOnly() != readOnlyHinweis) {
+            connection.setReadOnly(readOnlyHinweis);
+        }
+        if (isolation != null && connection.getTransactionIsolation() != isolation) {
+            connection.setTransactionIsolation(isolation);
+        }
+        connection.setAutoCommit(true);
+    }
+
+}
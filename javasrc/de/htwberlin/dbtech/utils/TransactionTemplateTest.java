@@ -0,0 +1,84 @@
+package de.htwberlin.dbtech.utils;
+
+import org.junit.Assert;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Prueft, wann mit {@link TransactionTemplate#nachCommit} angemeldete
+ * Aktionen laufen, an einer Attrappen-Connection, die Commits und Rollbacks
+ * protokolliert.
+ */
+public class TransactionTemplateTest {
+    private final List<String> protokoll = new ArrayList<>();
+    private boolean autoCommit = true;
+
+    private Connection attrappe() {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getAutoCommit":
+                            return autoCommit;
+                        case "setAutoCommit":
+                            autoCommit = (Boolean) args[0];
+                            return null;
+                        case "commit":
+                        case "rollback":
+                            protokoll.add(method.getName());
+                            return null;
+                        case "isReadOnly":
+                            return false;
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    @org.junit.Test
+    public void eigeneTransaktionLaeuftNachDemCommit() throws SQLException {
+        Connection c = attrappe();
+        TransactionTemplate.of(c).run(x -> {
+            TransactionTemplate.nachCommit(x, () -> protokoll.add("aktion"));
+            protokoll.add("arbeit");
+        });
+        Assert.assertEquals(List.of("arbeit", "commit", "aktion"), protokoll);
+    }
+
+    @org.junit.Test
+    public void offeneTransaktionDesAufrufersWartetAufGroupCommit() throws SQLException {
+        Connection c = attrappe();
+        try (GroupCommit gc = new GroupCommit(c, 2, 60_000)) {
+            TransactionTemplate.of(c).run(x -> TransactionTemplate.nachCommit(x, () -> protokoll.add("aktion 1")));
+            Assert.assertFalse(gc.operationAbgeschlossen());
+            Assert.assertEquals(List.of(), protokoll);
+            TransactionTemplate.of(c).run(x -> TransactionTemplate.nachCommit(x, () -> protokoll.add("aktion 2")));
+            Assert.assertTrue(gc.operationAbgeschlossen());
+        }
+        Assert.assertEquals(List.of("commit", "aktion 1", "aktion 2"), protokoll);
+    }
+
+    @org.junit.Test
+    public void rollbackVerwirftAktionen() throws SQLException {
+        Connection c = attrappe();
+        try {
+            TransactionTemplate.of(c).run(x -> {
+                TransactionTemplate.nachCommit(x, () -> protokoll.add("aktion"));
+                throw new SQLException("fehlgeschlagen");
+            });
+            Assert.fail();
+        } catch (SQLException e) {
+            Assert.assertEquals("fehlgeschlagen", e.getMessage());
+        }
+        TransactionTemplate.of(c).run(x -> protokoll.add("arbeit"));
+        Assert.assertEquals(List.of("rollback", "arbeit", "commit"), protokoll);
+    }
+
+}
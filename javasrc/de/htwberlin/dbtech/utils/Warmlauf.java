@@ -0,0 +1,296 @@
+package de.htwberlin.dbtech.utils;
+
+import de.htwberlin.dbtech.exceptions.DataException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Aufwaermphase beim Start der Anwendung, damit die ersten Anfragen nicht
+ * Treiberladen, Verbindungsaufbau und Parsen der Anweisungen bezahlen.
+ * <p>
+ * {@link #laufe()} laedt den Treiber, oeffnet alle
+ * {@link ConnectionPool#getMaxConnections()} Connections des Pools, prueft
+ * jede mit {@link #SQL_PRUEFUNG} und bereitet auf jeder die mit
+ * {@link #setStatements} gesetzten Anweisungen vor. Bei Abfragen
+ * wird dabei {@link PreparedStatement#getMetaData()} gelesen; Oracle muss
+ * sie dafuer parsen, spaetere Ausfuehrungen finden den Cursor im Shared
+ * Pool. Mit {@link #setPlanPruefung} prueft {@link ExplainPlanCheck}
+ * danach die Ausfuehrungsplaene. Dann laufen die mit {@link #schritt}
+ * angemeldeten Schritte, z.B. das Laden der Referenzdaten, und zum Schluss
+ * noch einmal die Pruefung. Welche Anweisungen es gibt, weiss nur der Start
+ * der Anwendung, siehe {@code de.htwberlin.dbtech.start.Anwendungsstart}.
+ * <p>
+ * Erst danach meldet {@link #isBereit()} true; {@link #pruefe(long)} ist die
+ * laufende Gesundheitspruefung fuer spaeter.
+ */
+public class Warmlauf {
+    private static final Logger L = LoggerFactory.getLogger(Warmlauf.class);
+
+    public static final String SQL_PRUEFUNG = "select 1 from dual";
+
+    private static final long TIMEOUT_MILLIS = 30_000;
+
+    private final ConnectionPool pool;
+    private String treiber = null;
+    private Collection<String> statements = List.of();
+    private Collection<String> planStatements = List.of();
+    private boolean planStreng = false;
+    private final Map<String, Runnable> schritte = new LinkedHashMap<>();
+    private volatile boolean bereit = false;
+    private volatile Ergebnis ergebnis = null;
+
+    /**
+     * Dauer der einzelnen Phasen in Millisekunden, in der Reihenfolge ihrer
+     * Ausfuehrung.
+     */
+    public static final class Ergebnis {
+        private final Map<String, Long> phasen = new LinkedHashMap<>();
+        private int anzahlConnections;
+        private int anzahlVorbereitet;
+        private final List<String> fehlgeschlagen = new ArrayList<>();
+        private final List<ExplainPlanCheck.Befund> tabellenscans = new ArrayList<>();
+
+        public Map<String, Long> getPhasen() {
+            return phasen;
+        }
+
+        public long getGesamtMillis() {
+            long summe = 0;
+            for (long millis : phasen.values()) {
+                summe += millis;
+            }
+            return summe;
+        }
+
+        public int getAnzahlConnections() {
+            return anzahlConnections;
+        }
+
+        /**
+         * Vorbereitete Anweisungen ueber alle Connections.
+         */
+        public int getAnzahlVorbereitet() {
+            return anzahlVorbereitet;
+        }
+
+        /**
+         * Anweisungen, die sich nicht vorbereiten liessen, z.B. weil die
+         * Tabellen im Schema fehlen.
+         */
+        public List<String> getFehlgeschlagen() {
+            return fehlgeschlagen;
+        }
+
+        /**
+         * Vollstaendige Tabellenscans aus der Plan-Pruefung.
+         */
+        public List<ExplainPlanCheck.Befund> getTabellenscans() {
+            return tabellenscans;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(anzahlConnections).append(" Connections, ").append(anzahlVorbereitet).append(" Anweisungen vorbereitet");
+            if (!fehlgeschlagen.isEmpty()) {
+                sb.append(" (").append(fehlgeschlagen.size()).append(" fehlgeschlagen)");
+            }
+            if (!tabellenscans.isEmpty()) {
+                sb.append(", ").append(tabellenscans.size()).append(" Tabellenscans");
+            }
+            phasen.forEach((phase, millis) -> sb.append(", ").append(phase).append(' ').append(millis).append(" ms"));
+            return sb.append(", gesamt ").append(getGesamtMillis()).append(" ms").toString();
+        }
+    }
+
+    public Warmlauf(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Treiberklasse, die vor dem ersten Verbindungsaufbau geladen wird.
+     */
+    public void setTreiber(String treiber) {
+        this.treiber = treiber;
+    }
+
+    /**
+     * Anweisungen, die auf jeder Connection vorbereitet werden.
+     */
+    public void setStatements(Collection<String> statements) {
+        this.statements = statements;
+    }
+
+    /**
+     * Prueft nach dem Vorbereiten die Plaene der Anweisungen mit
+     * {@link ExplainPlanCheck}. Tabellenscans stehen im Log und im
+     * {@link Ergebnis}; bei {@code streng} wird die Anwendung dann nicht
+     * bereit.
+     */
+    public void setPlanPruefung(Collection<String> statements, boolean streng) {
+        this.planStatements = statements;
+        this.planStreng = streng;
+    }
+
+    /**
+     * Meldet einen Schritt an, der nach dem Vorbereiten der Anweisungen
+     * laeuft, z.B. {@code () -> referenzdaten.starte(60_000)}. Scheitert er,
+     * wird die Anwendung nicht bereit.
+     */
+    public void schritt(String name, Runnable aktion) {
+        schritte.put(name, aktion);
+    }
+
+    /**
+     * Fuehrt die Aufwaermphase aus.
+     *
+     * @throws DataException wenn eine Connection nicht geoeffnet oder
+     *                       geprueft werden kann; die Anwendung ist dann
+     *                       nicht bereit.
+     */
+    public synchronized Ergebnis laufe() {
+        Ergebnis e = new Ergebnis();
+        if (treiber != null) {
+            long start = System.nanoTime();
+            JdbcUtils.loadDriver(treiber);
+            e.phasen.put("Treiber", millisSeit(start));
+        }
+        List<Connection> connections = new ArrayList<>();
+        try {
+            // alle gleichzeitig holen, sonst liefert der Pool immer dieselbe
+            long start = System.nanoTime();
+            for (int i = 0; i < pool.getMaxConnections(); i++) {
+                Connection c = pool.acquire(TIMEOUT_MILLIS);
+                try {
+                    pruefe(c);
+                } catch (SQLException ex) {
+                    pool.discard(c);
+                    throw ex;
+                }
+                connections.add(c);
+            }
+            e.anzahlConnections = connections.size();
+            e.phasen.put("Connections", millisSeit(start));
+
+            start = System.nanoTime();
+            for (Connection c : connections) {
+                for (String sql : statements) {
+                    if (bereite(c, sql)) {
+                        e.anzahlVorbereitet++;
+                    } else if (!e.fehlgeschlagen.contains(sql)) {
+                        e.fehlgeschlagen.add(sql);
+                    }
+                }
+            }
+            e.phasen.put("Anweisungen", millisSeit(start));
+
+            if (!planStatements.isEmpty()) {
+                start = System.nanoTime();
+                e.tabellenscans.addAll(new ExplainPlanCheck(connections.get(0)).pruefe(planStatements));
+                e.phasen.put("Plaene", millisSeit(start));
+                if (planStreng && !e.tabellenscans.isEmpty()) {
+                    throw new DataException(e.tabellenscans.size() + " Tabellenscans, siehe Log");
+                }
+            }
+        } catch (SQLException ex) {
+            L.error("Aufwaermen fehlgeschlagen", ex);
+            throw new DataException(ex);
+        } finally {
+            for (Connection c : connections) {
+                pool.release(c);
+            }
+        }
+
+        for (Map.Entry<String, Runnable> s : schritte.entrySet()) {
+            long start = System.nanoTime();
+            s.getValue().run();
+            e.phasen.put(s.getKey(), millisSeit(start));
+        }
+
+        long start = System.nanoTime();
+        if (!pruefe(TIMEOUT_MILLIS)) {
+            throw new DataException("Pruefung nach dem Aufwaermen fehlgeschlagen");
+        }
+        e.phasen.put("Pruefung", millisSeit(start));
+
+        ergebnis = e;
+        bereit = true;
+        L.info("bereit: " + e);
+        return e;
+    }
+
+    /**
+     * true, sobald {@link #laufe()} vollstaendig durchgelaufen ist.
+     */
+    public boolean isBereit() {
+        return bereit;
+    }
+
+    /**
+     * Ergebnis von {@link #laufe()} oder null, solange nicht bereit.
+     */
+    public Ergebnis getErgebnis() {
+        return ergebnis;
+    }
+
+    /**
+     * Gesundheitspruefung: fuehrt {@link #SQL_PRUEFUNG} auf einer Connection
+     * des Pools aus. Eine Connection, auf der das scheitert, wird verworfen.
+     */
+    public boolean pruefe(long timeoutMillis) {
+        Connection c;
+        try {
+            c = pool.acquire(timeoutMillis);
+        } catch (SQLException e) {
+            L.warn("Pruefung: keine Connection: " + e.getMessage());
+            return false;
+        }
+        try {
+            pruefe(c);
+        } catch (SQLException e) {
+            L.warn("Pruefung fehlgeschlagen: " + e.getMessage());
+            pool.discard(c);
+            return false;
+        }
+        pool.release(c);
+        return true;
+    }
+
+    private static void pruefe(Connection c) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(SQL_PRUEFUNG);
+             ResultSet rs = ps.executeQuery()) {
+            if (!rs.next()) {
+                throw new SQLException(SQL_PRUEFUNG + " lieferte keine Zeile");
+            }
+        }
+    }
+
+    private static boolean bereite(Connection c, String sql) {
+        try (PreparedStatement ps = c.prepareStatement(sql)) {
+            String anfang = sql.trim().toLowerCase(Locale.ROOT);
+            if (anfang.startsWith("select") || anfang.startsWith("with")) {
+                ps.getMetaData();
+            }
+            return true;
+        } catch (SQLException e) {
+            L.warn("nicht vorbereitet: " + sql + " (" + e.getMessage() + ")");
+            return false;
+        }
+    }
+
+    private static long millisSeit(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+
+}
@@ -0,0 +1,159 @@
+package de.htwberlin.dbtech.utils;
+
+import de.htwberlin.dbtech.exceptions.DataException;
+import org.junit.Assert;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Prueft den Ablauf mit Attrappen-Connections, die nur protokollieren,
+ * welche Statements bei ihnen vorbereitet wurden.
+ */
+public class WarmlaufTest {
+    private final List<String> protokoll = new ArrayList<>();
+    private boolean gueltig = true;
+
+    private Connection attrappe(int nr) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("equals")) {
+                        return proxy == args[0];
+                    }
+                    if (!method.getName().equals("prepareStatement")) {
+                        return null;
+                    }
+                    String sql = (String) args[0];
+                    if (sql.contains("Fehlt")) {
+                        throw new SQLException("ORA-00942: table or view does not exist");
+                    }
+                    protokoll.add(nr + ": " + sql);
+                    return Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                            new Class<?>[]{PreparedStatement.class}, (p, m, a) -> {
+                                if (m.getName().equals("executeQuery")) {
+                                    return Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                                            new Class<?>[]{ResultSet.class},
+                                            (r, rm, ra) -> rm.getName().equals("next") ? gueltig : null);
+                                }
+                                return null;
+                            });
+                });
+    }
+
+    @org.junit.Test
+    public void oeffnetAlleConnectionsUndBereitetVor() {
+        int[] erzeugt = {0};
+        ConnectionPool pool = new ConnectionPool(() -> attrappe(++erzeugt[0]), 3);
+        Warmlauf w = new Warmlauf(pool);
+        w.setStatements(List.of("select * from Produkt", "select * from Fehlt"));
+        List<String> schritte = new ArrayList<>();
+        w.schritt("Referenzdaten", () -> schritte.add("Referenzdaten"));
+        Assert.assertFalse(w.isBereit());
+
+        Warmlauf.Ergebnis e = w.laufe();
+        Assert.assertTrue(w.isBereit());
+        Assert.assertEquals(3, pool.getAnzahlConnections());
+        Assert.assertEquals(3, e.getAnzahlConnections());
+        Assert.assertEquals(3, e.getAnzahlVorbereitet());
+        Assert.assertEquals(List.of("select * from Fehlt"), e.getFehlgeschlagen());
+        Assert.assertEquals(List.of("Referenzdaten"), schritte);
+        Assert.assertTrue(e.getPhasen().containsKey("Referenzdaten"));
+        for (int nr = 1; nr <= 3; nr++) {
+            Assert.assertTrue(protokoll.contains(nr + ": select * from Produkt"));
+        }
+        Assert.assertTrue(w.pruefe(100));
+    }
+
+    @org.junit.Test
+    public void ohneGueltigeConnectionNichtBereit() {
+        gueltig = false;
+        ConnectionPool pool = new ConnectionPool(() -> attrappe(1), 2);
+        Warmlauf w = new Warmlauf(pool);
+        w.setStatements(List.of());
+        try {
+            w.laufe();
+            Assert.fail();
+        } catch (DataException e) {
+            Assert.assertFalse(w.isBereit());
+        }
+        Assert.assertFalse(w.pruefe(100));
+        Assert.assertEquals(0, pool.getAnzahlConnections());
+    }
+
+    // meldet fuer jede Anweisung, die "Produkt" liest, einen vollstaendigen Scan
+    private Connection planAttrappe() {
+        String[] letzte = {""};
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "equals":
+                            return proxy == args[0];
+                        case "createStatement":
+                            return Proxy.newProxyInstance(Statement.class.getClassLoader(),
+                                    new Class<?>[]{Statement.class}, (p, m, a) -> {
+                                        if (m.getName().equals("execute")) {
+                                            letzte[0] = (String) a[0];
+                                            return false;
+                                        }
+                                        return null;
+                                    });
+                        case "prepareStatement":
+                            String sql = (String) args[0];
+                            boolean[] zeile = {sql.contains("plan_table") && letzte[0].contains("Produkt")
+                                    || sql.equals(Warmlauf.SQL_PRUEFUNG)};
+                            return Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                                    new Class<?>[]{PreparedStatement.class}, (p, m, a) -> {
+                                        switch (m.getName()) {
+                                            case "executeUpdate":
+                                                return 0;
+                                            case "executeQuery":
+                                                return Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                                                        new Class<?>[]{ResultSet.class}, (r, rm, ra) -> {
+                                                            if (rm.getName().equals("next")) {
+                                                                boolean n = zeile[0];
+                                                                zeile[0] = sql.equals(Warmlauf.SQL_PRUEFUNG);
+                                                                return n;
+                                                            }
+                                                            if (rm.getName().equals("getString")) {
+                                                                return new String[]{"TABLE ACCESS", "FULL", "PRODUKT"}[(Integer) ra[0] - 1];
+                                                            }
+                                                            return null;
+                                                        });
+                                            default:
+                                                return null;
+                                        }
+                                    });
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    @org.junit.Test
+    public void planPruefungMeldetTabellenscans() {
+        ConnectionPool pool = new ConnectionPool(this::planAttrappe, 2);
+        Warmlauf w = new Warmlauf(pool);
+        w.setPlanPruefung(List.of("select * from Produkt", "select * from Kunde where ID = ?"), false);
+        Warmlauf.Ergebnis e = w.laufe();
+        Assert.assertTrue(w.isBereit());
+        Assert.assertEquals(1, e.getTabellenscans().size());
+        Assert.assertEquals("PRODUKT", e.getTabellenscans().get(0).getTabelle());
+
+        Warmlauf streng = new Warmlauf(pool);
+        streng.setPlanPruefung(List.of("select * from Produkt"), true);
+        try {
+            streng.laufe();
+            Assert.fail();
+        } catch (DataException ex) {
+            Assert.assertFalse(streng.isBereit());
+        }
+        Assert.assertEquals(2, pool.getAnzahlConnections());
+    }
+
+}
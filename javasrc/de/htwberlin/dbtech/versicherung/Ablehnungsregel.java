@@ -0,0 +1,136 @@
+package de.htwberlin.dbtech.versicherung;
+
+import de.htwberlin.dbtech.exceptions.DataException;
+import de.htwberlin.dbtech.utils.Money;
+import de.htwberlin.dbtech.utils.RowMapper;
+import de.htwberlin.dbtech.utils.Spalten;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Eine Zeile der Tabelle Ablehnungsregel (gemaess ablehnungsregeln.pdf):
+ * Bedingungen an Deckungsbetrag und Alter wie {@code ">= 100000"} oder
+ * {@code "-"} fuer "keine Bedingung". Die Regel trifft zu, wenn beide
+ * Bedingungen erfuellt sind.
+ * <p>
+ * Die Texte werden erst bei der ersten Auswertung zerlegt, danach wird in
+ * Hundertsteln verglichen: Betraege in Cent, das Alter mal 100. Instanzen
+ * sind threadsicher und koennen in Caches geteilt werden.
+ */
+public final class Ablehnungsregel {
+    private static final Logger L = LoggerFactory.getLogger(Ablehnungsregel.class);
+
+    private static final Pattern REGEL_PATTERN = Pattern.compile("^([><!]=?|=)\\s*(.*)");
+
+    // Operator und Wert eines Regelbestandteils
+    private static final class Komponente {
+        final String operator;
+        final long wertCent;
+
+        Komponente(String operator, long wertCent) {
+            this.operator = operator;
+            this.wertCent = wertCent;
+        }
+    }
+
+    private static final Komponente KEINE_REGEL = new Komponente("-", 0);
+
+    /**
+     * Fuer Abfragen mit den Spalten R_Betrag und R_Alter.
+     */
+    public static final RowMapper.Factory<Ablehnungsregel> MAPPER = rs -> {
+        Spalten s = Spalten.von(rs);
+        int rBetrag = s.index("R_Betrag");
+        int rAlter = s.index("R_Alter");
+        return r -> new Ablehnungsregel(r.getString(rBetrag), r.getString(rAlter));
+    };
+
+    private final String rBetrag;
+    private final String rAlter;
+    // erst bei der ersten Auswertung geparst; gleichzeitiges Parsen liefert dasselbe Ergebnis
+    private volatile Komponente betragTeil;
+    private volatile Komponente alterTeil;
+
+    public Ablehnungsregel(String rBetrag, String rAlter) {
+        this.rBetrag = rBetrag;
+        this.rAlter = rAlter;
+    }
+
+    public String getRBetrag() {
+        return rBetrag;
+    }
+
+    public String getRAlter() {
+        return rAlter;
+    }
+
+    /**
+     * @throws DataException            wenn ein Regelbestandteil nicht lesbar ist.
+     * @throws IllegalArgumentException bei unbekanntem Operator.
+     */
+    public boolean trifftZu(long betragCent, int alter) {
+        Komponente betrag = betragTeil;
+        Komponente alt = alterTeil;
+        if (betrag == null || alt == null) {
+            betrag = parse(rBetrag);
+            alt = parse(rAlter);
+            betragTeil = betrag;
+            alterTeil = alt;
+        }
+        return pruefe(betragCent, betrag) && pruefe(alter * 100L, alt);
+    }
+
+    private static Komponente parse(String regelTeil) {
+        if (regelTeil == null || regelTeil.trim().isEmpty() || regelTeil.trim().equals("-")) {
+            return KEINE_REGEL;
+        }
+        // Artefakt der Testdaten
+        if (regelTeil.trim().equals("- -")) {
+            L.warn("Regel-Teil '{}' wird als 'keine Regel' interpretiert.", regelTeil);
+            return KEINE_REGEL;
+        }
+        Matcher matcher = REGEL_PATTERN.matcher(regelTeil.trim());
+        if (!matcher.find()) {
+            L.error("Konnte Regel-Teil '{}' nicht parsen.", regelTeil);
+            throw new DataException("Ungültiges Format für Regelbestandteil: " + regelTeil);
+        }
+        String wert = matcher.group(2).trim();
+        if (wert.isEmpty()) {
+            L.warn("Regel-Teil '{}' hat einen Operator aber keinen Wert, wird als 'keine Regel' interpretiert.", regelTeil);
+            return KEINE_REGEL;
+        }
+        try {
+            return new Komponente(matcher.group(1), Money.parseCent(wert));
+        } catch (NumberFormatException | ArithmeticException e) {
+            L.error("Fehler beim Konvertieren des Regelwerts '{}' in Cent.", wert, e);
+            throw new DataException("Ungültiger numerischer Wert im Regelbestandteil: " + wert, e);
+        }
+    }
+
+    private static boolean pruefe(long aktuellerWertCent, Komponente regelTeil) {
+        if (regelTeil == KEINE_REGEL) {
+            return true;
+        }
+        int vergleich = Long.compare(aktuellerWertCent, regelTeil.wertCent);
+        switch (regelTeil.operator) {
+            case "=":  return vergleich == 0;
+            case "!=": return vergleich != 0;
+            case "<":  return vergleich <  0;
+            case "<=": return vergleich <= 0;
+            case ">":  return vergleich >  0;
+            case ">=": return vergleich >= 0;
+            default:
+                L.error("Unbekannter Operator in Regel: {}", regelTeil.operator);
+                throw new IllegalArgumentException("Unbekannter Operator: " + regelTeil.operator);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Betrag '" + rBetrag + "', Alter '" + rAlter + "'";
+    }
+
+}
@@ -0,0 +1,716 @@
+package de.htwberlin.dbtech.versicherung;
+
+import de.htwberlin.dbtech.exceptions.DataException;
+import de.htwberlin.dbtech.utils.CsvDatei;
+import de.htwberlin.dbtech.utils.DbCred;
+import de.htwberlin.dbtech.utils.GroupCommit;
+import de.htwberlin.dbtech.utils.IntIntMap;
+import de.htwberlin.dbtech.utils.JdbcUtils;
+import de.htwberlin.dbtech.utils.TransactionTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Massenimport von Kunden, Vertraegen und Deckungen aus CSV-Dateien im
+ * Format der Testdaten (ein Verzeichnis mit {@code <tabelle>.csv} und
+ * {@code table-ordering.txt}).
+ * <p>
+ * Die Tabellen werden in der Reihenfolge aus table-ordering.txt
+ * verarbeitet, je Tabelle in zwei Schritten:
+ * <ol>
+ * <li>Die Datei wird ueber {@link CsvDatei} in den Speicher abgebildet, in
+ * Bereiche geteilt und im {@link ForkJoinPool} parallel gelesen. Die Spalten
+ * werden ueber die Kopfzeile gefunden, ihre Reihenfolge ist beliebig. Dabei wird
+ * jede Zeile gegen die {@link Referenzdaten} und die bereits bekannten
+ * Kunden und Vertraege geprueft, mit denselben Regeln wie
+ * {@link de.htwberlin.dbtech.aufgaben.ue03.VersicherungService#createDeckung}.</li>
+ * <li>Die angenommenen Zeilen werden in Dateireihenfolge auf doppelte
+ * Schluessel geprueft und als JDBC-Batch geschrieben; committet wird ueber
+ * {@link GroupCommit}.</li>
+ * </ol>
+ * Abgelehnte Zeilen werden je {@link Ablehnungsgrund} gezaehlt und nicht
+ * geschrieben. Zum Schluss wird Vertrag_Monatsrate fuer alle Vertraege mit
+ * neuen Deckungen ueber {@link MonatsratenSummary} nachgefuehrt, im selben
+ * GroupCommit; nach einem Abbruch zieht
+ * {@link MonatsratenSummary#neuAufbauen} die bereits committeten nach.
+ * Stammdaten-Tabellen (Produkt, Deckungsart usw.) werden nicht importiert,
+ * sondern muessen schon in der Datenbank stehen.
+ * <p>
+ * Der Import muss die Tabellen Kunde, Vertrag und Deckung waehrend des Laufs
+ * allein schreiben, sonst sind die Schluesselpruefungen nicht verlaesslich.
+ */
+public class BestandImport {
+    private static final Logger L = LoggerFactory.getLogger(BestandImport.class);
+
+    private static final String SQL_KUNDEN =
+            "select ID, trunc(Geburtsdatum) - date '1970-01-01' as GeburtTag from Kunde";
+    private static final String SQL_VERTRAEGE = String.join(" ",
+            "select ID, Produkt_FK, Kunde_FK, trunc(Versicherungsbeginn) - date '1970-01-01' as BeginnTag",
+            "from Vertrag");
+    private static final String SQL_DECKUNGEN = "select Vertrag_FK, Deckungsart_FK from Deckung";
+    private static final String SQL_INSERT_KUNDE = "insert into Kunde (ID, Name, Geburtsdatum) values (?, ?, ?)";
+    private static final String SQL_INSERT_VERTRAG = "insert into Vertrag "
+            + "(ID, Produkt_FK, Kunde_FK, Versicherungsbeginn, Versicherungsende) values (?, ?, ?, ?, ?)";
+    private static final String SQL_INSERT_DECKUNG =
+            "insert into Deckung (Vertrag_FK, Deckungsart_FK, Deckungsbetrag) values (?, ?, ?)";
+    // per Kopfzeile gesucht, die Reihenfolge in der Datei ist beliebig
+    private static final String[] KUNDE_SPALTEN = {"ID", "Name", "Geburtsdatum"};
+    private static final String[] VERTRAG_SPALTEN =
+            {"ID", "Produkt_FK", "Kunde_FK", "Versicherungsbeginn", "Versicherungsende"};
+    private static final String[] DECKUNG_SPALTEN = {"Vertrag_FK", "Deckungsart_FK", "Deckungsbetrag"};
+    private static final int FETCH_SIZE = 5000;
+    private static final int BATCH_GROESSE = 1000;
+    private static final int BATCHES_JE_COMMIT = 50;
+    private static final long COMMIT_MILLIS = 5000;
+    // so viele Beispiele je Bereich fuer das Log
+    private static final int MAX_BEISPIELE = 5;
+    // Kunde ohne Geburtsdatum
+    private static final int OHNE_DATUM = Integer.MIN_VALUE;
+
+    public enum Ablehnungsgrund {
+        FORMAT,
+        DOPPELT,
+        ZEITRAUM,
+        PRODUKT_UNBEKANNT,
+        KUNDE_UNBEKANNT,
+        VERTRAG_UNBEKANNT,
+        DECKUNGSART_UNBEKANNT,
+        DECKUNGSART_PASST_NICHT,
+        DECKUNGSBETRAG_UNGUELTIG,
+        KEIN_DECKUNGSPREIS,
+        REGEL
+    }
+
+    private final Connection connection;
+    private final Referenzdaten referenzdaten;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+    private MonatsratenCache monatsratenCache;
+
+    // bekannte Kunden: ID -> Geburtstag
+    private final IntIntMap kunden = new IntIntMap(1024);
+    // bekannte Vertraege: ID -> Index in den Spalten
+    private final IntIntMap vertragIndex = new IntIntMap(1024);
+    private final IntSpalte vertragProdukt = new IntSpalte();
+    private final IntSpalte vertragKunde = new IntSpalte();
+    private final IntSpalte vertragBeginn = new IntSpalte();
+    // bekannte Deckungen: Vertrag und Deckungsart als ein long
+    private final LongMenge deckungen = new LongMenge();
+    // Vertraege mit importierten Deckungen, fuer Vertrag_Monatsrate
+    private final IntIntMap neueDeckungen = new IntIntMap(1024);
+
+    public BestandImport(Connection connection, Referenzdaten referenzdaten) {
+        this.connection = connection;
+        this.referenzdaten = referenzdaten;
+    }
+
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Wird nach dem Import geleert, auch nach einem Abbruch, weil bereits
+     * committete Deckungen stehen bleiben.
+     */
+    public void setMonatsratenCache(MonatsratenCache monatsratenCache) {
+        this.monatsratenCache = monatsratenCache;
+    }
+
+    /**
+     * Alle SQL-Anweisungen, z.B. fuer {@link de.htwberlin.dbtech.utils.ExplainPlanCheck}.
+     */
+    public static List<String> statements() {
+        return List.of(SQL_KUNDEN, SQL_VERTRAEGE, SQL_DECKUNGEN, SQL_INSERT_KUNDE, SQL_INSERT_VERTRAG,
+                SQL_INSERT_DECKUNG);
+    }
+
+    /**
+     * Importiert alle Dateien des Verzeichnisses. Angenommene Zeilen sind nach
+     * Rueckkehr committet; bei einem Datenbankfehler wird der Import
+     * abgebrochen, bereits committete Batches bleiben stehen.
+     */
+    public Ergebnis importiere(Path verzeichnis) {
+        List<String> tabellen;
+        try {
+            tabellen = CsvDatei.tabellenReihenfolge(verzeichnis);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        ladeBestand();
+        Ergebnis ergebnis = new Ergebnis();
+        try (GroupCommit gc = new GroupCommit(connection, BATCHES_JE_COMMIT, COMMIT_MILLIS)) {
+            try {
+                for (String tabelle : tabellen) {
+                    Path datei = verzeichnis.resolve(tabelle + ".csv");
+                    if (!Files.exists(datei)) {
+                        continue;
+                    }
+                    switch (tabelle) {
+                        case "kunde":
+                            // Geburtsdatum darf fehlen
+                            ergebnis.tabellen.add(importiere(datei, tabelle, KUNDE_SPALTEN, 2, KundenTeil::new,
+                                    this::pruefeKunde, SQL_INSERT_KUNDE, this::schreibeKunden, gc));
+                            break;
+                        case "vertrag":
+                            ergebnis.tabellen.add(importiere(datei, tabelle, VERTRAG_SPALTEN, VERTRAG_SPALTEN.length,
+                                    VertragTeil::new, this::pruefeVertrag, SQL_INSERT_VERTRAG, this::schreibeVertraege,
+                                    gc));
+                            break;
+                        case "deckung":
+                            ergebnis.tabellen.add(importiere(datei, tabelle, DECKUNG_SPALTEN, DECKUNG_SPALTEN.length,
+                                    DeckungTeil::new, this::pruefeDeckung, SQL_INSERT_DECKUNG, this::schreibeDeckungen,
+                                    gc));
+                            break;
+                        default:
+                            L.info("{}: Stammdaten, nicht importiert", tabelle);
+                    }
+                }
+                monatsratenNachfuehren(gc);
+            } catch (SQLException | RuntimeException e) {
+                // sonst committet close() einen halb ausgefuehrten Batch
+                gc.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            L.error("", e);
+            throw new DataException(e);
+        } finally {
+            if (monatsratenCache != null) {
+                monatsratenCache.leeren();
+            }
+        }
+        L.info("Import beendet:\n{}", ergebnis);
+        return ergebnis;
+    }
+
+    // Kunden, Vertraege und Deckungskeys, die schon in der Datenbank stehen
+    private void ladeBestand() {
+        kunden.clear();
+        vertragIndex.clear();
+        vertragProdukt.size = 0;
+        vertragKunde.size = 0;
+        vertragBeginn.size = 0;
+        deckungen.clear();
+        neueDeckungen.clear();
+        try {
+            TransactionTemplate.of(connection).readOnly(true).run(c -> {
+                L.info(SQL_KUNDEN);
+                try (PreparedStatement ps = c.prepareStatement(SQL_KUNDEN)) {
+                    ps.setFetchSize(FETCH_SIZE);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            int tag = rs.getInt(2);
+                            kunden.put(rs.getInt(1), rs.wasNull() ? OHNE_DATUM : tag);
+                        }
+                    }
+                }
+                L.info(SQL_VERTRAEGE);
+                try (PreparedStatement ps = c.prepareStatement(SQL_VERTRAEGE)) {
+                    ps.setFetchSize(FETCH_SIZE);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            vertragBekannt(rs.getInt(1), rs.getInt(2), rs.getInt(3), rs.getInt(4));
+                        }
+                    }
+                }
+                L.info(SQL_DECKUNGEN);
+                try (PreparedStatement ps = c.prepareStatement(SQL_DECKUNGEN)) {
+                    ps.setFetchSize(FETCH_SIZE);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            deckungen.add(deckungKey(rs.getInt(1), rs.getInt(2)));
+                        }
+                    }
+                }
+            });
+        } catch (SQLException e) {
+            L.error("", e);
+            throw new DataException(e);
+        }
+        L.info("Bestand: {} Kunden, {} Vertraege, {} Deckungen", kunden.size(), vertragIndex.size(), deckungen.size());
+    }
+
+    private void vertragBekannt(int id, int produkt, int kunde, int beginnTag) {
+        vertragIndex.put(id, vertragProdukt.size);
+        vertragProdukt.add(produkt);
+        vertragKunde.add(kunde);
+        vertragBeginn.add(beginnTag);
+    }
+
+    private static long deckungKey(int vertrag, int deckungsart) {
+        return ((long) vertrag << 32) | (deckungsart & 0xffffffffL);
+    }
+
+    // --- Ablauf je Tabelle ---
+
+    @FunctionalInterface
+    private interface Schreiber<T extends Teil> {
+        void schreibe(T teil, Batch batch, TabellenErgebnis ergebnis) throws SQLException;
+    }
+
+    // die ersten pflicht der spalten muss die Kopfzeile enthalten
+    private <T extends Teil> TabellenErgebnis importiere(Path datei, String tabelle, String[] spalten, int pflicht,
+                                                         Supplier<T> neu, BiConsumer<CsvDatei.Zeile, T> pruefung,
+                                                         String sql, Schreiber<T> schreiber, GroupCommit gc)
+            throws SQLException {
+        long start = System.nanoTime();
+        TabellenErgebnis ergebnis = new TabellenErgebnis(tabelle);
+        List<T> teile = parallelLesen(datei, spalten, pflicht, neu, pruefung);
+        L.info(sql);
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            Batch batch = new Batch(ps, gc);
+            for (T teil : teile) {
+                ergebnis.gelesen += teil.gelesen;
+                for (Ablehnungsgrund g : Ablehnungsgrund.values()) {
+                    ergebnis.abgelehnt.merge(g, teil.abgelehnt[g.ordinal()], Long::sum);
+                }
+                for (String b : teil.beispiele) {
+                    L.warn("{}: {}", tabelle, b);
+                }
+                schreiber.schreibe(teil, batch, ergebnis);
+            }
+            batch.ausfuehren();
+        }
+        ergebnis.abgelehnt.values().removeIf(n -> n == 0);
+        ergebnis.nanos = System.nanoTime() - start;
+        L.info("{}", ergebnis);
+        return ergebnis;
+    }
+
+    private <T extends Teil> List<T> parallelLesen(Path pfad, String[] spalten, int pflicht, Supplier<T> neu,
+                                                   BiConsumer<CsvDatei.Zeile, T> pruefung) {
+        try (CsvDatei datei = CsvDatei.oeffne(pfad)) {
+            int[] positionen = positionen(datei, spalten, pflicht);
+            List<Callable<T>> aufgaben = new ArrayList<>();
+            for (CsvDatei.Bereich bereich : datei.bereiche(pool.getParallelism() * 4)) {
+                aufgaben.add(() -> {
+                    T teil = neu.get();
+                    teil.spalten = positionen;
+                    datei.lese(bereich, zeile -> {
+                        teil.gelesen++;
+                        try {
+                            pruefung.accept(zeile, teil);
+                        } catch (NumberFormatException | ArithmeticException e) {
+                            teil.ablehnen(Ablehnungsgrund.FORMAT, zeile, e.getMessage());
+                        }
+                    });
+                    return teil;
+                });
+            }
+            List<T> teile = new ArrayList<>();
+            for (Future<T> f : pool.invokeAll(aufgaben)) {
+                teile.add(f.get());
+            }
+            return teile;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    // Position jeder Spalte in der Datei, -1 fuer eine fehlende optionale Spalte
+    private static int[] positionen(CsvDatei datei, String[] spalten, int pflicht) {
+        int[] positionen = new int[spalten.length];
+        for (int i = 0; i < spalten.length; i++) {
+            positionen[i] = datei.spalte(spalten[i]);
+            if (positionen[i] < 0 && i < pflicht) {
+                throw new DataException("Spalte " + spalten[i] + " fehlt in " + datei.getPfad());
+            }
+        }
+        return positionen;
+    }
+
+    // --- Kunde ---
+
+    private void pruefeKunde(CsvDatei.Zeile z, KundenTeil t) {
+        int[] s = t.spalten;
+        int id = z.getInt(s[0]);
+        String name = z.getString(s[1]);
+        if (name == null || name.isEmpty()) {
+            t.ablehnen(Ablehnungsgrund.FORMAT, z, "Name fehlt");
+            return;
+        }
+        t.ids.add(id);
+        t.namen.add(name);
+        t.geburtTage.add(s[2] < 0 || z.getAnzahlFelder() <= s[2] || z.isNull(s[2]) ? OHNE_DATUM : z.getEpochDay(s[2]));
+    }
+
+    private void schreibeKunden(KundenTeil t, Batch batch, TabellenErgebnis ergebnis) throws SQLException {
+        PreparedStatement ps = batch.ps;
+        for (int i = 0; i < t.ids.size; i++) {
+            int id = t.ids.get(i);
+            if (kunden.containsKey(id)) {
+                ergebnis.doppelt();
+                continue;
+            }
+            int tag = t.geburtTage.get(i);
+            kunden.put(id, tag);
+            ps.setInt(1, id);
+            ps.setString(2, t.namen.get(i));
+            if (tag == OHNE_DATUM) {
+                ps.setNull(3, Types.DATE);
+            } else {
+                ps.setDate(3, datum(tag));
+            }
+            batch.add();
+            ergebnis.importiert++;
+        }
+    }
+
+    // --- Vertrag ---
+
+    private void pruefeVertrag(CsvDatei.Zeile z, VertragTeil t) {
+        int[] s = t.spalten;
+        int id = z.getInt(s[0]);
+        int produkt = z.getInt(s[1]);
+        int kunde = z.getInt(s[2]);
+        int beginn = z.getEpochDay(s[3]);
+        int ende = z.getEpochDay(s[4]);
+        if (!referenzdaten.hatProdukt(produkt)) {
+            t.ablehnen(Ablehnungsgrund.PRODUKT_UNBEKANNT, z, "Produkt " + produkt);
+        } else if (!kunden.containsKey(kunde)) {
+            t.ablehnen(Ablehnungsgrund.KUNDE_UNBEKANNT, z, "Kunde " + kunde);
+        } else if (ende < beginn) {
+            t.ablehnen(Ablehnungsgrund.ZEITRAUM, z, "Ende vor Beginn");
+        } else {
+            t.ids.add(id);
+            t.produkte.add(produkt);
+            t.kunden.add(kunde);
+            t.beginn.add(beginn);
+            t.ende.add(ende);
+        }
+    }
+
+    private void schreibeVertraege(VertragTeil t, Batch batch, TabellenErgebnis ergebnis) throws SQLException {
+        PreparedStatement ps = batch.ps;
+        for (int i = 0; i < t.ids.size; i++) {
+            int id = t.ids.get(i);
+            if (vertragIndex.containsKey(id)) {
+                ergebnis.doppelt();
+                continue;
+            }
+            vertragBekannt(id, t.produkte.get(i), t.kunden.get(i), t.beginn.get(i));
+            ps.setInt(1, id);
+            ps.setInt(2, t.produkte.get(i));
+            ps.setInt(3, t.kunden.get(i));
+            ps.setDate(4, datum(t.beginn.get(i)));
+            ps.setDate(5, datum(t.ende.get(i)));
+            batch.add();
+            ergebnis.importiert++;
+        }
+    }
+
+    // --- Deckung: dieselben Pruefungen wie createDeckung, in derselben Reihenfolge ---
+
+    private void pruefeDeckung(CsvDatei.Zeile z, DeckungTeil t) {
+        int[] s = t.spalten;
+        int vertrag = z.getInt(s[0]);
+        int deckungsart = z.getInt(s[1]);
+        long betragCent = z.getCent(s[2]);
+        int v = vertragIndex.get(vertrag, -1);
+        if (v < 0) {
+            t.ablehnen(Ablehnungsgrund.VERTRAG_UNBEKANNT, z, "Vertrag " + vertrag);
+            return;
+        }
+        int produkt = referenzdaten.produktVonDeckungsart(deckungsart);
+        if (produkt == Referenzdaten.KEINE) {
+            t.ablehnen(Ablehnungsgrund.DECKUNGSART_UNBEKANNT, z, "Deckungsart " + deckungsart);
+            return;
+        }
+        if (produkt != vertragProdukt.get(v)) {
+            t.ablehnen(Ablehnungsgrund.DECKUNGSART_PASST_NICHT, z, "Produkt " + produkt + " statt " + vertragProdukt.get(v));
+            return;
+        }
+        int betragId = referenzdaten.deckungsbetragId(deckungsart, betragCent);
+        if (betragId == Referenzdaten.KEINE) {
+            t.ablehnen(Ablehnungsgrund.DECKUNGSBETRAG_UNGUELTIG, z, "Betrag " + z.getString(s[2]));
+            return;
+        }
+        int beginn = vertragBeginn.get(v);
+        if (referenzdaten.preisCent(betragId, beginn) == Referenzdaten.KEIN_PREIS) {
+            t.ablehnen(Ablehnungsgrund.KEIN_DECKUNGSPREIS, z, "kein Preis am " + LocalDate.ofEpochDay(beginn));
+            return;
+        }
+        int geburtTag = kunden.get(vertragKunde.get(v), OHNE_DATUM);
+        int alter = geburtTag == OHNE_DATUM ? 0
+                : Period.between(LocalDate.ofEpochDay(geburtTag), LocalDate.ofEpochDay(beginn)).getYears();
+        Ablehnungsregel regel = referenzdaten.zutreffendeRegel(deckungsart, betragCent, alter);
+        if (regel != null) {
+            t.ablehnen(Ablehnungsgrund.REGEL, z, "Regel " + regel + ", Alter " + alter);
+            return;
+        }
+        t.vertraege.add(vertrag);
+        t.arten.add(deckungsart);
+        t.betraege.add(betragCent);
+    }
+
+    private void schreibeDeckungen(DeckungTeil t, Batch batch, TabellenErgebnis ergebnis) throws SQLException {
+        PreparedStatement ps = batch.ps;
+        for (int i = 0; i < t.vertraege.size; i++) {
+            if (!deckungen.add(deckungKey(t.vertraege.get(i), t.arten.get(i)))) {
+                ergebnis.doppelt();
+                continue;
+            }
+            ps.setInt(1, t.vertraege.get(i));
+            ps.setInt(2, t.arten.get(i));
+            ps.setBigDecimal(3, BigDecimal.valueOf(t.betraege.get(i), 2));
+            batch.add();
+            neueDeckungen.put(t.vertraege.get(i), 0);
+            ergebnis.importiert++;
+        }
+    }
+
+    private void monatsratenNachfuehren(GroupCommit gc) throws SQLException {
+        if (neueDeckungen.size() == 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        L.info(MonatsratenSummary.SQL_NACHFUEHREN);
+        try (PreparedStatement ps = connection.prepareStatement(MonatsratenSummary.SQL_NACHFUEHREN)) {
+            Batch batch = new Batch(ps, gc);
+            for (int vertrag : neueDeckungen.alleSchluessel()) {
+                ps.setInt(1, vertrag);
+                batch.add();
+            }
+            batch.ausfuehren();
+        }
+        L.info("Vertrag_Monatsrate fuer {} Vertraege nachgefuehrt in {} ms", neueDeckungen.size(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static Date datum(int epochDay) {
+        return Date.valueOf(LocalDate.ofEpochDay(epochDay));
+    }
+
+    // --- Zwischenergebnisse ---
+
+    // angenommene Zeilen und Ablehnungen eines Bereichs, von genau einem Thread gefuellt
+    private abstract static class Teil {
+        // Positionen der Spalten in der Datei, siehe positionen()
+        int[] spalten;
+        long gelesen;
+        final long[] abgelehnt = new long[Ablehnungsgrund.values().length];
+        final List<String> beispiele = new ArrayList<>();
+
+        void ablehnen(Ablehnungsgrund grund, CsvDatei.Zeile zeile, String text) {
+            abgelehnt[grund.ordinal()]++;
+            if (beispiele.size() < MAX_BEISPIELE) {
+                beispiele.add(grund + " bei Byte " + zeile.getPosition() + " (" + zeile + "): " + text);
+            }
+        }
+    }
+
+    private static final class KundenTeil extends Teil {
+        final IntSpalte ids = new IntSpalte();
+        final List<String> namen = new ArrayList<>();
+        final IntSpalte geburtTage = new IntSpalte();
+    }
+
+    private static final class VertragTeil extends Teil {
+        final IntSpalte ids = new IntSpalte();
+        final IntSpalte produkte = new IntSpalte();
+        final IntSpalte kunden = new IntSpalte();
+        final IntSpalte beginn = new IntSpalte();
+        final IntSpalte ende = new IntSpalte();
+    }
+
+    private static final class DeckungTeil extends Teil {
+        final IntSpalte vertraege = new IntSpalte();
+        final IntSpalte arten = new IntSpalte();
+        final LongSpalte betraege = new LongSpalte();
+    }
+
+    // JDBC-Batch, der nach jedem ausgefuehrten Batch den GroupCommit weiterzaehlt
+    private static final class Batch {
+        final PreparedStatement ps;
+        final GroupCommit gc;
+        int imBatch;
+
+        Batch(PreparedStatement ps, GroupCommit gc) {
+            this.ps = ps;
+            this.gc = gc;
+        }
+
+        void add() throws SQLException {
+            ps.addBatch();
+            if (++imBatch == BATCH_GROESSE) {
+                ausfuehren();
+            }
+        }
+
+        void ausfuehren() throws SQLException {
+            if (imBatch > 0) {
+                ps.executeBatch();
+                imBatch = 0;
+                gc.operationAbgeschlossen();
+            }
+        }
+    }
+
+    // offene Adressierung, 0 wird gesondert gefuehrt
+    private static final class LongMenge {
+        private long[] werte = new long[1024];
+        private int size;
+        private boolean mitNull;
+
+        boolean add(long v) {
+            if (v == 0) {
+                boolean neu = !mitNull;
+                mitNull = true;
+                return neu;
+            }
+            if ((size + 1) * 2 > werte.length) {
+                long[] alt = werte;
+                werte = new long[alt.length * 2];
+                size = 0;
+                for (long a : alt) {
+                    if (a != 0) {
+                        add(a);
+                    }
+                }
+            }
+            int maske = werte.length - 1;
+            int i = (int) (v ^ (v >>> 32)) * 0x9E3779B9 & maske;
+            while (werte[i] != 0) {
+                if (werte[i] == v) {
+                    return false;
+                }
+                i = (i + 1) & maske;
+            }
+            werte[i] = v;
+            size++;
+            return true;
+        }
+
+        int size() {
+            return size + (mitNull ? 1 : 0);
+        }
+
+        void clear() {
+            Arrays.fill(werte, 0);
+            size = 0;
+            mitNull = false;
+        }
+    }
+
+    // --- Ergebnis ---
+
+    public static final class TabellenErgebnis {
+        private final String tabelle;
+        private long gelesen;
+        private long importiert;
+        private long nanos;
+        private final Map<Ablehnungsgrund, Long> abgelehnt = new EnumMap<>(Ablehnungsgrund.class);
+
+        TabellenErgebnis(String tabelle) {
+            this.tabelle = tabelle;
+        }
+
+        private void doppelt() {
+            abgelehnt.merge(Ablehnungsgrund.DOPPELT, 1L, Long::sum);
+        }
+
+        public String getTabelle() {
+            return tabelle;
+        }
+
+        public long getGelesen() {
+            return gelesen;
+        }
+
+        public long getImportiert() {
+            return importiert;
+        }
+
+        public Map<Ablehnungsgrund, Long> getAbgelehnt() {
+            return abgelehnt;
+        }
+
+        public long getMillis() {
+            return nanos / 1_000_000;
+        }
+
+        public double getZeilenProSekunde() {
+            return nanos == 0 ? 0 : gelesen * 1e9 / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-10s %,10d gelesen %,10d importiert %,8d ms %,12.0f Zeilen/s  abgelehnt: %s",
+                    tabelle, gelesen, importiert, getMillis(), getZeilenProSekunde(), abgelehnt);
+        }
+    }
+
+    public static final class Ergebnis {
+        private final List<TabellenErgebnis> tabellen = new ArrayList<>();
+
+        public List<TabellenErgebnis> getTabellen() {
+            return tabellen;
+        }
+
+        public TabellenErgebnis get(String tabelle) {
+            for (TabellenErgebnis t : tabellen) {
+                if (t.tabelle.equals(tabelle)) {
+                    return t;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            for (TabellenErgebnis t : tabellen) {
+                sb.append(t).append('\n');
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Importiert das Verzeichnis aus args[0] in die Datenbank aus DbCred.
+     */
+    public static void main(String[] args) {
+        Path verzeichnis = Paths.get(args.length > 0 ? args[0] : "test-data/ue03-04");
+        try (Connection connection = JdbcUtils.getConnectionViaDriverManager(DbCred.url, DbCred.user, DbCred.password)) {
+            Ergebnis ergebnis = new BestandImport(connection, Referenzdaten.lade(connection)).importiere(verzeichnis);
+            System.out.print(ergebnis);
+        } catch (SQLException e) {
+            L.error("", e);
+            throw new DataException(e);
+        }
+    }
+
+}
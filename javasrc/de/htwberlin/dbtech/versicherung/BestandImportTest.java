@@ -0,0 +1,156 @@
+package de.htwberlin.dbtech.versicherung;
+
+import org.junit.Assert;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prueft Lesen und Schreiben des Imports an einer Attrappen-Connection mit
+ * leerem Bestand, die eingefuegte Zeilen und die Groesse jedes ausgefuehrten
+ * Batches je Tabelle protokolliert.
+ */
+public class BestandImportTest {
+    private final Map<String, List<List<Object>>> eingefuegt = new HashMap<>();
+    private final Map<String, List<Integer>> batches = new HashMap<>();
+    private boolean autoCommit = true;
+
+    private static Object proxy(Class<?> typ, java.lang.reflect.InvocationHandler h) {
+        return Proxy.newProxyInstance(typ.getClassLoader(), new Class<?>[]{typ}, h);
+    }
+
+    private Connection attrappe() {
+        return (Connection) proxy(Connection.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getAutoCommit":
+                    return autoCommit;
+                case "setAutoCommit":
+                    autoCommit = (Boolean) args[0];
+                    return null;
+                case "isReadOnly":
+                    return false;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "prepareStatement":
+                    return anweisung((String) args[0]);
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private PreparedStatement anweisung(String sql) {
+        if (sql.startsWith("select")) {
+            // leerer Bestand
+            ResultSet rs = (ResultSet) proxy(ResultSet.class, (p, m, a) -> m.getName().equals("next") ? false : null);
+            return (PreparedStatement) proxy(PreparedStatement.class,
+                    (p, m, a) -> m.getName().equals("executeQuery") ? rs : null);
+        }
+        // "insert into <tabelle> ...", alles andere unter der ganzen Anweisung
+        String tabelle = sql.startsWith("insert") ? sql.split(" ")[2].toLowerCase() : sql;
+        List<List<Object>> zeilen = eingefuegt.computeIfAbsent(tabelle, k -> new ArrayList<>());
+        List<Integer> groessen = batches.computeIfAbsent(tabelle, k -> new ArrayList<>());
+        Object[] zeile = new Object[5];
+        int[] imBatch = {0};
+        return (PreparedStatement) proxy(PreparedStatement.class, (p, m, a) -> {
+            switch (m.getName()) {
+                case "setNull":
+                    zeile[(Integer) a[0] - 1] = "NULL";
+                    return null;
+                case "setInt":
+                case "setString":
+                case "setDate":
+                case "setBigDecimal":
+                    zeile[(Integer) a[0] - 1] = a[1];
+                    return null;
+                case "addBatch":
+                    int n = 0;
+                    while (n < zeile.length && zeile[n] != null) {
+                        n++;
+                    }
+                    zeilen.add(new ArrayList<>(Arrays.asList(zeile).subList(0, n)));
+                    Arrays.fill(zeile, null);
+                    imBatch[0]++;
+                    return null;
+                case "executeBatch":
+                    groessen.add(imBatch[0]);
+                    int[] ergebnis = new int[imBatch[0]];
+                    imBatch[0] = 0;
+                    return ergebnis;
+                default:
+                    return null;
+            }
+        });
+    }
+
+    private static Referenzdaten referenzdaten() {
+        return new Referenzdaten.Builder()
+                .produkt(1)
+                .deckungsart(10, 1)
+                .deckungsbetrag(100, 10, 500_000)
+                .deckungspreis(100, 0, 30_000, 1500)
+                .build();
+    }
+
+    @org.junit.Test
+    public void spaltenNachKopfzeileUndBatchesJeTausend() throws Exception {
+        Path verzeichnis = Files.createTempDirectory("bestand");
+        Files.writeString(verzeichnis.resolve("table-ordering.txt"), "produkt\nkunde\nvertrag\ndeckung\n");
+        StringBuilder kunden = new StringBuilder("Geburtsdatum, Name, ID\n");
+        for (int id = 1; id <= 1001; id++) {
+            kunden.append(id == 1 ? "1980-03-24" : "null").append(", Kunde ").append(id).append(", ").append(id)
+                    .append('\n');
+        }
+        Files.writeString(verzeichnis.resolve("kunde.csv"), kunden);
+        Files.writeString(verzeichnis.resolve("vertrag.csv"), String.join("\n",
+                "Versicherungsende, Kunde_FK, Versicherungsbeginn, ID, Produkt_FK",
+                "2018-03-31,        1,        2017-04-01,          7,  1",
+                "2018-03-31,        1,        2017-04-01,          8,  2",
+                ""));
+        Files.writeString(verzeichnis.resolve("deckung.csv"), String.join("\n",
+                "Deckungsbetrag, Vertrag_FK, Deckungsart_FK",
+                "5000.00,        7,          10",
+                "5000.00,        8,          10",
+                ""));
+
+        BestandImport.Ergebnis ergebnis = new BestandImport(attrappe(), referenzdaten()).importiere(verzeichnis);
+
+        Assert.assertEquals(1001, ergebnis.get("kunde").getImportiert());
+        Assert.assertEquals(List.of(1000, 1), batches.get("kunde"));
+        Assert.assertEquals(List.of(1, "Kunde 1", Date.valueOf("1980-03-24")), eingefuegt.get("kunde").get(0));
+        Assert.assertEquals(List.of(2, "Kunde 2", "NULL"), eingefuegt.get("kunde").get(1));
+
+        Assert.assertEquals(1, ergebnis.get("vertrag").getImportiert());
+        Assert.assertEquals(Map.of(BestandImport.Ablehnungsgrund.PRODUKT_UNBEKANNT, 1L),
+                ergebnis.get("vertrag").getAbgelehnt());
+        Assert.assertEquals(List.of(List.of(7, 1, 1, Date.valueOf("2017-04-01"), Date.valueOf("2018-03-31"))),
+                eingefuegt.get("vertrag"));
+
+        Assert.assertEquals(Map.of(BestandImport.Ablehnungsgrund.VERTRAG_UNBEKANNT, 1L),
+                ergebnis.get("deckung").getAbgelehnt());
+        Assert.assertEquals(List.of(List.of(7, 10, new BigDecimal("5000.00"))), eingefuegt.get("deckung"));
+        Assert.assertEquals(List.of(List.of(7)), eingefuegt.get(MonatsratenSummary.SQL_NACHFUEHREN));
+    }
+
+    @org.junit.Test(expected = de.htwberlin.dbtech.exceptions.DataException.class)
+    public void fehlendeSpalteBrichtAb() throws Exception {
+        Path verzeichnis = Files.createTempDirectory("bestand");
+        Files.writeString(verzeichnis.resolve("table-ordering.txt"), "kunde\n");
+        Files.writeString(verzeichnis.resolve("kunde.csv"), "ID, Geburtsdatum\n1, 1980-03-24\n");
+        new BestandImport(attrappe(), referenzdaten()).importiere(verzeichnis);
+    }
+
+}
@@ -0,0 +1,327 @@
+package de.htwberlin.dbtech.versicherung;
+
+import de.htwberlin.dbtech.exceptions.DataException;
+import de.htwberlin.dbtech.utils.IntIntMap;
+import de.htwberlin.dbtech.utils.TransactionTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Unveraenderlicher Schnappschuss der Tabellen Vertrag und Deckung fuer
+ * Auswertungen ueber den ganzen Bestand.
+ * <p>
+ * Die Daten liegen spaltenweise in primitiven Arrays: IDs und Fremdschluessel
+ * als int, Datumswerte als Tage seit 1970-01-01, Deckungsbetraege als long in
+ * Cent. Es gibt keine Objekte je Zeile und kein BigDecimal; die Umrechnung
+ * erledigt schon die Datenbank. Aggregationen teilen die Arrays in Bereiche
+ * und summieren sie parallel im {@link ForkJoinPool}.
+ */
+public class BestandSnapshot {
+    private static final Logger L = LoggerFactory.getLogger(BestandSnapshot.class);
+
+    private static final String SQL_VERTRAEGE = String.join(" ",
+            "select ID, Produkt_FK, Kunde_FK,",
+            "  trunc(Versicherungsbeginn) - date '1970-01-01' as BeginnTag,",
+            "  trunc(Versicherungsende) - date '1970-01-01' as EndeTag",
+            "from Vertrag");
+    private static final String SQL_DECKUNGEN = String.join(" ",
+            "select Vertrag_FK, Deckungsart_FK, round(Deckungsbetrag * 100) as BetragCent",
+            "from Deckung");
+    private static final int FETCH_SIZE = 5000;
+    // darunter lohnt sich das Aufteilen nicht
+    private static final int SCHWELLE = 1 << 14;
+
+    // Vertrag
+    private final int[] vertragIds;
+    private final int[] produktFks;
+    private final int[] kundeFks;
+    private final int[] beginnTage;
+    private final int[] endeTage;
+    // Deckung
+    private final int[] deckungVertragFks;
+    private final int[] deckungsartFks;
+    private final long[] betraegeCent;
+    // abgeleitet: Produkt jeder Deckung als Index in produktIds
+    private final int[] produktIds;
+    private final int[] deckungProduktIdx;
+    // Deckungen, deren Vertrag nicht im Schnappschuss liegt
+    private final int deckungenOhneVertrag;
+
+    BestandSnapshot(int[] vertragIds, int[] produktFks, int[] kundeFks, int[] beginnTage, int[] endeTage,
+                    int[] deckungVertragFks, int[] deckungsartFks, long[] betraegeCent) {
+        this.vertragIds = vertragIds;
+        this.produktFks = produktFks;
+        this.kundeFks = kundeFks;
+        this.beginnTage = beginnTage;
+        this.endeTage = endeTage;
+
+        produktIds = Arrays.stream(produktFks).distinct().sorted().toArray();
+        IntIntMap vertragProduktIdx = new IntIntMap(vertragIds.length);
+        for (int i = 0; i < vertragIds.length; i++) {
+            vertragProduktIdx.put(vertragIds[i], Arrays.binarySearch(produktIds, produktFks[i]));
+        }
+        // ohne gemeinsamen Lesestand kann eine Deckung auf einen Vertrag zeigen,
+        // der erst nach dem Lesen von Vertrag angelegt wurde; sie wird uebersprungen
+        int anzahl = deckungVertragFks.length;
+        int[] vertraege = new int[anzahl];
+        int[] arten = new int[anzahl];
+        long[] betraege = new long[anzahl];
+        int[] produktIdx = new int[anzahl];
+        int n = 0;
+        for (int i = 0; i < anzahl; i++) {
+            int idx = vertragProduktIdx.get(deckungVertragFks[i], -1);
+            if (idx >= 0) {
+                vertraege[n] = deckungVertragFks[i];
+                arten[n] = deckungsartFks[i];
+                betraege[n] = betraegeCent[i];
+                produktIdx[n++] = idx;
+            }
+        }
+        deckungenOhneVertrag = anzahl - n;
+        if (deckungenOhneVertrag > 0) {
+            L.warn(deckungenOhneVertrag + " Deckungen ohne Vertrag im Schnappschuss uebersprungen");
+        }
+        this.deckungVertragFks = Arrays.copyOf(vertraege, n);
+        this.deckungsartFks = Arrays.copyOf(arten, n);
+        this.betraegeCent = Arrays.copyOf(betraege, n);
+        deckungProduktIdx = Arrays.copyOf(produktIdx, n);
+    }
+
+    /**
+     * Liest Vertrag und Deckung in einer serialisierbaren, lesenden
+     * Transaktion. Oracle liest dann beide Tabellen zum Stand des
+     * Transaktionsbeginns; ein reiner Read-Only-Hinweis reicht dafuer nicht,
+     * jede Abfrage saehe sonst ihren eigenen Stand.
+     */
+    public static BestandSnapshot lade(Connection connection) {
+        long start = System.nanoTime();
+        try {
+            TransactionTemplate t = TransactionTemplate.of(connection)
+                    .isolation(Connection.TRANSACTION_SERIALIZABLE)
+                    .readOnly(true);
+            BestandSnapshot s = t.execute(c -> {
+                IntSpalte ids = new IntSpalte();
+                IntSpalte produkte = new IntSpalte();
+                IntSpalte kunden = new IntSpalte();
+                IntSpalte beginn = new IntSpalte();
+                IntSpalte ende = new IntSpalte();
+                L.info(SQL_VERTRAEGE);
+                try (PreparedStatement ps = c.prepareStatement(SQL_VERTRAEGE)) {
+                    ps.setFetchSize(FETCH_SIZE);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            ids.add(rs.getInt(1));
+                            produkte.add(rs.getInt(2));
+                            kunden.add(rs.getInt(3));
+                            beginn.add(rs.getInt(4));
+                            ende.add(rs.getInt(5));
+                        }
+                    }
+                }
+                IntSpalte vertraege = new IntSpalte();
+                IntSpalte arten = new IntSpalte();
+                LongSpalte betraege = new LongSpalte();
+                L.info(SQL_DECKUNGEN);
+                try (PreparedStatement ps = c.prepareStatement(SQL_DECKUNGEN)) {
+                    ps.setFetchSize(FETCH_SIZE);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            vertraege.add(rs.getInt(1));
+                            arten.add(rs.getInt(2));
+                            betraege.add(rs.getLong(3));
+                        }
+                    }
+                }
+                return new BestandSnapshot(ids.toArray(), produkte.toArray(), kunden.toArray(), beginn.toArray(),
+                        ende.toArray(), vertraege.toArray(), arten.toArray(), betraege.toArray());
+            });
+            L.info("Bestand geladen: " + s.getAnzahlVertraege() + " Vertraege, " + s.getAnzahlDeckungen()
+                    + " Deckungen in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+            return s;
+        } catch (SQLException e) {
+            L.error("", e);
+            throw new DataException(e);
+        }
+    }
+
+    public int getAnzahlVertraege() {
+        return vertragIds.length;
+    }
+
+    public int getAnzahlDeckungen() {
+        return deckungVertragFks.length;
+    }
+
+    /**
+     * Anzahl der beim Laden uebersprungenen Deckungen, deren Vertrag nicht
+     * im Schnappschuss lag.
+     */
+    public int getAnzahlDeckungenOhneVertrag() {
+        return deckungenOhneVertrag;
+    }
+
+    /**
+     * Summe der Deckungsbetraege je Produkt in Cent, nach Produkt-ID sortiert.
+     */
+    public Map<Integer, Long> summeDeckungsbetragCentJeProdukt() {
+        long[] summen = ForkJoinPool.commonPool().invoke(new SummeJeProdukt(0, deckungVertragFks.length));
+        Map<Integer, Long> ergebnis = new LinkedHashMap<>();
+        for (int p = 0; p < produktIds.length; p++) {
+            ergebnis.put(produktIds[p], summen[p]);
+        }
+        return ergebnis;
+    }
+
+    /**
+     * Summe der Deckungsbetraege einer Deckungsart in Cent.
+     */
+    public long summeDeckungsbetragCent(int deckungsartId) {
+        return ForkJoinPool.commonPool().invoke(new SummeDeckungsart(0, deckungsartFks.length, deckungsartId));
+    }
+
+    /**
+     * Anzahl der Vertraege, die am Stichtag laufen (Beginn und Ende
+     * eingeschlossen).
+     */
+    public long anzahlAktiveVertraege(LocalDate stichtag) {
+        return ForkJoinPool.commonPool().invoke(new AktiveVertraege(0, vertragIds.length, (int) stichtag.toEpochDay()));
+    }
+
+    /**
+     * IDs der Vertraege, die am Stichtag laufen, aufsteigend.
+     */
+    public int[] aktiveVertraege(LocalDate stichtag) {
+        int tag = (int) stichtag.toEpochDay();
+        int[] ids = new int[vertragIds.length];
+        int n = 0;
+        for (int i = 0; i < vertragIds.length; i++) {
+            if (beginnTage[i] <= tag && tag <= endeTage[i]) {
+                ids[n++] = vertragIds[i];
+            }
+        }
+        int[] ergebnis = Arrays.copyOf(ids, n);
+        Arrays.sort(ergebnis);
+        return ergebnis;
+    }
+
+    /**
+     * Anzahl der Vertraege eines Kunden.
+     */
+    public int anzahlVertraegeVonKunde(int kundeId) {
+        int n = 0;
+        for (int k : kundeFks) {
+            if (k == kundeId) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    private final class SummeJeProdukt extends RecursiveTask<long[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final int von;
+        private final int bis;
+
+        SummeJeProdukt(int von, int bis) {
+            this.von = von;
+            this.bis = bis;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (bis - von <= SCHWELLE) {
+                long[] summen = new long[produktIds.length];
+                for (int i = von; i < bis; i++) {
+                    summen[deckungProduktIdx[i]] = Math.addExact(summen[deckungProduktIdx[i]], betraegeCent[i]);
+                }
+                return summen;
+            }
+            int mitte = (von + bis) >>> 1;
+            SummeJeProdukt links = new SummeJeProdukt(von, mitte);
+            links.fork();
+            long[] rechts = new SummeJeProdukt(mitte, bis).compute();
+            long[] summen = links.join();
+            for (int p = 0; p < summen.length; p++) {
+                summen[p] = Math.addExact(summen[p], rechts[p]);
+            }
+            return summen;
+        }
+    }
+
+    private final class SummeDeckungsart extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final int von;
+        private final int bis;
+        private final int deckungsartId;
+
+        SummeDeckungsart(int von, int bis, int deckungsartId) {
+            this.von = von;
+            this.bis = bis;
+            this.deckungsartId = deckungsartId;
+        }
+
+        @Override
+        protected Long compute() {
+            if (bis - von <= SCHWELLE) {
+                long summe = 0;
+                for (int i = von; i < bis; i++) {
+                    if (deckungsartFks[i] == deckungsartId) {
+                        summe = Math.addExact(summe, betraegeCent[i]);
+                    }
+                }
+                return summe;
+            }
+            int mitte = (von + bis) >>> 1;
+            SummeDeckungsart links = new SummeDeckungsart(von, mitte, deckungsartId);
+            links.fork();
+            long rechts = new SummeDeckungsart(mitte, bis, deckungsartId).compute();
+            return Math.addExact(links.join(), rechts);
+        }
+    }
+
+    private final class AktiveVertraege extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final int von;
+        private final int bis;
+        private final int tag;
+
+        AktiveVertraege(int von, int bis, int tag) {
+            this.von = von;
+            this.bis = bis;
+            this.tag = tag;
+        }
+
+        @Override
+        protected Long compute() {
+            if (bis - von <= SCHWELLE) {
+                long n = 0;
+                for (int i = von; i < bis; i++) {
+                    if (beginnTage[i] <= tag && tag <= endeTage[i]) {
+                        n++;
+                    }
+                }
+                return n;
+            }
+            int mitte = (von + bis) >>> 1;
+            AktiveVertraege links = new AktiveVertraege(von, mitte, tag);
+            links.fork();
+            long rechts = new AktiveVertraege(mitte, bis, tag).compute();
+            return links.join() + rechts;
+        }
+    }
+
+}
@@ -0,0 +1,75 @@
+package de.htwberlin.dbtech.versicherung;
+
+import org.junit.Assert;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Random;
+
+public class BestandSnapshotTest {
+
+    @org.junit.Test
+    public void aggregateWieSchleife() {
+        Random r = new Random(3);
+        int anzahlVertraege = 200_000;
+        int[] ids = new int[anzahlVertraege];
+        int[] produkte = new int[anzahlVertraege];
+        int[] kunden = new int[anzahlVertraege];
+        int[] beginn = new int[anzahlVertraege];
+        int[] ende = new int[anzahlVertraege];
+        for (int i = 0; i < anzahlVertraege; i++) {
+            ids[i] = anzahlVertraege - i;
+            produkte[i] = 1 + r.nextInt(3);
+            kunden[i] = r.nextInt(50_000);
+            beginn[i] = 18_000 + r.nextInt(3000);
+            ende[i] = beginn[i] + r.nextInt(2000);
+        }
+        int anzahlDeckungen = 500_000;
+        int[] vertraege = new int[anzahlDeckungen];
+        int[] arten = new int[anzahlDeckungen];
+        long[] betraege = new long[anzahlDeckungen];
+        long[] erwartetJeProdukt = new long[4];
+        long erwartetArt5 = 0;
+        for (int i = 0; i < anzahlDeckungen; i++) {
+            int v = r.nextInt(anzahlVertraege);
+            vertraege[i] = ids[v];
+            arten[i] = r.nextInt(10);
+            betraege[i] = 100L * r.nextInt(1_000_000);
+            erwartetJeProdukt[produkte[v]] += betraege[i];
+            if (arten[i] == 5) {
+                erwartetArt5 += betraege[i];
+            }
+        }
+        BestandSnapshot s = new BestandSnapshot(ids, produkte, kunden, beginn, ende, vertraege, arten, betraege);
+
+        Map<Integer, Long> jeProdukt = s.summeDeckungsbetragCentJeProdukt();
+        Assert.assertEquals(3, jeProdukt.size());
+        for (int p = 1; p <= 3; p++) {
+            Assert.assertEquals(erwartetJeProdukt[p], (long) jeProdukt.get(p));
+        }
+        Assert.assertEquals(erwartetArt5, s.summeDeckungsbetragCent(5));
+
+        LocalDate stichtag = LocalDate.ofEpochDay(19_500);
+        long aktiv = 0;
+        for (int i = 0; i < anzahlVertraege; i++) {
+            if (beginn[i] <= 19_500 && 19_500 <= ende[i]) {
+                aktiv++;
+            }
+        }
+        Assert.assertEquals(aktiv, s.anzahlAktiveVertraege(stichtag));
+        Assert.assertEquals(aktiv, s.aktiveVertraege(stichtag).length);
+    }
+
+    @org.junit.Test
+    public void deckungOhneVertragWirdUebersprungen() {
+        // Vertrag 3 wurde erst nach dem Lesen von Vertrag angelegt
+        BestandSnapshot s = new BestandSnapshot(new int[]{1, 2}, new int[]{7, 8}, new int[]{1, 1},
+                new int[]{0, 0}, new int[]{9, 9}, new int[]{1, 3, 2}, new int[]{5, 5, 6}, new long[]{100, 200, 400});
+
+        Assert.assertEquals(2, s.getAnzahlDeckungen());
+        Assert.assertEquals(1, s.getAnzahlDeckungenOhneVertrag());
+        Assert.assertEquals(Map.of(7, 100L, 8, 400L), s.summeDeckungsbetragCentJeProdukt());
+        Assert.assertEquals(100, s.summeDeckungsbetragCent(5));
+    }
+
+}
@@ -0,0 +1,26 @@
+package de.htwberlin.dbtech.versicherung;
+
+import java.util.Arrays;
+
+/**
+ * Wachsendes int-Array beim Lesen spaltenweiser Daten.
+ */
+final class IntSpalte {
+    int[] werte = new int[1024];
+    int size;
+
+    void add(int v) {
+        if (size == werte.length) {
+            werte = Arrays.copyOf(werte, size * 2);
+        }
+        werte[size++] = v;
+    }
+
+    int get(int i) {
+        return werte[i];
+    }
+
+    int[] toArray() {
+        return Arrays.copyOf(werte, size);
+    }
+}
@@ -0,0 +1,27 @@
+package de.htwberlin.dbtech.versicherung;
+
+import java.util.Arrays;
+
+/**
+ * Wachsendes long-Array beim Lesen spaltenweiser Daten, z.B. fuer Betraege
+ * in Cent.
+ */
+final class LongSpalte {
+    long[] werte = new long[1024];
+    int size;
+
+    void add(long v) {
+        if (size == werte.length) {
+            werte = Arrays.copyOf(werte, size * 2);
+        }
+        werte[size++] = v;
+    }
+
+    long get(int i) {
+        return werte[i];
+    }
+
+    long[] toArray() {
+        return Arrays.copyOf(werte, size);
+    }
+}
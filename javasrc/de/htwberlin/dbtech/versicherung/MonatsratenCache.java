@@ -0,0 +1,250 @@
+package de.htwberlin.dbtech.versicherung;
+
+import de.htwberlin.dbtech.utils.IntIntMap;
+
+/**
+ * Ergebnis-Cache fuer
+ * {@link de.htwberlin.dbtech.aufgaben.ue02.VersicherungJdbc#calcMonatsrate}:
+ * Vertrags-ID auf Monatsrate in Cent, begrenzt auf eine feste Zahl von
+ * Eintraegen, bei Platzmangel wird der am laengsten nicht gelesene
+ * verdraengt (LRU).
+ * <p>
+ * Die Eintraege liegen in parallelen Arrays, die Reihenfolge ist eine
+ * doppelt verkettete Liste ueber Array-Indizes. Ein Eintrag kostet so etwa
+ * {@link #BYTES_JE_EINTRAG} Bytes statt der ~100 einer
+ * {@code LinkedHashMap<Integer, Long>}; {@link #mitSpeicher(long)} rechnet
+ * ein Speicherbudget damit in Eintraege um.
+ * <p>
+ * Ungueltig wird ein Eintrag ueber {@link #vertragGeaendert(int)} (neue
+ * Deckung) oder {@link #leeren()} (Deckungspreise geaendert,
+ * Massenimport). Jede Invalidierung erhoeht den {@link #getStand() Stand}.
+ * Wer eine Rate berechnet, merkt sich den Stand vor dem Lesen aus der
+ * Datenbank und uebergibt ihn an {@link #put}; wurde inzwischen
+ * invalidiert, wird das moeglicherweise veraltete Ergebnis verworfen.
+ * Invalidiert werden muss nach dem Commit der Aenderung, bei einer
+ * Transaktion des Aufrufers ueber
+ * {@link de.htwberlin.dbtech.utils.TransactionTemplate#nachCommit}.
+ * <p>
+ * Threadsicher; alle Zugriffe sind kurz und laufen unter der Sperre des
+ * Objekts.
+ */
+public final class MonatsratenCache {
+    public static final long KEIN_WERT = Long.MIN_VALUE;
+
+    /**
+     * Geschaetzter Speicherbedarf eines Eintrags: Schluessel, Wert und zwei
+     * Verweise (20 Bytes) plus Index mit Ladefaktor 0.5 (16 Bytes).
+     */
+    public static final int BYTES_JE_EINTRAG = 36;
+
+    private static final int KEINER = -1;
+
+    private final int maxEintraege;
+    private final int[] vertraege;
+    private final long[] cent;
+    private final int[] vor;
+    private final int[] nach;
+    // Vertrags-ID -> Platz in den Arrays
+    private final IntIntMap index;
+    private int anzahl;
+    // zuletzt gelesen bzw. am laengsten nicht gelesen
+    private int kopf = KEINER;
+    private int ende = KEINER;
+    // freie Plaetze, verkettet ueber nach[]
+    private int frei = KEINER;
+    private long stand;
+
+    private long treffer;
+    private long fehlzugriffe;
+    private long verdraengt;
+    private long invalidiert;
+    private long verworfen;
+
+    public MonatsratenCache(int maxEintraege) {
+        if (maxEintraege < 1) {
+            throw new IllegalArgumentException("maxEintraege: " + maxEintraege);
+        }
+        this.maxEintraege = maxEintraege;
+        vertraege = new int[maxEintraege];
+        cent = new long[maxEintraege];
+        vor = new int[maxEintraege];
+        nach = new int[maxEintraege];
+        index = new IntIntMap(maxEintraege);
+    }
+
+    /**
+     * Cache mit so vielen Eintraegen, wie in das Budget passen.
+     */
+    public static MonatsratenCache mitSpeicher(long bytes) {
+        return new MonatsratenCache((int) Math.max(1, Math.min(Integer.MAX_VALUE / 2, bytes / BYTES_JE_EINTRAG)));
+    }
+
+    /**
+     * Monatsrate in Cent oder {@link #KEIN_WERT}. Ein Treffer wird zum
+     * zuletzt gelesenen Eintrag.
+     */
+    public synchronized long get(int vertragsId) {
+        int p = index.get(vertragsId, KEINER);
+        if (p == KEINER) {
+            fehlzugriffe++;
+            return KEIN_WERT;
+        }
+        treffer++;
+        nachVorne(p);
+        return cent[p];
+    }
+
+    /**
+     * Stand fuer {@link #put}, vor dem Lesen aus der Datenbank abzufragen.
+     */
+    public synchronized long getStand() {
+        return stand;
+    }
+
+    /**
+     * Legt eine berechnete Rate ab, wenn seit {@code stand} nicht
+     * invalidiert wurde.
+     */
+    public synchronized void put(int vertragsId, long monatsrateCent, long stand) {
+        if (stand != this.stand) {
+            verworfen++;
+            return;
+        }
+        int p = index.get(vertragsId, KEINER);
+        if (p != KEINER) {
+            cent[p] = monatsrateCent;
+            nachVorne(p);
+            return;
+        }
+        if (anzahl == maxEintraege) {
+            p = ende;
+            aushaengen(p);
+            index.remove(vertraege[p]);
+            verdraengt++;
+        } else if (frei != KEINER) {
+            p = frei;
+            frei = nach[p];
+            anzahl++;
+        } else {
+            p = anzahl++;
+        }
+        vertraege[p] = vertragsId;
+        cent[p] = monatsrateCent;
+        index.put(vertragsId, p);
+        vorneEinhaengen(p);
+    }
+
+    /**
+     * Nach dem Commit einer neuen oder geaenderten Deckung des Vertrags.
+     */
+    public synchronized void vertragGeaendert(int vertragsId) {
+        stand++;
+        invalidiert++;
+        int p = index.get(vertragsId, KEINER);
+        if (p == KEINER) {
+            return;
+        }
+        aushaengen(p);
+        index.remove(vertragsId);
+        nach[p] = frei;
+        frei = p;
+        anzahl--;
+    }
+
+    /**
+     * Verwirft alle Eintraege, z.B. nach Aenderungen an Deckungspreis oder
+     * nach einem Massenimport von Deckungen.
+     */
+    public synchronized void leeren() {
+        stand++;
+        invalidiert += anzahl;
+        index.clear();
+        anzahl = 0;
+        kopf = KEINER;
+        ende = KEINER;
+        frei = KEINER;
+    }
+
+    private void nachVorne(int p) {
+        if (p != kopf) {
+            aushaengen(p);
+            vorneEinhaengen(p);
+        }
+    }
+
+    private void aushaengen(int p) {
+        if (vor[p] != KEINER) {
+            nach[vor[p]] = nach[p];
+        } else {
+            kopf = nach[p];
+        }
+        if (nach[p] != KEINER) {
+            vor[nach[p]] = vor[p];
+        } else {
+            ende = vor[p];
+        }
+    }
+
+    private void vorneEinhaengen(int p) {
+        vor[p] = KEINER;
+        nach[p] = kopf;
+        if (kopf != KEINER) {
+            vor[kopf] = p;
+        }
+        kopf = p;
+        if (ende == KEINER) {
+            ende = p;
+        }
+    }
+
+    public int getMaxEintraege() {
+        return maxEintraege;
+    }
+
+    public synchronized int size() {
+        return anzahl;
+    }
+
+    public synchronized long getTreffer() {
+        return treffer;
+    }
+
+    public synchronized long getFehlzugriffe() {
+        return fehlzugriffe;
+    }
+
+    /**
+     * Wegen Platzmangels entfernte Eintraege.
+     */
+    public synchronized long getVerdraengt() {
+        return verdraengt;
+    }
+
+    /**
+     * Durch {@link #vertragGeaendert} oder {@link #leeren} ungueltig
+     * gewordene Eintraege bzw. Vertraege.
+     */
+    public synchronized long getInvalidiert() {
+        return invalidiert;
+    }
+
+    /**
+     * Wegen einer zwischenzeitlichen Invalidierung nicht abgelegte
+     * Ergebnisse.
+     */
+    public synchronized long getVerworfen() {
+        return verworfen;
+    }
+
+    public synchronized double getTrefferquote() {
+        long zugriffe = treffer + fehlzugriffe;
+        return zugriffe == 0 ? 0 : (double) treffer / zugriffe;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d/%d Eintraege, %d Treffer, %d Fehlzugriffe (%.1f%%), %d verdraengt, %d invalidiert, %d verworfen",
+                anzahl, maxEintraege, treffer, fehlzugriffe, getTrefferquote() * 100, verdraengt, invalidiert, verworfen);
+    }
+
+}
@@ -0,0 +1,46 @@
+package de.htwberlin.dbtech.versicherung;
+
+import org.junit.Assert;
+
+public class MonatsratenCacheTest {
+
+    @org.junit.Test
+    public void verdraengtAmLaengstenNichtGelesenen() {
+        MonatsratenCache c = new MonatsratenCache(2);
+        c.put(1, 100, c.getStand());
+        c.put(2, 200, c.getStand());
+        Assert.assertEquals(100, c.get(1));
+        c.put(3, 300, c.getStand());
+        Assert.assertEquals(MonatsratenCache.KEIN_WERT, c.get(2));
+        Assert.assertEquals(100, c.get(1));
+        Assert.assertEquals(300, c.get(3));
+        Assert.assertEquals(2, c.size());
+        Assert.assertEquals(1, c.getVerdraengt());
+        Assert.assertEquals(3, c.getTreffer());
+        Assert.assertEquals(1, c.getFehlzugriffe());
+    }
+
+    @org.junit.Test
+    public void invalidierungVerwirftLaufendeBerechnung() {
+        MonatsratenCache c = new MonatsratenCache(10);
+        c.put(1, 100, c.getStand());
+        long stand = c.getStand();
+        c.vertragGeaendert(1);
+        // vor der Invalidierung gelesen, darf nicht mehr abgelegt werden
+        c.put(1, 100, stand);
+        Assert.assertEquals(MonatsratenCache.KEIN_WERT, c.get(1));
+        Assert.assertEquals(1, c.getVerworfen());
+        c.put(1, 150, c.getStand());
+        c.put(2, 200, c.getStand());
+        Assert.assertEquals(150, c.get(1));
+        c.leeren();
+        Assert.assertEquals(0, c.size());
+        Assert.assertEquals(MonatsratenCache.KEIN_WERT, c.get(2));
+        for (int i = 0; i < 20; i++) {
+            c.put(i, i, c.getStand());
+        }
+        Assert.assertEquals(10, c.size());
+        Assert.assertEquals(19, c.get(19));
+    }
+
+}
@@ -0,0 +1,231 @@
+package de.htwberlin.dbtech.versicherung;
+
+import de.htwberlin.dbtech.exceptions.DataException;
+import de.htwberlin.dbtech.utils.DbCred;
+import de.htwberlin.dbtech.utils.JdbcUtils;
+import de.htwberlin.dbtech.utils.Money;
+import de.htwberlin.dbtech.utils.TransactionTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pflege und Pruefung der Tabelle Vertrag_Monatsrate, in der die Monatsrate
+ * jedes Vertrags so steht, wie sie
+ * {@link de.htwberlin.dbtech.aufgaben.ue02.VersicherungJdbc#calcMonatsrate}
+ * berechnet: Summe der zum Versicherungsbeginn gueltigen Preise aller
+ * Deckungen.
+ * <p>
+ * {@link #nachfuehren} berechnet die Zeile eines Vertrags aus seinen
+ * Deckungen neu, statt nur den Preis der neuen Deckung aufzuaddieren. Das
+ * kostet einen Join ueber die wenigen Deckungen eines Vertrags, ist aber
+ * idempotent und repariert nebenbei Vertraege, deren Deckungen an
+ * createDeckung vorbei geladen wurden. {@link BestandImport} fuehrt so am
+ * Ende alle Vertraege mit neuen Deckungen nach; nach anderen
+ * Massenladungen (FixtureLoader, SQL-Skripte) zieht {@link #neuAufbauen}
+ * alle Zeilen in einer Anweisung nach; {@link #pruefe} vergleicht die
+ * Tabelle mit dem Join.
+ */
+public final class MonatsratenSummary {
+    private static final Logger L = LoggerFactory.getLogger(MonatsratenSummary.class);
+
+    /**
+     * Rueckgabe von {@link #leseCent}, wenn der Vertrag keine Zeile hat.
+     */
+    public static final long KEINE_ZEILE = Long.MIN_VALUE;
+
+    // Monatsrate je Vertrag wie in calcMonatsrate, 0 fuer Vertraege ohne Deckung
+    private static final String SQL_BERECHNET = String.join(" ",
+            "select v.ID as Vertrag_FK, nvl(sum(dp.Preis), 0) as Monatsrate",
+            "from Vertrag v",
+            "left join Deckung d on d.Vertrag_FK = v.ID",
+            "left join Deckungsbetrag db on db.Deckungsart_FK = d.Deckungsart_FK and db.Deckungsbetrag = d.Deckungsbetrag",
+            "left join Deckungspreis dp on dp.Deckungsbetrag_FK = db.ID",
+            "and v.Versicherungsbeginn >= dp.Gueltig_Von and v.Versicherungsbeginn <= dp.Gueltig_Bis");
+
+    private static final String SQL_MERGE = String.join(" ",
+            "merge into Vertrag_Monatsrate m using (%s) b on (m.Vertrag_FK = b.Vertrag_FK)",
+            "when matched then update set m.Monatsrate = b.Monatsrate where m.Monatsrate <> b.Monatsrate",
+            "when not matched then insert (Vertrag_FK, Monatsrate) values (b.Vertrag_FK, b.Monatsrate)");
+
+    // auch von BestandImport als Batch verwendet
+    static final String SQL_NACHFUEHREN =
+            String.format(SQL_MERGE, SQL_BERECHNET + " where v.ID = ? group by v.ID");
+    private static final String SQL_NEU_AUFBAUEN =
+            String.format(SQL_MERGE, SQL_BERECHNET + " group by v.ID");
+    private static final String SQL_LESEN =
+            "select round(Monatsrate * 100) from Vertrag_Monatsrate where Vertrag_FK = ?";
+
+    // fehlende Zeilen sind nur ein Fehler, wenn die Rate nicht 0 ist; calcMonatsrate rechnet dann selbst
+    private static final String SQL_PRUEFEN = String.join(" ",
+            "select nvl(m.Vertrag_FK, b.Vertrag_FK), round(m.Monatsrate * 100), round(b.Monatsrate * 100)",
+            "from Vertrag_Monatsrate m full outer join (" + SQL_BERECHNET + " group by v.ID) b",
+            "on b.Vertrag_FK = m.Vertrag_FK",
+            "where b.Vertrag_FK is null or (m.Vertrag_FK is null and b.Monatsrate <> 0)",
+            "or m.Monatsrate <> b.Monatsrate",
+            "order by 1");
+
+    /**
+     * Ein Vertrag, dessen Zeile in Vertrag_Monatsrate nicht zum Join passt.
+     */
+    public static class Abweichung {
+        private final int vertragsId;
+        private final long summaryCent;
+        private final long berechnetCent;
+
+        Abweichung(int vertragsId, long summaryCent, long berechnetCent) {
+            this.vertragsId = vertragsId;
+            this.summaryCent = summaryCent;
+            this.berechnetCent = berechnetCent;
+        }
+
+        public int getVertragsId() {
+            return vertragsId;
+        }
+
+        /**
+         * Wert in Vertrag_Monatsrate oder {@link #KEINE_ZEILE}.
+         */
+        public long getSummaryCent() {
+            return summaryCent;
+        }
+
+        /**
+         * Wert aus dem Join oder {@link #KEINE_ZEILE}, wenn es den Vertrag
+         * nicht mehr gibt.
+         */
+        public long getBerechnetCent() {
+            return berechnetCent;
+        }
+
+        @Override
+        public String toString() {
+            return "Vertrag " + vertragsId + ": Vertrag_Monatsrate " + text(summaryCent) + ", berechnet " + text(berechnetCent);
+        }
+
+        private static String text(long cent) {
+            return cent == KEINE_ZEILE ? "fehlt" : Money.ofCent(cent).toString();
+        }
+    }
+
+    private MonatsratenSummary() {
+    }
+
+    /**
+     * SQL-Anweisungen je Vertrag, z.B. fuer {@link de.htwberlin.dbtech.utils.ExplainPlanCheck}.
+     */
+    public static List<String> statements() {
+        return List.of(SQL_NACHFUEHREN, SQL_LESEN);
+    }
+
+    /**
+     * SQL-Anweisungen ueber alle Vertraege, siehe
+     * {@link de.htwberlin.dbtech.start.Anwendungsstart#massenStatements()}.
+     */
+    public static List<String> massenStatements() {
+        return List.of(SQL_NEU_AUFBAUEN, SQL_PRUEFEN);
+    }
+
+    /**
+     * Berechnet die Zeile des Vertrags neu. Laeuft in der Transaktion des
+     * Aufrufers, damit Deckung und Summe zusammen committet werden.
+     */
+    public static void nachfuehren(Connection c, int vertragsId) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(SQL_NACHFUEHREN)) {
+            ps.setInt(1, vertragsId);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Monatsrate des Vertrags in Cent oder {@link #KEINE_ZEILE}.
+     */
+    public static long leseCent(Connection c, int vertragsId) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(SQL_LESEN)) {
+            ps.setInt(1, vertragsId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? Money.leseCent(rs, 1) : KEINE_ZEILE;
+            }
+        }
+    }
+
+    /**
+     * Berechnet alle Zeilen neu und schreibt nur die geaenderten.
+     *
+     * @return Anzahl eingefuegter oder geaenderter Zeilen.
+     */
+    public static int neuAufbauen(Connection connection) {
+        long start = System.nanoTime();
+        L.info(SQL_NEU_AUFBAUEN);
+        try {
+            int n = TransactionTemplate.of(connection).execute(c -> {
+                try (PreparedStatement ps = c.prepareStatement(SQL_NEU_AUFBAUEN)) {
+                    return ps.executeUpdate();
+                }
+            });
+            L.info("Vertrag_Monatsrate neu aufgebaut: " + n + " Zeilen in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+            return n;
+        } catch (SQLException e) {
+            L.error("", e);
+            throw new DataException(e);
+        }
+    }
+
+    /**
+     * Vergleicht Vertrag_Monatsrate in einer Abfrage mit dem Join und
+     * schreibt jede Abweichung als Warnung ins Log.
+     */
+    public static List<Abweichung> pruefe(Connection connection) {
+        long start = System.nanoTime();
+        L.info(SQL_PRUEFEN);
+        List<Abweichung> abweichungen = new ArrayList<>();
+        try {
+            TransactionTemplate.of(connection).readOnly(true).run(c -> {
+                try (PreparedStatement ps = c.prepareStatement(SQL_PRUEFEN)) {
+                    ps.setFetchSize(1000);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            long summary = rs.getLong(2);
+                            summary = rs.wasNull() ? KEINE_ZEILE : summary;
+                            long berechnet = rs.getLong(3);
+                            berechnet = rs.wasNull() ? KEINE_ZEILE : berechnet;
+                            abweichungen.add(new Abweichung(rs.getInt(1), summary, berechnet));
+                        }
+                    }
+                }
+            });
+        } catch (SQLException e) {
+            L.error("", e);
+            throw new DataException(e);
+        }
+        for (Abweichung a : abweichungen) {
+            L.warn(a.toString());
+        }
+        L.info("Vertrag_Monatsrate geprueft: " + abweichungen.size() + " Abweichungen in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+        return abweichungen;
+    }
+
+    /**
+     * Prueft die Tabelle der Datenbank aus DbCred; mit "neu" als args[0]
+     * wird sie vorher neu aufgebaut.
+     */
+    public static void main(String[] args) {
+        try (Connection connection = JdbcUtils.getConnectionViaDriverManager(DbCred.url, DbCred.user, DbCred.password)) {
+            if (args.length > 0 && "neu".equals(args[0])) {
+                neuAufbauen(connection);
+            }
+            System.out.println(pruefe(connection).size() + " Abweichungen");
+        } catch (SQLException e) {
+            L.error("", e);
+            throw new DataException(e);
+        }
+    }
+
+}
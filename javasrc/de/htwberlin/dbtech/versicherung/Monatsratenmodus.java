@@ -0,0 +1,22 @@
+package de.htwberlin.dbtech.versicherung;
+
+/**
+ * Ob die Monatsrate eines Vertrags bei jedem Lesen aus Deckung,
+ * Deckungsbetrag und Deckungspreis berechnet oder aus der Tabelle
+ * Vertrag_Monatsrate gelesen wird, siehe {@link MonatsratenSummary}.
+ */
+public enum Monatsratenmodus {
+    /**
+     * Keine Summentabelle: createDeckung schreibt nur die Deckung,
+     * calcMonatsrate berechnet die Summe ueber den Join.
+     */
+    BERECHNEN,
+
+    /**
+     * createDeckung zieht die Zeile des Vertrags in Vertrag_Monatsrate in
+     * derselben Transaktion nach, calcMonatsrate liest sie ueber den
+     * Primaerschluessel. Fehlt die Zeile, wird wie bei {@link #BERECHNEN}
+     * gerechnet.
+     */
+    SUMMARY
+}
@@ -0,0 +1,16 @@
+package de.htwberlin.dbtech.versicherung;
+
+/**
+ * Deckungspreise ohne Datenbankzugriff, z.B. aus {@link Tarifdatei} oder
+ * {@link Referenzdaten}.
+ */
+public interface Preisquelle {
+    long KEIN_PREIS = Long.MIN_VALUE;
+
+    /**
+     * Summe der Preise aller Zeitraeume des Deckungsbetrags, die den Tag
+     * (seit 1970-01-01) enthalten, in Cent, wie die Summe in calcMonatsrate;
+     * {@link #KEIN_PREIS}, wenn keiner den Tag enthaelt.
+     */
+    long summeCent(int deckungsbetragId, int tag);
+}
@@ -0,0 +1,520 @@
+package de.htwberlin.dbtech.versicherung;
+
+import de.htwberlin.dbtech.exceptions.DataException;
+import de.htwberlin.dbtech.utils.IntIntMap;
+import de.htwberlin.dbtech.utils.TransactionTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Unveraenderliche Kopie der Stammdaten, gegen die Deckungen geprueft werden:
+ * Produkte, Deckungsarten, Deckungsbetraege, Deckungspreise und
+ * Ablehnungsregeln. Die Pruefungen von
+ * {@link de.htwberlin.dbtech.aufgaben.ue03.VersicherungService#createDeckung}
+ * laufen damit ohne Datenbankzugriff und aus beliebig vielen Threads.
+ * <p>
+ * Wie in {@link BestandSnapshot} sind Datumswerte Tage seit 1970-01-01 und
+ * Betraege long in Cent. Nicht vorhandene Werte werden als {@link #KEINE}
+ * bzw. {@link #KEIN_PREIS} gemeldet.
+ * <p>
+ * {@link #schreibeSnapshot} legt die Daten kompakt binaer mit Pruefsumme
+ * und dem {@link #datenbankStand Stand} der Stammdaten ab; nach einem
+ * Neustart liest {@link #leseSnapshot} sie in Millisekunden wieder ein,
+ * siehe {@link ReferenzdatenCache}.
+ */
+public final class Referenzdaten implements Preisquelle {
+    private static final Logger L = LoggerFactory.getLogger(Referenzdaten.class);
+
+    public static final int KEINE = Integer.MIN_VALUE;
+
+    private static final int SNAPSHOT_KENNUNG = 0x52454644; // "REFD"
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int SNAPSHOT_KOPF = 32;
+
+    private static final String SQL_PRODUKTE = "select ID from Produkt";
+    private static final String SQL_DECKUNGSARTEN = "select ID, Produkt_FK from Deckungsart";
+    private static final String SQL_DECKUNGSBETRAEGE =
+            "select ID, Deckungsart_FK, round(Deckungsbetrag * 100) as BetragCent from Deckungsbetrag";
+    private static final String SQL_DECKUNGSPREISE = String.join(" ",
+            "select Deckungsbetrag_FK,",
+            "  trunc(Gueltig_Von) - date '1970-01-01' as VonTag,",
+            "  trunc(Gueltig_Bis) - date '1970-01-01' as BisTag,",
+            "  round(Preis * 100) as PreisCent",
+            "from Deckungspreis order by Deckungsbetrag_FK, Gueltig_Von, ID");
+    private static final String SQL_REGELN =
+            "select Deckungsart_FK, R_Betrag, R_Alter from Ablehnungsregel order by Deckungsart_FK, LfdNr";
+    // Nummer, Anzahl und Summe der Zeilen-Hashes je Tabelle; aendert sich mit jedem Insert, Update und Delete
+    private static final String SQL_STAND = String.join(" ",
+            "select 1, count(*), nvl(sum(ora_hash(ID)), 0) from Produkt",
+            "union all select 2, count(*), nvl(sum(ora_hash(ID || '|' || Produkt_FK)), 0) from Deckungsart",
+            "union all select 3, count(*), nvl(sum(ora_hash(ID || '|' || Deckungsart_FK || '|' || Deckungsbetrag)), 0)",
+            "from Deckungsbetrag",
+            "union all select 4, count(*), nvl(sum(ora_hash(Deckungsbetrag_FK || '|' || to_char(Gueltig_Von, 'J')",
+            "|| '|' || to_char(Gueltig_Bis, 'J') || '|' || Preis)), 0) from Deckungspreis",
+            "union all select 5, count(*), nvl(sum(ora_hash(Deckungsart_FK || '|' || LfdNr || '|' || R_Betrag",
+            "|| '|' || R_Alter)), 0) from Ablehnungsregel");
+
+    // Deckungsbetraege einer Deckungsart, nach Betrag sortiert
+    private static final class Betraege {
+        final long[] cent;
+        final int[] ids;
+
+        Betraege(long[] cent, int[] ids) {
+            this.cent = cent;
+            this.ids = ids;
+        }
+    }
+
+    // Preiszeitraeume eines Deckungsbetrags, nach Beginn sortiert
+    private static final class Preise {
+        final int[] vonTage;
+        final int[] bisTage;
+        final long[] cent;
+
+        Preise(int[] vonTage, int[] bisTage, long[] cent) {
+            this.vonTage = vonTage;
+            this.bisTage = bisTage;
+            this.cent = cent;
+        }
+    }
+
+    private final IntIntMap produkte;
+    private final IntIntMap deckungsartProdukt;
+    private final Map<Integer, Betraege> betraege;
+    private final Map<Integer, Preise> preise;
+    private final Map<Integer, List<Ablehnungsregel>> regeln;
+
+    private Referenzdaten(Builder b) {
+        produkte = b.produkte;
+        deckungsartProdukt = b.deckungsartProdukt;
+        betraege = new HashMap<>();
+        b.betraege.forEach((art, zeilen) -> {
+            long[][] sortiert = zeilen.toArray(new long[0][]);
+            Arrays.sort(sortiert, (x, y) -> Long.compare(x[0], y[0]));
+            long[] cent = new long[sortiert.length];
+            int[] ids = new int[sortiert.length];
+            for (int i = 0; i < sortiert.length; i++) {
+                cent[i] = sortiert[i][0];
+                ids[i] = (int) sortiert[i][1];
+            }
+            betraege.put(art, new Betraege(cent, ids));
+        });
+        preise = new HashMap<>();
+        b.preise.forEach((betragId, zeilen) -> {
+            long[][] sortiert = zeilen.toArray(new long[0][]);
+            Arrays.sort(sortiert, (x, y) -> Long.compare(x[0], y[0]));
+            int[] von = new int[sortiert.length];
+            int[] bis = new int[sortiert.length];
+            long[] cent = new long[sortiert.length];
+            for (int i = 0; i < sortiert.length; i++) {
+                von[i] = (int) sortiert[i][0];
+                bis[i] = (int) sortiert[i][1];
+                cent[i] = sortiert[i][2];
+            }
+            preise.put(betragId, new Preise(von, bis, cent));
+        });
+        regeln = new HashMap<>();
+        b.regeln.forEach((art, liste) -> regeln.put(art, List.copyOf(liste)));
+    }
+
+    /**
+     * Alle SQL-Anweisungen, z.B. fuer {@link de.htwberlin.dbtech.utils.ExplainPlanCheck}.
+     */
+    public static List<String> statements() {
+        return List.of(SQL_PRODUKTE, SQL_DECKUNGSARTEN, SQL_DECKUNGSBETRAEGE, SQL_DECKUNGSPREISE, SQL_REGELN, SQL_STAND);
+    }
+
+    /**
+     * Liest alle Stammdaten in einer lesenden Transaktion.
+     */
+    public static Referenzdaten lade(Connection connection) {
+        long start = System.nanoTime();
+        try {
+            Referenzdaten r = TransactionTemplate.of(connection).readOnly(true).execute(c -> {
+                Builder b = new Builder();
+                L.info(SQL_PRODUKTE);
+                try (PreparedStatement ps = c.prepareStatement(SQL_PRODUKTE);
+                     ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        b.produkt(rs.getInt(1));
+                    }
+                }
+                L.info(SQL_DECKUNGSARTEN);
+                try (PreparedStatement ps = c.prepareStatement(SQL_DECKUNGSARTEN);
+                     ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        b.deckungsart(rs.getInt(1), rs.getInt(2));
+                    }
+                }
+                L.info(SQL_DECKUNGSBETRAEGE);
+                try (PreparedStatement ps = c.prepareStatement(SQL_DECKUNGSBETRAEGE);
+                     ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        b.deckungsbetrag(rs.getInt(1), rs.getInt(2), rs.getLong(3));
+                    }
+                }
+                L.info(SQL_DECKUNGSPREISE);
+                try (PreparedStatement ps = c.prepareStatement(SQL_DECKUNGSPREISE)) {
+                    ps.setFetchSize(1000);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            b.deckungspreis(rs.getInt(1), rs.getInt(2), rs.getInt(3), rs.getLong(4));
+                        }
+                    }
+                }
+                L.info(SQL_REGELN);
+                try (PreparedStatement ps = c.prepareStatement(SQL_REGELN);
+                     ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        b.regel(rs.getInt(1), rs.getString(2), rs.getString(3));
+                    }
+                }
+                return b.build();
+            });
+            L.info("Referenzdaten geladen: " + r + " in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+            return r;
+        } catch (SQLException e) {
+            L.error("", e);
+            throw new DataException(e);
+        }
+    }
+
+    /**
+     * Fingerabdruck der Stammdaten in der Datenbank: aendert sich mit jeder
+     * Zeile, die eingefuegt, geaendert oder geloescht wird. Liest alle
+     * Stammdaten-Tabellen einmal, aber ohne sie zu uebertragen.
+     */
+    public static long datenbankStand(Connection c) throws SQLException {
+        long[] werte = new long[10];
+        try (PreparedStatement ps = c.prepareStatement(SQL_STAND);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                int nr = rs.getInt(1) - 1;
+                werte[2 * nr] = rs.getLong(2);
+                werte[2 * nr + 1] = rs.getLong(3);
+            }
+        }
+        long stand = 17;
+        for (long w : werte) {
+            stand = stand * 0x9E3779B97F4A7C15L + w;
+        }
+        return stand;
+    }
+
+    public boolean hatProdukt(int produktId) {
+        return produkte.containsKey(produktId);
+    }
+
+    /**
+     * Produkt der Deckungsart oder {@link #KEINE}, wenn es die Deckungsart
+     * nicht gibt.
+     */
+    public int produktVonDeckungsart(int deckungsartId) {
+        return deckungsartProdukt.get(deckungsartId, KEINE);
+    }
+
+    public boolean hatDeckungsbetraege(int deckungsartId) {
+        return betraege.containsKey(deckungsartId);
+    }
+
+    /**
+     * ID des Deckungsbetrags der Deckungsart mit genau diesem Betrag oder
+     * {@link #KEINE}.
+     */
+    public int deckungsbetragId(int deckungsartId, long betragCent) {
+        Betraege b = betraege.get(deckungsartId);
+        if (b == null) {
+            return KEINE;
+        }
+        int i = Arrays.binarySearch(b.cent, betragCent);
+        return i < 0 ? KEINE : b.ids[i];
+    }
+
+    /**
+     * Am Tag gueltiger Preis des Deckungsbetrags in Cent oder
+     * {@link #KEIN_PREIS}. Ueberlappen sich Zeitraeume, gilt der zuletzt
+     * begonnene; bei lueckenlosen Zeitscheiben kostet die Suche O(log n).
+     */
+    public long preisCent(int deckungsbetragId, int tag) {
+        Preise p = preise.get(deckungsbetragId);
+        if (p == null) {
+            return KEIN_PREIS;
+        }
+        // nur Zeitraeume, die spaetestens am Tag beginnen, kommen in Frage
+        int n = Arrays.binarySearch(p.vonTage, tag);
+        n = n < 0 ? -n - 1 : n + 1;
+        while (n < p.vonTage.length && p.vonTage[n] == tag) {
+            n++;
+        }
+        for (int i = n - 1; i >= 0; i--) {
+            if (tag <= p.bisTage[i]) {
+                return p.cent[i];
+            }
+        }
+        return KEIN_PREIS;
+    }
+
+    @Override
+    public long summeCent(int deckungsbetragId, int tag) {
+        Preise p = preise.get(deckungsbetragId);
+        if (p == null) {
+            return KEIN_PREIS;
+        }
+        long summe = 0;
+        boolean gefunden = false;
+        for (int i = 0; i < p.vonTage.length && p.vonTage[i] <= tag; i++) {
+            if (tag <= p.bisTage[i]) {
+                summe += p.cent[i];
+                gefunden = true;
+            }
+        }
+        return gefunden ? summe : KEIN_PREIS;
+    }
+
+    /**
+     * Ablehnungsregeln der Deckungsart in der Reihenfolge von LfdNr.
+     */
+    public List<Ablehnungsregel> regeln(int deckungsartId) {
+        return regeln.getOrDefault(deckungsartId, List.of());
+    }
+
+    /**
+     * Erste zutreffende Ablehnungsregel oder null.
+     */
+    public Ablehnungsregel zutreffendeRegel(int deckungsartId, long betragCent, int alter) {
+        for (Ablehnungsregel r : regeln(deckungsartId)) {
+            if (r.trifftZu(betragCent, alter)) {
+                return r;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Inhalt einer Snapshot-Datei.
+     */
+    public static final class Snapshot {
+        private final Referenzdaten daten;
+        private final long datenbankStand;
+        private final long erzeugtMillis;
+
+        Snapshot(Referenzdaten daten, long datenbankStand, long erzeugtMillis) {
+            this.daten = daten;
+            this.datenbankStand = datenbankStand;
+            this.erzeugtMillis = erzeugtMillis;
+        }
+
+        public Referenzdaten getDaten() {
+            return daten;
+        }
+
+        /**
+         * {@link #datenbankStand(Connection)} zum Zeitpunkt des Ladens aus der
+         * Datenbank.
+         */
+        public long getDatenbankStand() {
+            return datenbankStand;
+        }
+
+        public long getErzeugtMillis() {
+            return erzeugtMillis;
+        }
+    }
+
+    /**
+     * Schreibt die Daten mit Kopf (Kennung, Version, Stand, Zeit, Laenge,
+     * CRC32) in eine temporaere Datei und ersetzt damit die Zieldatei.
+     */
+    public void schreibeSnapshot(Path pfad, long datenbankStand) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 16);
+        DataOutputStream out = new DataOutputStream(bytes);
+        int[] ids = produkte.alleSchluessel();
+        out.writeInt(ids.length);
+        for (int id : ids) {
+            out.writeInt(id);
+        }
+        ids = deckungsartProdukt.alleSchluessel();
+        out.writeInt(ids.length);
+        for (int id : ids) {
+            out.writeInt(id);
+            out.writeInt(deckungsartProdukt.get(id, KEINE));
+        }
+        out.writeInt(betraege.size());
+        for (Map.Entry<Integer, Betraege> e : betraege.entrySet()) {
+            Betraege b = e.getValue();
+            out.writeInt(e.getKey());
+            out.writeInt(b.cent.length);
+            for (int i = 0; i < b.cent.length; i++) {
+                out.writeLong(b.cent[i]);
+                out.writeInt(b.ids[i]);
+            }
+        }
+        out.writeInt(preise.size());
+        for (Map.Entry<Integer, Preise> e : preise.entrySet()) {
+            Preise p = e.getValue();
+            out.writeInt(e.getKey());
+            out.writeInt(p.cent.length);
+            for (int i = 0; i < p.cent.length; i++) {
+                out.writeInt(p.vonTage[i]);
+                out.writeInt(p.bisTage[i]);
+                out.writeLong(p.cent[i]);
+            }
+        }
+        out.writeInt(regeln.size());
+        for (Map.Entry<Integer, List<Ablehnungsregel>> e : regeln.entrySet()) {
+            out.writeInt(e.getKey());
+            out.writeInt(e.getValue().size());
+            for (Ablehnungsregel r : e.getValue()) {
+                out.writeUTF(r.getRBetrag());
+                out.writeUTF(r.getRAlter());
+            }
+        }
+        out.flush();
+        byte[] rumpf = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(rumpf);
+        ByteBuffer kopf = ByteBuffer.allocate(SNAPSHOT_KOPF);
+        kopf.putInt(SNAPSHOT_KENNUNG).putInt(SNAPSHOT_VERSION).putLong(datenbankStand)
+                .putLong(System.currentTimeMillis()).putInt(rumpf.length).putInt((int) crc.getValue());
+        Path temp = pfad.resolveSibling(pfad.getFileName() + ".tmp");
+        try {
+            Files.write(temp, kopf.array());
+            Files.write(temp, rumpf, StandardOpenOption.APPEND);
+            Files.move(temp, pfad, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Liest eine mit {@link #schreibeSnapshot} geschriebene Datei.
+     *
+     * @throws IOException wenn die Datei fehlt, eine andere Version hat oder
+     *                     die Pruefsumme nicht stimmt.
+     */
+    public static Snapshot leseSnapshot(Path pfad) throws IOException {
+        byte[] datei = Files.readAllBytes(pfad);
+        ByteBuffer kopf = ByteBuffer.wrap(datei);
+        if (datei.length < SNAPSHOT_KOPF || kopf.getInt() != SNAPSHOT_KENNUNG || kopf.getInt() != SNAPSHOT_VERSION) {
+            throw new IOException(pfad + ": kein Referenzdaten-Snapshot der Version " + SNAPSHOT_VERSION);
+        }
+        long datenbankStand = kopf.getLong();
+        long erzeugtMillis = kopf.getLong();
+        int laenge = kopf.getInt();
+        int pruefsumme = kopf.getInt();
+        if (laenge != datei.length - SNAPSHOT_KOPF) {
+            throw new IOException(pfad + ": Laenge passt nicht zum Kopf");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(datei, SNAPSHOT_KOPF, laenge);
+        if ((int) crc.getValue() != pruefsumme) {
+            throw new IOException(pfad + ": Pruefsumme falsch");
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(datei, SNAPSHOT_KOPF, laenge));
+        Builder b = new Builder();
+        for (int n = in.readInt(); n > 0; n--) {
+            b.produkt(in.readInt());
+        }
+        for (int n = in.readInt(); n > 0; n--) {
+            b.deckungsart(in.readInt(), in.readInt());
+        }
+        for (int n = in.readInt(); n > 0; n--) {
+            int art = in.readInt();
+            for (int m = in.readInt(); m > 0; m--) {
+                long cent = in.readLong();
+                b.deckungsbetrag(in.readInt(), art, cent);
+            }
+        }
+        for (int n = in.readInt(); n > 0; n--) {
+            int betragId = in.readInt();
+            for (int m = in.readInt(); m > 0; m--) {
+                b.deckungspreis(betragId, in.readInt(), in.readInt(), in.readLong());
+            }
+        }
+        for (int n = in.readInt(); n > 0; n--) {
+            int art = in.readInt();
+            for (int m = in.readInt(); m > 0; m--) {
+                b.regel(art, in.readUTF(), in.readUTF());
+            }
+        }
+        return new Snapshot(b.build(), datenbankStand, erzeugtMillis);
+    }
+
+    @Override
+    public String toString() {
+        int anzahlPreise = 0;
+        for (Preise p : preise.values()) {
+            anzahlPreise += p.cent.length;
+        }
+        int anzahlRegeln = 0;
+        for (List<Ablehnungsregel> l : regeln.values()) {
+            anzahlRegeln += l.size();
+        }
+        return produkte.size() + " Produkte, " + deckungsartProdukt.size() + " Deckungsarten, "
+                + anzahlPreise + " Deckungspreise, " + anzahlRegeln + " Ablehnungsregeln";
+    }
+
+    /**
+     * Sammelt Stammdaten-Zeilen in beliebiger Reihenfolge, z.B. aus der
+     * Datenbank oder aus Testdaten.
+     */
+    static final class Builder {
+        private final IntIntMap produkte = new IntIntMap(16);
+        private final IntIntMap deckungsartProdukt = new IntIntMap(64);
+        private final Map<Integer, List<long[]>> betraege = new HashMap<>();
+        private final Map<Integer, List<long[]>> preise = new HashMap<>();
+        private final Map<Integer, List<Ablehnungsregel>> regeln = new HashMap<>();
+
+        Builder produkt(int id) {
+            produkte.put(id, 1);
+            return this;
+        }
+
+        Builder deckungsart(int id, int produktId) {
+            deckungsartProdukt.put(id, produktId);
+            return this;
+        }
+
+        Builder deckungsbetrag(int id, int deckungsartId, long betragCent) {
+            betraege.computeIfAbsent(deckungsartId, k -> new ArrayList<>()).add(new long[]{betragCent, id});
+            return this;
+        }
+
+        Builder deckungspreis(int deckungsbetragId, int vonTag, int bisTag, long preisCent) {
+            preise.computeIfAbsent(deckungsbetragId, k -> new ArrayList<>()).add(new long[]{vonTag, bisTag, preisCent});
+            return this;
+        }
+
+        // in der Reihenfolge von LfdNr aufzurufen
+        Builder regel(int deckungsartId, String rBetrag, String rAlter) {
+            regeln.computeIfAbsent(deckungsartId, k -> new ArrayList<>()).add(new Ablehnungsregel(rBetrag, rAlter));
+            return this;
+        }
+
+        Referenzdaten build() {
+            return new Referenzdaten(this);
+        }
+    }
+
+}
@@ -0,0 +1,201 @@
+package de.htwberlin.dbtech.versicherung;
+
+import de.htwberlin.dbtech.exceptions.DataException;
+import de.htwberlin.dbtech.exceptions.ServiceException;
+import de.htwberlin.dbtech.utils.ConnectionPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Haelt die aktuellen {@link Referenzdaten} und uebersteht Neustarts ueber
+ * eine Snapshot-Datei.
+ * <p>
+ * {@link #starte(long)} liest zuerst den Snapshot; die Dienste arbeiten
+ * damit sofort ohne Datenbankzugriff. Ob er noch zur Datenbank passt, wird
+ * danach im Hintergrund ueber {@link Referenzdaten#datenbankStand} geprueft
+ * und in festen Abstaenden wiederholt. Weicht der Stand ab, werden die Daten
+ * neu geladen, ausgetauscht und als Snapshot geschrieben. Fehlt der Snapshot
+ * oder ist er beschaedigt, wird beim Start aus der Datenbank geladen.
+ * <p>
+ * Bis zur ersten Pruefung ({@link #isGeprueft()}) koennen Aenderungen an den
+ * Stammdaten seit dem Snapshot fehlen, danach hoechstens die seit der
+ * letzten Pruefung.
+ * <p>
+ * Ein mit {@link #setMonatsratenCache} gesetzter {@link MonatsratenCache}
+ * wird geleert, wenn eine Pruefung einen neuen Stand findet, weil
+ * geaenderte Deckungspreise jede gemerkte Rate ungueltig machen koennen;
+ * das erste Laden beim Start leert ihn nicht.
+ */
+public class ReferenzdatenCache implements AutoCloseable {
+    private static final Logger L = LoggerFactory.getLogger(ReferenzdatenCache.class);
+
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    private final ConnectionPool pool;
+    private final Path snapshot;
+    private volatile Referenzdaten daten = null;
+    private volatile long datenbankStand = 0;
+    private volatile boolean geprueft = false;
+    private boolean gespeichert = false;
+    private ScheduledExecutorService scheduler = null;
+    private volatile MonatsratenCache monatsratenCache = null;
+
+    public ReferenzdatenCache(ConnectionPool pool, Path snapshot) {
+        this.pool = pool;
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Cache, der bei geaenderten Stammdaten geleert wird.
+     */
+    public void setMonatsratenCache(MonatsratenCache monatsratenCache) {
+        this.monatsratenCache = monatsratenCache;
+    }
+
+    /**
+     * Laedt den Snapshot bzw. die Datenbank und startet die Pruefung im
+     * Hintergrund, die erste sofort, danach alle {@code pruefIntervallMillis}.
+     */
+    public synchronized void starte(long pruefIntervallMillis) {
+        if (scheduler != null) {
+            throw new ServiceException("Referenzdaten-Cache laeuft bereits");
+        }
+        long start = System.nanoTime();
+        try {
+            Referenzdaten.Snapshot s = Referenzdaten.leseSnapshot(snapshot);
+            daten = s.getDaten();
+            datenbankStand = s.getDatenbankStand();
+            gespeichert = true;
+            L.info("Referenzdaten aus " + snapshot + " in " + (System.nanoTime() - start) / 1_000_000
+                    + " ms: " + daten);
+        } catch (IOException e) {
+            L.warn("Snapshot nicht verwendbar, lade aus der Datenbank: " + e.getMessage());
+            aktualisiere();
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "referenzdaten-pruefung");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                pruefe();
+            } catch (RuntimeException e) {
+                // naechste Pruefung versucht es erneut
+                L.error("Pruefung der Referenzdaten fehlgeschlagen", e);
+            }
+        }, 0, pruefIntervallMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Aktuelle Referenzdaten; erst nach {@link #starte(long)} verfuegbar.
+     */
+    public Referenzdaten get() {
+        Referenzdaten r = daten;
+        if (r == null) {
+            throw new ServiceException("Referenzdaten-Cache nicht gestartet");
+        }
+        return r;
+    }
+
+    /**
+     * true, sobald die Daten mindestens einmal gegen die Datenbank geprueft
+     * oder aus ihr geladen wurden.
+     */
+    public boolean isGeprueft() {
+        return geprueft;
+    }
+
+    /**
+     * Vergleicht den Stand der Datenbank mit dem der Daten und laedt bei
+     * Abweichung neu; ein gesetzter {@link MonatsratenCache} wird dann
+     * geleert.
+     *
+     * @return true, wenn neu geladen wurde.
+     */
+    public synchronized boolean pruefe() {
+        long start = System.nanoTime();
+        long aktuell = mitConnection(Referenzdaten::datenbankStand);
+        if (aktuell == datenbankStand) {
+            geprueft = true;
+            L.info("Referenzdaten aktuell, geprueft in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+            return false;
+        }
+        L.info("Stammdaten geaendert, lade Referenzdaten neu");
+        aktualisiere();
+        MonatsratenCache m = monatsratenCache;
+        if (m != null) {
+            m.leeren();
+        }
+        return true;
+    }
+
+    /**
+     * Schreibt den Snapshot, falls die Daten seit dem letzten Schreiben neu
+     * geladen wurden, und beendet die Pruefung.
+     */
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler = null;
+        }
+        if (daten != null && !gespeichert) {
+            schreibe();
+        }
+    }
+
+    // Stand vor den Daten lesen: eine Aenderung dazwischen fuehrt hoechstens zu einem unnoetigen Neuladen
+    private void aktualisiere() {
+        long stand = mitConnection(Referenzdaten::datenbankStand);
+        daten = mitConnection(Referenzdaten::lade);
+        datenbankStand = stand;
+        geprueft = true;
+        gespeichert = false;
+        schreibe();
+    }
+
+    private void schreibe() {
+        long start = System.nanoTime();
+        try {
+            daten.schreibeSnapshot(snapshot, datenbankStand);
+            gespeichert = true;
+            L.info("Snapshot " + snapshot + " geschrieben in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } catch (IOException e) {
+            // nur der naechste Start wird langsamer
+            L.error("Snapshot " + snapshot + " nicht geschrieben", e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface MitConnection<T> {
+        T mit(Connection c) throws SQLException;
+    }
+
+    private <T> T mitConnection(MitConnection<T> aktion) {
+        Connection c;
+        try {
+            c = pool.acquire(TIMEOUT_MILLIS);
+        } catch (SQLException e) {
+            L.error("", e);
+            throw new DataException(e);
+        }
+        try {
+            return aktion.mit(c);
+        } catch (SQLException e) {
+            L.error("", e);
+            throw new DataException(e);
+        } finally {
+            pool.release(c);
+        }
+    }
+
+}
@@ -0,0 +1,52 @@
+package de.htwberlin.dbtech.versicherung;
+
+import org.junit.Assert;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class ReferenzdatenTest {
+
+    private static Referenzdaten beispiel() {
+        return new Referenzdaten.Builder()
+                .produkt(1)
+                .deckungsart(10, 1)
+                .deckungsbetrag(100, 10, 1_000_000)
+                .deckungsbetrag(101, 10, 500_000)
+                .deckungspreis(100, 0, 99, 1500)
+                .deckungspreis(100, 100, 199, 1600)
+                .regel(10, ">= 1000000", "> 70")
+                .build();
+    }
+
+    @org.junit.Test
+    public void snapshotLiefertDieselbenDaten() throws Exception {
+        Path pfad = Files.createTempDirectory("referenzdaten").resolve("referenzdaten.bin");
+        beispiel().schreibeSnapshot(pfad, 4711);
+        Referenzdaten.Snapshot s = Referenzdaten.leseSnapshot(pfad);
+        Assert.assertEquals(4711, s.getDatenbankStand());
+        Referenzdaten r = s.getDaten();
+        Assert.assertTrue(r.hatProdukt(1));
+        Assert.assertFalse(r.hatProdukt(2));
+        Assert.assertEquals(1, r.produktVonDeckungsart(10));
+        Assert.assertEquals(101, r.deckungsbetragId(10, 500_000));
+        Assert.assertEquals(Referenzdaten.KEINE, r.deckungsbetragId(10, 1));
+        Assert.assertEquals(1600, r.summeCent(100, 150));
+        Assert.assertEquals(Referenzdaten.KEIN_PREIS, r.preisCent(100, 200));
+        Assert.assertEquals(1, r.regeln(10).size());
+        Assert.assertEquals("> 70", r.regeln(10).get(0).getRAlter());
+        Assert.assertEquals(r.toString(), beispiel().toString());
+    }
+
+    @org.junit.Test(expected = IOException.class)
+    public void beschaedigterSnapshotWirdAbgelehnt() throws Exception {
+        Path pfad = Files.createTempDirectory("referenzdaten").resolve("referenzdaten.bin");
+        beispiel().schreibeSnapshot(pfad, 1);
+        byte[] datei = Files.readAllBytes(pfad);
+        datei[datei.length - 1] ^= 1;
+        Files.write(pfad, datei);
+        Referenzdaten.leseSnapshot(pfad);
+    }
+
+}
@@ -0,0 +1,400 @@
+package de.htwberlin.dbtech.versicherung;
+
+import de.htwberlin.dbtech.exceptions.DataException;
+import de.htwberlin.dbtech.utils.DbCred;
+import de.htwberlin.dbtech.utils.JdbcUtils;
+import de.htwberlin.dbtech.utils.TransactionTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Alle Deckungspreise in einer Datei, die nur in den Speicher abgebildet und
+ * nicht in den Heap geladen wird. Auch zig Millionen Preiszeitraeume
+ * erzeugen so keine Objekte und keine GC-Last, und nach einem Neustart ist
+ * die Datei sofort wieder benutzbar; das Betriebssystem haelt die
+ * gelesenen Seiten im Page Cache.
+ * <p>
+ * Aufbau, little endian:
+ * <pre>
+ * Kopf    40 Bytes: Kennung, Version, Anzahl Saetze, Anzahl Schluessel,
+ *                   Erzeugungszeit, Position des Index
+ * Saetze  je 24 Bytes, sortiert nach Deckungsbetrag_FK und Gueltig_Von:
+ *                   int Deckungsbetrag_FK, int Gueltig_Von, int Gueltig_Bis,
+ *                   int groesstes Gueltig_Bis bis hierher, long Preis in Cent
+ * Index   long[Schluessel + 1] erster Satz je Schluessel,
+ *         int[Schluessel] Deckungsbetrag_FK aufsteigend
+ * </pre>
+ * Daten sind wie in {@link BestandSnapshot} Tage seit 1970-01-01. Das
+ * laufende Maximum von Gueltig_Bis erlaubt es, von der Binaersuche nach
+ * dem Stichtag aus rueckwaerts nur so weit zu gehen, wie noch ein Zeitraum
+ * den Tag abdecken kann; bei lueckenlosen Zeitscheiben ist das ein Satz.
+ * <p>
+ * Die Datei ist ein Export und sieht spaetere Aenderungen an Deckungspreis
+ * nicht; nach Tarifaenderungen mit {@link #exportiere} neu schreiben. Der
+ * {@link Schreiber} schreibt in eine temporaere Datei und benennt sie erst
+ * am Ende um, ein abgebrochener Export hinterlaesst also die alte Datei.
+ * Instanzen sind nach dem Oeffnen unveraenderlich und threadsicher.
+ */
+public final class Tarifdatei implements Preisquelle {
+    private static final Logger L = LoggerFactory.getLogger(Tarifdatei.class);
+
+    private static final int KENNUNG = 0x46524154; // "TARF"
+    private static final int VERSION = 1;
+    private static final int KOPF = 40;
+    private static final int SATZ = 24;
+    // Saetze je abgebildetem Segment, 64 Mi * 24 Bytes bleibt unter 2 GiB
+    private static final int SEGMENT_BITS = 26;
+    private static final long SEGMENT_MASKE = (1L << SEGMENT_BITS) - 1;
+
+    private static final String SQL_EXPORT = String.join(" ",
+            "select Deckungsbetrag_FK,",
+            "  trunc(Gueltig_Von) - date '1970-01-01' as VonTag,",
+            "  trunc(Gueltig_Bis) - date '1970-01-01' as BisTag,",
+            "  round(Preis * 100) as PreisCent",
+            "from Deckungspreis order by Deckungsbetrag_FK, Gueltig_Von, ID");
+
+    private final Path pfad;
+    private final ByteBuffer[] segmente;
+    private final ByteBuffer index;
+    private final long anzahlSaetze;
+    private final int anzahlSchluessel;
+    private final long erzeugtMillis;
+    // Beginn der Schluessel im Index
+    private final int schluesselPosition;
+
+    private Tarifdatei(Path pfad, ByteBuffer[] segmente, ByteBuffer index, long anzahlSaetze, int anzahlSchluessel,
+                       long erzeugtMillis) {
+        this.pfad = pfad;
+        this.segmente = segmente;
+        this.index = index;
+        this.anzahlSaetze = anzahlSaetze;
+        this.anzahlSchluessel = anzahlSchluessel;
+        this.erzeugtMillis = erzeugtMillis;
+        this.schluesselPosition = (anzahlSchluessel + 1) * Long.BYTES;
+    }
+
+    /**
+     * Alle SQL-Anweisungen, z.B. fuer {@link de.htwberlin.dbtech.utils.ExplainPlanCheck}.
+     */
+    public static List<String> statements() {
+        return List.of(SQL_EXPORT);
+    }
+
+    /**
+     * Bildet eine mit {@link Schreiber} erzeugte Datei in den Speicher ab.
+     */
+    public static Tarifdatei oeffne(Path pfad) throws IOException {
+        try (FileChannel kanal = FileChannel.open(pfad, StandardOpenOption.READ)) {
+            long groesse = kanal.size();
+            if (groesse < KOPF) {
+                throw new IOException(pfad + ": keine Tarifdatei");
+            }
+            ByteBuffer kopf = kanal.map(FileChannel.MapMode.READ_ONLY, 0, KOPF).order(ByteOrder.LITTLE_ENDIAN);
+            if (kopf.getInt(0) != KENNUNG || kopf.getInt(4) != VERSION) {
+                throw new IOException(pfad + ": keine Tarifdatei der Version " + VERSION);
+            }
+            long anzahlSaetze = kopf.getLong(8);
+            int anzahlSchluessel = kopf.getInt(16);
+            long erzeugtMillis = kopf.getLong(24);
+            long indexPosition = kopf.getLong(32);
+            long indexGroesse = (anzahlSchluessel + 1L) * Long.BYTES + (long) anzahlSchluessel * Integer.BYTES;
+            if (indexPosition != KOPF + anzahlSaetze * SATZ || indexPosition + indexGroesse != groesse) {
+                throw new IOException(pfad + ": Groesse passt nicht zum Kopf, Datei unvollstaendig?");
+            }
+            int anzahlSegmente = (int) ((anzahlSaetze + SEGMENT_MASKE) >>> SEGMENT_BITS);
+            ByteBuffer[] segmente = new ByteBuffer[anzahlSegmente];
+            for (int s = 0; s < anzahlSegmente; s++) {
+                long erster = (long) s << SEGMENT_BITS;
+                long saetze = Math.min(1L << SEGMENT_BITS, anzahlSaetze - erster);
+                segmente[s] = kanal.map(FileChannel.MapMode.READ_ONLY, KOPF + erster * SATZ, saetze * SATZ)
+                        .order(ByteOrder.LITTLE_ENDIAN);
+            }
+            ByteBuffer index = kanal.map(FileChannel.MapMode.READ_ONLY, indexPosition, indexGroesse)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            // die Abbildungen bleiben nach dem Schliessen des Kanals gueltig
+            return new Tarifdatei(pfad, segmente, index, anzahlSaetze, anzahlSchluessel, erzeugtMillis);
+        }
+    }
+
+    /**
+     * Schreibt alle Deckungspreise der Datenbank in die Datei und oeffnet sie.
+     */
+    public static Tarifdatei exportiere(Connection connection, Path pfad) {
+        long start = System.nanoTime();
+        L.info(SQL_EXPORT);
+        try (Schreiber schreiber = new Schreiber(pfad)) {
+            TransactionTemplate.of(connection).readOnly(true).run(c -> {
+                try (PreparedStatement ps = c.prepareStatement(SQL_EXPORT)) {
+                    ps.setFetchSize(10_000);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            schreiber.add(rs.getInt(1), rs.getInt(2), rs.getInt(3), rs.getLong(4));
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            schreiber.fertigstellen();
+        } catch (SQLException e) {
+            L.error("", e);
+            throw new DataException(e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            Tarifdatei t = oeffne(pfad);
+            L.info("Tarifdatei {} geschrieben: {} in {} ms", pfad, t, (System.nanoTime() - start) / 1_000_000);
+            return t;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * {@inheritDoc} Erzeugt keine Objekte.
+     */
+    @Override
+    public long summeCent(int deckungsbetragId, int tag) {
+        int k = suche(deckungsbetragId);
+        if (k < 0) {
+            return KEIN_PREIS;
+        }
+        long erster = index.getLong(k * Long.BYTES);
+        long summe = 0;
+        boolean gefunden = false;
+        for (long i = obergrenze(erster, index.getLong((k + 1) * Long.BYTES), tag) - 1;
+             i >= erster && maxBis(i) >= tag; i--) {
+            if (bis(i) >= tag) {
+                summe += cent(i);
+                gefunden = true;
+            }
+        }
+        return gefunden ? summe : KEIN_PREIS;
+    }
+
+    /**
+     * Ob ein Zeitraum des Deckungsbetrags den Tag enthaelt.
+     */
+    public boolean hatPreis(int deckungsbetragId, int tag) {
+        int k = suche(deckungsbetragId);
+        if (k < 0) {
+            return false;
+        }
+        long erster = index.getLong(k * Long.BYTES);
+        for (long i = obergrenze(erster, index.getLong((k + 1) * Long.BYTES), tag) - 1;
+             i >= erster && maxBis(i) >= tag; i--) {
+            if (bis(i) >= tag) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Position des Schluessels im Index oder -1
+    private int suche(int deckungsbetragId) {
+        int lo = 0;
+        int hi = anzahlSchluessel - 1;
+        while (lo <= hi) {
+            int mitte = (lo + hi) >>> 1;
+            int s = index.getInt(schluesselPosition + mitte * Integer.BYTES);
+            if (s < deckungsbetragId) {
+                lo = mitte + 1;
+            } else if (s > deckungsbetragId) {
+                hi = mitte - 1;
+            } else {
+                return mitte;
+            }
+        }
+        return -1;
+    }
+
+    // erster Satz in [von, bis), der nach dem Tag beginnt
+    private long obergrenze(long von, long bis, int tag) {
+        while (von < bis) {
+            long mitte = (von + bis) >>> 1;
+            if (vonTag(mitte) <= tag) {
+                von = mitte + 1;
+            } else {
+                bis = mitte;
+            }
+        }
+        return von;
+    }
+
+    private ByteBuffer segment(long satz) {
+        return segmente[(int) (satz >>> SEGMENT_BITS)];
+    }
+
+    private static int position(long satz) {
+        return (int) (satz & SEGMENT_MASKE) * SATZ;
+    }
+
+    private int vonTag(long satz) {
+        return segment(satz).getInt(position(satz) + 4);
+    }
+
+    private int bis(long satz) {
+        return segment(satz).getInt(position(satz) + 8);
+    }
+
+    private int maxBis(long satz) {
+        return segment(satz).getInt(position(satz) + 12);
+    }
+
+    private long cent(long satz) {
+        return segment(satz).getLong(position(satz) + 16);
+    }
+
+    public Path getPfad() {
+        return pfad;
+    }
+
+    public long getAnzahlSaetze() {
+        return anzahlSaetze;
+    }
+
+    public int getAnzahlSchluessel() {
+        return anzahlSchluessel;
+    }
+
+    public long getErzeugtMillis() {
+        return erzeugtMillis;
+    }
+
+    @Override
+    public String toString() {
+        return anzahlSaetze + " Deckungspreise zu " + anzahlSchluessel + " Deckungsbetraegen";
+    }
+
+    /**
+     * Schreibt eine Tarifdatei aus Saetzen, die nach Deckungsbetrag_FK und
+     * Gueltig_Von sortiert ankommen. Nur {@link #fertigstellen()} ersetzt die
+     * Zieldatei; {@link #close()} ohne fertigstellen verwirft den Export.
+     */
+    public static final class Schreiber implements AutoCloseable {
+        private final Path ziel;
+        private final Path temp;
+        private final FileChannel kanal;
+        private final ByteBuffer puffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+        private final IntSpalte schluessel = new IntSpalte();
+        private final LongSpalte anfaenge = new LongSpalte();
+        private long anzahl;
+        private int letzterSchluessel;
+        private int letztesVon;
+        private int maxBis;
+        private boolean fertig;
+
+        public Schreiber(Path ziel) throws IOException {
+            this.ziel = ziel;
+            this.temp = ziel.resolveSibling(ziel.getFileName() + ".tmp");
+            this.kanal = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE);
+            kanal.position(KOPF);
+        }
+
+        public void add(int deckungsbetragId, int vonTag, int bisTag, long preisCent) throws IOException {
+            if (anzahl == 0 || deckungsbetragId != letzterSchluessel) {
+                if (anzahl > 0 && deckungsbetragId < letzterSchluessel) {
+                    throw new IllegalArgumentException("nicht nach Deckungsbetrag_FK sortiert: " + deckungsbetragId
+                            + " nach " + letzterSchluessel);
+                }
+                schluessel.add(deckungsbetragId);
+                anfaenge.add(anzahl);
+                maxBis = bisTag;
+            } else {
+                if (vonTag < letztesVon) {
+                    throw new IllegalArgumentException("nicht nach Gueltig_Von sortiert: Deckungsbetrag "
+                            + deckungsbetragId + ", " + vonTag + " nach " + letztesVon);
+                }
+                maxBis = Math.max(maxBis, bisTag);
+            }
+            letzterSchluessel = deckungsbetragId;
+            letztesVon = vonTag;
+            if (puffer.remaining() < SATZ) {
+                leeren();
+            }
+            puffer.putInt(deckungsbetragId).putInt(vonTag).putInt(bisTag).putInt(maxBis).putLong(preisCent);
+            anzahl++;
+        }
+
+        private void leeren() throws IOException {
+            puffer.flip();
+            while (puffer.hasRemaining()) {
+                kanal.write(puffer);
+            }
+            puffer.clear();
+        }
+
+        /**
+         * Schreibt Index und Kopf und ersetzt die Zieldatei.
+         */
+        public void fertigstellen() throws IOException {
+            long indexPosition = KOPF + anzahl * SATZ;
+            anfaenge.add(anzahl);
+            for (int i = 0; i < anfaenge.size; i++) {
+                if (puffer.remaining() < Long.BYTES) {
+                    leeren();
+                }
+                puffer.putLong(anfaenge.get(i));
+            }
+            for (int i = 0; i < schluessel.size; i++) {
+                if (puffer.remaining() < Integer.BYTES) {
+                    leeren();
+                }
+                puffer.putInt(schluessel.get(i));
+            }
+            leeren();
+            puffer.putInt(KENNUNG).putInt(VERSION).putLong(anzahl).putInt(schluessel.size).putInt(0)
+                    .putLong(System.currentTimeMillis()).putLong(indexPosition);
+            puffer.flip();
+            long position = 0;
+            while (puffer.hasRemaining()) {
+                position += kanal.write(puffer, position);
+            }
+            puffer.clear();
+            kanal.force(true);
+            kanal.close();
+            Files.move(temp, ziel, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            fertig = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!fertig) {
+                kanal.close();
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    /**
+     * Exportiert die Deckungspreise der Datenbank aus DbCred nach args[0].
+     */
+    public static void main(String[] args) {
+        Path pfad = Paths.get(args.length > 0 ? args[0] : "tarife.bin");
+        try (Connection connection = JdbcUtils.getConnectionViaDriverManager(DbCred.url, DbCred.user, DbCred.password)) {
+            System.out.println(exportiere(connection, pfad));
+        } catch (SQLException e) {
+            L.error("", e);
+            throw new DataException(e);
+        }
+    }
+
+}
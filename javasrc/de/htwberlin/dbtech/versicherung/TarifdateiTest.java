@@ -0,0 +1,56 @@
+package de.htwberlin.dbtech.versicherung;
+
+import org.junit.Assert;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class TarifdateiTest {
+
+    @org.junit.Test
+    public void summeUndVorhandenWieSql() throws Exception {
+        Path verzeichnis = Files.createTempDirectory("tarifdatei");
+        Path pfad = verzeichnis.resolve("tarife.bin");
+        try (Tarifdatei.Schreiber s = new Tarifdatei.Schreiber(pfad)) {
+            // lueckenlose Zeitscheiben
+            s.add(1, 0, 99, 1000);
+            s.add(1, 100, 199, 1100);
+            s.add(1, 200, 299, 1200);
+            // ein langer Zeitraum, der von kurzen ueberlappt wird
+            s.add(2, 0, 1000, 500);
+            s.add(2, 10, 20, 50);
+            s.add(2, 30, 40, 60);
+            s.fertigstellen();
+        }
+        Assert.assertFalse(Files.exists(verzeichnis.resolve("tarife.bin.tmp")));
+        Tarifdatei t = Tarifdatei.oeffne(pfad);
+        Assert.assertEquals(6, t.getAnzahlSaetze());
+        Assert.assertEquals(2, t.getAnzahlSchluessel());
+
+        Assert.assertEquals(1000, t.summeCent(1, 0));
+        Assert.assertEquals(1100, t.summeCent(1, 150));
+        Assert.assertEquals(1200, t.summeCent(1, 299));
+        Assert.assertEquals(Tarifdatei.KEIN_PREIS, t.summeCent(1, 300));
+        Assert.assertEquals(Tarifdatei.KEIN_PREIS, t.summeCent(1, -1));
+
+        Assert.assertEquals(550, t.summeCent(2, 15));
+        Assert.assertEquals(500, t.summeCent(2, 25));
+        Assert.assertEquals(560, t.summeCent(2, 40));
+        Assert.assertEquals(500, t.summeCent(2, 1000));
+        Assert.assertTrue(t.hatPreis(2, 999));
+        Assert.assertFalse(t.hatPreis(2, 1001));
+
+        Assert.assertEquals(Tarifdatei.KEIN_PREIS, t.summeCent(3, 15));
+        Assert.assertFalse(t.hatPreis(0, 15));
+    }
+
+    @org.junit.Test(expected = IllegalArgumentException.class)
+    public void unsortiertWirdAbgelehnt() throws Exception {
+        Path pfad = Files.createTempDirectory("tarifdatei").resolve("tarife.bin");
+        try (Tarifdatei.Schreiber s = new Tarifdatei.Schreiber(pfad)) {
+            s.add(2, 0, 10, 1);
+            s.add(1, 0, 10, 1);
+        }
+    }
+
+}